@@ -0,0 +1,273 @@
+package tamagochi;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded multi-producer, single-consumer ring buffer of pet actions.
+ * Each action is stored as a primitive record (pet id and {@link PetActions} ordinal
+ * packed into a {@code long}, plus its enqueue time), so offering and draining do not
+ * allocate. Producers claim slots with a CAS on the tail sequence and publish them
+ * through a per-slot sequence number, in the style of the LMAX Disruptor; the single
+ * consumer (the simulation thread) drains records in batches.
+ *
+ * <p>When the buffer is full, producers either drop the action or wait for space,
+ * depending on the configured {@link OverflowPolicy}.
+ */
+public class ActionQueue {
+  private static final PetActions[] ACTIONS = PetActions.values();
+
+  /**
+   * What producers do when the ring buffer is full.
+   */
+  public enum OverflowPolicy {
+    /**
+     * Reject the action immediately; {@link #offer(int, PetActions)} returns {@code false}.
+     */
+    DROP,
+
+    /**
+     * Wait for the consumer to free a slot, up to the configured timeout.
+     */
+    BLOCK
+  }
+
+  /**
+   * Receives drained actions on the consumer thread.
+   */
+  @FunctionalInterface
+  public interface ActionHandler {
+    /**
+     * Handles one queued action.
+     *
+     * @param petId  The id of the pet the action targets.
+     * @param action The action to perform.
+     */
+    void handle(int petId, PetActions action);
+  }
+
+  private final int mask;
+  private final long[] records;
+  private final long[] enqueueTimes;
+  private final AtomicLongArray sequences;
+  private final AtomicLong tail;
+  private final OverflowPolicy policy;
+  private final long blockTimeoutNanos;
+
+  private volatile long head;
+  private final LongAdder offered;
+  private final LongAdder dropped;
+  private volatile long drained;
+  private volatile long totalWaitNanos;
+  private volatile long maxWaitNanos;
+
+  /**
+   * Constructs a new queue that drops actions when full.
+   *
+   * @param capacity The number of slots, rounded up to a power of two.
+   */
+  public ActionQueue(int capacity) {
+    this(capacity, OverflowPolicy.DROP, 0);
+  }
+
+  /**
+   * Constructs a new queue with the given overflow policy.
+   *
+   * @param capacity           The number of slots, rounded up to a power of two.
+   * @param policy             What producers do when the queue is full.
+   * @param blockTimeoutMillis How long a {@link OverflowPolicy#BLOCK} producer waits
+   *                           for space before giving up.
+   * @throws IllegalArgumentException if the capacity is not positive.
+   */
+  public ActionQueue(int capacity, OverflowPolicy policy, long blockTimeoutMillis) {
+    if (capacity <= 0 || capacity > (1 << 30)) {
+      throw new IllegalArgumentException("Invalid capacity: " + capacity);
+    }
+    int size = Integer.highestOneBit(capacity - 1) << 1;
+    size = Math.max(2, size);
+    this.mask = size - 1;
+    this.records = new long[size];
+    this.enqueueTimes = new long[size];
+    this.sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+    this.tail = new AtomicLong();
+    this.policy = policy;
+    this.blockTimeoutNanos = blockTimeoutMillis * 1_000_000L;
+    this.offered = new LongAdder();
+    this.dropped = new LongAdder();
+  }
+
+  /**
+   * Enqueues an action. Safe to call from any number of threads.
+   *
+   * @param petId  The id of the pet the action targets.
+   * @param action The action to perform.
+   * @return {@code true} if the action was queued, {@code false} if it was dropped.
+   */
+  public boolean offer(int petId, PetActions action) {
+    offered.increment();
+    long deadline = 0;
+    int spins = 0;
+    while (true) {
+      long position = tail.get();
+      int slot = (int) position & mask;
+      long sequence = sequences.get(slot);
+      if (sequence == position) {
+        if (tail.compareAndSet(position, position + 1)) {
+          records[slot] = (long) petId << 8 | action.ordinal();
+          enqueueTimes[slot] = System.nanoTime();
+          sequences.lazySet(slot, position + 1); // Publish the record to the consumer
+          return true;
+        }
+      } else if (sequence < position) {
+        // Full: the consumer has not released this slot yet
+        if (policy == OverflowPolicy.DROP) {
+          dropped.increment();
+          return false;
+        }
+        long now = System.nanoTime();
+        if (deadline == 0) {
+          deadline = now + blockTimeoutNanos;
+        } else if (now - deadline >= 0) {
+          dropped.increment();
+          return false;
+        }
+        if (++spins > 64) {
+          LockSupport.parkNanos(1_000);
+        } else {
+          Thread.onSpinWait();
+        }
+      }
+      // Otherwise another producer claimed the slot first; retry with the new tail
+    }
+  }
+
+  /**
+   * Drains up to {@code maxBatch} queued actions in FIFO order.
+   * Must only be called from the single consumer thread.
+   *
+   * @param handler  Receives each drained action.
+   * @param maxBatch The maximum number of actions to drain.
+   * @return The number of actions drained.
+   */
+  public int drain(ActionHandler handler, int maxBatch) {
+    long position = head;
+    long now = System.nanoTime();
+    long waitSum = 0;
+    long waitMax = maxWaitNanos;
+    int count = 0;
+    try {
+      while (count < maxBatch) {
+        int slot = (int) position & mask;
+        if (sequences.get(slot) != position + 1) {
+          break; // Empty, or the producer has not published this slot yet
+        }
+        long record = records[slot];
+        long enqueued = enqueueTimes[slot];
+        if (enqueued - now > 0) {
+          now = System.nanoTime(); // Published after the batch started
+        }
+        long wait = Math.max(0, now - enqueued);
+        sequences.lazySet(slot, position + mask + 1); // Release the slot to producers
+        position++;
+        count++;
+        waitSum += wait;
+        waitMax = Math.max(waitMax, wait);
+        handler.handle((int) (record >>> 8), ACTIONS[(int) record & 0xFF]);
+      }
+    } finally {
+      // Released slots are accounted for even if the handler throws
+      if (count > 0) {
+        head = position;
+        drained += count;
+        totalWaitNanos += waitSum;
+        maxWaitNanos = waitMax;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Retrieves the number of slots in the ring buffer.
+   *
+   * @return The capacity.
+   */
+  public int capacity() {
+    return mask + 1;
+  }
+
+  /**
+   * Retrieves the approximate number of queued actions.
+   *
+   * @return The current queue depth.
+   */
+  public int depth() {
+    return (int) Math.max(0, tail.get() - head);
+  }
+
+  /**
+   * Retrieves how long the oldest queued action has been waiting, i.e. the current
+   * sojourn time of the queue. The value is an estimate when read concurrently with
+   * the consumer.
+   *
+   * @return The wait time of the head action in nanoseconds, or 0 if the queue is empty.
+   */
+  public long getHeadWaitNanos() {
+    long position = head;
+    int slot = (int) position & mask;
+    if (sequences.get(slot) != position + 1) {
+      return 0;
+    }
+    return Math.max(0, System.nanoTime() - enqueueTimes[slot]);
+  }
+
+  /**
+   * Retrieves the number of actions offered so far, including dropped ones.
+   *
+   * @return The offered action count.
+   */
+  public long getOfferedCount() {
+    return offered.sum();
+  }
+
+  /**
+   * Retrieves the number of actions rejected because the queue was full.
+   *
+   * @return The dropped action count.
+   */
+  public long getDroppedCount() {
+    return dropped.sum();
+  }
+
+  /**
+   * Retrieves the number of actions handed to the consumer so far.
+   *
+   * @return The drained action count.
+   */
+  public long getDrainedCount() {
+    return drained;
+  }
+
+  /**
+   * Retrieves the average time drained actions spent in the queue.
+   *
+   * @return The mean wait time in nanoseconds, or 0 if nothing was drained.
+   */
+  public long getAverageWaitNanos() {
+    long count = drained;
+    return count == 0 ? 0 : totalWaitNanos / count;
+  }
+
+  /**
+   * Retrieves the longest time a drained action spent in the queue.
+   *
+   * @return The maximum wait time in nanoseconds.
+   */
+  public long getMaxWaitNanos() {
+    return maxWaitNanos;
+  }
+}
@@ -0,0 +1,395 @@
+package tamagochi;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control in front of a {@link PetService}, rejecting excess requests early
+ * so that the simulation keeps ticking on time under overload. Three checks apply:
+ * <ol>
+ *   <li>adaptive shedding of mutating requests based on their sojourn time, in the
+ *       style of CoDel: while the minimum sojourn over the last interval stayed above
+ *       the target, the service is considered congested and mutations are shed as soon
+ *       as the sojourn exceeds the target; otherwise only once it exceeds a whole
+ *       interval;</li>
+ *   <li>a token bucket per tenant, so no tenant can use more than its share; shed
+ *       requests cost no token. Tenants are not authenticated, so at most
+ *       {@link #MAX_TENANTS} buckets are kept: buckets idle long enough to be full again
+ *       are evicted, and new tenants are rate limited while none is;</li>
+ *   <li>a global limit on the number of requests in flight.</li>
+ * </ol>
+ * The sojourn time is the larger of the wait of the head action of the
+ * {@link ActionQueue}, and the duration of the latest mutation performed synchronously,
+ * as timed by front ends acting on pets directly between {@link #serviceStarted()} and
+ * {@link #serviceEnded(long)}.
+ * The latter includes waiting for the pet's monitor, which the simulation thread also
+ * takes, and is forgotten after an interval without reports, so that shedding every
+ * synchronous mutation does not keep the service congested.
+ *
+ * <p>All durations are measured with the controller's clock, which should follow real
+ * time like the queue's waits. Rejections carry a retry hint in seconds, suitable for a
+ * {@code Retry-After} header.
+ */
+public class AdmissionController {
+  /**
+   * Outcome of an admission check.
+   */
+  public enum Decision {
+    /**
+     * The request may proceed and must call {@link AdmissionController#release()}.
+     */
+    ADMITTED,
+
+    /**
+     * The tenant exceeded its rate limit.
+     */
+    RATE_LIMITED,
+
+    /**
+     * The service is overloaded.
+     */
+    OVERLOADED
+  }
+
+  /**
+   * The maximum number of tenants with a token bucket.
+   */
+  static final int MAX_TENANTS = 10_000;
+
+  private final ActionQueue queue;
+  private final Clock clock;
+  private final double tenantRate;
+  private final double tenantBurst;
+  private final Semaphore inFlight;
+  private final long targetNanos;
+  private final long intervalNanos;
+  private final long idleNanos;
+  private final ConcurrentHashMap<String, TokenBucket> buckets;
+  private final LongAdder admitted;
+  private final LongAdder rateLimited;
+  private final LongAdder shed;
+  private final LongAdder saturated;
+  private volatile long serviceNanos;
+  private volatile long serviceReportedAt;
+  private long nextEviction; // Guarded by buckets
+
+  // Congestion state, guarded by this
+  private long minSojournNanos;
+  private long intervalEnd;
+  private boolean congested;
+
+  /**
+   * Token bucket refilled continuously at a fixed rate.
+   */
+  private static final class TokenBucket {
+    private final double ratePerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill;
+
+    private TokenBucket(double ratePerSecond, double capacity, long now) {
+      this.ratePerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+      this.capacity = capacity;
+      this.tokens = capacity;
+      this.lastRefill = now;
+    }
+
+    /**
+     * Takes one token if available.
+     */
+    private synchronized boolean tryTake(long now) {
+      refill(now);
+      if (tokens < 1) {
+        return false;
+      }
+      tokens--;
+      return true;
+    }
+
+    /**
+     * Checks whether the bucket was left alone for the given time.
+     */
+    private synchronized boolean isIdle(long now, long idleNanos) {
+      return now - lastRefill >= idleNanos;
+    }
+
+    /**
+     * Computes how long until the next token becomes available.
+     */
+    private synchronized long nanosUntilToken(long now) {
+      refill(now);
+      return tokens >= 1 ? 0 : (long) ((1 - tokens) / ratePerNano);
+    }
+
+    private void refill(long now) {
+      tokens = Math.min(capacity, tokens + (now - lastRefill) * ratePerNano);
+      lastRefill = now;
+    }
+  }
+
+  /**
+   * Constructs a new controller with default limits: 5000 requests per second and a
+   * burst of 10000 per tenant, 512 requests in flight, a 5 ms sojourn target and a
+   * 100 ms interval.
+   *
+   * @param queue The action queue whose sojourn time drives shedding.
+   */
+  public AdmissionController(ActionQueue queue) {
+    this(queue, 5000, 10000, 512, 5, 100);
+  }
+
+  /**
+   * Constructs a new controller.
+   *
+   * @param queue          The action queue whose sojourn time drives shedding.
+   * @param tenantRate     The sustained requests per second allowed per tenant.
+   * @param tenantBurst    The number of requests a tenant may send in a burst.
+   * @param maxInFlight    The maximum number of requests processed concurrently.
+   * @param targetMillis   The acceptable sojourn time.
+   * @param intervalMillis The window over which the sojourn time must stay above the
+   *                       target before the service counts as congested.
+   * @throws IllegalArgumentException if a limit is not positive.
+   */
+  public AdmissionController(ActionQueue queue, double tenantRate, int tenantBurst,
+                             int maxInFlight, long targetMillis, long intervalMillis) {
+    this(queue, tenantRate, tenantBurst, maxInFlight, targetMillis, intervalMillis,
+        Clock.system());
+  }
+
+  /**
+   * Constructs a new controller measuring rates and intervals with the given clock.
+   *
+   * @param queue          The action queue whose sojourn time drives shedding.
+   * @param tenantRate     The sustained requests per second allowed per tenant.
+   * @param tenantBurst    The number of requests a tenant may send in a burst.
+   * @param maxInFlight    The maximum number of requests processed concurrently.
+   * @param targetMillis   The acceptable sojourn time.
+   * @param intervalMillis The window over which the sojourn time must stay above the
+   *                       target before the service counts as congested.
+   * @param clock          The clock measuring time.
+   * @throws IllegalArgumentException if a limit is not positive.
+   */
+  public AdmissionController(ActionQueue queue, double tenantRate, int tenantBurst,
+                             int maxInFlight, long targetMillis, long intervalMillis,
+                             Clock clock) {
+    if (tenantRate <= 0 || tenantBurst <= 0 || maxInFlight <= 0 || targetMillis <= 0
+        || intervalMillis <= 0) {
+      throw new IllegalArgumentException("Admission limits must be positive");
+    }
+    this.queue = queue;
+    this.clock = clock;
+    this.tenantRate = tenantRate;
+    this.tenantBurst = tenantBurst;
+    this.inFlight = new Semaphore(maxInFlight);
+    this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+    this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    // An empty bucket left alone this long is full, so evicting it changes nothing
+    this.idleNanos = (long) Math.ceil(tenantBurst / tenantRate * TimeUnit.SECONDS.toNanos(1));
+    this.buckets = new ConcurrentHashMap<>();
+    this.admitted = new LongAdder();
+    this.rateLimited = new LongAdder();
+    this.shed = new LongAdder();
+    this.saturated = new LongAdder();
+    this.minSojournNanos = Long.MAX_VALUE;
+    long now = clock.nanoTime();
+    this.intervalEnd = now + intervalNanos;
+    this.serviceReportedAt = now - intervalNanos;
+    this.nextEviction = now;
+  }
+
+  /**
+   * Decides whether a request may proceed. An admitted request holds an in-flight
+   * permit until it calls {@link #release()}.
+   *
+   * @param tenant   The tenant sending the request.
+   * @param mutating Whether the request changes a pet, and is thus subject to shedding.
+   * @return The decision.
+   */
+  public Decision acquire(String tenant, boolean mutating) {
+    if (mutating && shouldShed()) {
+      shed.increment();
+      return Decision.OVERLOADED;
+    }
+    long now = clock.nanoTime();
+    TokenBucket bucket = bucketOf(tenant, now);
+    if (bucket == null || !bucket.tryTake(now)) {
+      rateLimited.increment();
+      return Decision.RATE_LIMITED;
+    }
+    if (!inFlight.tryAcquire()) {
+      saturated.increment();
+      return Decision.OVERLOADED;
+    }
+    admitted.increment();
+    return Decision.ADMITTED;
+  }
+
+  /**
+   * Returns the in-flight permit of an admitted request.
+   */
+  public void release() {
+    inFlight.release();
+  }
+
+  /**
+   * Reports that an admitted mutation starts acting on a pet synchronously.
+   *
+   * @return The start time, to pass to {@link #serviceEnded(long)}.
+   */
+  public long serviceStarted() {
+    return clock.nanoTime();
+  }
+
+  /**
+   * Reports that a mutation acting on a pet synchronously completed, so that its
+   * duration drives shedding. Only the pet's service is timed, not writing the response,
+   * so that slow clients cannot make the service look congested.
+   *
+   * @param started The start time returned by {@link #serviceStarted()}.
+   */
+  public void serviceEnded(long started) {
+    long now = clock.nanoTime();
+    serviceNanos = now - started;
+    serviceReportedAt = now;
+  }
+
+  /**
+   * Checks whether a new action should be shed because the service is congested.
+   * Used directly by front ends that have no tenants or concurrency to limit.
+   *
+   * @return {@code true} if the action should be rejected.
+   */
+  public boolean shouldShed() {
+    long now = clock.nanoTime();
+    long sojourn = queue.getHeadWaitNanos();
+    if (now - serviceReportedAt < intervalNanos) {
+      sojourn = Math.max(sojourn, serviceNanos);
+    }
+    boolean wasCongested;
+    synchronized (this) {
+      minSojournNanos = Math.min(minSojournNanos, sojourn);
+      if (now - intervalEnd >= 0) {
+        congested = minSojournNanos > targetNanos;
+        minSojournNanos = Long.MAX_VALUE;
+        intervalEnd = now + intervalNanos;
+      }
+      wasCongested = congested;
+    }
+    return sojourn > (wasCongested ? targetNanos : intervalNanos);
+  }
+
+  /**
+   * Suggests how long a rejected client should wait before retrying.
+   *
+   * @param tenant   The tenant of the rejected request.
+   * @param decision The rejection.
+   * @return The delay in whole seconds, at least 1.
+   */
+  public long retryAfterSeconds(String tenant, Decision decision) {
+    long nanos = intervalNanos;
+    if (decision == Decision.RATE_LIMITED) {
+      long now = clock.nanoTime();
+      TokenBucket bucket = buckets.get(tenant);
+      nanos = bucket != null ? bucket.nanosUntilToken(now) : evictionDelay(now);
+    }
+    return Math.max(1, (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+  }
+
+  /**
+   * Retrieves the bucket of a tenant, creating it if there is room.
+   *
+   * @return The bucket, or {@code null} if there are too many tenants.
+   */
+  private TokenBucket bucketOf(String tenant, long now) {
+    TokenBucket bucket = buckets.get(tenant);
+    if (bucket == null) {
+      if (buckets.size() >= MAX_TENANTS && !evictIdle(now)) {
+        return null;
+      }
+      bucket = buckets.computeIfAbsent(tenant,
+          t -> new TokenBucket(tenantRate, tenantBurst, now));
+    }
+    return bucket;
+  }
+
+  /**
+   * Evicts the buckets that are full again. Scans at most once per idle time, so that a
+   * flood of new tenants cannot make every request scan the map.
+   *
+   * @return {@code true} if there is room for a new bucket.
+   */
+  private boolean evictIdle(long now) {
+    synchronized (buckets) {
+      if (now - nextEviction >= 0) {
+        nextEviction = now + idleNanos;
+        buckets.values().removeIf(bucket -> bucket.isIdle(now, idleNanos));
+      }
+    }
+    return buckets.size() < MAX_TENANTS;
+  }
+
+  /**
+   * Computes how long until the next eviction scan.
+   */
+  private long evictionDelay(long now) {
+    synchronized (buckets) {
+      return Math.max(0, nextEviction - now);
+    }
+  }
+
+  /**
+   * Retrieves the number of tenants with a token bucket.
+   *
+   * @return The tenant count.
+   */
+  public int getTenantCount() {
+    return buckets.size();
+  }
+
+  /**
+   * Retrieves the number of admitted requests.
+   *
+   * @return The admitted request count.
+   */
+  public long getAdmittedCount() {
+    return admitted.sum();
+  }
+
+  /**
+   * Retrieves the number of requests rejected by a tenant's rate limit.
+   *
+   * @return The rate-limited request count.
+   */
+  public long getRateLimitedCount() {
+    return rateLimited.sum();
+  }
+
+  /**
+   * Retrieves the number of mutating requests shed because the service was congested.
+   *
+   * @return The shed request count.
+   */
+  public long getShedCount() {
+    return shed.sum();
+  }
+
+  /**
+   * Retrieves the number of requests rejected because too many were in flight.
+   *
+   * @return The saturated request count.
+   */
+  public long getSaturatedCount() {
+    return saturated.sum();
+  }
+
+  /**
+   * Checks whether the service was congested during the last full interval.
+   *
+   * @return {@code true} if congested.
+   */
+  public synchronized boolean isCongested() {
+    return congested;
+  }
+}
@@ -0,0 +1,222 @@
+package tamagochi;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Autopilot keeping unattended pets alive, as a precomputed lookup table from a pet's
+ * mood and quantized levels to the action to perform.
+ *
+ * <p>Each of the hunger, hygiene, social and sleepy levels is quantized into
+ * {@value #BUCKETS} buckets, so the table holds one byte for each of the
+ * {@code 4 * 8^4} combinations with the mood: 16 KB, which fits in the L1 cache. The
+ * table is built once by {@link #build(int)}, which plays every action from the middle
+ * of each cell on a scratch pet through the real behavior of the cell's mood and keeps
+ * the one leaving the pet healthiest after the next tick. {@link #apply(PetPopulation)}
+ * then scans a population's packed state table once per tick, doing a single table
+ * lookup per pet and touching a pet's model only when an action is due. The cost of
+ * each pass is measured and exposed per pet.
+ */
+public class AutoCaretakerTable implements CarePolicy {
+  static final int BUCKETS = 8;
+  private static final int BUCKET_BITS = 3;
+  private static final int MOOD_CODES = 4;
+  private static final PetActions[] ACTIONS = PetActions.values();
+
+  // Action ordinal + 1 per cell, 0 for no action
+  private final byte[] table;
+  private final LongAdder petsScanned;
+  private final LongAdder actionsPerformed;
+  private final LongAdder scanNanos;
+
+  private AutoCaretakerTable(byte[] table) {
+    this.table = table;
+    this.petsScanned = new LongAdder();
+    this.actionsPerformed = new LongAdder();
+    this.scanNanos = new LongAdder();
+  }
+
+  /**
+   * Precomputes the table. A cell gets no action while all its levels stay at or above
+   * the comfort level, so that well-kept pets cost nothing but the lookup.
+   *
+   * @param comfortLevel The level below which the autopilot starts caring.
+   * @return The table.
+   */
+  public static AutoCaretakerTable build(int comfortLevel) {
+    byte[] table = new byte[MOOD_CODES << 4 * BUCKET_BITS];
+    PetModelImpl scratch = new PetModelImpl(0, new ManualClock());
+    int[] levels = new int[4];
+    for (Mood mood : Mood.values()) {
+      PetBehavior behavior = PetModelImpl.behaviorFor(mood);
+      for (int cell = 0; cell < 1 << 4 * BUCKET_BITS; cell++) {
+        int lowest = 100;
+        for (int i = 0; i < 4; i++) {
+          levels[i] = midpointOf(cell >>> (3 - i) * BUCKET_BITS & (BUCKETS - 1));
+          lowest = Math.min(lowest, levels[i]);
+        }
+        if (lowest >= comfortLevel) {
+          continue;
+        }
+        int best = 0;
+        long bestScore = score(scratch, levels, behavior, null);
+        for (PetActions action : ACTIONS) {
+          long score = score(scratch, levels, behavior, action);
+          if (score > bestScore) {
+            best = action.ordinal() + 1;
+            bestScore = score;
+          }
+        }
+        table[(mood.ordinal() + 1) << 4 * BUCKET_BITS | cell] = (byte) best;
+      }
+    }
+    return new AutoCaretakerTable(table);
+  }
+
+  /**
+   * Plays an action and one tick on the scratch pet, ranking outcomes by survival, then
+   * health, then the lowest level after the tick, then the sum of the levels right after
+   * the action, which still separates actions when the pet dies either way.
+   */
+  private static long score(PetModelImpl scratch, int[] levels, PetBehavior behavior,
+                            PetActions action) {
+    scratch.resetGame();
+    scratch.setHungerLevel(levels[0]);
+    scratch.setHygieneLevel(levels[1]);
+    scratch.setSocialLevel(levels[2]);
+    scratch.setSleepyLevel(levels[3]);
+    if (action != null) {
+      behavior.performActionBasedOnBehavior(scratch, action);
+    }
+    PetSnapshot acted = scratch.getSnapshot();
+    long sum = acted.getHungerLevel() + acted.getHygieneLevel() + acted.getSocialLevel()
+        + acted.getSleepyLevel();
+    scratch.updateState();
+    PetSnapshot state = scratch.getSnapshot();
+    return (state.isGameOver() ? 0L : 1L) << 30 | (long) state.getHealthLevel() << 20
+        | (long) CarePolicy.lowestLevel(state) << 10 | sum;
+  }
+
+  /**
+   * Computes the bucket of a level.
+   */
+  static int bucketOf(int level) {
+    return level * BUCKETS / 101;
+  }
+
+  /**
+   * Computes the level in the middle of a bucket.
+   */
+  private static int midpointOf(int bucket) {
+    int low = (bucket * 101 + BUCKETS - 1) / BUCKETS;
+    int high = ((bucket + 1) * 101 + BUCKETS - 1) / BUCKETS - 1;
+    return (low + high) / 2;
+  }
+
+  private static int indexOf(int moodCode, int hunger, int hygiene, int social, int sleepy) {
+    return moodCode << 4 * BUCKET_BITS
+        | bucketOf(hunger) << 3 * BUCKET_BITS
+        | bucketOf(hygiene) << 2 * BUCKET_BITS
+        | bucketOf(social) << BUCKET_BITS
+        | bucketOf(sleepy);
+  }
+
+  /**
+   * Looks up the action for a packed state.
+   *
+   * @param state The state, packed by {@link PackedPetState}.
+   * @return The action, or {@code null} if none is due.
+   */
+  PetActions lookup(long state) {
+    Mood mood = PackedPetState.mood(state);
+    int action = table[indexOf(mood == null ? 0 : mood.ordinal() + 1,
+        PackedPetState.hunger(state), PackedPetState.hygiene(state),
+        PackedPetState.social(state), PackedPetState.sleepy(state))];
+    return action == 0 ? null : ACTIONS[action - 1];
+  }
+
+  /**
+   * Looks up the action for a pet's state, letting the table be evaluated like any
+   * other policy.
+   *
+   * @param state  The pet's latest state.
+   * @param tick   The number of ticks since the pet's game started; unused.
+   * @param random The random source; unused.
+   * @return The action, or {@code null} if none is due.
+   */
+  @Override
+  public PetActions choose(PetSnapshot state, long tick, SplittableRandom random) {
+    return lookup(PackedPetState.of(state));
+  }
+
+  /**
+   * Performs the due actions on all living pets of a population, based on its latest
+   * published state table. Meant to run on the simulation thread right after a tick.
+   *
+   * @param population The population to care for.
+   * @return The number of actions performed.
+   */
+  public int apply(PetPopulation population) {
+    long start = System.nanoTime();
+    long[] states = population.states();
+    int count = Math.min(population.size(), states.length);
+    int performed = 0;
+    for (int i = 0; i < count; i++) {
+      long state = states[i];
+      if (PackedPetState.isGameOver(state)) {
+        continue;
+      }
+      PetActions action = lookup(state);
+      if (action != null) {
+        try {
+          population.get(i).performAction(action);
+          performed++;
+        } catch (IllegalStateException e) {
+          // Game over since the table was published
+        }
+      }
+    }
+    scanNanos.add(System.nanoTime() - start);
+    petsScanned.add(count);
+    actionsPerformed.add(performed);
+    return performed;
+  }
+
+  /**
+   * Retrieves the number of pet visits made by {@link #apply(PetPopulation)} so far.
+   *
+   * @return The number of pets scanned, over all passes.
+   */
+  public long getPetsScanned() {
+    return petsScanned.sum();
+  }
+
+  /**
+   * Retrieves the number of actions performed by {@link #apply(PetPopulation)} so far.
+   *
+   * @return The action count.
+   */
+  public long getActionsPerformed() {
+    return actionsPerformed.sum();
+  }
+
+  /**
+   * Retrieves the average cost of {@link #apply(PetPopulation)} per pet scanned,
+   * including the actions performed.
+   *
+   * @return The cost in nanoseconds, or 0 if nothing was scanned yet.
+   */
+  public double getNanosPerPet() {
+    long scanned = petsScanned.sum();
+    return scanned == 0 ? 0 : (double) scanNanos.sum() / scanned;
+  }
+
+  /**
+   * Retrieves the size of the lookup table.
+   *
+   * @return The size in bytes.
+   */
+  public int sizeInBytes() {
+    return table.length;
+  }
+}
@@ -0,0 +1,95 @@
+package tamagochi;
+
+import java.util.SplittableRandom;
+
+/**
+ * Strategy of a player looking after a pet, used by offline evaluations such as
+ * {@link SurvivalEvaluator}. Once per tick, before the pet's state is updated, the
+ * policy sees the pet's latest state and may perform one action.
+ */
+@FunctionalInterface
+public interface CarePolicy {
+
+  /**
+   * Chooses what to do on a tick.
+   *
+   * @param state  The pet's latest state.
+   * @param tick   The number of ticks since the pet's game started.
+   * @param random The random source of the evaluating thread, for stochastic policies.
+   * @return The action to perform, or {@code null} to leave the pet alone.
+   */
+  PetActions choose(PetSnapshot state, long tick, SplittableRandom random);
+
+  /**
+   * Returns a policy that never acts.
+   *
+   * @return The neglecting policy.
+   */
+  static CarePolicy neglect() {
+    return (state, tick, random) -> null;
+  }
+
+  /**
+   * Returns a policy performing the same action at a fixed interval, starting on the
+   * first tick.
+   *
+   * @param period The number of ticks between actions.
+   * @param action The action to perform.
+   * @return The periodic policy.
+   * @throws IllegalArgumentException if the period is not positive.
+   */
+  static CarePolicy every(int period, PetActions action) {
+    if (period <= 0) {
+      throw new IllegalArgumentException("Period must be positive: " + period);
+    }
+    return (state, tick, random) -> tick % period == 0 ? action : null;
+  }
+
+  /**
+   * Returns a policy that checks on the pet with a given probability per tick and then
+   * raises its lowest level if that level is below a threshold.
+   *
+   * @param threshold The level below which the player acts.
+   * @param attention The probability of checking on the pet on a tick, from 0 to 1.
+   * @return The attentive policy.
+   */
+  static CarePolicy lowestBelow(int threshold, double attention) {
+    return (state, tick, random) -> random.nextDouble() < attention
+        && lowestLevel(state) < threshold ? neediest(state) : null;
+  }
+
+  /**
+   * Retrieves the lowest of a pet's hunger, hygiene, social and sleepy levels.
+   *
+   * @param state The pet's state.
+   * @return The lowest level.
+   */
+  static int lowestLevel(PetSnapshot state) {
+    return Math.min(Math.min(state.getHungerLevel(), state.getHygieneLevel()),
+        Math.min(state.getSocialLevel(), state.getSleepyLevel()));
+  }
+
+  /**
+   * Chooses the action raising a pet's lowest level, preferring feeding, then showering,
+   * socializing and sleeping on ties.
+   *
+   * @param state The pet's state.
+   * @return The action for the lowest level.
+   */
+  static PetActions neediest(PetSnapshot state) {
+    int lowest = state.getHungerLevel();
+    PetActions action = PetActions.FEED;
+    if (state.getHygieneLevel() < lowest) {
+      lowest = state.getHygieneLevel();
+      action = PetActions.SHOWER;
+    }
+    if (state.getSocialLevel() < lowest) {
+      lowest = state.getSocialLevel();
+      action = PetActions.SOCIALIZE;
+    }
+    if (state.getSleepyLevel() < lowest) {
+      action = PetActions.SLEEP;
+    }
+    return action;
+  }
+}
@@ -0,0 +1,567 @@
+package tamagochi;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of non-negative integers, such as pet ids, in the style of Roaring
+ * bitmaps: the values are split into chunks of 65536 by their upper 16 bits, and each
+ * chunk is stored as a sorted array of its lower 16 bits while it holds at most
+ * {@value #ARRAY_LIMIT} values, and as a plain 8 KB bitmap otherwise. Sparse sets thus
+ * take 2 bytes per value and dense ones at most 1 bit per possible value, and
+ * intersections and unions work chunk by chunk with the cheapest algorithm for the two
+ * representations: merging arrays, probing a bitmap, or combining whole 64-bit words.
+ *
+ * <p>Instances are not thread-safe. The results of {@link #and}, {@link #or} and
+ * {@link #andNot} share no state with their operands.
+ */
+public final class CompressedBitmap {
+  static final int ARRAY_LIMIT = 4096;
+
+  private int size;
+  private char[] keys;
+  private Container[] containers;
+
+  /**
+   * Constructs a new, empty bitmap.
+   */
+  public CompressedBitmap() {
+    this(4);
+  }
+
+  private CompressedBitmap(int capacity) {
+    this.keys = new char[capacity];
+    this.containers = new Container[capacity];
+  }
+
+  /**
+   * Adds a value.
+   *
+   * @param value The non-negative value to add.
+   */
+  public void add(int value) {
+    char high = (char) (value >>> 16);
+    int i = indexOf(high);
+    if (i < 0) {
+      i = -i - 1;
+      insert(i, high, new ArrayContainer(new char[4], 0));
+    }
+    containers[i] = containers[i].add((char) value);
+  }
+
+  /**
+   * Removes a value, if present.
+   *
+   * @param value The value to remove.
+   */
+  public void remove(int value) {
+    int i = indexOf((char) (value >>> 16));
+    if (i >= 0) {
+      Container container = containers[i].remove((char) value);
+      if (container.cardinality() == 0) {
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+        containers[--size] = null;
+      } else {
+        containers[i] = container;
+      }
+    }
+  }
+
+  /**
+   * Checks whether a value is present.
+   *
+   * @param value The value to look for.
+   * @return {@code true} if the value was added and not removed since.
+   */
+  public boolean contains(int value) {
+    int i = indexOf((char) (value >>> 16));
+    return i >= 0 && containers[i].contains((char) value);
+  }
+
+  /**
+   * Counts the values.
+   *
+   * @return The number of values present.
+   */
+  public int cardinality() {
+    int count = 0;
+    for (int i = 0; i < size; i++) {
+      count += containers[i].cardinality();
+    }
+    return count;
+  }
+
+  /**
+   * Computes the intersection with another bitmap.
+   *
+   * @param other The other bitmap.
+   * @return A new bitmap of the values present in both.
+   */
+  public CompressedBitmap and(CompressedBitmap other) {
+    CompressedBitmap result = new CompressedBitmap(Math.max(1, Math.min(size, other.size)));
+    for (int i = 0, j = 0; i < size && j < other.size; ) {
+      if (keys[i] < other.keys[j]) {
+        i++;
+      } else if (keys[i] > other.keys[j]) {
+        j++;
+      } else {
+        Container container = containers[i].and(other.containers[j]);
+        if (container.cardinality() > 0) {
+          result.append(keys[i], container);
+        }
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Computes the union with another bitmap.
+   *
+   * @param other The other bitmap.
+   * @return A new bitmap of the values present in either.
+   */
+  public CompressedBitmap or(CompressedBitmap other) {
+    CompressedBitmap result = new CompressedBitmap(Math.max(1, size + other.size));
+    int i = 0;
+    int j = 0;
+    while (i < size || j < other.size) {
+      if (j == other.size || i < size && keys[i] < other.keys[j]) {
+        result.append(keys[i], containers[i].copy());
+        i++;
+      } else if (i == size || keys[i] > other.keys[j]) {
+        result.append(other.keys[j], other.containers[j].copy());
+        j++;
+      } else {
+        result.append(keys[i], containers[i].or(other.containers[j]));
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Computes the difference with another bitmap.
+   *
+   * @param other The bitmap of the values to leave out.
+   * @return A new bitmap of the values present in this bitmap but not in the other.
+   */
+  public CompressedBitmap andNot(CompressedBitmap other) {
+    CompressedBitmap result = new CompressedBitmap(Math.max(1, size));
+    int j = 0;
+    for (int i = 0; i < size; i++) {
+      while (j < other.size && other.keys[j] < keys[i]) {
+        j++;
+      }
+      Container container = j < other.size && other.keys[j] == keys[i]
+          ? containers[i].andNot(other.containers[j]) : containers[i].copy();
+      if (container.cardinality() > 0) {
+        result.append(keys[i], container);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Copies this bitmap.
+   *
+   * @return A new bitmap of the same values.
+   */
+  public CompressedBitmap copy() {
+    CompressedBitmap result = new CompressedBitmap(Math.max(1, size));
+    for (int i = 0; i < size; i++) {
+      result.append(keys[i], containers[i].copy());
+    }
+    return result;
+  }
+
+  /**
+   * Lists the values in ascending order.
+   *
+   * @return A new array of the values.
+   */
+  public int[] toArray() {
+    int[] values = new int[cardinality()];
+    int at = 0;
+    for (int i = 0; i < size; i++) {
+      at = containers[i].fill(values, at, keys[i] << 16);
+    }
+    return values;
+  }
+
+  /**
+   * Estimates the memory used by the values.
+   *
+   * @return The size in bytes of the containers.
+   */
+  public long sizeInBytes() {
+    long bytes = size * 2L;
+    for (int i = 0; i < size; i++) {
+      bytes += containers[i].sizeInBytes();
+    }
+    return bytes;
+  }
+
+  private int indexOf(char high) {
+    return Arrays.binarySearch(keys, 0, size, high);
+  }
+
+  private void insert(int i, char high, Container container) {
+    if (size == keys.length) {
+      keys = Arrays.copyOf(keys, size * 2);
+      containers = Arrays.copyOf(containers, size * 2);
+    }
+    System.arraycopy(keys, i, keys, i + 1, size - i);
+    System.arraycopy(containers, i, containers, i + 1, size - i);
+    keys[i] = high;
+    containers[i] = container;
+    size++;
+  }
+
+  private void append(char high, Container container) {
+    insert(size, high, container);
+  }
+
+  /**
+   * The lower 16 bits of the values of one chunk.
+   */
+  private abstract static class Container {
+    abstract Container add(char value);
+
+    abstract Container remove(char value);
+
+    abstract boolean contains(char value);
+
+    abstract int cardinality();
+
+    abstract Container and(Container other);
+
+    abstract Container or(Container other);
+
+    abstract Container andNot(Container other);
+
+    abstract Container copy();
+
+    /**
+     * Writes the values, offset by the chunk's base, from the given position.
+     *
+     * @return The position after the last value written.
+     */
+    abstract int fill(int[] values, int at, int base);
+
+    abstract long sizeInBytes();
+  }
+
+  /**
+   * Sparse chunk: the sorted values.
+   */
+  private static final class ArrayContainer extends Container {
+    private char[] values;
+    private int count;
+
+    private ArrayContainer(char[] values, int count) {
+      this.values = values;
+      this.count = count;
+    }
+
+    @Override
+    Container add(char value) {
+      int i = Arrays.binarySearch(values, 0, count, value);
+      if (i >= 0) {
+        return this;
+      }
+      if (count == ARRAY_LIMIT) {
+        return toBitmap().add(value);
+      }
+      i = -i - 1;
+      if (count == values.length) {
+        values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, Math.max(4, count * 2)));
+      }
+      System.arraycopy(values, i, values, i + 1, count - i);
+      values[i] = value;
+      count++;
+      return this;
+    }
+
+    @Override
+    Container remove(char value) {
+      int i = Arrays.binarySearch(values, 0, count, value);
+      if (i >= 0) {
+        System.arraycopy(values, i + 1, values, i, count - i - 1);
+        count--;
+      }
+      return this;
+    }
+
+    @Override
+    boolean contains(char value) {
+      return Arrays.binarySearch(values, 0, count, value) >= 0;
+    }
+
+    @Override
+    int cardinality() {
+      return count;
+    }
+
+    // The merge loops below advance with conditional moves rather than branches, as the
+    // order of two random sets is unpredictable and mispredictions dominated their cost
+
+    @Override
+    Container and(Container other) {
+      char[] result = new char[count];
+      int n = 0;
+      if (other instanceof ArrayContainer) {
+        ArrayContainer array = (ArrayContainer) other;
+        for (int i = 0, j = 0; i < count && j < array.count; ) {
+          char a = values[i];
+          char b = array.values[j];
+          result[n] = a;
+          n += a == b ? 1 : 0;
+          i += a <= b ? 1 : 0;
+          j += a >= b ? 1 : 0;
+        }
+      } else {
+        long[] words = ((BitmapContainer) other).words;
+        for (int i = 0; i < count; i++) {
+          char value = values[i];
+          result[n] = value;
+          n += (int) (words[value >>> 6] >>> value) & 1;
+        }
+      }
+      return new ArrayContainer(result, n);
+    }
+
+    @Override
+    Container or(Container other) {
+      if (!(other instanceof ArrayContainer)) {
+        return other.or(this);
+      }
+      ArrayContainer array = (ArrayContainer) other;
+      if (count + array.count > ARRAY_LIMIT) {
+        return toBitmap().or(array);
+      }
+      char[] result = new char[count + array.count];
+      int n = 0;
+      int i = 0;
+      int j = 0;
+      while (i < count && j < array.count) {
+        char a = values[i];
+        char b = array.values[j];
+        result[n++] = a <= b ? a : b;
+        i += a <= b ? 1 : 0;
+        j += a >= b ? 1 : 0;
+      }
+      System.arraycopy(values, i, result, n, count - i);
+      n += count - i;
+      System.arraycopy(array.values, j, result, n, array.count - j);
+      n += array.count - j;
+      return new ArrayContainer(result, n);
+    }
+
+    @Override
+    Container andNot(Container other) {
+      char[] result = new char[count];
+      int n = 0;
+      if (other instanceof ArrayContainer) {
+        ArrayContainer array = (ArrayContainer) other;
+        int i = 0;
+        for (int j = 0; i < count && j < array.count; ) {
+          char a = values[i];
+          char b = array.values[j];
+          result[n] = a;
+          n += a < b ? 1 : 0;
+          i += a <= b ? 1 : 0;
+          j += a >= b ? 1 : 0;
+        }
+        System.arraycopy(values, i, result, n, count - i);
+        n += count - i;
+      } else {
+        long[] words = ((BitmapContainer) other).words;
+        for (int i = 0; i < count; i++) {
+          char value = values[i];
+          result[n] = value;
+          n += 1 - ((int) (words[value >>> 6] >>> value) & 1);
+        }
+      }
+      return new ArrayContainer(result, n);
+    }
+
+    @Override
+    Container copy() {
+      return new ArrayContainer(Arrays.copyOf(values, Math.max(1, count)), count);
+    }
+
+    @Override
+    int fill(int[] out, int at, int base) {
+      for (int i = 0; i < count; i++) {
+        out[at++] = base | values[i];
+      }
+      return at;
+    }
+
+    @Override
+    long sizeInBytes() {
+      return values.length * 2L;
+    }
+
+    private BitmapContainer toBitmap() {
+      long[] words = new long[1 << 10];
+      for (int i = 0; i < count; i++) {
+        words[values[i] >>> 6] |= 1L << values[i];
+      }
+      return new BitmapContainer(words, count);
+    }
+  }
+
+  /**
+   * Dense chunk: one bit per possible value.
+   */
+  private static final class BitmapContainer extends Container {
+    private final long[] words;
+    private int cardinality;
+
+    private BitmapContainer(long[] words, int cardinality) {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    Container add(char value) {
+      long bit = 1L << value;
+      int word = value >>> 6;
+      if ((words[word] & bit) == 0) {
+        words[word] |= bit;
+        cardinality++;
+      }
+      return this;
+    }
+
+    @Override
+    Container remove(char value) {
+      long bit = 1L << value;
+      int word = value >>> 6;
+      if ((words[word] & bit) != 0) {
+        words[word] &= ~bit;
+        cardinality--;
+        // Only shrink well below the limit, so a set hovering around it does not flip
+        if (cardinality < ARRAY_LIMIT / 2) {
+          return toArray();
+        }
+      }
+      return this;
+    }
+
+    @Override
+    boolean contains(char value) {
+      return (words[value >>> 6] & 1L << value) != 0;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    Container and(Container other) {
+      if (!(other instanceof BitmapContainer)) {
+        return other.and(this);
+      }
+      long[] otherWords = ((BitmapContainer) other).words;
+      long[] result = new long[words.length];
+      int count = 0;
+      for (int i = 0; i < words.length; i++) {
+        result[i] = words[i] & otherWords[i];
+        count += Long.bitCount(result[i]);
+      }
+      return new BitmapContainer(result, count).shrink();
+    }
+
+    @Override
+    Container or(Container other) {
+      if (other instanceof ArrayContainer) {
+        ArrayContainer array = (ArrayContainer) other;
+        long[] result = words.clone();
+        for (int j = 0; j < array.count; j++) {
+          result[array.values[j] >>> 6] |= 1L << array.values[j];
+        }
+        return new BitmapContainer(result, bitCount(result));
+      }
+      long[] otherWords = ((BitmapContainer) other).words;
+      long[] result = new long[words.length];
+      int count = 0;
+      for (int i = 0; i < words.length; i++) {
+        result[i] = words[i] | otherWords[i];
+        count += Long.bitCount(result[i]);
+      }
+      return new BitmapContainer(result, count);
+    }
+
+    @Override
+    Container andNot(Container other) {
+      if (other instanceof ArrayContainer) {
+        ArrayContainer array = (ArrayContainer) other;
+        long[] result = words.clone();
+        for (int j = 0; j < array.count; j++) {
+          result[array.values[j] >>> 6] &= ~(1L << array.values[j]);
+        }
+        return new BitmapContainer(result, bitCount(result)).shrink();
+      }
+      long[] otherWords = ((BitmapContainer) other).words;
+      long[] result = new long[words.length];
+      int count = 0;
+      for (int i = 0; i < words.length; i++) {
+        result[i] = words[i] & ~otherWords[i];
+        count += Long.bitCount(result[i]);
+      }
+      return new BitmapContainer(result, count).shrink();
+    }
+
+    @Override
+    Container copy() {
+      return new BitmapContainer(words.clone(), cardinality);
+    }
+
+    @Override
+    int fill(int[] out, int at, int base) {
+      for (int i = 0; i < words.length; i++) {
+        for (long bits = words[i]; bits != 0; bits &= bits - 1) {
+          out[at++] = base | i << 6 | Long.numberOfTrailingZeros(bits);
+        }
+      }
+      return at;
+    }
+
+    @Override
+    long sizeInBytes() {
+      return words.length * 8L;
+    }
+
+    private static int bitCount(long[] words) {
+      int count = 0;
+      for (long word : words) {
+        count += Long.bitCount(word);
+      }
+      return count;
+    }
+
+    /**
+     * Converts a computed result back to an array if it is sparse enough.
+     */
+    private Container shrink() {
+      return cardinality <= ARRAY_LIMIT ? toArray() : this;
+    }
+
+    private ArrayContainer toArray() {
+      char[] values = new char[Math.max(1, cardinality)];
+      int n = 0;
+      for (int i = 0; i < words.length; i++) {
+        for (long bits = words[i]; bits != 0; bits &= bits - 1) {
+          values[n++] = (char) (i << 6 | Long.numberOfTrailingZeros(bits));
+        }
+      }
+      return new ArrayContainer(values, n);
+    }
+  }
+}
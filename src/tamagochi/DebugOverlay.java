@@ -0,0 +1,105 @@
+package tamagochi;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import javax.swing.JComponent;
+import javax.swing.RootPaneContainer;
+import javax.swing.Timer;
+
+/**
+ * On-screen debug overlay showing frame rate, tick time, heap usage and input latency.
+ * Drawn on the glass pane of a window, so it does not affect the layout and lets
+ * mouse clicks through; refreshed twice per second. Its own repaints are not counted
+ * as frames.
+ */
+public class DebugOverlay extends JComponent {
+  private static final long serialVersionUID = 1L;
+  private static final Color BACKGROUND = new Color(0, 0, 0, 160);
+  private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 11);
+  private static final int REFRESH_MILLIS = 500;
+
+  private final transient UiLatencyTracker tracker;
+  private final transient SimulationScheduler scheduler;
+  private final String[] lines;
+  private long lastFrames;
+  private long lastRefreshNanos;
+
+  /**
+   * Constructs a new overlay.
+   *
+   * @param tracker   The tracker providing frame counts and latencies.
+   * @param scheduler The scheduler providing tick times.
+   */
+  public DebugOverlay(UiLatencyTracker tracker, SimulationScheduler scheduler) {
+    this.tracker = tracker;
+    this.scheduler = scheduler;
+    this.lines = new String[5];
+    this.lastRefreshNanos = System.nanoTime();
+  }
+
+  /**
+   * Shows the overlay on top of a window and starts refreshing it. Must be called on
+   * the EDT.
+   *
+   * @param window The window to decorate.
+   */
+  public void install(RootPaneContainer window) {
+    setOpaque(false);
+    tracker.ignoreRepaints(this);
+    refresh();
+    new Timer(REFRESH_MILLIS, e -> refresh()).start();
+    window.setGlassPane(this);
+    setVisible(true);
+  }
+
+  /**
+   * Recomputes the displayed values.
+   */
+  private void refresh() {
+    long now = System.nanoTime();
+    long frames = tracker.getFrameCount();
+    double fps = (frames - lastFrames) * 1e9 / Math.max(1, now - lastRefreshNanos);
+    lastFrames = frames;
+    lastRefreshNanos = now;
+
+    Runtime runtime = Runtime.getRuntime();
+    long usedMb = (runtime.totalMemory() - runtime.freeMemory()) >> 20;
+    LatencyHistogram tick = scheduler.getTickLatency();
+    LatencyHistogram paint = tracker.getHistogram(UiLatencyTracker.Stage.CLICK_TO_PAINT);
+    LatencyHistogram edt = tracker.getHistogram(UiLatencyTracker.Stage.EDT_LATENCY);
+
+    lines[0] = String.format("FPS %5.1f", fps);
+    lines[1] = String.format("Tick p50 %.2f ms, max %.2f ms",
+        tick.getValueAtPercentile(50) / 1e6, tick.getMax() / 1e6);
+    lines[2] = String.format("Heap %d / %d MB", usedMb, runtime.maxMemory() >> 20);
+    lines[3] = String.format("Click->paint p50 %.0f ms, p99 %.0f ms",
+        paint.getValueAtPercentile(50) / 1e6, paint.getValueAtPercentile(99) / 1e6);
+    lines[4] = String.format("EDT p99 %.1f ms, stalled %.0f ms",
+        edt.getValueAtPercentile(99) / 1e6, tracker.getStallNanos() / 1e6);
+    repaint();
+  }
+
+  @Override
+  protected void paintComponent(Graphics g) {
+    Graphics2D g2 = (Graphics2D) g;
+    g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+        RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+    g2.setFont(FONT);
+    FontMetrics metrics = g2.getFontMetrics();
+    int width = 0;
+    for (String line : lines) {
+      width = Math.max(width, metrics.stringWidth(line));
+    }
+    int lineHeight = metrics.getHeight();
+    g2.setColor(BACKGROUND);
+    g2.fillRect(4, 4, width + 8, lineHeight * lines.length + 6);
+    g2.setColor(Color.WHITE);
+    for (int i = 0; i < lines.length; i++) {
+      g2.drawString(lines[i], 8, 6 + metrics.getAscent() + i * lineHeight);
+    }
+  }
+}
@@ -0,0 +1,247 @@
+package tamagochi;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.event.ActionListener;
+import java.awt.image.BufferedImage;
+
+/**
+ * Off-screen implementation of the {@link PetView} interface.
+ * Renders the same layout as {@link PetViewImpl} (mood text, status bars and the
+ * current sprite frame) into a single reused {@link BufferedImage} instead of a
+ * {@code JFrame}, so it can be used on servers running with
+ * {@code java.awt.headless=true}.
+ *
+ * <p>Instances are not thread-safe; use one view per rendering thread.
+ */
+public class HeadlessPetViewImpl implements PetView {
+  private static final String[] BAR_LABELS = {"Satiety", "Hygiene", "Social", "Energy", "Health"};
+  private static final Color BACKGROUND = new Color(255, 230, 204);
+  private static final Color PET_BACKGROUND = new Color(255, 204, 153);
+  private static final Color GAME_OVER_COLOR = new Color(255, 0, 0);
+  private static final Color STATUS_COLOR = new Color(21, 21, 21);
+
+  private final int width;
+  private final int height;
+  private final BufferedImage canvas;
+  private final Graphics2D graphics;
+  private final Font labelFont;
+  private final Font statusFont;
+  private final int lineHeight;
+  private final int barHeight;
+  private final int barsTop;
+  private final int petTop;
+  private final int petHeight;
+  private final int[] levels;
+
+  private Mood mood;
+  private boolean gameOver;
+  private String survivalTime;
+  private BufferedImage sprite;
+
+  /**
+   * Constructs a new headless view rendering into an image of the given size.
+   *
+   * @param width  The width of the rendered image in pixels.
+   * @param height The height of the rendered image in pixels.
+   * @throws IllegalArgumentException if the size is too small to hold the layout.
+   */
+  public HeadlessPetViewImpl(int width, int height) {
+    if (width < 64 || height < 96) {
+      throw new IllegalArgumentException("Thumbnail too small: " + width + "x" + height);
+    }
+    this.width = width;
+    this.height = height;
+    this.canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    this.graphics = canvas.createGraphics();
+    graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+        RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+    int fontSize = Math.max(8, height / 24);
+    this.labelFont = new Font("Arial", Font.BOLD, fontSize);
+    this.statusFont = new Font("Arial", Font.PLAIN, fontSize);
+    this.lineHeight = fontSize + 4;
+    this.barHeight = Math.max(6, height / 20);
+    this.barsTop = height - BAR_LABELS.length * (barHeight + 2) - 2;
+    this.petTop = 2 * lineHeight + 4;
+    this.petHeight = barsTop - petTop - 4;
+    this.levels = new int[BAR_LABELS.length];
+    this.survivalTime = "";
+  }
+
+  /**
+   * Renders the current state into the reused canvas.
+   * The returned image is overwritten by the next call to this method.
+   *
+   * @return The image holding the rendered pet.
+   */
+  public BufferedImage render() {
+    Graphics2D g = graphics;
+    g.setColor(BACKGROUND);
+    g.fillRect(0, 0, width, height);
+
+    // North: mood and game-over/survival text
+    g.setFont(labelFont);
+    if (gameOver) {
+      g.setColor(GAME_OVER_COLOR);
+      drawCentered(g, "Your Pet Has Passed Away", lineHeight);
+    } else {
+      g.setColor(PetViewImpl.moodColor(mood));
+      drawCentered(g, mood == null ? "Mood: UNKNOWN" : "Mood: " + mood, lineHeight);
+      g.setFont(statusFont);
+      g.setColor(STATUS_COLOR);
+      drawCentered(g, survivalTime, 2 * lineHeight);
+    }
+
+    // South: status bars
+    g.setFont(statusFont);
+    FontMetrics metrics = g.getFontMetrics();
+    int labelWidth = 0;
+    for (String label : BAR_LABELS) {
+      labelWidth = Math.max(labelWidth, metrics.stringWidth(label));
+    }
+    labelWidth += 6;
+    int barWidth = width - labelWidth - 6;
+    for (int i = 0; i < BAR_LABELS.length; i++) {
+      int y = barsTop + i * (barHeight + 2);
+      g.setColor(Color.DARK_GRAY);
+      g.drawString(BAR_LABELS[i], 3, y + barHeight - 1);
+      g.setColor(PetViewImpl.barBackground(levels[i]));
+      g.fillRect(labelWidth, y, barWidth, barHeight);
+      g.setColor(PetViewImpl.barForeground(levels[i]));
+      g.fillRect(labelWidth, y, barWidth * levels[i] / 100, barHeight);
+      g.setColor(Color.DARK_GRAY);
+      g.drawRect(labelWidth, y, barWidth - 1, barHeight - 1);
+    }
+
+    // Center: pet sprite frame
+    g.setColor(PET_BACKGROUND);
+    g.fillRect(2, petTop, width - 4, petHeight);
+    g.setColor(Color.BLACK);
+    g.drawRect(2, petTop, width - 5, petHeight - 1);
+    if (sprite != null) {
+      g.drawImage(sprite, (width - sprite.getWidth()) / 2,
+          petTop + (petHeight - sprite.getHeight()) / 2, null);
+    }
+    return canvas;
+  }
+
+  /**
+   * Draws a horizontally centered line of text with the given baseline.
+   */
+  private void drawCentered(Graphics2D g, String text, int baseline) {
+    int textWidth = g.getFontMetrics().stringWidth(text);
+    g.drawString(text, Math.max(2, (width - textWidth) / 2), baseline);
+  }
+
+  /**
+   * Updates the status bars based on the pet's current status.
+   *
+   * @param hunger  The hunger level of the pet.
+   * @param hygiene The hygiene level of the pet.
+   * @param social  The social level of the pet.
+   * @param sleepy  The sleepiness level of the pet.
+   * @param health  The health level of the pet.
+   */
+  @Override
+  public void updateBars(int hunger, int hygiene, int social, int sleepy, int health) {
+    levels[0] = hunger;
+    levels[1] = hygiene;
+    levels[2] = social;
+    levels[3] = sleepy;
+    levels[4] = health;
+  }
+
+  /**
+   * Updates the pet's mood displayed in the view.
+   *
+   * @param mood The current mood of the pet.
+   */
+  @Override
+  public void updateMood(Mood mood) {
+    this.mood = mood;
+  }
+
+  /**
+   * Updates the game-over state displayed in the view.
+   *
+   * @param isGameOver True if the game is over, false otherwise.
+   */
+  @Override
+  public void updateGameOver(boolean isGameOver) {
+    this.gameOver = isGameOver;
+  }
+
+  /**
+   * Updates the displayed pet image. Only the first animation frame is drawn,
+   * scaled to fit the pet's area between the text and the status bars.
+   *
+   * @param imagePath The path to the image file representing the pet's current state.
+   */
+  @Override
+  public void setPetImage(String imagePath) {
+    sprite = SpriteCache.firstFrame(imagePath, width - 12, petHeight - 4);
+  }
+
+  /**
+   * Updates the displayed survival time.
+   *
+   * @param time The string representing the survival time.
+   */
+  @Override
+  public void updateSurvivalTime(String time) {
+    this.survivalTime = "Lived: " + time;
+  }
+
+  /**
+   * Has no effect, the headless view has no buttons.
+   *
+   * @param listener Ignored.
+   */
+  @Override
+  public void addFeedListener(ActionListener listener) {
+    // No buttons to attach to
+  }
+
+  /**
+   * Has no effect, the headless view has no buttons.
+   *
+   * @param listener Ignored.
+   */
+  @Override
+  public void addCleanListener(ActionListener listener) {
+    // No buttons to attach to
+  }
+
+  /**
+   * Has no effect, the headless view has no buttons.
+   *
+   * @param listener Ignored.
+   */
+  @Override
+  public void addPlayListener(ActionListener listener) {
+    // No buttons to attach to
+  }
+
+  /**
+   * Has no effect, the headless view has no buttons.
+   *
+   * @param listener Ignored.
+   */
+  @Override
+  public void addSleepListener(ActionListener listener) {
+    // No buttons to attach to
+  }
+
+  /**
+   * Has no effect, the headless view has no buttons.
+   *
+   * @param listener Ignored.
+   */
+  @Override
+  public void addResetListener(ActionListener listener) {
+    // No buttons to attach to
+  }
+}
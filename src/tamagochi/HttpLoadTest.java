@@ -0,0 +1,106 @@
+package tamagochi;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Loopback load test for {@link PetHttpServer}.
+ * Starts an in-process service, creates a set of pets and hammers it from many
+ * virtual-thread clients with a mix of reads (80%) and actions (20%) for a fixed
+ * duration, then prints throughput and latency percentiles.
+ */
+public class HttpLoadTest {
+  /**
+   * Runs the load test.
+   *
+   * @param args Optional client count (default 256), duration in seconds (default 10)
+   *             and number of pets (default 1000).
+   * @throws IOException          if the server cannot be started.
+   * @throws InterruptedException if interrupted while waiting for the clients.
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int clients = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+    int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    int pets = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+    PetService service = new PetService(1000, Clock.configured());
+    PetHttpServer server = new PetHttpServer(service,
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    service.start();
+    server.start();
+    String base = "http://127.0.0.1:" + server.getPort() + "/pets";
+
+    HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    for (int i = 0; i < pets; i++) {
+      send(client, HttpRequest.newBuilder(URI.create(base))
+          .POST(HttpRequest.BodyPublishers.noBody()).build());
+    }
+
+    LatencyHistogram latency = new LatencyHistogram();
+    LongAdder errors = new LongAdder();
+    LongAdder rejected = new LongAdder();
+    PetActions[] actions = PetActions.values();
+    long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+    System.out.println("Running " + clients + " clients for " + seconds + "s against "
+        + pets + " pets...");
+    ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    for (int c = 0; c < clients; c++) {
+      workers.execute(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() - end < 0) {
+          int petId = random.nextInt(pets);
+          HttpRequest request;
+          if (random.nextInt(5) == 0) {
+            request = HttpRequest.newBuilder(URI.create(base + "/" + petId + "/actions/"
+                + actions[random.nextInt(actions.length)])).POST(
+                HttpRequest.BodyPublishers.noBody()).build();
+          } else {
+            request = HttpRequest.newBuilder(URI.create(base + "/" + petId)).GET().build();
+          }
+          long start = System.nanoTime();
+          int status = send(client, request);
+          latency.record(System.nanoTime() - start);
+          if (status == 429 || status == 503) {
+            rejected.increment();
+          } else if (status != 200 && status != 409) {
+            errors.increment();
+          }
+        }
+      });
+    }
+    workers.shutdown();
+    workers.awaitTermination(seconds + 30, TimeUnit.SECONDS);
+
+    System.out.printf("Throughput: %.0f requests/s, rejected: %d, errors: %d%n",
+        latency.getCount() / (double) seconds, rejected.sum(), errors.sum());
+    System.out.println("Latency: " + latency.summary(1000.0, "us"));
+
+    server.stop();
+    service.stop();
+  }
+
+  /**
+   * Sends a request, returning its status code or -1 on I/O failure.
+   */
+  private static int send(HttpClient client, HttpRequest request) {
+    try {
+      return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    } catch (IOException e) {
+      return -1;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,173 @@
+package tamagochi;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative values (typically latencies in nanoseconds)
+ * with log-linear buckets: values below 64 are counted exactly, larger values fall
+ * into one of 32 sub-buckets per power of two, i.e. within ~3% of their true value.
+ * Recording is a single atomic increment and never allocates; histograms with the
+ * same layout can be merged, e.g. to combine per-thread or per-run results.
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+  private static final int BUCKETS = LINEAR_LIMIT + (63 - 6) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts;
+  private final LongAdder totalCount;
+  private final LongAdder totalSum;
+  private final LongAccumulator maxValue;
+
+  /**
+   * Constructs a new, empty histogram.
+   */
+  public LatencyHistogram() {
+    this.counts = new AtomicLongArray(BUCKETS);
+    this.totalCount = new LongAdder();
+    this.totalSum = new LongAdder();
+    this.maxValue = new LongAccumulator(Math::max, 0);
+  }
+
+  /**
+   * Records one occurrence of a value. Negative values are recorded as 0.
+   *
+   * @param value The value to record.
+   */
+  public void record(long value) {
+    long v = Math.max(0, value);
+    counts.getAndIncrement(bucketOf(v));
+    totalCount.increment();
+    totalSum.add(v);
+    maxValue.accumulate(v);
+  }
+
+  /**
+   * Adds all counts of another histogram to this one.
+   *
+   * @param other The histogram to merge in.
+   */
+  public void merge(LatencyHistogram other) {
+    for (int i = 0; i < BUCKETS; i++) {
+      long count = other.counts.get(i);
+      if (count != 0) {
+        counts.getAndAdd(i, count);
+      }
+    }
+    totalCount.add(other.totalCount.sum());
+    totalSum.add(other.totalSum.sum());
+    maxValue.accumulate(other.maxValue.get());
+  }
+
+  /**
+   * Clears all recorded values.
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts.set(i, 0);
+    }
+    totalCount.reset();
+    totalSum.reset();
+    maxValue.reset();
+  }
+
+  /**
+   * Retrieves the number of recorded values.
+   *
+   * @return The total count.
+   */
+  public long getCount() {
+    return totalCount.sum();
+  }
+
+  /**
+   * Retrieves the largest recorded value.
+   *
+   * @return The maximum, or 0 if nothing was recorded.
+   */
+  public long getMax() {
+    return maxValue.get();
+  }
+
+  /**
+   * Retrieves the mean of the recorded values.
+   *
+   * @return The mean, or 0 if nothing was recorded.
+   */
+  public double getMean() {
+    long count = totalCount.sum();
+    return count == 0 ? 0 : (double) totalSum.sum() / count;
+  }
+
+  /**
+   * Retrieves the value below which the given percentage of recorded values fall.
+   * The result is the upper bound of the matching bucket, capped at the maximum.
+   *
+   * @param percentile The percentile, from 0 to 100 (e.g. 99.9).
+   * @return The value at the percentile, or 0 if nothing was recorded.
+   */
+  public long getValueAtPercentile(double percentile) {
+    long count = 0;
+    long[] snapshot = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+      count += snapshot[i];
+    }
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return Math.min(upperBoundOf(i), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  /**
+   * Formats the usual summary percentiles, scaling values by the given divisor.
+   *
+   * @param divisor The unit divisor (e.g. 1000 to print microseconds from nanoseconds).
+   * @param unit    The unit label appended to each value.
+   * @return A one-line summary.
+   */
+  public String summary(double divisor, String unit) {
+    return String.format("count=%d mean=%.1f%s p50=%.1f%s p99=%.1f%s p99.9=%.1f%s max=%.1f%s",
+        getCount(), getMean() / divisor, unit,
+        getValueAtPercentile(50) / divisor, unit,
+        getValueAtPercentile(99) / divisor, unit,
+        getValueAtPercentile(99.9) / divisor, unit,
+        getMax() / divisor, unit);
+  }
+
+  /**
+   * Computes the bucket index of a non-negative value.
+   */
+  static int bucketOf(long value) {
+    if (value < LINEAR_LIMIT) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return LINEAR_LIMIT + (exponent - 6) * SUB_BUCKETS + sub;
+  }
+
+  /**
+   * Computes the largest value falling into the given bucket.
+   */
+  static long upperBoundOf(int bucket) {
+    if (bucket < LINEAR_LIMIT) {
+      return bucket;
+    }
+    int exponent = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + 6;
+    long sub = (bucket - LINEAR_LIMIT) % SUB_BUCKETS;
+    long lower = (1L << exponent) + (sub << (exponent - SUB_BUCKET_BITS));
+    return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+  }
+}
@@ -0,0 +1,507 @@
+package tamagochi;
+
+import java.util.Arrays;
+
+/**
+ * Compressed history of the levels of every pet of a {@link PetPopulation}, recorded
+ * once per tick from the population's state table, from which the levels at any past
+ * tick can be reconstructed.
+ *
+ * <p>Levels mostly change by the same amount every tick, so each level is predicted to
+ * continue along its current slope, stopping at 0 and 100, and only breakpoints, the
+ * ticks where a level leaves its prediction, are stored: actions and resets, or every
+ * tick under uneven {@link StochasticDepletion}. Health is predicted with
+ * {@link PetModelImpl#healthFor} from the predicted levels, and the levels are emptied
+ * when it reaches 0, so penalties and deaths cost nothing either. A level's slope
+ * follows the change of its value per tick (its delta), but only once the same delta is
+ * seen twice in a row, so that the jump of an action is a single breakpoint.
+ *
+ * <p>Each pet has its own byte stream of records, varints being LEB128 encoded:
+ * <ol>
+ *   <li>the number of ticks since the pet's previous record (since tick -1 for its
+ *       first record) as an unsigned varint, so that runs of predicted ticks take no
+ *       space;</li>
+ *   <li>a header byte: bits 0-4 flag the hunger, hygiene, social, sleepy and health
+ *       levels deviating from their predictions, bit 5 marks a keyframe, and bit 6
+ *       marks a reset, predicted from full levels, or a keyframe whose slopes and
+ *       deltas are all -1;</li>
+ *   <li>for a regular record, the deviation of every flagged level (its delta of delta)
+ *       as a zig-zag varint;</li>
+ *   <li>for a keyframe, the four levels as one byte each, followed unless flagged by
+ *       their slopes and latest deltas as zig-zag bytes, and the deviation of health
+ *       if flagged.</li>
+ * </ol>
+ * Every pet's first record, and every {@value #KEYFRAME_INTERVAL}th one after it, is a
+ * keyframe whose tick and offset are indexed, so a range query only decodes from the
+ * latest keyframe before its start. An action costs about 3 bytes, and a pet cared for
+ * every few minutes takes under a byte per minute.
+ *
+ * <p>{@link #record(PetPopulation)} is expected to be called once per tick from a single
+ * simulation thread; it and the queries are synchronized, so queries may come from any
+ * thread.
+ */
+public class LevelHistoryStore {
+  static final int KEYFRAME_INTERVAL = 64;
+  private static final int LEVELS = 4;
+  private static final int LEVEL_BITS = 7;
+  private static final int LEVEL_MASK = (1 << LEVEL_BITS) - 1;
+  private static final int STATE = 3 * LEVELS;
+  private static final int HEALTH = 1 << LEVELS;
+  private static final int KEYFRAME = 1 << 5;
+  private static final int RESET = 1 << 6;
+  private static final int DEPLETING = RESET; // The same bit, in keyframes
+
+  // Encoder state per pet, as of its latest record: four levels, slopes and deltas
+  // packed as one byte each, and the tick of the record
+  private int[] values = new int[0];
+  private int[] slopes = new int[0];
+  private int[] deltas = new int[0];
+  private int[] recordTicks = new int[0];
+  private short[] sinceKeyframe = new short[0];
+
+  private byte[][] streams = new byte[0][];
+  private int[] lengths = new int[0];
+  private int[][] keyframes = new int[0][]; // Pairs of tick and offset
+  private int[] keyframeCounts = new int[0];
+  private int capacity;
+  private int tick = -1;
+  private long recordCount;
+  private final int[] levelState = new int[STATE];
+  private final int[] actual = new int[LEVELS];
+  private final int[] predicted = new int[LEVELS];
+  private final int[] before = new int[LEVELS];
+  private final int[] earlier = new int[LEVELS];
+
+  /**
+   * Appends the current state table of a population as the next tick.
+   *
+   * @param population The population recorded, always the same one.
+   */
+  public synchronized void record(PetPopulation population) {
+    long[] states = population.states();
+    int size = Math.min(population.size(), states.length);
+    if (size > capacity) {
+      grow(size);
+    }
+    tick++;
+    for (int petId = 0; petId < size; petId++) {
+      long state = states[petId];
+      int last = recordTicks[petId];
+      if (last >= 0 && matchesPrediction(state, values[petId], slopes[petId],
+          tick - last)) {
+        continue;
+      }
+      append(petId, state);
+    }
+  }
+
+  /**
+   * Checks whether a packed state continues the levels recorded the given number of
+   * ticks earlier, as {@link #predict(int[], int, int[])} does. Health needs no check,
+   * as the state table always holds the health computed from the levels.
+   */
+  private static boolean matchesPrediction(long state, int value, int slope, int ticks) {
+    int hunger = along((byte) value, (byte) slope, ticks);
+    int hygiene = along((byte) (value >>> 8), (byte) (slope >>> 8), ticks);
+    int social = along((byte) (value >>> 16), (byte) (slope >>> 16), ticks);
+    int sleepy = along((byte) (value >>> 24), (byte) (slope >>> 24), ticks);
+    if (PetModelImpl.healthFor(hunger, hygiene, social, sleepy) == 0) {
+      return (state & (1L << LEVEL_BITS * LEVELS) - 1) == 0;
+    }
+    return ((int) state & LEVEL_MASK) == hunger
+        && ((int) (state >>> LEVEL_BITS) & LEVEL_MASK) == hygiene
+        && ((int) (state >>> 2 * LEVEL_BITS) & LEVEL_MASK) == social
+        && ((int) (state >>> 3 * LEVEL_BITS) & LEVEL_MASK) == sleepy;
+  }
+
+  /**
+   * Writes a record for a pet whose state left its prediction, or that is new.
+   */
+  private void append(int petId, long state) {
+    int last = recordTicks[petId];
+    int gap = tick - last;
+    int[] levelState = this.levelState;
+    for (int i = 0; i < LEVELS; i++) {
+      int shift = 8 * i;
+      levelState[i] = (byte) (values[petId] >>> shift);
+      levelState[LEVELS + i] = (byte) (slopes[petId] >>> shift);
+      levelState[2 * LEVELS + i] = (byte) (deltas[petId] >>> shift);
+      actual[i] = (int) (state >>> LEVEL_BITS * i) & LEVEL_MASK;
+    }
+    int health = (int) (state >>> LEVEL_BITS * LEVELS) & LEVEL_MASK;
+    int healthDeviation = health - PetModelImpl.healthFor(actual[0], actual[1], actual[2],
+        actual[3]);
+
+    boolean keyframe = last < 0 || sinceKeyframe[petId] >= KEYFRAME_INTERVAL - 1;
+    ensureCapacity(petId, 5 + 1 + 5 * 5);
+    int offset = lengths[petId];
+    writeVarInt(petId, gap);
+    if (keyframe) {
+      if (last < 0) {
+        for (int i = 0; i < LEVELS; i++) {
+          levelState[LEVELS + i] = -1; // New pets are expected to deplete
+          levelState[2 * LEVELS + i] = -1;
+        }
+      } else {
+        step(levelState, gap, false, actual, before, earlier);
+      }
+      boolean depleting = true;
+      for (int i = LEVELS; i < STATE; i++) {
+        depleting &= levelState[i] == -1;
+      }
+      writeByte(petId, KEYFRAME | (depleting ? DEPLETING : 0)
+          | (healthDeviation != 0 ? HEALTH : 0));
+      for (int i = 0; i < LEVELS; i++) {
+        writeByte(petId, actual[i]);
+      }
+      if (!depleting) {
+        for (int i = LEVELS; i < STATE; i++) {
+          writeByte(petId, zigZag(levelState[i]));
+        }
+      }
+      if (healthDeviation != 0) {
+        writeVarInt(petId, zigZag(healthDeviation));
+      }
+      addKeyframe(petId, tick, offset);
+      sinceKeyframe[petId] = 0;
+    } else {
+      // A dead pet coming back to life was reset: predict from full levels
+      predict(levelState, gap, predicted);
+      boolean reset = isZero(predicted) && !isZero(actual);
+      if (reset) {
+        predictReset(levelState, predicted);
+      }
+      int header = reset ? RESET : 0;
+      for (int i = 0; i < LEVELS; i++) {
+        if (actual[i] != predicted[i]) {
+          header |= 1 << i;
+        }
+      }
+      if (healthDeviation != 0) {
+        header |= HEALTH;
+      }
+      writeByte(petId, header);
+      for (int i = 0; i < LEVELS; i++) {
+        if ((header & 1 << i) != 0) {
+          writeVarInt(petId, zigZag(actual[i] - predicted[i]));
+        }
+      }
+      if (healthDeviation != 0) {
+        writeVarInt(petId, zigZag(healthDeviation));
+      }
+      step(levelState, gap, reset, actual, before, earlier);
+      sinceKeyframe[petId]++;
+    }
+    System.arraycopy(actual, 0, levelState, 0, LEVELS);
+    int newValue = 0;
+    int newSlope = 0;
+    int newDelta = 0;
+    for (int i = 0; i < LEVELS; i++) {
+      int shift = 8 * i;
+      newValue |= (levelState[i] & 0xFF) << shift;
+      newSlope |= (levelState[LEVELS + i] & 0xFF) << shift;
+      newDelta |= (levelState[2 * LEVELS + i] & 0xFF) << shift;
+    }
+    values[petId] = newValue;
+    slopes[petId] = newSlope;
+    deltas[petId] = newDelta;
+    recordTicks[petId] = tick;
+    recordCount++;
+  }
+
+  /**
+   * Reconstructs the states of a pet over a range of ticks.
+   *
+   * @param petId    The id of the pet.
+   * @param fromTick The first tick, from 0.
+   * @param toTick   The last tick, inclusive, clipped to the latest recorded tick.
+   * @return The states in the layout of {@link PetPopulation#states()}, one per tick,
+   *         with the mood derived from health and the game over when health is 0.
+   *         Ticks before the pet was first recorded hold 0.
+   * @throws IllegalArgumentException if the pet was never recorded or the range is
+   *                                  invalid.
+   */
+  public synchronized long[] range(int petId, int fromTick, int toTick) {
+    if (petId < 0 || petId >= capacity || recordTicks[petId] < 0) {
+      throw new IllegalArgumentException("No history for pet " + petId);
+    }
+    toTick = Math.min(toTick, tick);
+    if (fromTick < 0 || fromTick > toTick) {
+      throw new IllegalArgumentException("Invalid tick range " + fromTick + ".." + toTick);
+    }
+    long[] result = new long[toTick - fromTick + 1];
+
+    // Start from the latest keyframe at or before the range
+    int[] index = keyframes[petId];
+    int low = 0;
+    int high = keyframeCounts[petId] - 1;
+    while (low < high) {
+      int middle = (low + high + 1) >>> 1;
+      if (index[2 * middle] <= fromTick) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+    byte[] stream = streams[petId];
+    int[] position = {index[2 * low + 1]};
+    int[] state = new int[STATE + 1]; // Level state and health deviation
+    int[] levels = new int[LEVELS];
+    int[] before = new int[LEVELS];
+    int[] earlier = new int[LEVELS];
+    int at = index[2 * low];
+    readVarInt(stream, position); // The keyframe's gap is replaced by its indexed tick
+    decode(stream, position, state, 0, levels, before, earlier);
+    int end = lengths[petId];
+
+    for (int t = Math.max(fromTick, at); t <= toTick; t++) {
+      while (position[0] < end && at < t) {
+        // Peek the next record's tick without consuming it unless it is due
+        int mark = position[0];
+        int next = at + readVarInt(stream, position);
+        if (next > t) {
+          position[0] = mark;
+          break;
+        }
+        decode(stream, position, state, next - at, levels, before, earlier);
+        at = next;
+      }
+      result[t - fromTick] = pack(state, t - at, levels);
+    }
+    return result;
+  }
+
+  /**
+   * Applies a record, the given number of ticks after the previous one, to a decoder
+   * state, mirroring {@link #append(int, long)}.
+   */
+  private static void decode(byte[] stream, int[] position, int[] state, int gap,
+                             int[] levels, int[] before, int[] earlier) {
+    int header = stream[position[0]++];
+    if ((header & KEYFRAME) != 0) {
+      for (int i = 0; i < LEVELS; i++) {
+        state[i] = stream[position[0]++];
+      }
+      for (int i = LEVELS; i < STATE; i++) {
+        state[i] = (header & DEPLETING) != 0 ? -1 : unZigZag(stream[position[0]++] & 0xFF);
+      }
+      state[STATE] = (header & HEALTH) != 0 ? unZigZag(readVarInt(stream, position)) : 0;
+      return;
+    }
+    boolean reset = (header & RESET) != 0;
+    if (reset) {
+      predictReset(state, levels);
+    } else {
+      predict(state, gap, levels);
+    }
+    for (int i = 0; i < LEVELS; i++) {
+      if ((header & 1 << i) != 0) {
+        levels[i] += unZigZag(readVarInt(stream, position));
+      }
+    }
+    state[STATE] = (header & HEALTH) != 0 ? unZigZag(readVarInt(stream, position)) : 0;
+    step(state, gap, reset, levels, before, earlier);
+    System.arraycopy(levels, 0, state, 0, LEVELS);
+  }
+
+  /**
+   * Predicts the levels the given number of ticks after a record: each follows its
+   * slope within 0 and 100, and all are 0 once they leave the pet no health, as
+   * {@link PetModelImpl} empties the levels of dead pets.
+   *
+   * @param state  The level state at the record.
+   * @param ticks  The number of ticks since the record, at least 0.
+   * @param levels The array receiving the four levels.
+   */
+  private static void predict(int[] state, int ticks, int[] levels) {
+    for (int i = 0; i < LEVELS; i++) {
+      levels[i] = along(state[i], state[LEVELS + i], ticks);
+    }
+    if (PetModelImpl.healthFor(levels[0], levels[1], levels[2], levels[3]) == 0) {
+      Arrays.fill(levels, 0, LEVELS, 0);
+    }
+  }
+
+  /**
+   * Predicts the levels one tick after a reset to full levels.
+   */
+  private static void predictReset(int[] state, int[] levels) {
+    for (int i = 0; i < LEVELS; i++) {
+      levels[i] = along(100, state[LEVELS + i], 1);
+    }
+  }
+
+  /**
+   * Moves a level state to a new record: a level's slope becomes its latest delta if
+   * that repeats the delta of the tick before, and stays otherwise. A reset is taken
+   * as full levels on the tick before the record.
+   *
+   * @param state   The level state at the previous record, updated in place except for
+   *                the levels themselves.
+   * @param gap     The number of ticks since the previous record.
+   * @param reset   Whether the record is a reset.
+   * @param levels  The levels at the new record.
+   * @param before  Scratch space for the levels predicted on the tick before.
+   * @param earlier Scratch space for the levels predicted two ticks before.
+   */
+  private static void step(int[] state, int gap, boolean reset, int[] levels,
+                           int[] before, int[] earlier) {
+    if (reset) {
+      Arrays.fill(before, 0, LEVELS, 100);
+      gap = 1;
+    } else {
+      predict(state, gap - 1, before);
+    }
+    if (gap > 1) {
+      predict(state, gap - 2, earlier);
+    }
+    for (int i = 0; i < LEVELS; i++) {
+      int delta = levels[i] - before[i];
+      int previousDelta = gap > 1 ? before[i] - earlier[i] : state[2 * LEVELS + i];
+      if (delta == previousDelta) {
+        state[LEVELS + i] = delta;
+      }
+      state[2 * LEVELS + i] = delta;
+    }
+  }
+
+  /**
+   * Predicts a level the given number of ticks after it had the given value, levels
+   * staying within 0 and 100.
+   */
+  private static int along(int value, int slope, int ticks) {
+    return (int) Math.min(100, Math.max(0, value + (long) slope * ticks));
+  }
+
+  private static boolean isZero(int[] levels) {
+    return (levels[0] | levels[1] | levels[2] | levels[3]) == 0;
+  }
+
+  /**
+   * Packs the state a number of ticks after the decoder state.
+   */
+  private static long pack(int[] state, int ticks, int[] levels) {
+    predict(state, ticks, levels);
+    // Health deviations only hold on the tick of their record
+    int health = PetModelImpl.healthFor(levels[0], levels[1], levels[2], levels[3])
+        + (ticks == 0 ? state[STATE] : 0);
+    Mood mood = health > PetModelImpl.HAPPY_HEALTH ? Mood.HAPPY
+        : health > PetModelImpl.GRUMPY_HEALTH ? Mood.GRUMPY : Mood.DEPRESSIVE;
+    return PackedPetState.pack(levels[0], levels[1], levels[2], levels[3], health, mood,
+        health == 0);
+  }
+
+  /**
+   * Reconstructs the state of a pet at one tick.
+   *
+   * @param petId The id of the pet.
+   * @param tick  The tick.
+   * @return The state in the layout of {@link PetPopulation#states()}.
+   * @throws IllegalArgumentException if the pet was never recorded or the tick was not.
+   */
+  public long at(int petId, int tick) {
+    return range(petId, tick, tick)[0];
+  }
+
+  /**
+   * Retrieves the latest recorded tick.
+   *
+   * @return The number of {@link #record(PetPopulation)} calls, less one.
+   */
+  public synchronized int getTick() {
+    return tick;
+  }
+
+  /**
+   * Retrieves the number of records written, keyframes included.
+   *
+   * @return The record count.
+   */
+  public synchronized long getRecordCount() {
+    return recordCount;
+  }
+
+  /**
+   * Estimates the memory taken by the histories: the bytes of the streams written so
+   * far and of the keyframe indexes, without the spare capacity of the arrays or the
+   * fixed encoder state of each pet.
+   *
+   * @return The size in bytes.
+   */
+  public synchronized long sizeInBytes() {
+    long bytes = 0;
+    for (int i = 0; i < capacity; i++) {
+      bytes += lengths[i] + 8L * keyframeCounts[i];
+    }
+    return bytes;
+  }
+
+  private void grow(int size) {
+    int previous = capacity;
+    capacity = Math.max(size, previous * 2);
+    values = Arrays.copyOf(values, capacity);
+    slopes = Arrays.copyOf(slopes, capacity);
+    deltas = Arrays.copyOf(deltas, capacity);
+    recordTicks = Arrays.copyOf(recordTicks, capacity);
+    Arrays.fill(recordTicks, previous, capacity, -1);
+    sinceKeyframe = Arrays.copyOf(sinceKeyframe, capacity);
+    streams = Arrays.copyOf(streams, capacity);
+    lengths = Arrays.copyOf(lengths, capacity);
+    keyframes = Arrays.copyOf(keyframes, capacity);
+    keyframeCounts = Arrays.copyOf(keyframeCounts, capacity);
+  }
+
+  private void ensureCapacity(int petId, int bytes) {
+    byte[] stream = streams[petId];
+    if (stream == null) {
+      streams[petId] = new byte[Math.max(32, bytes)];
+    } else if (lengths[petId] + bytes > stream.length) {
+      streams[petId] = Arrays.copyOf(stream, Math.max(lengths[petId] + bytes,
+          stream.length + (stream.length >> 1)));
+    }
+  }
+
+  private void addKeyframe(int petId, int keyTick, int offset) {
+    int count = keyframeCounts[petId];
+    if (keyframes[petId] == null) {
+      keyframes[petId] = new int[2];
+    } else if (2 * count + 2 > keyframes[petId].length) {
+      keyframes[petId] = Arrays.copyOf(keyframes[petId], 4 * count + 2);
+    }
+    keyframes[petId][2 * count] = keyTick;
+    keyframes[petId][2 * count + 1] = offset;
+    keyframeCounts[petId] = count + 1;
+  }
+
+  private void writeByte(int petId, int value) {
+    streams[petId][lengths[petId]++] = (byte) value;
+  }
+
+  private void writeVarInt(int petId, int value) {
+    while ((value & ~0x7F) != 0) {
+      writeByte(petId, (value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    writeByte(petId, value);
+  }
+
+  private static int readVarInt(byte[] stream, int[] position) {
+    int value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = stream[position[0]++];
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    return value;
+  }
+
+  private static int zigZag(int value) {
+    return (value << 1) ^ (value >> 31);
+  }
+
+  private static int unZigZag(int value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+}
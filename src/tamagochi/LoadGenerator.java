@@ -0,0 +1,331 @@
+package tamagochi;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Open-loop load generator for capacity planning. Simulates players of different
+ * {@link Profile}s looking after their pets, either through a {@link PetService} or
+ * directly on the pets of a {@link PetPopulation}, and reports throughput, latency
+ * percentiles, GC pauses and how long the pets survived under each profile.
+ *
+ * <p>Player visits arrive as a Poisson process at a fixed rate, independently of how
+ * fast earlier visits complete, as real players do not wait for each other. Latency is
+ * measured from each visit's scheduled arrival rather than from when a worker got to
+ * it, so that a stall delaying many queued visits counts against all of them instead
+ * of being hidden by coordinated omission; the service time alone is reported
+ * separately. Simulated time runs faster than real time (see
+ * {@link Clock#scaled(double)}), so that pets live and die within a run.
+ */
+public class LoadGenerator {
+  private static final String TENANT = "load";
+  private static final PetActions[] ACTIONS = PetActions.values();
+  private static final Profile[] PROFILES = Profile.values();
+
+  /**
+   * Behavior of a simulated player.
+   */
+  public enum Profile {
+    /**
+     * Visits often and always fixes the pet's lowest level.
+     */
+    ATTENTIVE(1.0, 1),
+
+    /**
+     * Visits rarely and then clicks a random button.
+     */
+    NEGLECTFUL(0.1, 1),
+
+    /**
+     * Visits now and then and clicks the same random button several times in a row.
+     */
+    BURSTY(0.25, 8);
+
+    private final double visitWeight;
+    private final int clicksPerVisit;
+
+    Profile(double visitWeight, int clicksPerVisit) {
+      this.visitWeight = visitWeight;
+      this.clicksPerVisit = clicksPerVisit;
+    }
+
+    /**
+     * Chooses the button to click on a visit.
+     *
+     * @param state  The pet's current state.
+     * @param random The random source of the calling thread.
+     * @return The action to perform.
+     */
+    PetActions choose(PetSnapshot state, ThreadLocalRandom random) {
+      return this == ATTENTIVE
+          ? CarePolicy.neediest(state) : ACTIONS[random.nextInt(ACTIONS.length)];
+    }
+  }
+
+  private final PetService service;
+  private final boolean throughService;
+  private final int[] petIds;
+  private final Profile[] profiles;
+  private final double[] cumulativeWeights;
+  private final double clicksPerVisit;
+
+  private final LatencyHistogram latency;
+  private final LatencyHistogram serviceTime;
+  private final LatencyHistogram gcPauses;
+  private final LatencyHistogram[] survivalTimes;
+  private final LongAdder rejected;
+  private final LongAdder resets;
+
+  /**
+   * Constructs a new generator and creates one pet per player.
+   *
+   * @param players        The number of players of each {@link Profile}, by ordinal.
+   * @param throughService Whether to act through the service's tenant checks, or on
+   *                       the population's pets directly.
+   * @param clock          The clock of the simulation.
+   * @throws IllegalArgumentException if there are no players.
+   */
+  public LoadGenerator(int[] players, boolean throughService, Clock clock) {
+    int total = 0;
+    for (int count : players) {
+      total += count;
+    }
+    if (total <= 0) {
+      throw new IllegalArgumentException("At least one player is required");
+    }
+    this.service = new PetService(1000, clock);
+    this.throughService = throughService;
+    this.petIds = new int[total];
+    this.profiles = new Profile[total];
+    this.cumulativeWeights = new double[total];
+    this.latency = new LatencyHistogram();
+    this.serviceTime = new LatencyHistogram();
+    this.gcPauses = new LatencyHistogram();
+    this.survivalTimes = new LatencyHistogram[PROFILES.length];
+    for (int i = 0; i < PROFILES.length; i++) {
+      survivalTimes[i] = new LatencyHistogram();
+    }
+    this.rejected = new LongAdder();
+    this.resets = new LongAdder();
+
+    // Interleave the profiles so that every range of pet ids holds a similar mix
+    double weight = 0;
+    double clicks = 0;
+    int[] left = players.clone();
+    for (int player = 0; player < total; ) {
+      for (Profile profile : PROFILES) {
+        if (left[profile.ordinal()] > 0 && player < total) {
+          left[profile.ordinal()]--;
+          profiles[player] = profile;
+          petIds[player] = service.createPet(TENANT).getPetId();
+          weight += profile.visitWeight;
+          clicks += profile.visitWeight * profile.clicksPerVisit;
+          cumulativeWeights[player] = weight;
+          player++;
+        }
+      }
+    }
+    this.clicksPerVisit = clicks / weight;
+
+    service.getPopulation().addListener(new PetModelListener() {
+      @Override
+      public void onStateChanged(PetSnapshot previous, PetSnapshot current) {
+        if (previous != null && !previous.isGameOver() && current.isGameOver()) {
+          int player = current.getPetId();
+          if (player < profiles.length) {
+            survivalTimes[profiles[player].ordinal()].record(current.getSurvivalTime());
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Runs the load and prints a report.
+   *
+   * @param clicksPerSecond The target rate of actions, over all players.
+   * @param seconds         The duration of the run in real seconds.
+   * @param threads         The number of worker threads performing the visits.
+   * @throws InterruptedException if interrupted while waiting for the workers.
+   */
+  public void run(double clicksPerSecond, int seconds, int threads)
+      throws InterruptedException {
+    List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    long[] gcCounts = new long[collectors.size()];
+    long[] gcMillis = new long[collectors.size()];
+    for (int i = 0; i < collectors.size(); i++) {
+      gcCounts[i] = collectors.get(i).getCollectionCount();
+      gcMillis[i] = collectors.get(i).getCollectionTime();
+    }
+    NotificationListener gcListener = this::gcNotified;
+    for (GarbageCollectorMXBean collector : collectors) {
+      if (collector instanceof NotificationEmitter) {
+        ((NotificationEmitter) collector).addNotificationListener(gcListener, null, null);
+      }
+    }
+
+    ExecutorService workers = Executors.newFixedThreadPool(threads);
+    service.start();
+    double meanGapNanos = TimeUnit.SECONDS.toNanos(1) * clicksPerVisit / clicksPerSecond;
+    double totalWeight = cumulativeWeights[cumulativeWeights.length - 1];
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long start = System.nanoTime();
+    long end = start + TimeUnit.SECONDS.toNanos(seconds);
+    long next = start;
+    while (true) {
+      next += (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+      if (next - end >= 0) {
+        break;
+      }
+      long wait = next - System.nanoTime();
+      if (wait > 0) {
+        LockSupport.parkNanos(wait);
+      }
+      int player = pickPlayer(random.nextDouble() * totalWeight);
+      long scheduled = next;
+      workers.execute(() -> visit(player, scheduled));
+    }
+    workers.shutdown();
+    workers.awaitTermination(seconds + 60, TimeUnit.SECONDS);
+    long elapsed = System.nanoTime() - start;
+    service.stop();
+
+    for (GarbageCollectorMXBean collector : collectors) {
+      if (collector instanceof NotificationEmitter) {
+        try {
+          ((NotificationEmitter) collector).removeNotificationListener(gcListener);
+        } catch (ListenerNotFoundException e) {
+          // Already removed
+        }
+      }
+    }
+
+    System.out.printf(Locale.ROOT, "Throughput: %.0f actions/s (target %.0f), "
+            + "rejected: %d, resets: %d%n",
+        latency.getCount() / (elapsed / 1e9), clicksPerSecond, rejected.sum(), resets.sum());
+    System.out.println("Latency from arrival: " + latency.summary(1000.0, "us"));
+    System.out.println("Service time:         " + serviceTime.summary(1000.0, "us"));
+    SimulationScheduler scheduler = service.getScheduler();
+    System.out.println("Ticks: " + scheduler.getTickCount() + " (skipped "
+        + scheduler.getSkippedTicks() + "), " + scheduler.getTickLatency().summary(1000.0, "us"));
+    for (int i = 0; i < collectors.size(); i++) {
+      System.out.printf(Locale.ROOT, "GC %s: %d collections, %d ms%n",
+          collectors.get(i).getName(), collectors.get(i).getCollectionCount() - gcCounts[i],
+          collectors.get(i).getCollectionTime() - gcMillis[i]);
+    }
+    System.out.println("GC pauses: " + gcPauses.summary(1.0, "ms"));
+
+    int[] alive = new int[PROFILES.length];
+    int[] players = new int[PROFILES.length];
+    for (int player = 0; player < profiles.length; player++) {
+      players[profiles[player].ordinal()]++;
+      if (!service.getPopulation().get(petIds[player]).isGameOver()) {
+        alive[profiles[player].ordinal()]++;
+      }
+    }
+    for (Profile profile : PROFILES) {
+      if (players[profile.ordinal()] > 0) {
+        System.out.printf("Survival %s: %d of %d alive at the end, deaths: %s%n", profile,
+            alive[profile.ordinal()], players[profile.ordinal()],
+            survivalTimes[profile.ordinal()].summary(1.0, "s"));
+      }
+    }
+  }
+
+  /**
+   * Finds the player whose share of the cumulative visit weight contains the given
+   * point.
+   */
+  private int pickPlayer(double point) {
+    int low = 0;
+    int high = cumulativeWeights.length - 1;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (cumulativeWeights[mid] <= point) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Performs one visit of a player, resetting the pet if its game is over.
+   *
+   * @param player    The player.
+   * @param scheduled When the visit was scheduled to arrive, from {@link System#nanoTime()}.
+   */
+  private void visit(int player, long scheduled) {
+    Profile profile = profiles[player];
+    int petId = petIds[player];
+    PetActions action = profile.choose(
+        service.getPopulation().get(petId).getSnapshot(), ThreadLocalRandom.current());
+    for (int i = 0; i < profile.clicksPerVisit; i++) {
+      long start = System.nanoTime();
+      boolean performed = perform(petId, action);
+      long now = System.nanoTime();
+      serviceTime.record(now - start);
+      latency.record(now - scheduled);
+      if (!performed) {
+        rejected.increment();
+        if (throughService) {
+          service.resetPet(TENANT, petId);
+        } else {
+          service.getPopulation().get(petId).resetGame();
+        }
+        resets.increment();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Performs an action on a pet.
+   *
+   * @return {@code false} if the pet's game was over.
+   */
+  private boolean perform(int petId, PetActions action) {
+    try {
+      if (throughService) {
+        service.performAction(TENANT, petId, action);
+      } else {
+        service.getPopulation().get(petId).performAction(action);
+      }
+      return true;
+    } catch (IllegalStateException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Records the duration of a stop-the-world collection. Concurrent cycles, reported
+   * by ZGC and Shenandoah as "Cycles" and by G1 as "Concurrent GC", are ignored.
+   */
+  private void gcNotified(Notification notification, Object handback) {
+    if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(
+        notification.getType())) {
+      return;
+    }
+    GarbageCollectionNotificationInfo info =
+        GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+    String name = info.getGcName();
+    if (!name.contains("Cycles") && !name.contains("Concurrent")) {
+      gcPauses.record(info.getGcInfo().getDuration());
+    }
+  }
+}
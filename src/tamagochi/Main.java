@@ -11,10 +11,13 @@ public class Main {
    * @param args Command-line arguments (not used).
    */
   public static void main(String[] args) {
-    // Create the model, view, and controller
-    PetModel model = new PetModelImpl();
+    // Create the model, view, and controller; -Dtamagochi.timeScale=N runs N times faster
+    // and -Dtamagochi.depletion=poisson:1 depletes levels randomly
+    Clock clock = Clock.configured();
+    PetModelImpl model = new PetModelImpl(0, clock);
+    model.setDepletion(StochasticDepletion.configured());
     PetView view = new PetViewImpl();
-    PetController controller = new PetControllerImpl(model, view);
+    PetController controller = new PetControllerImpl(model, view, clock);
 
     // Start the game
     controller.startGame();
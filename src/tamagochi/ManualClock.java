@@ -0,0 +1,62 @@
+package tamagochi;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Clock} that only advances when told to, making time-dependent behavior
+ * deterministic in tests and offline simulations.
+ *
+ * <p>A {@link SimulationScheduler} driven by a manual clock polls it every millisecond
+ * and runs the ticks that became due; advancing by more than
+ * {@link SimulationScheduler#MAX_CATCH_UP} periods at once skips the excess ticks, as
+ * for a real clock that jumped. To run every tick, advance by one period at a time or
+ * call the tick directly.
+ */
+public class ManualClock implements Clock {
+  private volatile long nanos;
+
+  /**
+   * Constructs a new clock reading 0.
+   */
+  public ManualClock() {
+    this(0);
+  }
+
+  /**
+   * Constructs a new clock reading the given time.
+   *
+   * @param nanos The initial time in nanoseconds.
+   */
+  public ManualClock(long nanos) {
+    this.nanos = nanos;
+  }
+
+  @Override
+  public long nanoTime() {
+    return nanos;
+  }
+
+  /**
+   * A manual clock never advances by itself.
+   *
+   * @return 0.
+   */
+  @Override
+  public double rate() {
+    return 0;
+  }
+
+  /**
+   * Moves the clock forward.
+   *
+   * @param amount The amount of time to advance by.
+   * @param unit   The unit of the amount.
+   * @throws IllegalArgumentException if the amount is negative.
+   */
+  public synchronized void advance(long amount, TimeUnit unit) {
+    if (amount < 0) {
+      throw new IllegalArgumentException("Time cannot go backwards: " + amount);
+    }
+    nanos += unit.toNanos(amount);
+  }
+}
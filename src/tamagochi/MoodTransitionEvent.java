@@ -0,0 +1,31 @@
+package tamagochi;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event marking a change of a pet's mood. Disabled by default.
+ */
+@Name("tamagochi.MoodTransition")
+@Label("Mood Transition")
+@Category("Tamagochi")
+@Description("A pet's mood changed as its health crossed a threshold")
+@Enabled(false)
+@StackTrace(false)
+class MoodTransitionEvent extends jdk.jfr.Event {
+  @Label("Pet Id")
+  int petId;
+
+  @Label("Old Mood")
+  String oldMood;
+
+  @Label("New Mood")
+  String newMood;
+
+  @Label("Health")
+  int health;
+}
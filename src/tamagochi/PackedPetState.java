@@ -0,0 +1,100 @@
+package tamagochi;
+
+/**
+ * Utility methods packing a pet's displayable state into a single {@code long}.
+ * Used for population-wide state tables that many readers scan without touching
+ * the individual {@link PetModel} instances.
+ *
+ * <p>Layout (low to high bits): hunger, hygiene, social, sleepy and health levels
+ * at 7 bits each, followed by 2 bits for the mood (0 when unset) and 1 bit for the
+ * game-over flag.
+ */
+final class PackedPetState {
+  private static final int LEVEL_BITS = 7;
+  private static final long LEVEL_MASK = (1L << LEVEL_BITS) - 1;
+  private static final int MOOD_SHIFT = 5 * LEVEL_BITS;
+  private static final int GAME_OVER_SHIFT = MOOD_SHIFT + 2;
+  private static final Mood[] MOODS = Mood.values();
+
+  private PackedPetState() {
+  }
+
+  /**
+   * Packs the latest snapshot of the given pet.
+   *
+   * @param pet The pet to read.
+   * @return The packed state.
+   */
+  static long of(PetModel pet) {
+    return of(pet.getSnapshot());
+  }
+
+  /**
+   * Packs the given snapshot.
+   *
+   * @param state The snapshot to pack.
+   * @return The packed state.
+   */
+  static long of(PetSnapshot state) {
+    return pack(state.getHungerLevel(), state.getHygieneLevel(), state.getSocialLevel(),
+        state.getSleepyLevel(), state.getHealthLevel(), state.getMood(), state.isGameOver());
+  }
+
+  /**
+   * Packs the given levels and flags.
+   *
+   * @param hunger   The hunger level, ranging from 0 to 100.
+   * @param hygiene  The hygiene level, ranging from 0 to 100.
+   * @param social   The social level, ranging from 0 to 100.
+   * @param sleepy   The sleepy level, ranging from 0 to 100.
+   * @param health   The health level, ranging from 0 to 100.
+   * @param mood     The mood, or {@code null} if unknown.
+   * @param gameOver Whether the game is over.
+   * @return The packed state.
+   */
+  static long pack(int hunger, int hygiene, int social, int sleepy, int health,
+                   Mood mood, boolean gameOver) {
+    return (hunger & LEVEL_MASK)
+        | (hygiene & LEVEL_MASK) << LEVEL_BITS
+        | (social & LEVEL_MASK) << 2 * LEVEL_BITS
+        | (sleepy & LEVEL_MASK) << 3 * LEVEL_BITS
+        | (health & LEVEL_MASK) << 4 * LEVEL_BITS
+        | (long) (mood == null ? 0 : mood.ordinal() + 1) << MOOD_SHIFT
+        | (gameOver ? 1L : 0L) << GAME_OVER_SHIFT;
+  }
+
+  static int hunger(long state) {
+    return (int) (state & LEVEL_MASK);
+  }
+
+  static int hygiene(long state) {
+    return (int) (state >>> LEVEL_BITS & LEVEL_MASK);
+  }
+
+  static int social(long state) {
+    return (int) (state >>> 2 * LEVEL_BITS & LEVEL_MASK);
+  }
+
+  static int sleepy(long state) {
+    return (int) (state >>> 3 * LEVEL_BITS & LEVEL_MASK);
+  }
+
+  static int health(long state) {
+    return (int) (state >>> 4 * LEVEL_BITS & LEVEL_MASK);
+  }
+
+  /**
+   * Extracts the mood from a packed state.
+   *
+   * @param state The packed state.
+   * @return The mood, or {@code null} if none was set.
+   */
+  static Mood mood(long state) {
+    int code = (int) (state >>> MOOD_SHIFT & 3);
+    return code == 0 ? null : MOODS[code - 1];
+  }
+
+  static boolean isGameOver(long state) {
+    return (state >>> GAME_OVER_SHIFT & 1) != 0;
+  }
+}
@@ -0,0 +1,59 @@
+package tamagochi;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event spanning one {@link PetModel#performAction(PetActions)},
+ * with the pet's levels before and after the action. Disabled by default.
+ */
+@Name("tamagochi.PetAction")
+@Label("Pet Action")
+@Category("Tamagochi")
+@Description("Action performed on a pet, with its levels before and after")
+@Enabled(false)
+@StackTrace(false)
+class PetActionEvent extends jdk.jfr.Event {
+  @Label("Pet Id")
+  int petId;
+
+  @Label("Action")
+  String action;
+
+  @Label("Mood")
+  String mood;
+
+  @Label("Hunger Before")
+  int hungerBefore;
+
+  @Label("Hunger After")
+  int hungerAfter;
+
+  @Label("Hygiene Before")
+  int hygieneBefore;
+
+  @Label("Hygiene After")
+  int hygieneAfter;
+
+  @Label("Social Before")
+  int socialBefore;
+
+  @Label("Social After")
+  int socialAfter;
+
+  @Label("Sleepy Before")
+  int sleepyBefore;
+
+  @Label("Sleepy After")
+  int sleepyAfter;
+
+  @Label("Health Before")
+  int healthBefore;
+
+  @Label("Health After")
+  int healthAfter;
+}
@@ -0,0 +1,453 @@
+package tamagochi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Alerts raised shortly before the pets of a {@link PetPopulation} get hurt: before a
+ * level falls below the penalty line of {@value PetModelImpl#PENALTY_LEVEL}, before
+ * health falls to the mood boundaries of {@value PetModelImpl#HAPPY_HEALTH} and
+ * {@value PetModelImpl#GRUMPY_HEALTH}, and before it reaches 0.
+ *
+ * <p>Instead of checking every pet on every tick, the engine predicts from linear
+ * depletion the tick at which each threshold will be crossed, and schedules a wake-up
+ * {@code leadTicks} before the earliest crossing in a timing wheel with one slot per
+ * tick. Every pet has at most one live wake-up: when a pet is spawned, or an action,
+ * reset or setter raises its levels, the pet is marked, and on the next
+ * {@link #advance()} its generation is bumped and a new wake-up is scheduled; the
+ * superseded entry stays in the wheel and is skipped when its slot comes up. A tick
+ * therefore costs one wheel slot plus the pets acted on, whatever the size of the
+ * population.
+ *
+ * <p>Predictions assume every level depletes by {@code maxDepletion} per tick. With
+ * the fixed depletion of 1 they are exact; with {@link StochasticDepletion}, pass the
+ * largest amount a level may lose per tick, so that alerts are never late: when a
+ * wake-up finds the pet slower than predicted, it is simply rescheduled. Likewise, setter
+ * calls lowering a level, such as mood contagion in a {@link SocialGraph}, are only
+ * taken into account at the pet's next wake-up.
+ *
+ * <p>Listener callbacks only mark pets, from any thread. Alerts are computed and
+ * delivered in one batch per {@link #advance()}, which is expected to be called once
+ * per tick from a single simulation thread.
+ */
+public class PetAlertEngine implements PetModelListener {
+  private static final int WHEEL_SIZE = 128;
+  private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+  private static final int NEVER = Integer.MAX_VALUE;
+
+  /**
+   * The thresholds a pet is alerted about.
+   */
+  public enum Kind {
+    /** The hunger level is about to fall below the penalty line. */
+    HUNGER,
+    /** The hygiene level is about to fall below the penalty line. */
+    HYGIENE,
+    /** The social level is about to fall below the penalty line. */
+    SOCIAL,
+    /** The sleepy level is about to fall below the penalty line. */
+    SLEEPY,
+    /** Health is about to fall to the happy boundary, making the pet grumpy. */
+    GRUMPY,
+    /** Health is about to fall to the grumpy boundary, making the pet depressive. */
+    DEPRESSIVE,
+    /** Health is about to reach 0, ending the game. */
+    DEATH
+  }
+
+  private static final Kind[] KINDS = Kind.values();
+
+  /**
+   * An alert about one pet and threshold.
+   */
+  public static final class Alert {
+    private final int petId;
+    private final Kind kind;
+    private final long tick;
+    private final int ticksLeft;
+
+    Alert(int petId, Kind kind, long tick, int ticksLeft) {
+      this.petId = petId;
+      this.kind = kind;
+      this.tick = tick;
+      this.ticksLeft = ticksLeft;
+    }
+
+    /**
+     * Retrieves the id of the pet about to be hurt.
+     *
+     * @return The pet's id.
+     */
+    public int getPetId() {
+      return petId;
+    }
+
+    /**
+     * Retrieves the threshold about to be crossed.
+     *
+     * @return The threshold.
+     */
+    public Kind getKind() {
+      return kind;
+    }
+
+    /**
+     * Retrieves the engine tick at which the alert was raised.
+     *
+     * @return The number of {@link PetAlertEngine#advance()} calls so far.
+     */
+    public long getTick() {
+      return tick;
+    }
+
+    /**
+     * Retrieves the predicted number of ticks until the threshold is crossed.
+     *
+     * @return The ticks left, from 1 to the engine's lead.
+     */
+    public int getTicksLeft() {
+      return ticksLeft;
+    }
+
+    @Override
+    public String toString() {
+      return "Pet " + petId + ": " + kind + " in " + ticksLeft + " ticks";
+    }
+  }
+
+  private final int leadTicks;
+  private final int maxDepletion;
+  private final Consumer<List<Alert>> consumer;
+  private volatile PetPopulation population;
+
+  // Pets whose trajectory changed, appended by listener callbacks
+  private final Object markLock = new Object();
+  private int[] marked = new int[64];
+  private int markedCount;
+  private int[] draining = new int[64];
+
+  // Wheel and per-pet state, owned by the advancing thread
+  private final long[][] slots = new long[WHEEL_SIZE][];
+  private final int[] slotCounts = new int[WHEEL_SIZE];
+  private int[] generations = new int[0];
+  private int[] plannedTicks = new int[0];
+  private byte[] alerted = new byte[0];
+  private final int[] crossings = new int[KINDS.length];
+  private long tick;
+  private long alertCount;
+  private long wakeUpCount;
+  private long lastAdvanceNanos;
+
+  /**
+   * Constructs an engine delivering its alerts to the given consumer.
+   *
+   * @param leadTicks    The number of ticks before a crossing at which to alert.
+   * @param maxDepletion The largest amount a level is expected to lose per tick.
+   * @param consumer     The consumer of each non-empty batch of alerts.
+   * @throws IllegalArgumentException if the lead is not positive or beyond the wheel, or
+   *                                  the depletion is not positive.
+   */
+  public PetAlertEngine(int leadTicks, int maxDepletion, Consumer<List<Alert>> consumer) {
+    if (leadTicks < 1 || leadTicks >= WHEEL_SIZE || maxDepletion <= 0) {
+      throw new IllegalArgumentException("Invalid alert parameters: lead " + leadTicks
+          + ", depletion " + maxDepletion);
+    }
+    this.leadTicks = leadTicks;
+    this.maxDepletion = maxDepletion;
+    this.consumer = consumer;
+    for (int i = 0; i < WHEEL_SIZE; i++) {
+      slots[i] = new long[16];
+    }
+  }
+
+  /**
+   * Starts watching the pets of a population, present and future.
+   *
+   * @param population The population to watch.
+   */
+  public void attach(PetPopulation population) {
+    this.population = population;
+    population.addListener(this);
+    int size = population.size();
+    for (int i = 0; i < size; i++) {
+      mark(i);
+    }
+  }
+
+  /**
+   * Stops watching the pets of a population.
+   *
+   * @param population The population passed to {@link #attach(PetPopulation)}.
+   */
+  public void detach(PetPopulation population) {
+    population.removeListener(this);
+  }
+
+  /**
+   * Marks spawned pets, and pets whose levels rose, as after a reset. Ticks only lower
+   * levels along the predicted trajectory and are ignored.
+   *
+   * @param previous The snapshot before the mutation.
+   * @param current  The snapshot after the mutation.
+   */
+  @Override
+  public void onStateChanged(PetSnapshot previous, PetSnapshot current) {
+    if (previous == null || current.getHealthLevel() > previous.getHealthLevel()
+        || current.getHungerLevel() > previous.getHungerLevel()
+        || current.getHygieneLevel() > previous.getHygieneLevel()
+        || current.getSocialLevel() > previous.getSocialLevel()
+        || current.getSleepyLevel() > previous.getSleepyLevel()) {
+      mark(current.getPetId());
+    }
+  }
+
+  /**
+   * Marks a pet acted on, whose levels were raised.
+   *
+   * @param petId  The id of the pet.
+   * @param action The action performed.
+   */
+  @Override
+  public void onActionPerformed(int petId, PetActions action) {
+    mark(petId);
+  }
+
+  /**
+   * Queues a pet for rescheduling on the next {@link #advance()}.
+   */
+  private void mark(int petId) {
+    synchronized (markLock) {
+      if (markedCount == marked.length) {
+        marked = Arrays.copyOf(marked, markedCount * 2);
+      }
+      marked[markedCount++] = petId;
+    }
+  }
+
+  /**
+   * Moves to the next tick: reschedules the pets marked since the previous call, wakes
+   * up the pets due on this tick, and delivers the alerts raised to the consumer.
+   *
+   * @return The number of alerts delivered.
+   * @throws IllegalStateException if the engine is not attached to a population.
+   */
+  public int advance() {
+    PetPopulation current = population;
+    if (current == null) {
+      throw new IllegalStateException("Alert engine is not attached");
+    }
+    long start = System.nanoTime();
+    tick++;
+    int size = current.size();
+    if (size > generations.length) {
+      int capacity = Math.max(size, generations.length * 2);
+      generations = Arrays.copyOf(generations, capacity);
+      plannedTicks = Arrays.copyOf(plannedTicks, capacity);
+      alerted = Arrays.copyOf(alerted, capacity);
+    }
+    List<Alert> batch = null;
+
+    int count;
+    int[] pets;
+    synchronized (markLock) {
+      pets = marked;
+      count = markedCount;
+      marked = draining;
+      markedCount = 0;
+    }
+    draining = pets;
+    for (int i = 0; i < count; i++) {
+      int petId = pets[i];
+      // Actions mark pets twice, through their callback and the levels they raised
+      if (petId < size && plannedTicks[petId] != (int) tick) {
+        plannedTicks[petId] = (int) tick;
+        generations[petId]++; // Supersedes the pet's wake-up in the wheel
+        batch = plan(current, petId, true, batch);
+      }
+    }
+
+    int slot = (int) (tick & WHEEL_MASK);
+    long[] entries = slots[slot];
+    int entryCount = slotCounts[slot];
+    slotCounts[slot] = 0; // Plans only schedule into later slots
+    for (int i = 0; i < entryCount; i++) {
+      int petId = (int) (entries[i] >>> 32);
+      if ((int) entries[i] == generations[petId]) {
+        wakeUpCount++;
+        batch = plan(current, petId, false, batch);
+      }
+    }
+
+    int alerts = 0;
+    if (batch != null) {
+      alerts = batch.size();
+      alertCount += alerts;
+      consumer.accept(Collections.unmodifiableList(batch));
+    }
+    lastAdvanceNanos = System.nanoTime() - start;
+    return alerts;
+  }
+
+  /**
+   * Predicts the crossings of a pet, raises the alerts due and schedules a wake-up
+   * before the next crossing.
+   *
+   * @param rearm Whether thresholds already alerted but no longer imminent may be
+   *              alerted again, after the pet's trajectory changed.
+   * @return The batch, created when the first alert is raised.
+   */
+  private List<Alert> plan(PetPopulation current, int petId, boolean rearm,
+                           List<Alert> batch) {
+    PetSnapshot state = current.get(petId).getSnapshot();
+    if (state.isGameOver()) {
+      alerted[petId] = 0;
+      return batch;
+    }
+    predict(state, crossings);
+    int mask = alerted[petId];
+    int next = NEVER;
+    for (int kind = 0; kind < crossings.length; kind++) {
+      int ticksLeft = crossings[kind];
+      int bit = 1 << kind;
+      if (rearm && ticksLeft > leadTicks) {
+        mask &= ~bit;
+      }
+      if (ticksLeft == 0 || (mask & bit) != 0) {
+        continue; // Already crossed, or alerted
+      }
+      if (ticksLeft <= leadTicks) {
+        if (batch == null) {
+          batch = new ArrayList<>();
+        }
+        batch.add(new Alert(petId, KINDS[kind], tick, ticksLeft));
+        mask |= bit;
+      } else {
+        next = Math.min(next, ticksLeft - leadTicks);
+      }
+    }
+    alerted[petId] = (byte) mask;
+    if (next != NEVER) {
+      // Levels of at most 100 cross within 101 ticks; a later wake-up would re-plan
+      schedule(petId, Math.min(next, WHEEL_SIZE - 1));
+    }
+    return batch;
+  }
+
+  /**
+   * Adds a wake-up for the pet's current generation the given number of ticks ahead.
+   */
+  private void schedule(int petId, int delay) {
+    int slot = (int) ((tick + delay) & WHEEL_MASK);
+    int count = slotCounts[slot];
+    if (count == slots[slot].length) {
+      slots[slot] = Arrays.copyOf(slots[slot], count * 2);
+    }
+    slots[slot][count] = (long) petId << 32 | (generations[petId] & 0xFFFFFFFFL);
+    slotCounts[slot] = count + 1;
+  }
+
+  /**
+   * Predicts the number of ticks until a pet crosses each threshold, indexed by
+   * {@link Kind#ordinal()}: 0 if it is already crossed.
+   */
+  void predict(PetSnapshot state, int[] ticks) {
+    int health = state.getHealthLevel();
+    // All levels are depleted, and health is 0, once the highest one is
+    int empty = (Math.max(Math.max(state.getHungerLevel(), state.getHygieneLevel()),
+        Math.max(state.getSocialLevel(), state.getSleepyLevel())) + maxDepletion - 1)
+        / maxDepletion;
+    // Lower bounds are crossed later, which narrows the searches of higher ones
+    int death = ticksUntilHealth(state, health, 0, empty);
+    int depressive = ticksUntilHealth(state, health, PetModelImpl.GRUMPY_HEALTH, death);
+    ticks[Kind.DEATH.ordinal()] = death;
+    ticks[Kind.DEPRESSIVE.ordinal()] = depressive;
+    ticks[Kind.GRUMPY.ordinal()] =
+        ticksUntilHealth(state, health, PetModelImpl.HAPPY_HEALTH, depressive);
+    // Levels are emptied when the pet dies
+    ticks[Kind.HUNGER.ordinal()] = Math.min(ticksBelow(state.getHungerLevel()), death);
+    ticks[Kind.HYGIENE.ordinal()] = Math.min(ticksBelow(state.getHygieneLevel()), death);
+    ticks[Kind.SOCIAL.ordinal()] = Math.min(ticksBelow(state.getSocialLevel()), death);
+    ticks[Kind.SLEEPY.ordinal()] = Math.min(ticksBelow(state.getSleepyLevel()), death);
+  }
+
+  /**
+   * Computes the number of ticks until a level falls below the penalty line.
+   */
+  private int ticksBelow(int level) {
+    if (level < PetModelImpl.PENALTY_LEVEL) {
+      return 0;
+    }
+    return (level - PetModelImpl.PENALTY_LEVEL) / maxDepletion + 1;
+  }
+
+  /**
+   * Computes the number of ticks until health falls to the given bound, knowing that it
+   * has by the given tick. Health never rises while levels deplete, so the first such
+   * tick is found by binary search.
+   */
+  private int ticksUntilHealth(PetSnapshot state, int health, int bound, int high) {
+    if (health <= bound) {
+      return 0;
+    }
+    int low = 1;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (healthAfter(state, middle) <= bound) {
+        high = middle;
+      } else {
+        low = middle + 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Computes a pet's health after the given number of ticks of depletion.
+   */
+  private int healthAfter(PetSnapshot state, int ticks) {
+    int loss = ticks * maxDepletion;
+    return PetModelImpl.healthFor(Math.max(0, state.getHungerLevel() - loss),
+        Math.max(0, state.getHygieneLevel() - loss),
+        Math.max(0, state.getSocialLevel() - loss),
+        Math.max(0, state.getSleepyLevel() - loss));
+  }
+
+  /**
+   * Retrieves the number of {@link #advance()} calls so far.
+   *
+   * @return The current tick.
+   */
+  public long getTick() {
+    return tick;
+  }
+
+  /**
+   * Retrieves the number of alerts delivered so far.
+   *
+   * @return The alert count.
+   */
+  public long getAlertCount() {
+    return alertCount;
+  }
+
+  /**
+   * Retrieves the number of scheduled wake-ups that were still current when due.
+   *
+   * @return The wake-up count.
+   */
+  public long getWakeUpCount() {
+    return wakeUpCount;
+  }
+
+  /**
+   * Retrieves the duration of the latest {@link #advance()} call.
+   *
+   * @return The duration in nanoseconds.
+   */
+  public long getLastAdvanceNanos() {
+    return lastAdvanceNanos;
+  }
+}
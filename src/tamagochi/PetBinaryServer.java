@@ -0,0 +1,351 @@
+package tamagochi;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Non-blocking binary front end for high-rate action ingestion.
+ *
+ * <p>A connection opens with the tenant it acts for: one byte holding the length of
+ * the tenant id (1-255), followed by the id in UTF-8, with no answer. Each request is
+ * then one byte holding the {@link PetActions} ordinal followed by the pet id as an
+ * unsigned LEB128 varint (1-5 bytes, at most {@link Integer#MAX_VALUE}); malformed
+ * frames close the connection. Requests may be pipelined; the server answers each with
+ * a single status byte, in order: {@link #STATUS_ACCEPTED},
+ * {@link #STATUS_UNKNOWN_ACTION}, {@link #STATUS_UNKNOWN_PET} (including the pets of
+ * other tenants) or {@link #STATUS_OVERLOADED}. Accepted actions are queued on the service's
+ * {@link ActionQueue} and applied by the simulation thread; while the queue is
+ * congested, the service's {@link AdmissionController} sheds them as overloaded.
+ *
+ * <p>A single selector thread serves all connections. Reads land in pooled direct
+ * buffers and whole batches of requests are decoded in place, with no allocation per
+ * message; a connection stops being read while its responses cannot be written.
+ */
+public class PetBinaryServer {
+  public static final byte STATUS_ACCEPTED = 0;
+  public static final byte STATUS_UNKNOWN_ACTION = 1;
+  public static final byte STATUS_UNKNOWN_PET = 2;
+  public static final byte STATUS_OVERLOADED = 3;
+
+  private static final int BUFFER_SIZE = 16 * 1024;
+  private static final int MAX_VARINT_BYTES = 5;
+  private static final PetActions[] ACTIONS = PetActions.values();
+
+  private final PetService service;
+  private final Selector selector;
+  private final ServerSocketChannel serverChannel;
+  private final ArrayDeque<ByteBuffer> bufferPool;
+  private final Thread ioThread;
+  private volatile boolean running;
+
+  /**
+   * Per-connection state: a read buffer holding undecoded bytes and a write buffer
+   * holding pending status bytes, both borrowed from the pool, and the tenant once
+   * received.
+   */
+  private static final class Connection {
+    private final ByteBuffer in;
+    private final ByteBuffer out;
+    private String tenant;
+
+    private Connection(ByteBuffer in, ByteBuffer out) {
+      this.in = in;
+      this.out = out;
+    }
+  }
+
+  /**
+   * Constructs a new server for the given service. The server is not started.
+   *
+   * @param service The service receiving the actions.
+   * @param address The address to bind; use port 0 for an ephemeral port.
+   * @throws IOException if the address cannot be bound.
+   */
+  public PetBinaryServer(PetService service, InetSocketAddress address) throws IOException {
+    this.service = service;
+    this.selector = Selector.open();
+    this.serverChannel = ServerSocketChannel.open();
+    serverChannel.bind(address, 1024);
+    serverChannel.configureBlocking(false);
+    serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    this.bufferPool = new ArrayDeque<>();
+    this.ioThread = new Thread(this::run, "pet-binary-io");
+    ioThread.setDaemon(true);
+  }
+
+  /**
+   * Starts serving connections on the I/O thread.
+   */
+  public void start() {
+    running = true;
+    ioThread.start();
+  }
+
+  /**
+   * Stops serving and closes all connections.
+   */
+  public void stop() {
+    running = false;
+    selector.wakeup();
+  }
+
+  /**
+   * Retrieves the port the server is bound to.
+   *
+   * @return The local port.
+   * @throws IOException if the channel is closed.
+   */
+  public int getPort() throws IOException {
+    return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+  }
+
+  /**
+   * The selector loop.
+   */
+  private void run() {
+    try {
+      while (running) {
+        selector.select();
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          try {
+            if (!key.isValid()) {
+              continue;
+            }
+            if (key.isAcceptable()) {
+              accept();
+            } else {
+              if (key.isWritable()) {
+                onWritable(key);
+              }
+              if (key.isValid() && key.isReadable()) {
+                onReadable(key);
+              }
+            }
+          } catch (IOException e) {
+            close(key);
+          }
+        }
+      }
+    } catch (IOException e) {
+      System.err.println("Binary server failed: " + e);
+    } finally {
+      for (SelectionKey key : selector.keys()) {
+        close(key);
+      }
+      try {
+        serverChannel.close();
+        selector.close();
+      } catch (IOException e) {
+        // Already shutting down
+      }
+    }
+  }
+
+  /**
+   * Accepts all pending connections.
+   */
+  private void accept() throws IOException {
+    SocketChannel channel;
+    while ((channel = serverChannel.accept()) != null) {
+      channel.configureBlocking(false);
+      channel.socket().setTcpNoDelay(true);
+      Connection connection = new Connection(acquireBuffer(), acquireBuffer());
+      channel.register(selector, SelectionKey.OP_READ, connection);
+    }
+  }
+
+  /**
+   * Reads what is available, decodes every complete request and answers them.
+   */
+  private void onReadable(SelectionKey key) throws IOException {
+    SocketChannel channel = (SocketChannel) key.channel();
+    Connection connection = (Connection) key.attachment();
+    int read = channel.read(connection.in);
+    if (read < 0) {
+      close(key);
+      return;
+    }
+    decode(connection);
+    flush(key, connection);
+  }
+
+  /**
+   * Continues writing pending responses, then resumes decoding requests that were
+   * held back while the write buffer was full.
+   */
+  private void onWritable(SelectionKey key) throws IOException {
+    Connection connection = (Connection) key.attachment();
+    flush(key, connection);
+    if (connection.out.position() == 0 && connection.in.position() > 0) {
+      decode(connection);
+      flush(key, connection);
+    }
+  }
+
+  /**
+   * Decodes complete requests in place, writing one status byte per request.
+   * Stops early when the write buffer is full; incomplete trailing bytes are kept.
+   */
+  private void decode(Connection connection) throws IOException {
+    ByteBuffer in = connection.in;
+    ByteBuffer out = connection.out;
+    in.flip();
+    if (connection.tenant == null && !decodeTenant(connection)) {
+      in.compact(); // Wait for the rest of the tenant id
+      return;
+    }
+    int decoded = 0;
+    while (in.hasRemaining() && out.hasRemaining()) {
+      int start = in.position();
+      int ordinal = in.get() & 0xFF;
+      int petId = 0;
+      int shift = 0;
+      boolean complete = false;
+      while (in.hasRemaining()) {
+        int b = in.get();
+        if (shift == 7 * (MAX_VARINT_BYTES - 1) && (b & 0xF8) != 0) {
+          throw new IOException("Malformed pet id"); // Beyond 31 bits, or too long
+        }
+        petId |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          complete = true;
+          break;
+        }
+        shift += 7;
+      }
+      if (!complete) {
+        in.position(start); // Wait for the rest of the frame
+        break;
+      }
+      out.put(handle(connection.tenant, ordinal, petId));
+      decoded++;
+    }
+    in.compact();
+    if (decoded > 0) {
+      service.flushActions();
+    }
+  }
+
+  /**
+   * Decodes the tenant opening a connection from the flipped read buffer.
+   *
+   * @return {@code true} if the tenant was complete.
+   */
+  private static boolean decodeTenant(Connection connection) throws IOException {
+    ByteBuffer in = connection.in;
+    if (!in.hasRemaining()) {
+      return false;
+    }
+    int length = in.get(in.position()) & 0xFF;
+    if (length == 0) {
+      throw new IOException("Empty tenant id");
+    }
+    if (in.remaining() < 1 + length) {
+      return false;
+    }
+    byte[] tenant = new byte[length];
+    in.get();
+    in.get(tenant);
+    connection.tenant = new String(tenant, StandardCharsets.UTF_8);
+    return true;
+  }
+
+  /**
+   * Validates and queues one request, returning its status byte.
+   */
+  private byte handle(String tenant, int ordinal, int petId) {
+    if (ordinal >= ACTIONS.length) {
+      return STATUS_UNKNOWN_ACTION;
+    }
+    if (!service.owns(tenant, petId)) {
+      return STATUS_UNKNOWN_PET;
+    }
+    if (service.getAdmissionController().shouldShed()) {
+      return STATUS_OVERLOADED;
+    }
+    return service.submitAction(petId, ACTIONS[ordinal]) ? STATUS_ACCEPTED : STATUS_OVERLOADED;
+  }
+
+  /**
+   * Writes pending responses and updates the interest set: while responses are
+   * pending the connection is only watched for writability, so a client that does
+   * not read its responses cannot make the server buffer without bound.
+   */
+  private void flush(SelectionKey key, Connection connection) throws IOException {
+    ByteBuffer out = connection.out;
+    if (out.position() > 0) {
+      out.flip();
+      ((SocketChannel) key.channel()).write(out);
+      out.compact();
+    }
+    boolean pending = out.position() > 0;
+    boolean inputFull = !connection.in.hasRemaining();
+    key.interestOps(pending || inputFull ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+  }
+
+  /**
+   * Closes a connection and returns its buffers to the pool.
+   */
+  private void close(SelectionKey key) {
+    Object attachment = key.attachment();
+    key.cancel();
+    try {
+      key.channel().close();
+    } catch (IOException e) {
+      // Nothing else to release
+    }
+    if (attachment instanceof Connection) {
+      Connection connection = (Connection) attachment;
+      key.attach(null);
+      releaseBuffer(connection.in);
+      releaseBuffer(connection.out);
+    }
+  }
+
+  /**
+   * Takes a direct buffer from the pool, allocating one if the pool is empty.
+   */
+  private ByteBuffer acquireBuffer() {
+    ByteBuffer buffer = bufferPool.poll();
+    return buffer != null ? buffer : ByteBuffer.allocateDirect(BUFFER_SIZE);
+  }
+
+  /**
+   * Returns a buffer to the pool for reuse by later connections.
+   */
+  private void releaseBuffer(ByteBuffer buffer) {
+    buffer.clear();
+    bufferPool.push(buffer);
+  }
+
+  /**
+   * Starts a service and its binary server.
+   *
+   * @param args Optional port (defaults to 9090) and number of pets to create (default 1000).
+   * @throws IOException if the port cannot be bound.
+   */
+  public static void main(String[] args) throws IOException {
+    int port = args.length > 0 ? Integer.parseInt(args[0]) : 9090;
+    int pets = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+    PetService service = new PetService(1000, Clock.configured());
+    for (int i = 0; i < pets; i++) {
+      service.createPet(PetHttpServer.DEFAULT_TENANT);
+    }
+    PetBinaryServer server = new PetBinaryServer(service, new InetSocketAddress(port));
+    service.getMetrics().register("service");
+    service.start();
+    server.start();
+    System.out.println("Binary pet protocol listening on port " + server.getPort());
+  }
+}
@@ -0,0 +1,416 @@
+package tamagochi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Secondary indexes over the pets of a {@link PetPopulation}, answering queries such as
+ * "all grumpy pets with hunger and hygiene below 20" without scanning the population.
+ *
+ * <p>The index holds one {@link CompressedBitmap} of pet ids per {@link Mood}, one of
+ * the pets whose game is over and, for each {@link PetSnapshot.Level}, range-encoded bitmaps: the
+ * k-th holds the pets whose level is below {@code k * }{@value #BUCKET_WIDTH}. Any level
+ * range is thus the difference of two bitmaps, and a level moving into the next bucket
+ * changes a single bitmap. The index is maintained from the population's listener
+ * callbacks: a snapshot only touches the bitmaps when the pet's mood, game-over flag or
+ * the bucket of one of its levels changed, so most ticks and actions cost a comparison
+ * of two snapshots without locking. Bounds that fall inside a bucket are resolved by
+ * checking the latest snapshots of the pets of that bucket only.
+ *
+ * <p>Updates and queries are synchronized, so pets may be ticked and acted upon from
+ * several threads. Query results are new bitmaps owned by the caller.
+ */
+public class PetBitmapIndex implements PetModelListener {
+  static final int BUCKET_WIDTH = 10;
+  // Buckets 0 to 9 hold levels 0 to 99, bucket 10 holds level 100
+  private static final int BUCKETS = 100 / BUCKET_WIDTH + 1;
+  private static final Mood[] MOODS = Mood.values();
+  private static final PetSnapshot.Level[] LEVELS = PetSnapshot.Level.values();
+
+  private final PetPopulation population;
+  private final CompressedBitmap all;
+  private final CompressedBitmap gameOver;
+  private final CompressedBitmap[] moods;
+  // below[level][k]: pets whose level is below k * BUCKET_WIDTH, for k from 1
+  private final CompressedBitmap[][] below;
+  private long updates;
+
+  /**
+   * Constructs empty indexes for a population's pets, filled once {@link #attach()} is
+   * called.
+   *
+   * @param population The population to index.
+   */
+  public PetBitmapIndex(PetPopulation population) {
+    this.population = population;
+    this.all = new CompressedBitmap();
+    this.gameOver = new CompressedBitmap();
+    this.moods = new CompressedBitmap[MOODS.length];
+    for (int i = 0; i < moods.length; i++) {
+      moods[i] = new CompressedBitmap();
+    }
+    this.below = new CompressedBitmap[LEVELS.length][BUCKETS];
+    for (CompressedBitmap[] levelBitmaps : below) {
+      for (int k = 1; k < BUCKETS; k++) {
+        levelBitmaps[k] = new CompressedBitmap();
+      }
+    }
+  }
+
+  /**
+   * Indexes the population's present pets and starts following it, so that the
+   * indexes are kept up to date with its future pets and changes.
+   */
+  public void attach() {
+    population.addListener(this);
+    for (int i = 0, size = population.size(); i < size; i++) {
+      PetModel pet = population.get(i);
+      synchronized (this) {
+        if (!all.contains(i)) {
+          index(null, pet.getSnapshot());
+        }
+      }
+    }
+  }
+
+  /**
+   * Stops following the population. The indexes keep their last state.
+   */
+  public void detach() {
+    population.removeListener(this);
+  }
+
+  /**
+   * Moves a pet between bitmaps when its mood, game-over flag or a level bucket changed.
+   *
+   * @param previous The snapshot before the change, or {@code null} for a new pet.
+   * @param current  The snapshot after the change.
+   */
+  @Override
+  public void onStateChanged(PetSnapshot previous, PetSnapshot current) {
+    if (previous != null && codeOf(previous) == codeOf(current)) {
+      return;
+    }
+    synchronized (this) {
+      // Pets announced while the constructor was still indexing are indexed afresh
+      index(all.contains(current.getPetId()) ? previous : null, current);
+    }
+  }
+
+  /**
+   * Packs the indexed attributes of a snapshot: the game-over flag, the mood, then
+   * 4 bits per level bucket.
+   */
+  private static int codeOf(PetSnapshot state) {
+    int code = state.isGameOver() ? 1 : 0;
+    code = code << 3 | (state.getMood() == null ? 7 : state.getMood().ordinal());
+    for (PetSnapshot.Level level : LEVELS) {
+      code = code << 4 | bucketOf(level.of(state));
+    }
+    return code;
+  }
+
+  /**
+   * Moves a pet from the bitmaps of its previous state to those of its current one.
+   * Must be called with the lock held.
+   */
+  private void index(PetSnapshot previous, PetSnapshot current) {
+    int petId = current.getPetId();
+    if (previous == null) {
+      all.add(petId);
+    }
+    boolean wasOver = previous != null && previous.isGameOver();
+    if (wasOver != current.isGameOver()) {
+      if (wasOver) {
+        gameOver.remove(petId);
+      } else {
+        gameOver.add(petId);
+      }
+    }
+    Mood previousMood = previous == null ? null : previous.getMood();
+    if (previousMood != current.getMood()) {
+      if (previousMood != null) {
+        moods[previousMood.ordinal()].remove(petId);
+      }
+      if (current.getMood() != null) {
+        moods[current.getMood().ordinal()].add(petId);
+      }
+    }
+    for (PetSnapshot.Level level : LEVELS) {
+      CompressedBitmap[] levelBitmaps = below[level.ordinal()];
+      int from = previous == null ? BUCKETS - 1 : bucketOf(level.of(previous));
+      int to = bucketOf(level.of(current));
+      for (int k = to + 1; k <= from; k++) {
+        levelBitmaps[k].add(petId); // Now below k * BUCKET_WIDTH
+      }
+      for (int k = from + 1; k <= to; k++) {
+        levelBitmaps[k].remove(petId);
+      }
+    }
+    updates++;
+  }
+
+  /**
+   * Computes the bucket of a level.
+   */
+  static int bucketOf(int level) {
+    return level / BUCKET_WIDTH;
+  }
+
+  /**
+   * Retrieves the pets whose level is below {@code k * BUCKET_WIDTH}, or {@code null}
+   * for none.
+   */
+  private CompressedBitmap belowBucket(PetSnapshot.Level level, int k) {
+    return k <= 0 ? null : k >= BUCKETS ? all : below[level.ordinal()][k];
+  }
+
+  /**
+   * Retrieves all indexed pets, e.g. to negate a query with
+   * {@link CompressedBitmap#andNot(CompressedBitmap)}.
+   *
+   * @return A new bitmap of the pet ids.
+   */
+  public synchronized CompressedBitmap all() {
+    return all.copy();
+  }
+
+  /**
+   * Retrieves the pets whose game is over.
+   *
+   * @return A new bitmap of the pet ids.
+   */
+  public synchronized CompressedBitmap gameOver() {
+    return gameOver.copy();
+  }
+
+  /**
+   * Starts a conjunctive query, e.g.
+   * {@code index.query().mood(Mood.GRUMPY).below(PetSnapshot.Level.HUNGER, 20).alive().run()}.
+   *
+   * @return A query matching all pets until criteria are added.
+   */
+  public Query query() {
+    return new Query();
+  }
+
+  /**
+   * Conjunction of criteria on the indexed attributes. When run, the criteria are
+   * applied from the most selective one, estimated from bitmap sizes, so that the
+   * running result shrinks as early as possible and selective queries only intersect
+   * small bitmaps with large ones.
+   */
+  public final class Query {
+    private final List<Criterion> criteria = new ArrayList<>();
+    private boolean aliveOnly;
+
+    private Query() {
+    }
+
+    /**
+     * Requires a mood.
+     *
+     * @param mood The mood.
+     * @return This query.
+     */
+    public Query mood(Mood mood) {
+      criteria.add(new Criterion(mood));
+      return this;
+    }
+
+    /**
+     * Requires a level below a threshold.
+     *
+     * @param level     The level to compare.
+     * @param threshold The exclusive upper bound.
+     * @return This query.
+     */
+    public Query below(PetSnapshot.Level level, int threshold) {
+      return between(level, 0, threshold);
+    }
+
+    /**
+     * Requires a level at or above a threshold.
+     *
+     * @param level     The level to compare.
+     * @param threshold The inclusive lower bound.
+     * @return This query.
+     */
+    public Query atLeast(PetSnapshot.Level level, int threshold) {
+      return between(level, threshold, 101);
+    }
+
+    /**
+     * Requires a level within a range.
+     *
+     * @param level The level to compare.
+     * @param min   The inclusive lower bound.
+     * @param max   The exclusive upper bound.
+     * @return This query.
+     */
+    public Query between(PetSnapshot.Level level, int min, int max) {
+      criteria.add(new Criterion(level, Math.max(0, min), Math.min(101, max)));
+      return this;
+    }
+
+    /**
+     * Leaves out the pets whose game is over.
+     *
+     * @return This query.
+     */
+    public Query alive() {
+      this.aliveOnly = true;
+      return this;
+    }
+
+    /**
+     * Evaluates the query.
+     *
+     * @return A new bitmap of the matching pet ids.
+     */
+    public CompressedBitmap run() {
+      synchronized (PetBitmapIndex.this) {
+        long[] order = new long[criteria.size()];
+        for (int i = 0; i < order.length; i++) {
+          order[i] = (long) criteria.get(i).estimate() << 32 | i;
+        }
+        Arrays.sort(order);
+        CompressedBitmap result = null;
+        for (long entry : order) {
+          result = criteria.get((int) entry).select(result);
+        }
+        if (result == null) {
+          result = all.copy();
+        }
+        return aliveOnly ? result.andNot(gameOver) : result;
+      }
+    }
+
+    /**
+     * Counts the matching pets.
+     *
+     * @return The number of pets matching the query.
+     */
+    public int count() {
+      return run().cardinality();
+    }
+  }
+
+  /**
+   * One criterion of a query: a mood, or a level range.
+   */
+  private final class Criterion {
+    private final Mood mood;
+    private final PetSnapshot.Level level;
+    private final int min;
+    private final int max;
+
+    private Criterion(Mood mood) {
+      this(mood, null, 0, 0);
+    }
+
+    private Criterion(PetSnapshot.Level level, int min, int max) {
+      this(null, level, min, max);
+    }
+
+    private Criterion(Mood mood, PetSnapshot.Level level, int min, int max) {
+      this.mood = mood;
+      this.level = level;
+      this.min = min;
+      this.max = max;
+    }
+
+    /**
+     * Bounds the number of pets matching this criterion.
+     */
+    private int estimate() {
+      if (mood != null) {
+        return moods[mood.ordinal()].cardinality();
+      }
+      if (min >= max) {
+        return 0;
+      }
+      CompressedBitmap upper = belowBucket(level, ceilBucket(max));
+      CompressedBitmap lower = belowBucket(level, bucketOf(min));
+      return (upper == null ? 0 : upper.cardinality())
+          - (lower == null ? 0 : lower.cardinality());
+    }
+
+    /**
+     * Selects the matching pets among the given ones, or among all pets if
+     * {@code null}.
+     */
+    private CompressedBitmap select(CompressedBitmap within) {
+      if (mood != null) {
+        CompressedBitmap bitmap = moods[mood.ordinal()];
+        return within == null ? bitmap.copy() : within.and(bitmap);
+      }
+      if (min >= max) {
+        return new CompressedBitmap();
+      }
+      // Pets of the buckets overlapping the range, then the boundary buckets are checked
+      CompressedBitmap upper = belowBucket(level, ceilBucket(max));
+      CompressedBitmap lower = belowBucket(level, bucketOf(min));
+      CompressedBitmap result = within == null ? upper.copy() : within.and(upper);
+      if (lower != null) {
+        result = result.andNot(lower);
+      }
+      if (min % BUCKET_WIDTH != 0) {
+        refine(result, result.and(belowBucket(level, bucketOf(min) + 1)));
+      }
+      if (max % BUCKET_WIDTH != 0 && max <= 100) {
+        CompressedBitmap inside = belowBucket(level, bucketOf(max));
+        refine(result, inside == null ? result.copy() : result.andNot(inside));
+      }
+      return result;
+    }
+
+    /**
+     * Removes the candidates whose latest snapshot is out of range from a result.
+     */
+    private void refine(CompressedBitmap result, CompressedBitmap candidates) {
+      for (int petId : candidates.toArray()) {
+        int value = level.of(population.get(petId).getSnapshot());
+        if (value < min || value >= max) {
+          result.remove(petId);
+        }
+      }
+    }
+  }
+
+  /**
+   * Computes the number of buckets needed to cover the levels below a bound.
+   */
+  private static int ceilBucket(int bound) {
+    return (bound + BUCKET_WIDTH - 1) / BUCKET_WIDTH;
+  }
+
+  /**
+   * Retrieves the number of bitmap updates made since the index was built, i.e. of
+   * snapshots that moved a pet between bitmaps.
+   *
+   * @return The update count.
+   */
+  public synchronized long getUpdateCount() {
+    return updates;
+  }
+
+  /**
+   * Estimates the memory used by the bitmaps.
+   *
+   * @return The size in bytes.
+   */
+  public synchronized long sizeInBytes() {
+    long bytes = all.sizeInBytes() + gameOver.sizeInBytes();
+    for (CompressedBitmap mood : moods) {
+      bytes += mood.sizeInBytes();
+    }
+    for (CompressedBitmap[] levelBitmaps : below) {
+      for (int k = 1; k < BUCKETS; k++) {
+        bytes += levelBitmaps[k].sizeInBytes();
+      }
+    }
+    return bytes;
+  }
+}
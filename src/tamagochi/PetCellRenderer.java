@@ -0,0 +1,105 @@
+package tamagochi;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import javax.swing.JComponent;
+
+/**
+ * Flyweight renderer drawing one dashboard cell: the pet id and mood, a mini sprite
+ * and five mini status bars. Like the renderers of {@code JTable} and {@code JList},
+ * a single instance is configured with {@link #setState(int, long)} and stamped
+ * onto every visible cell, so the dashboard holds no per-pet components.
+ */
+class PetCellRenderer extends JComponent {
+  private static final long serialVersionUID = 1L;
+  private static final Color CELL_BACKGROUND = new Color(255, 230, 204);
+  private static final Color DEAD_BACKGROUND = new Color(220, 220, 220);
+  private static final Font LABEL_FONT = new Font("Arial", Font.BOLD, 10);
+  private static final int SPRITE_SIZE = 28;
+
+  private int petId;
+  private long state;
+
+  /**
+   * Configures the renderer for the next cell to be painted.
+   *
+   * @param petId The id of the pet shown in the cell.
+   * @param state The {@link PackedPetState} of the pet.
+   */
+  void setState(int petId, long state) {
+    this.petId = petId;
+    this.state = state;
+  }
+
+  @Override
+  protected void paintComponent(Graphics g) {
+    int width = getWidth();
+    int height = getHeight();
+    Mood mood = PackedPetState.mood(state);
+    int health = PackedPetState.health(state);
+    boolean gameOver = PackedPetState.isGameOver(state);
+
+    g.setColor(gameOver ? DEAD_BACKGROUND : CELL_BACKGROUND);
+    g.fillRect(0, 0, width, height);
+    g.setColor(Color.DARK_GRAY);
+    g.drawRect(0, 0, width - 1, height - 1);
+
+    g.setFont(LABEL_FONT);
+    g.setColor(gameOver ? Color.RED : PetViewImpl.moodColor(mood));
+    g.drawString("#" + petId, 3, 11);
+
+    BufferedImage sprite =
+        SpriteCache.firstFrame(PetControllerImpl.imagePathFor(mood, health), SPRITE_SIZE,
+            SPRITE_SIZE);
+    if (sprite != null) {
+      g.drawImage(sprite, 3, 14, null);
+    }
+
+    int barLeft = SPRITE_SIZE + 6;
+    int barWidth = width - barLeft - 3;
+    int barHeight = Math.max(2, (height - 18) / 5 - 1);
+    drawBar(g, barLeft, 14, barWidth, barHeight, PackedPetState.hunger(state));
+    drawBar(g, barLeft, 14 + (barHeight + 1), barWidth, barHeight,
+        PackedPetState.hygiene(state));
+    drawBar(g, barLeft, 14 + 2 * (barHeight + 1), barWidth, barHeight,
+        PackedPetState.social(state));
+    drawBar(g, barLeft, 14 + 3 * (barHeight + 1), barWidth, barHeight,
+        PackedPetState.sleepy(state));
+    drawBar(g, barLeft, 14 + 4 * (barHeight + 1), barWidth, barHeight, health);
+  }
+
+  /**
+   * Draws a single mini status bar using the same colors as the main view.
+   */
+  private void drawBar(Graphics g, int x, int y, int width, int height, int value) {
+    g.setColor(PetViewImpl.barBackground(value));
+    g.fillRect(x, y, width, height);
+    g.setColor(PetViewImpl.barForeground(value));
+    g.fillRect(x, y, width * value / 100, height);
+  }
+
+  // The following overrides are no-ops for performance, as in DefaultTableCellRenderer
+
+  @Override
+  public void invalidate() {
+  }
+
+  @Override
+  public void validate() {
+  }
+
+  @Override
+  public void revalidate() {
+  }
+
+  @Override
+  public void repaint(long tm, int x, int y, int width, int height) {
+  }
+
+  @Override
+  public boolean isOpaque() {
+    return true;
+  }
+}
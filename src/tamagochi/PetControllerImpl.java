@@ -2,18 +2,37 @@ package tamagochi;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.RootPaneContainer;
+import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 
 /**
  * Implementation of the {@link PetController} interface for the Tamagotchi application.
  * Manages interactions between the model and view,
  * handles user input, and updates the application state.
+ *
+ * <p>The model is ticked by a {@link SimulationScheduler} on its own thread. Button
+ * clicks only enqueue the action into an {@link ActionQueue} drained by that thread,
+ * so simulated time keeps running while the UI is busy or an animation is playing
+ * and bursts of clicks never touch the model from the EDT. A {@link UiLatencyTracker}
+ * follows every click through to the paint that shows its result; in debug mode it
+ * also hooks paints and probes the EDT, and its results are shown in a
+ * {@link DebugOverlay} and published over JMX.
  */
 
 public class PetControllerImpl implements PetController {
+  private static final long TICK_MILLIS = 1000;
+
   private final PetModel model;
   private final PetView view;
-  private final Timer updateTimer;
+  private final SimulationScheduler scheduler;
+  private final ActionQueue actions;
+  private final Timer transitionTimer;
+  private final AtomicBoolean refreshPending;
+  private final UiLatencyTracker latency;
 
   /**
    * Constructs a new {@code PetControllerImpl} with the specified model and view.
@@ -22,15 +41,67 @@ public class PetControllerImpl implements PetController {
    * @param view  The {@link PetView} representing the GUI for user interaction.
    */
   public PetControllerImpl(PetModel model, PetView view) {
+    this(model, view, Clock.system());
+  }
+
+  /**
+   * Constructs a new {@code PetControllerImpl} ticking the model once per second of the
+   * given clock's time.
+   *
+   * @param model The {@link PetModel} representing the pet's state and behavior.
+   * @param view  The {@link PetView} representing the GUI for user interaction.
+   * @param clock The clock defining simulated time; should be the model's clock.
+   */
+  public PetControllerImpl(PetModel model, PetView view, Clock clock) {
     this.model = model;
     this.view = view;
+    this.refreshPending = new AtomicBoolean();
+    this.latency = new UiLatencyTracker();
+
+    // Delay view updates while an action animation plays
+    transitionTimer = new Timer(2000, e -> {
+      updateView();
+      latency.transitionEnded();
+    });
+    transitionTimer.setRepeats(false);
 
     // Set up listeners for user interactions
     setupListeners();
 
-    // Initialize periodic updates for the model state
-    updateTimer = new Timer(1000, e -> updateModelState());
-    updateTimer.start();
+    // Initialize periodic updates for the model state, off the EDT
+    actions = new ActionQueue(64);
+    scheduler = new SimulationScheduler(TICK_MILLIS, model::updateState, clock);
+    scheduler.attachActionQueue(actions, (petId, action) -> performAction(action));
+    scheduler.addTickListener(this::requestViewUpdate);
+
+    // In debug mode (-Dtamagochi.debug=true), expose runtime metrics over JMX, hook
+    // paints and probe the EDT, and show the latencies on screen
+    if (Boolean.getBoolean("tamagochi.debug")) {
+      SimulationMetrics metrics = new SimulationMetrics(scheduler);
+      try {
+        metrics.watch(model);
+        metrics.register("pet");
+      } catch (IllegalStateException e) {
+        System.err.println(e.getMessage());
+      }
+      latency.install();
+      if (view instanceof RootPaneContainer) {
+        SwingUtilities.invokeLater(() ->
+            new DebugOverlay(latency, scheduler).install((RootPaneContainer) view));
+      }
+    }
+
+    // -Dtamagochi.latencyCsv=<file> exports the latencies on exit
+    String csv = System.getProperty("tamagochi.latencyCsv");
+    if (csv != null) {
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        try {
+          latency.exportCsv(Paths.get(csv));
+        } catch (IOException e) {
+          System.err.println("Cannot export latencies: " + e.getMessage());
+        }
+      }));
+    }
 
     // Initial UI update
     updateView();
@@ -43,177 +114,175 @@ public class PetControllerImpl implements PetController {
     view.addFeedListener(new ActionListener() {
       @Override
       public void actionPerformed(ActionEvent e) {
-        model.performAction(PetActions.FEED);
-        view.setPetImage("/img/feed.gif");
-
-        // Pause the game timer
-        updateTimer.stop();
-
-        // Delay the update to allow the animation to play
-        Timer transitionTimer = new Timer(1500, new ActionListener() {
-          @Override
-          public void actionPerformed(ActionEvent e) {
-            updateView();
-            updateTimer.start(); // Resume the timer
-          }
-        });
-
-        transitionTimer.setRepeats(false);
-        transitionTimer.start();
+        latency.clicked(e);
+        if (submitAction(PetActions.FEED)) {
+          playAnimation("/img/feed.gif", 1500);
+        }
       }
     });
 
     view.addCleanListener(new ActionListener() {
       @Override
       public void actionPerformed(ActionEvent e) {
-        model.performAction(PetActions.SHOWER);
-        view.setPetImage("/img/shower.gif");
-
-        // Pause the game timer
-        updateTimer.stop();
-
-        // Delay the update to allow the animation to play
-        Timer transitionTimer = new Timer(2000, new ActionListener() {
-          @Override
-          public void actionPerformed(ActionEvent e) {
-            updateView();
-            updateTimer.start(); // Resume the timer
-          }
-        });
-
-        transitionTimer.setRepeats(false);
-        transitionTimer.start();
+        latency.clicked(e);
+        if (submitAction(PetActions.SHOWER)) {
+          playAnimation("/img/shower.gif", 2000);
+        }
       }
     });
 
     view.addPlayListener(new ActionListener() {
       @Override
       public void actionPerformed(ActionEvent e) {
-        model.performAction(PetActions.SOCIALIZE);
-        view.setPetImage("/img/play.gif");
-
-        // Pause the game timer
-        updateTimer.stop();
-
-        // Delay the update to allow the animation to play
-        Timer transitionTimer = new Timer(2000, new ActionListener() {
-          @Override
-          public void actionPerformed(ActionEvent e) {
-            updateView();
-            updateTimer.start(); // Resume the timer
-          }
-        });
-
-        transitionTimer.setRepeats(false);
-        transitionTimer.start();
+        latency.clicked(e);
+        if (submitAction(PetActions.SOCIALIZE)) {
+          playAnimation("/img/play.gif", 2000);
+        }
       }
     });
 
     view.addSleepListener(new ActionListener() {
       @Override
       public void actionPerformed(ActionEvent e) {
-        model.performAction(PetActions.SLEEP);
-        view.setPetImage("/img/sleep.gif");
-
-        // Pause the game timer
-        updateTimer.stop();
-
-        // Delay the update to allow the animation to play
-        Timer transitionTimer = new Timer(2000, new ActionListener() {
-          @Override
-          public void actionPerformed(ActionEvent e) {
-            updateView();
-            updateTimer.start(); // Resume the timer
-          }
-        });
-
-        transitionTimer.setRepeats(false);
-        transitionTimer.start();
+        latency.clicked(e);
+        if (submitAction(PetActions.SLEEP)) {
+          playAnimation("/img/sleep.gif", 2000);
+        }
       }
     });
 
     view.addResetListener(new ActionListener() {
       @Override
       public void actionPerformed(ActionEvent e) {
-        updateTimer.stop();
-        updateTimer.restart();
-        model.resetGame();
-        view.setPetImage("/img/reborn.gif");
-        // Pause the game timer
-        updateTimer.stop();
-
-        // Delay the update to allow the animation to play
-        Timer transitionTimer = new Timer(2000, new ActionListener() {
-          @Override
-          public void actionPerformed(ActionEvent e) {
-            updateView();
-            updateTimer.start(); // Resume the timer
-          }
+        latency.clicked(e);
+        scheduler.execute(() -> {
+          model.resetGame();
+          latency.actionApplied();
         });
-
-        transitionTimer.setRepeats(false);
-        transitionTimer.start();
+        playAnimation("/img/reborn.gif", 2000);
       }
     });
 
   }
 
   /**
-   * Periodically updates the model state and refreshes the view.
+   * Queues an action for the simulation thread. Clicks beyond the queue capacity are
+   * dropped rather than blocking the EDT, and show no animation.
+   *
+   * @param action The action to perform.
+   * @return {@code true} if the action was queued.
    */
-  private void updateModelState() {
-    model.updateState();
-    updateView();
+  private boolean submitAction(PetActions action) {
+    if (!actions.offer(0, action)) {
+      return false;
+    }
+    scheduler.signalActions();
+    return true;
   }
 
   /**
-   * Updates the view based on the current state of the model.
+   * Performs an action on the simulation thread. Clicks that arrive after the pet
+   * has died are ignored, the view already shows the game-over message.
+   *
+   * @param action The action to perform.
+   */
+  private void performAction(PetActions action) {
+    try {
+      model.performAction(action);
+      latency.actionApplied();
+    } catch (IllegalStateException e) {
+      // Game over: nothing to do until the pet is respawned
+    }
+  }
+
+  /**
+   * Shows an action animation and delays view updates until it has played.
+   * The simulation keeps ticking in the meantime.
+   *
+   * @param imagePath The animation to show.
+   * @param millis    How long the animation plays.
+   */
+  private void playAnimation(String imagePath, int millis) {
+    view.setPetImage(imagePath);
+    transitionTimer.setInitialDelay(millis);
+    transitionTimer.restart();
+  }
+
+  /**
+   * Called on the simulation thread after each tick; schedules a single view update
+   * on the EDT, coalescing ticks that arrive while one is still pending.
+   */
+  private void requestViewUpdate() {
+    if (refreshPending.compareAndSet(false, true)) {
+      long requested = System.nanoTime();
+      SwingUtilities.invokeLater(() -> {
+        refreshPending.set(false);
+        if (!transitionTimer.isRunning()) {
+          updateView();
+          latency.tickShown(requested);
+        }
+      });
+    }
+  }
+
+  /**
+   * Updates the view based on the latest snapshot of the model. A single snapshot
+   * is read so that bars, mood and image always describe the same tick.
    */
   private void updateView() {
+    PetSnapshot state = model.getSnapshot();
     view.updateBars(
-        model.getHungerLevel(),
-        model.getHygieneLevel(),
-        model.getSocialLevel(),
-        model.getSleepyLevel(),
-        model.getHealthLevel()
+        state.getHungerLevel(),
+        state.getHygieneLevel(),
+        state.getSocialLevel(),
+        state.getSleepyLevel(),
+        state.getHealthLevel()
     );
 
-    view.updateMood(model.getMood());
-    view.updateGameOver(model.isGameOver());
+    view.updateMood(state.getMood());
+    view.updateGameOver(state.isGameOver());
 
     // Determine the appropriate image based on the model's state
-    String imagePath;
-    if (model.getHealthLevel() <= 20) {
-      imagePath = "/img/dead.gif";
-    } else if (model.getMood().equals(Mood.HAPPY)) {
-      imagePath = "/img/happy.gif";
-    } else if (model.getMood().equals(Mood.GRUMPY)) {
-      imagePath = "/img/grumpy.gif";
-    } else if (model.getMood().equals(Mood.DEPRESSIVE)) {
-      imagePath = "/img/depressive.gif";
-    } else {
-      imagePath = "/img/default.gif";
-    }
+    String imagePath = imagePathFor(state.getMood(), state.getHealthLevel());
 
     // Update the view with the selected image
     view.setPetImage(imagePath);
 
-    // Stop the timer if the game is over
-    if (model.isGameOver()) {
-      updateTimer.stop();
+    if (state.isGameOver()) {
       view.updateGameOver(true);
     } else {
-      long survivalTime = model.getSurvivalTime();
+      long survivalTime = state.getSurvivalTime();
       String formattedTime = formatSurvivalTime(survivalTime); // Convert to HH:mm:ss format
       view.updateGameOver(false);
       view.updateSurvivalTime(formattedTime);
     }
   }
 
+  /**
+   * Determines the pet image matching the given mood and health level.
+   *
+   * @param mood   The current mood of the pet.
+   * @param health The current health level of the pet.
+   * @return The resource path of the image representing the pet's state.
+   */
+  static String imagePathFor(Mood mood, int health) {
+    if (health <= 20) {
+      return "/img/dead.gif";
+    } else if (mood == Mood.HAPPY) {
+      return "/img/happy.gif";
+    } else if (mood == Mood.GRUMPY) {
+      return "/img/grumpy.gif";
+    } else if (mood == Mood.DEPRESSIVE) {
+      return "/img/depressive.gif";
+    } else {
+      return "/img/default.gif";
+    }
+  }
+
   /**
    * format the timer.
    */
-  private String formatSurvivalTime(long seconds) {
+  static String formatSurvivalTime(long seconds) {
     long hours = seconds / 3600;
     long minutes = (seconds % 3600) / 60;
     long secs = seconds % 60;
@@ -242,12 +311,12 @@ public class PetControllerImpl implements PetController {
   }
 
   /**
-   * Starts the game by resetting the model and restarting the update timer.
+   * Starts the game by resetting the model and starting the simulation.
    */
   @Override
   public void startGame() {
-    model.resetGame();
-    updateTimer.start();
-    updateView();
+    scheduler.execute(model::resetGame);
+    scheduler.start();
+    requestViewUpdate();
   }
 }
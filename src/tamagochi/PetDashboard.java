@@ -0,0 +1,167 @@
+package tamagochi;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import javax.swing.CellRendererPane;
+import javax.swing.JComponent;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.Timer;
+
+/**
+ * Virtualized grid showing every pet of a {@link PetPopulation}.
+ * Only the cells intersecting the visible clip are painted, each one stamped by a
+ * single shared {@link PetCellRenderer}. Pet state is read from the population's
+ * shared state table rather than from per-pet listeners, so the cost of a frame
+ * depends on the viewport size, not on the population size.
+ *
+ * <p>Place the dashboard inside a {@code JScrollPane}.
+ */
+public class PetDashboard extends JComponent implements Scrollable {
+  private static final long serialVersionUID = 1L;
+  private static final int CELL_WIDTH = 120;
+  private static final int CELL_HEIGHT = 64;
+
+  private final transient PetPopulation population;
+  private final PetCellRenderer renderer;
+  private final CellRendererPane rendererPane;
+  private Timer refreshTimer;
+  private long paintedVersion = -1;
+  private int paintedSize;
+  private long[] visibleStates = new long[0];
+
+  /**
+   * Constructs a dashboard over the given population, configured by
+   * {@link #create(PetPopulation)} once constructed.
+   */
+  private PetDashboard(PetPopulation population) {
+    this.population = population;
+    this.renderer = new PetCellRenderer();
+    this.rendererPane = new CellRendererPane();
+  }
+
+  /**
+   * Creates a dashboard over the given population, refreshing itself until
+   * {@link #dispose()} is called.
+   *
+   * @param population The population to display.
+   * @return The dashboard.
+   */
+  public static PetDashboard create(PetPopulation population) {
+    PetDashboard dashboard = new PetDashboard(population);
+    dashboard.add(dashboard.rendererPane);
+    dashboard.setBackground(Color.WHITE);
+    dashboard.setOpaque(true);
+
+    // Poll the shared table at ~60 fps and repaint only when it was republished
+    dashboard.refreshTimer = new Timer(16, e -> dashboard.refresh());
+    dashboard.refreshTimer.start();
+    return dashboard;
+  }
+
+  /**
+   * Repaints the visible cells if the population or its state table changed.
+   */
+  private void refresh() {
+    int size = population.size();
+    if (size != paintedSize) {
+      paintedSize = size;
+      revalidate();
+    }
+    long version = population.version();
+    if (version != paintedVersion) {
+      paintedVersion = version;
+      repaint(getVisibleRect());
+    }
+  }
+
+  /**
+   * Stops the periodic refresh. The dashboard can no longer be updated afterwards.
+   */
+  public void dispose() {
+    refreshTimer.stop();
+  }
+
+  /**
+   * Retrieves the number of cells per row for the current width.
+   */
+  private int columns() {
+    int width = getParent() instanceof JViewport ? getParent().getWidth() : getWidth();
+    return Math.max(1, width / CELL_WIDTH);
+  }
+
+  @Override
+  protected void paintComponent(Graphics g) {
+    Rectangle clip = g.getClipBounds();
+    if (clip == null) {
+      clip = getVisibleRect();
+    }
+    g.setColor(getBackground());
+    g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+    int columns = columns();
+    int firstRow = clip.y / CELL_HEIGHT;
+    int lastRow = (clip.y + clip.height - 1) / CELL_HEIGHT;
+    int firstColumn = Math.min(columns - 1, clip.x / CELL_WIDTH);
+    int lastColumn = Math.min(columns - 1, (clip.x + clip.width - 1) / CELL_WIDTH);
+
+    // Copy the visible rows, as the table may be rewritten while painting
+    int firstId = firstRow * columns;
+    int visible = (lastRow - firstRow + 1) * columns;
+    if (visibleStates.length < visible) {
+      visibleStates = new long[visible];
+    }
+    int end = firstId + population.copyStates(firstId, visibleStates, visible);
+
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (int column = firstColumn; column <= lastColumn; column++) {
+        int id = row * columns + column;
+        if (id >= end) {
+          break;
+        }
+        renderer.setState(id, visibleStates[id - firstId]);
+        rendererPane.paintComponent(g, renderer, this, column * CELL_WIDTH,
+            row * CELL_HEIGHT, CELL_WIDTH, CELL_HEIGHT, true);
+      }
+    }
+    rendererPane.removeAll();
+  }
+
+  @Override
+  public Dimension getPreferredSize() {
+    int columns = columns();
+    int rows = (population.size() + columns - 1) / columns;
+    return new Dimension(columns * CELL_WIDTH, Math.max(1, rows) * CELL_HEIGHT);
+  }
+
+  @Override
+  public Dimension getPreferredScrollableViewportSize() {
+    return new Dimension(8 * CELL_WIDTH, 10 * CELL_HEIGHT);
+  }
+
+  @Override
+  public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+    return orientation == SwingConstants.VERTICAL ? CELL_HEIGHT : CELL_WIDTH;
+  }
+
+  @Override
+  public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+    if (orientation == SwingConstants.VERTICAL) {
+      return Math.max(CELL_HEIGHT, visibleRect.height / CELL_HEIGHT * CELL_HEIGHT);
+    }
+    return Math.max(CELL_WIDTH, visibleRect.width / CELL_WIDTH * CELL_WIDTH);
+  }
+
+  @Override
+  public boolean getScrollableTracksViewportWidth() {
+    return true;
+  }
+
+  @Override
+  public boolean getScrollableTracksViewportHeight() {
+    return false;
+  }
+}
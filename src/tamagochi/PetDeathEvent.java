@@ -0,0 +1,27 @@
+package tamagochi;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event marking the end of a pet's game. Disabled by default.
+ */
+@Name("tamagochi.PetDeath")
+@Label("Pet Death")
+@Category("Tamagochi")
+@Description("A pet's health reached 0 and its game ended")
+@Enabled(false)
+@StackTrace(false)
+class PetDeathEvent extends jdk.jfr.Event {
+  @Label("Pet Id")
+  int petId;
+
+  @Label("Survival Time")
+  @Timespan(Timespan.SECONDS)
+  long survivalTime;
+}
@@ -0,0 +1,334 @@
+package tamagochi;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Compact binary encoding of a pet's state relative to a base state the receiver
+ * already holds, usually the last state it acknowledged.
+ *
+ * <p>A frame is laid out as follows, varints being LEB128 encoded:
+ * <ol>
+ *   <li>the pet id as an unsigned varint;</li>
+ *   <li>a header byte: bits 0-4 flag changed hunger, hygiene, social, sleepy and health
+ *       levels, bit 5 a changed survival time, bit 6 a changed mood and bit 7 holds
+ *       the game-over flag itself;</li>
+ *   <li>the version distance to the base as an unsigned varint;</li>
+ *   <li>for every flagged level, in order, its change as a zig-zag varint;</li>
+ *   <li>if the mood changed, its ordinal as one byte, or {@link #NO_MOOD} for none;</li>
+ *   <li>if the survival time changed, its change as a zig-zag varint.</li>
+ * </ol>
+ * A typical tick, where a few levels move by one, encodes in about 8 bytes. Encoding
+ * against a {@code null} base writes the full state, as if the base were all zeros.
+ *
+ * <p>Encoding writes straight from {@link PetSnapshot}s into a caller-supplied buffer
+ * and decoding applies a frame to a reusable {@link State}, so neither allocates.
+ */
+public final class PetDeltaCodec {
+  /**
+   * Upper bound of the encoded size of one frame.
+   */
+  public static final int MAX_FRAME_BYTES = 5 + 1 + 10 + 5 * 5 + 1 + 10;
+
+  static final int HUNGER = 1;
+  static final int HYGIENE = 1 << 1;
+  static final int SOCIAL = 1 << 2;
+  static final int SLEEPY = 1 << 3;
+  static final int HEALTH = 1 << 4;
+  static final int SURVIVAL_TIME = 1 << 5;
+  static final int MOOD = 1 << 6;
+  static final int GAME_OVER = 1 << 7;
+
+  /**
+   * Mood byte of a pet without a mood.
+   */
+  static final int NO_MOOD = 0xFF;
+
+  private static final Mood[] MOODS = Mood.values();
+
+  /**
+   * Mutable pet state on the receiving side, updated in place by
+   * {@link PetDeltaCodec#decode(ByteBuffer, State)}.
+   */
+  public static final class State {
+    private int petId;
+    private int hungerLevel;
+    private int hygieneLevel;
+    private int socialLevel;
+    private int sleepyLevel;
+    private int healthLevel;
+    private Mood mood;
+    private boolean gameOver;
+    private long survivalTime;
+    private long version;
+
+    /**
+     * Constructs an empty state, which a full frame brings up to date.
+     */
+    public State() {
+    }
+
+    /**
+     * Resets all values to zero, the base of frames encoded without one.
+     */
+    public void clear() {
+      petId = 0;
+      hungerLevel = 0;
+      hygieneLevel = 0;
+      socialLevel = 0;
+      sleepyLevel = 0;
+      healthLevel = 0;
+      mood = null;
+      gameOver = false;
+      survivalTime = 0;
+      version = 0;
+    }
+
+    /**
+     * Copies the values of a snapshot into this state.
+     *
+     * @param snapshot The snapshot to copy.
+     */
+    public void set(PetSnapshot snapshot) {
+      petId = snapshot.getPetId();
+      hungerLevel = snapshot.getHungerLevel();
+      hygieneLevel = snapshot.getHygieneLevel();
+      socialLevel = snapshot.getSocialLevel();
+      sleepyLevel = snapshot.getSleepyLevel();
+      healthLevel = snapshot.getHealthLevel();
+      mood = snapshot.getMood();
+      gameOver = snapshot.isGameOver();
+      survivalTime = snapshot.getSurvivalTime();
+      version = snapshot.getVersion();
+    }
+
+    /**
+     * Creates an immutable snapshot holding the values of this state.
+     *
+     * @return The snapshot.
+     */
+    public PetSnapshot toSnapshot() {
+      return new PetSnapshot(petId, hungerLevel, hygieneLevel, socialLevel, sleepyLevel,
+          healthLevel, mood, gameOver, survivalTime, version);
+    }
+
+    public int getPetId() {
+      return petId;
+    }
+
+    public int getHungerLevel() {
+      return hungerLevel;
+    }
+
+    public int getHygieneLevel() {
+      return hygieneLevel;
+    }
+
+    public int getSocialLevel() {
+      return socialLevel;
+    }
+
+    public int getSleepyLevel() {
+      return sleepyLevel;
+    }
+
+    public int getHealthLevel() {
+      return healthLevel;
+    }
+
+    public Mood getMood() {
+      return mood;
+    }
+
+    public boolean isGameOver() {
+      return gameOver;
+    }
+
+    public long getSurvivalTime() {
+      return survivalTime;
+    }
+
+    public long getVersion() {
+      return version;
+    }
+  }
+
+  private PetDeltaCodec() {
+  }
+
+  /**
+   * Encodes the difference between two states of the same pet.
+   *
+   * @param base    The state the receiver holds, or {@code null} to encode the full state.
+   * @param current The state to transmit.
+   * @param out     The buffer to write to; needs at most {@link #MAX_FRAME_BYTES} bytes.
+   * @return The number of bytes written.
+   * @throws IllegalArgumentException if the snapshots belong to different pets, or the
+   *                                  base is newer than the current state.
+   * @throws BufferOverflowException  if the buffer has too little room.
+   */
+  public static int encode(PetSnapshot base, PetSnapshot current, ByteBuffer out) {
+    int hunger = current.getHungerLevel();
+    int hygiene = current.getHygieneLevel();
+    int social = current.getSocialLevel();
+    int sleepy = current.getSleepyLevel();
+    int health = current.getHealthLevel();
+    long survivalTime = current.getSurvivalTime();
+    long versionDelta = current.getVersion();
+    int header = current.isGameOver() ? GAME_OVER : 0;
+    if (base == null) {
+      header |= HUNGER | HYGIENE | SOCIAL | SLEEPY | HEALTH | SURVIVAL_TIME | MOOD;
+    } else {
+      if (base.getPetId() != current.getPetId()) {
+        throw new IllegalArgumentException("Snapshots of pets " + base.getPetId()
+            + " and " + current.getPetId() + " cannot be diffed");
+      }
+      versionDelta -= base.getVersion();
+      if (versionDelta < 0) {
+        throw new IllegalArgumentException("Base version " + base.getVersion()
+            + " is newer than " + current.getVersion());
+      }
+      hunger -= base.getHungerLevel();
+      hygiene -= base.getHygieneLevel();
+      social -= base.getSocialLevel();
+      sleepy -= base.getSleepyLevel();
+      health -= base.getHealthLevel();
+      survivalTime -= base.getSurvivalTime();
+      header |= (hunger != 0 ? HUNGER : 0)
+          | (hygiene != 0 ? HYGIENE : 0)
+          | (social != 0 ? SOCIAL : 0)
+          | (sleepy != 0 ? SLEEPY : 0)
+          | (health != 0 ? HEALTH : 0)
+          | (survivalTime != 0 ? SURVIVAL_TIME : 0)
+          | (base.getMood() != current.getMood() ? MOOD : 0);
+    }
+
+    int start = out.position();
+    writeVarLong(out, current.getPetId());
+    out.put((byte) header);
+    writeVarLong(out, versionDelta);
+    if ((header & HUNGER) != 0) {
+      writeVarLong(out, zigZag(hunger));
+    }
+    if ((header & HYGIENE) != 0) {
+      writeVarLong(out, zigZag(hygiene));
+    }
+    if ((header & SOCIAL) != 0) {
+      writeVarLong(out, zigZag(social));
+    }
+    if ((header & SLEEPY) != 0) {
+      writeVarLong(out, zigZag(sleepy));
+    }
+    if ((header & HEALTH) != 0) {
+      writeVarLong(out, zigZag(health));
+    }
+    if ((header & MOOD) != 0) {
+      Mood mood = current.getMood();
+      out.put((byte) (mood == null ? NO_MOOD : mood.ordinal()));
+    }
+    if ((header & SURVIVAL_TIME) != 0) {
+      writeVarLong(out, zigZag(survivalTime));
+    }
+    return out.position() - start;
+  }
+
+  /**
+   * Reads the pet id of the next frame without consuming it, so a receiver tracking
+   * many pets can pick the matching {@link State}.
+   *
+   * @param in The buffer positioned at the start of a frame.
+   * @return The pet id.
+   * @throws BufferUnderflowException if the buffer ends within the id.
+   */
+  public static int peekPetId(ByteBuffer in) {
+    int position = in.position();
+    try {
+      return (int) readVarLong(in);
+    } finally {
+      in.position(position);
+    }
+  }
+
+  /**
+   * Applies one frame to the state it was encoded against. A frame encoded against a
+   * {@code null} base must be applied to a fresh or {@linkplain State#clear() cleared}
+   * state.
+   *
+   * @param in    The buffer positioned at the start of a frame.
+   * @param state The receiver's state of the pet, updated in place.
+   * @throws IllegalArgumentException if the frame is malformed.
+   * @throws BufferUnderflowException if the buffer ends within the frame.
+   */
+  public static void decode(ByteBuffer in, State state) {
+    int petId = (int) readVarLong(in);
+    int header = in.get() & 0xFF;
+    long versionDelta = readVarLong(in);
+    state.petId = petId;
+    state.version += versionDelta;
+    if ((header & HUNGER) != 0) {
+      state.hungerLevel += (int) unZigZag(readVarLong(in));
+    }
+    if ((header & HYGIENE) != 0) {
+      state.hygieneLevel += (int) unZigZag(readVarLong(in));
+    }
+    if ((header & SOCIAL) != 0) {
+      state.socialLevel += (int) unZigZag(readVarLong(in));
+    }
+    if ((header & SLEEPY) != 0) {
+      state.sleepyLevel += (int) unZigZag(readVarLong(in));
+    }
+    if ((header & HEALTH) != 0) {
+      state.healthLevel += (int) unZigZag(readVarLong(in));
+    }
+    if ((header & MOOD) != 0) {
+      int ordinal = in.get() & 0xFF;
+      if (ordinal == NO_MOOD) {
+        state.mood = null;
+      } else if (ordinal < MOODS.length) {
+        state.mood = MOODS[ordinal];
+      } else {
+        throw new IllegalArgumentException("Unknown mood ordinal: " + ordinal);
+      }
+    }
+    if ((header & SURVIVAL_TIME) != 0) {
+      state.survivalTime += unZigZag(readVarLong(in));
+    }
+    state.gameOver = (header & GAME_OVER) != 0;
+  }
+
+  /**
+   * Maps a signed value onto an unsigned one so that small magnitudes of either sign
+   * encode in few varint bytes.
+   */
+  static long zigZag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  /**
+   * Reverses {@link #zigZag(long)}.
+   */
+  static long unZigZag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static void writeVarLong(ByteBuffer out, long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.put((byte) value);
+  }
+
+  private static long readVarLong(ByteBuffer in) {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.get();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Malformed varint");
+  }
+}
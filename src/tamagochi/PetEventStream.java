@@ -0,0 +1,347 @@
+package tamagochi;
+
+import com.sun.net.httpserver.HttpExchange;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Server-sent event stream of pet state changes, mounted on a {@link PetHttpServer}
+ * at {@code GET /events/{id}}.
+ *
+ * <p>Subscribers first receive the full state, then one {@code state} event per tick
+ * in which the pet changed, holding only the fields that changed since the previous
+ * event (levels, mood transitions, game over, survival time). Changes are collected
+ * from the population's {@link PetModelListener} callbacks and coalesced until the
+ * end of the simulation tick, so a pet produces at most one frame per tick.
+ *
+ * <p>Every subscriber has a small bounded buffer. A subscriber that falls behind has
+ * its buffer discarded and receives a full state frame instead, followed only by the
+ * deltas from that state, so slow consumers never hold memory or block the simulation.
+ * Topics are dropped with their last subscriber. Each stream is served by its own virtual
+ * thread, which costs little while idle.
+ */
+public class PetEventStream implements PetModelListener {
+  static final int SUBSCRIBER_BUFFER = 16;
+  private static final long KEEP_ALIVE_SECONDS = 15;
+
+  private final PetService service;
+  private final Queue<Topic> dirtyTopics;
+  private volatile Topic[] topics;
+
+  /**
+   * Subscribers of one pet and the last state sent to them, both guarded by the topic's
+   * monitor so that every subscriber receives the deltas from the state it last got.
+   */
+  private static final class Topic {
+    private final int petId;
+    private final List<Subscriber> subscribers;
+    private final AtomicBoolean dirty;
+    private PetSnapshot lastSent;
+
+    private Topic(int petId) {
+      this.petId = petId;
+      this.subscribers = new CopyOnWriteArrayList<>();
+      this.dirty = new AtomicBoolean();
+    }
+  }
+
+  /**
+   * One connected client with its bounded frame buffer.
+   */
+  static final class Subscriber {
+    final ArrayBlockingQueue<String> frames;
+    private final AtomicBoolean resync;
+    private Topic topic;
+
+    Subscriber() {
+      this.frames = new ArrayBlockingQueue<>(SUBSCRIBER_BUFFER);
+      this.resync = new AtomicBoolean();
+    }
+
+    /**
+     * Queues a frame; on overflow drops everything pending and asks for a resync.
+     */
+    private void push(String frame) {
+      if (!frames.offer(frame)) {
+        frames.clear();
+        resync.set(true);
+        frames.offer(""); // Wake the writer so it sends the full state
+      }
+    }
+  }
+
+  /**
+   * Constructs an event stream over the given service, not yet mounted.
+   */
+  private PetEventStream(PetService service) {
+    this.service = service;
+    this.dirtyTopics = new ConcurrentLinkedQueue<>();
+    this.topics = new Topic[16];
+  }
+
+  /**
+   * Creates an event stream following the given service's pets and mounts it on the
+   * given server.
+   *
+   * @param service The service whose pets are streamed.
+   * @param server  The HTTP server providing the port and virtual-thread executor.
+   * @return The event stream.
+   */
+  public static PetEventStream mount(PetService service, PetHttpServer server) {
+    PetEventStream stream = new PetEventStream(service);
+    service.getPopulation().addListener(stream);
+    service.getScheduler().addTickListener(stream::flush);
+    server.getHttpServer().createContext("/events", stream::handle);
+    return stream;
+  }
+
+  /**
+   * Marks a pet with subscribers as changed; the frame is built at the end of the tick.
+   *
+   * @param previous The snapshot before the mutation.
+   * @param current  The snapshot after the mutation.
+   */
+  @Override
+  public void onStateChanged(PetSnapshot previous, PetSnapshot current) {
+    Topic[] known = topics;
+    int petId = current.getPetId();
+    if (petId >= known.length) {
+      return;
+    }
+    Topic topic = known[petId];
+    if (topic != null && !topic.subscribers.isEmpty()
+        && topic.dirty.compareAndSet(false, true)) {
+      dirtyTopics.add(topic);
+    }
+  }
+
+  /**
+   * Sends one coalesced frame for every pet that changed since the last flush.
+   * Runs on the simulation thread after each tick.
+   */
+  void flush() {
+    Topic topic;
+    while ((topic = dirtyTopics.poll()) != null) {
+      topic.dirty.set(false);
+      synchronized (topic) {
+        PetSnapshot state = service.getPopulation().get(topic.petId).getSnapshot();
+        send(topic, deltaFrame(topic.lastSent, state));
+        topic.lastSent = state;
+      }
+    }
+  }
+
+  /**
+   * Queues a frame for every subscriber of a topic. The caller holds the topic's monitor.
+   */
+  private static void send(Topic topic, String frame) {
+    if (frame != null) {
+      for (Subscriber subscriber : topic.subscribers) {
+        subscriber.push(frame);
+      }
+    }
+  }
+
+  /**
+   * Serves one subscription until the client disconnects.
+   */
+  private void handle(HttpExchange exchange) throws IOException {
+    Subscriber subscriber = null;
+    Topic topic = null;
+    try {
+      String[] parts = exchange.getRequestURI().getPath().split("/");
+      int petId = parts.length == 3 ? parseId(parts[2]) : -1;
+      String tenant = PetHttpServer.tenantOf(exchange);
+      if (!"GET".equals(exchange.getRequestMethod()) || petId < 0
+          || service.getPet(tenant, petId) == null) {
+        PetHttpServer.send(exchange, 404, PetHttpServer.error("Unknown pet"));
+        return;
+      }
+
+      subscriber = new Subscriber();
+      topic = subscribe(petId, subscriber);
+
+      exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+      exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+      exchange.sendResponseHeaders(200, 0);
+      OutputStream out = exchange.getResponseBody();
+
+      while (true) {
+        String frame = nextFrame(subscriber, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+        if (frame == null) {
+          write(out, ": keep-alive\n\n");
+        } else if (!frame.isEmpty()) {
+          write(out, frame);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      // Client went away
+    } finally {
+      if (topic != null) {
+        unsubscribe(topic.petId, subscriber);
+      }
+      exchange.close();
+    }
+  }
+
+  /**
+   * Waits for the next frame to write to a subscriber. After an overflow, this is the
+   * full state last sent to the topic, and the frames still queued, which it covers,
+   * are discarded.
+   *
+   * @return The frame, an empty string if there is nothing to write, or {@code null} if
+   *         nothing was queued in time.
+   */
+  String nextFrame(Subscriber subscriber, long timeout, TimeUnit unit)
+      throws InterruptedException {
+    String frame = subscriber.frames.poll(timeout, unit);
+    if (subscriber.resync.getAndSet(false)) {
+      synchronized (subscriber.topic) {
+        subscriber.frames.clear();
+        return fullFrame(subscriber.topic.lastSent); // The base of the deltas that follow
+      }
+    }
+    return frame;
+  }
+
+  /**
+   * Registers a subscriber on the topic of the given pet, creating the topic if needed,
+   * and queues the pet's full state as its first frame. The state becomes the base of
+   * the topic's next delta, so the current subscribers are first sent what changed
+   * since their last frame.
+   */
+  synchronized Topic subscribe(int petId, Subscriber subscriber) {
+    Topic[] current = topics;
+    if (petId >= current.length) {
+      current = Arrays.copyOf(current, Math.max(petId + 1, current.length * 2));
+    }
+    Topic topic = current[petId];
+    if (topic == null) {
+      topic = new Topic(petId);
+      current[petId] = topic;
+    }
+    topics = current;
+    synchronized (topic) {
+      PetSnapshot state = service.getPopulation().get(petId).getSnapshot();
+      send(topic, deltaFrame(topic.lastSent, state));
+      topic.lastSent = state;
+      topic.subscribers.add(subscriber);
+      subscriber.topic = topic;
+      subscriber.push(fullFrame(state));
+    }
+    return topic;
+  }
+
+  /**
+   * Removes a subscriber from the topic of the given pet, dropping the topic if it was
+   * the last one.
+   */
+  synchronized void unsubscribe(int petId, Subscriber subscriber) {
+    Topic topic = topics[petId];
+    synchronized (topic) {
+      topic.subscribers.remove(subscriber);
+      if (topic.subscribers.isEmpty()) {
+        topics[petId] = null;
+      }
+    }
+  }
+
+  /**
+   * Retrieves the number of pets with subscribers.
+   *
+   * @return The topic count.
+   */
+  int getTopicCount() {
+    int count = 0;
+    for (Topic topic : topics) {
+      if (topic != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Retrieves the number of connected subscribers.
+   *
+   * @return The subscriber count.
+   */
+  public int getSubscriberCount() {
+    int count = 0;
+    for (Topic topic : topics) {
+      if (topic != null) {
+        count += topic.subscribers.size();
+      }
+    }
+    return count;
+  }
+
+  private static int parseId(String text) {
+    try {
+      return Integer.parseInt(text);
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private static void write(OutputStream out, String frame) throws IOException {
+    out.write(frame.getBytes(StandardCharsets.UTF_8));
+    out.flush();
+  }
+
+  /**
+   * Formats a frame holding the complete state.
+   */
+  static String fullFrame(PetSnapshot state) {
+    return "event: state\ndata: " + PetHttpServer.toJson(state) + "\n\n";
+  }
+
+  /**
+   * Formats a frame holding only the fields that differ between two snapshots.
+   *
+   * @return The frame, or {@code null} if nothing visible changed.
+   */
+  static String deltaFrame(PetSnapshot previous, PetSnapshot current) {
+    if (previous == null) {
+      return fullFrame(current);
+    }
+    StringBuilder json = new StringBuilder(96).append("{\"id\":").append(current.getPetId());
+    int length = json.length();
+    appendIfChanged(json, "hunger", previous.getHungerLevel(), current.getHungerLevel());
+    appendIfChanged(json, "hygiene", previous.getHygieneLevel(), current.getHygieneLevel());
+    appendIfChanged(json, "social", previous.getSocialLevel(), current.getSocialLevel());
+    appendIfChanged(json, "sleepy", previous.getSleepyLevel(), current.getSleepyLevel());
+    appendIfChanged(json, "health", previous.getHealthLevel(), current.getHealthLevel());
+    if (previous.getMood() != current.getMood()) {
+      json.append(",\"mood\":\"").append(current.getMood())
+          .append("\",\"previousMood\":\"").append(previous.getMood()).append('"');
+    }
+    if (previous.isGameOver() != current.isGameOver()) {
+      json.append(",\"gameOver\":").append(current.isGameOver());
+    }
+    if (previous.getSurvivalTime() != current.getSurvivalTime()) {
+      json.append(",\"survivalTime\":").append(current.getSurvivalTime());
+    }
+    if (json.length() == length) {
+      return null;
+    }
+    return "event: state\ndata: " + json.append('}') + "\n\n";
+  }
+
+  private static void appendIfChanged(StringBuilder json, String name, int before, int after) {
+    if (before != after) {
+      json.append(",\"").append(name).append("\":").append(after);
+    }
+  }
+}
@@ -0,0 +1,287 @@
+package tamagochi;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Embedded HTTP/JSON front end for a {@link PetService}, built on the JDK's
+ * {@code com.sun.net.httpserver} with one virtual thread per request.
+ *
+ * <p>Routes (the tenant is taken from the {@code X-Tenant-Id} header):
+ * <ul>
+ *   <li>{@code POST /pets} creates a pet and returns it with status 201.</li>
+ *   <li>{@code GET /pets/{id}} returns the pet's latest state.</li>
+ *   <li>{@code POST /pets/{id}/actions/{action}} performs a {@link PetActions} value,
+ *       answering 409 if the game is over.</li>
+ *   <li>{@code POST /pets/{id}/reset} resets the pet.</li>
+ *   <li>{@code GET /pets/leaderboard?limit=n} returns the tenant's n (default 100)
+ *       longest-living pets, from the {@link SurvivalLeaderboard}.</li>
+ * </ul>
+ * Requests first pass the service's {@link AdmissionController}; rejected requests are
+ * answered with 429 (tenant rate limit) or 503 (overload) and a {@code Retry-After}
+ * header, before any pet is touched.
+ */
+public class PetHttpServer {
+  static final String TENANT_HEADER = "X-Tenant-Id";
+  static final String DEFAULT_TENANT = "default";
+  static final int MAX_LEADERBOARD = 1000;
+
+  static {
+    // Small request/response pairs otherwise stall on Nagle + delayed ACK (~40 ms)
+    if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+  }
+
+  private final PetService service;
+  private final HttpServer server;
+  private final ExecutorService executor;
+
+  /**
+   * Constructs a new server for the given service. The server is not started.
+   *
+   * @param service The service to expose.
+   * @param address The address to bind; use port 0 for an ephemeral port.
+   * @throws IOException if the address cannot be bound.
+   */
+  public PetHttpServer(PetService service, InetSocketAddress address) throws IOException {
+    this.service = service;
+    this.server = HttpServer.create(address, 1024);
+    this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    server.setExecutor(executor);
+    server.createContext("/pets", this::handle);
+  }
+
+  /**
+   * Starts accepting requests.
+   */
+  public void start() {
+    server.start();
+  }
+
+  /**
+   * Stops accepting requests and closes the server.
+   */
+  public void stop() {
+    server.stop(0);
+    executor.shutdown();
+  }
+
+  /**
+   * Retrieves the port the server is bound to.
+   *
+   * @return The local port.
+   */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Retrieves the underlying JDK server, so other endpoints can share its port.
+   *
+   * @return The HTTP server.
+   */
+  HttpServer getHttpServer() {
+    return server;
+  }
+
+  /**
+   * Routes a request under {@code /pets}.
+   */
+  private void handle(HttpExchange exchange) throws IOException {
+    AdmissionController admission = service.getAdmissionController();
+    AdmissionController.Decision decision = AdmissionController.Decision.OVERLOADED;
+    String method = exchange.getRequestMethod();
+    boolean mutating = !"GET".equals(method);
+    try {
+      String tenant = tenantOf(exchange);
+      decision = admission.acquire(tenant, mutating);
+      if (decision != AdmissionController.Decision.ADMITTED) {
+        exchange.getResponseHeaders().set("Retry-After",
+            Long.toString(admission.retryAfterSeconds(tenant, decision)));
+        if (decision == AdmissionController.Decision.RATE_LIMITED) {
+          send(exchange, 429, error("Rate limit exceeded for tenant " + tenant));
+        } else {
+          send(exchange, 503, error("Service overloaded"));
+        }
+        return;
+      }
+      String[] parts = exchange.getRequestURI().getPath().split("/");
+      // parts[0] is empty, parts[1] is "pets"
+      if (parts.length == 2) {
+        if (!"POST".equals(method)) {
+          send(exchange, 405, error("Method not allowed"));
+          return;
+        }
+        send(exchange, 201, toJson(timed(admission, () -> service.createPet(tenant))));
+        return;
+      }
+
+      if (parts.length == 3 && "leaderboard".equals(parts[2]) && "GET".equals(method)) {
+        String query = exchange.getRequestURI().getQuery();
+        int limit = -1;
+        try {
+          limit = query != null && query.startsWith("limit=")
+              ? Integer.parseInt(query.substring(6)) : 100;
+        } catch (NumberFormatException e) {
+          // Reported below
+        }
+        if (limit < 0 || limit > MAX_LEADERBOARD) {
+          send(exchange, 400, error("Limit must be within 0.." + MAX_LEADERBOARD));
+          return;
+        }
+        send(exchange, 200, toJson(service.getLeaderboard(tenant, limit)));
+        return;
+      }
+
+      int petId;
+      try {
+        petId = Integer.parseInt(parts[2]);
+      } catch (NumberFormatException e) {
+        send(exchange, 404, error("Unknown pet: " + parts[2]));
+        return;
+      }
+
+      PetSnapshot result;
+      if (parts.length == 3 && "GET".equals(method)) {
+        result = service.getPet(tenant, petId);
+      } else if (parts.length == 4 && "reset".equals(parts[3]) && "POST".equals(method)) {
+        result = timed(admission, () -> service.resetPet(tenant, petId));
+      } else if (parts.length == 5 && "actions".equals(parts[3]) && "POST".equals(method)) {
+        PetActions action;
+        try {
+          action = PetActions.valueOf(parts[4].toUpperCase());
+        } catch (IllegalArgumentException e) {
+          send(exchange, 400, error("Unknown action: " + parts[4]));
+          return;
+        }
+        try {
+          result = timed(admission, () -> service.performAction(tenant, petId, action));
+        } catch (IllegalStateException e) {
+          send(exchange, 409, error(e.getMessage()));
+          return;
+        }
+      } else {
+        send(exchange, 404, error("No route for " + method + " " + exchange.getRequestURI()));
+        return;
+      }
+
+      if (result == null) {
+        send(exchange, 404, error("Unknown pet: " + petId));
+      } else {
+        send(exchange, 200, toJson(result));
+      }
+    } catch (RuntimeException e) {
+      send(exchange, 500, error(String.valueOf(e.getMessage())));
+    } finally {
+      if (decision == AdmissionController.Decision.ADMITTED) {
+        admission.release();
+      }
+      exchange.close();
+    }
+  }
+
+  /**
+   * Performs a mutation on the service, reporting its duration to the admission
+   * controller: mutations lock the pet synchronously, so their duration drives shedding.
+   */
+  private static PetSnapshot timed(AdmissionController admission,
+                                   Supplier<PetSnapshot> mutation) {
+    long started = admission.serviceStarted();
+    try {
+      return mutation.get();
+    } finally {
+      admission.serviceEnded(started);
+    }
+  }
+
+  /**
+   * Retrieves the tenant of a request, falling back to the default tenant.
+   */
+  static String tenantOf(HttpExchange exchange) {
+    String tenant = exchange.getRequestHeaders().getFirst(TENANT_HEADER);
+    return tenant == null || tenant.isEmpty() ? DEFAULT_TENANT : tenant;
+  }
+
+  /**
+   * Writes a JSON response body with the given status.
+   */
+  static void send(HttpExchange exchange, int status, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  /**
+   * Formats an error message as a JSON object.
+   */
+  static String error(String message) {
+    return "{\"error\":\"" + message.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+  }
+
+  /**
+   * Formats a snapshot as a JSON object.
+   *
+   * @param state The snapshot to format.
+   * @return The JSON representation.
+   */
+  static String toJson(PetSnapshot state) {
+    return "{\"id\":" + state.getPetId()
+        + ",\"hunger\":" + state.getHungerLevel()
+        + ",\"hygiene\":" + state.getHygieneLevel()
+        + ",\"social\":" + state.getSocialLevel()
+        + ",\"sleepy\":" + state.getSleepyLevel()
+        + ",\"health\":" + state.getHealthLevel()
+        + ",\"mood\":\"" + state.getMood() + "\""
+        + ",\"gameOver\":" + state.isGameOver()
+        + ",\"survivalTime\":" + state.getSurvivalTime()
+        + ",\"version\":" + state.getVersion() + "}";
+  }
+
+  /**
+   * Formats leaderboard entries as a JSON array, best first.
+   *
+   * @param entries The entries to format.
+   * @return The JSON representation.
+   */
+  static String toJson(List<SurvivalLeaderboard.Entry> entries) {
+    StringBuilder json = new StringBuilder("[");
+    for (int i = 0; i < entries.size(); i++) {
+      SurvivalLeaderboard.Entry entry = entries.get(i);
+      json.append(i == 0 ? "" : ",")
+          .append("{\"rank\":").append(i + 1)
+          .append(",\"id\":").append(entry.getPetId())
+          .append(",\"survivalTime\":").append(entry.getSurvivalTime())
+          .append(",\"gameOver\":").append(entry.isGameOver()).append('}');
+    }
+    return json.append(']').toString();
+  }
+
+  /**
+   * Starts a service and its HTTP server.
+   *
+   * @param args Optional port (defaults to 8080).
+   * @throws IOException if the port cannot be bound.
+   */
+  public static void main(String[] args) throws IOException {
+    int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+    PetService service = new PetService(1000, Clock.configured());
+    PetHttpServer server = new PetHttpServer(service, new InetSocketAddress(port));
+    PetEventStream.mount(service, server);
+    service.getMetrics().register("service");
+    service.start();
+    server.start();
+    System.out.println("Pet service listening on http://localhost:" + server.getPort() + "/pets");
+  }
+}
@@ -86,6 +86,15 @@ public interface PetModel {
    */
   void setSocialLevel(int level);
 
+  /**
+   * Changes the pet's social level by the given amount, clamped from 0 to 100, unless
+   * the game is over. The check and the change are atomic with the pet's other updates.
+   *
+   * @param delta The amount to add to the social level, negative to remove.
+   * @return {@code true} if the level was changed, {@code false} if the game is over.
+   */
+  boolean adjustSocialLevel(int delta);
+
   /**
    * Sets the pet's sleep level.
    *
@@ -139,4 +148,27 @@ public interface PetModel {
    * Resets the game, restoring the pet to its initial state.
    */
   void resetGame();
+
+  /**
+   * Retrieves an immutable snapshot of the pet's state as of its last mutation.
+   * Unlike the individual getters, the snapshot is consistent and safe to read from
+   * any thread while the pet is being updated.
+   *
+   * @return The latest {@link PetSnapshot} of the pet.
+   */
+  PetSnapshot getSnapshot();
+
+  /**
+   * Sets the listener notified of every change to the pet, replacing any previous one.
+   *
+   * @param listener The listener, or {@code null} to remove it.
+   */
+  void setListener(PetModelListener listener);
+
+  /**
+   * Retrieves the listener notified of every change to the pet.
+   *
+   * @return The listener, or {@code null} if none is set.
+   */
+  PetModelListener getListener();
 }
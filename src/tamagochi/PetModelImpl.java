@@ -5,8 +5,26 @@ package tamagochi;
  * in the Tamagotchi application. Manages the state, attributes, and behavior
  * of the pet, including hunger, hygiene, social, sleep, health levels, mood,
  * and game-over conditions.
+ *
+ * <p>Mutating methods are synchronized. After every mutation the model publishes an
+ * immutable {@link PetSnapshot} through a volatile reference, which readers on other
+ * threads obtain from {@link #getSnapshot()} without locking. Setters leaving their
+ * value unchanged publish nothing, so listeners only hear about actual changes.
+ *
+ * <p>Ticks, actions, mood transitions and deaths are reported as Flight Recorder
+ * events ({@link PetTickEvent}, {@link PetActionEvent}, {@link MoodTransitionEvent},
+ * {@link PetDeathEvent}). The events are disabled by default, and their fields are
+ * only filled in when a recording enables them.
  */
 public class PetModelImpl implements PetModel {
+  /** Levels below this line reduce the pet's health. */
+  static final int PENALTY_LEVEL = 20;
+  /** Pets are happy while their health is above this line. */
+  static final int HAPPY_HEALTH = 70;
+  /** Pets are grumpy while their health is above this line, and depressive below. */
+  static final int GRUMPY_HEALTH = 30;
+
+  private final int petId;
   private final SurvivalTimer timer;
   private int hungerLevel;
   private int hygieneLevel;
@@ -15,14 +33,42 @@ public class PetModelImpl implements PetModel {
   private int healthLevel;
   private Mood moodType;
   private PetBehavior behavior;
+  private Mood behaviorMood;
   private boolean gameOver;
+  private volatile PetSnapshot snapshot;
+  private long version;
+  private volatile PetModelListener listener;
+  private StochasticDepletion depletion;
+  private int[] depletionAmounts;
 
   /**
    * Constructs a new instance of {@code PetModelImpl}, initializing all attributes
    * to their default values and starting the survival timer.
    */
   public PetModelImpl() {
-    this.timer = new SurvivalTimer();
+    this(0);
+  }
+
+  /**
+   * Constructs a new instance of {@code PetModelImpl} identified by the given id,
+   * initializing all attributes to their default values and starting the survival timer.
+   *
+   * @param petId The id of the pet within its population, reported in its snapshots.
+   */
+  public PetModelImpl(int petId) {
+    this(petId, Clock.system());
+  }
+
+  /**
+   * Constructs a new instance of {@code PetModelImpl} identified by the given id, whose
+   * survival time is measured by the given clock.
+   *
+   * @param petId The id of the pet within its population, reported in its snapshots.
+   * @param clock The clock measuring the pet's survival time.
+   */
+  public PetModelImpl(int petId, Clock clock) {
+    this.petId = petId;
+    this.timer = new SurvivalTimer(clock);
     resetGame();
   }
 
@@ -33,7 +79,10 @@ public class PetModelImpl implements PetModel {
    */
 
   @Override
-  public void updateState() {
+  public synchronized void updateState() {
+    PetTickEvent event = new PetTickEvent();
+    event.begin();
+
     // Decrease levels over time
     depleteLevels();
 
@@ -45,15 +94,34 @@ public class PetModelImpl implements PetModel {
 
     // Check and handle game-over condition
     checkGameOver();
+
+    publish();
+
+    event.end();
+    if (event.shouldCommit()) {
+      event.petId = petId;
+      event.petsProcessed = 1;
+      event.commit();
+    }
   }
 
   /**
-   * Depletes the pet's levels over time based on predefined rates.
+   * Depletes the pet's levels over time based on predefined rates, or on the
+   * stochastic depletion if one is set.
    * Adjusts hunger, hygiene, social, and sleepy levels.
    */
 
   private void depleteLevels() {
-    // Adjust depletion rates dynamically based on difficulty or elapsed time
+    if (depletion != null) {
+      depletion.next(depletionAmounts);
+      hungerLevel = Math.max(0, hungerLevel - depletionAmounts[0]);
+      hygieneLevel = Math.max(0, hygieneLevel - depletionAmounts[1]);
+      socialLevel = Math.max(0, socialLevel - depletionAmounts[2]);
+      sleepyLevel = Math.max(0, sleepyLevel - depletionAmounts[3]);
+      return;
+    }
+
+    // Fixed depletion rates unless a stochastic model is set
     int hungerDepletion = 1;
     hungerLevel = Math.max(0, hungerLevel - hungerDepletion);
 
@@ -72,32 +140,45 @@ public class PetModelImpl implements PetModel {
    * Applies penalties for critically low levels or high sleepiness.
    */
   private void calculateHealth() {
+    healthLevel = healthFor(hungerLevel, hygieneLevel, socialLevel, sleepyLevel);
+
+    //if health level becomes 0, everything set to 0 for better logic
+    if (healthLevel == 0) {
+      hungerLevel = 0;
+      hygieneLevel = 0;
+      socialLevel = 0;
+      sleepyLevel = 0;
+    }
+  }
+
+  /**
+   * Computes the health of a pet with the given levels: their average, less 10 for each
+   * level below {@value #PENALTY_LEVEL}.
+   *
+   * @param hunger  The hunger level.
+   * @param hygiene The hygiene level.
+   * @param social  The social level.
+   * @param sleepy  The sleepy level.
+   * @return The health level, at least 0.
+   */
+  static int healthFor(int hunger, int hygiene, int social, int sleepy) {
     // Penalize health more significantly for critically low levels
     int penalty = 0;
-    if (hungerLevel < 20) {
+    if (hunger < PENALTY_LEVEL) {
       penalty += 10;
     }
-    if (hygieneLevel < 20) {
+    if (hygiene < PENALTY_LEVEL) {
       penalty += 10;
     }
-    if (socialLevel < 20) {
+    if (social < PENALTY_LEVEL) {
       penalty += 10;
     }
-    if (sleepyLevel < 20) {
+    if (sleepy < PENALTY_LEVEL) {
       penalty += 10;
     } // High sleepiness penalty
 
     // Base health calculation with penalties applied
-    healthLevel = Math.max(0, (hungerLevel + hygieneLevel
-        + socialLevel + sleepyLevel) / 4 - penalty);
-
-    //if health level becomes 0, everything set to 0 for better logic
-    if (healthLevel == 0) {
-      hungerLevel = 0;
-      hygieneLevel = 0;
-      socialLevel = 0;
-      sleepyLevel = 0;
-    }
+    return Math.max(0, (hunger + hygiene + social + sleepy) / 4 - penalty);
   }
 
   /**
@@ -109,6 +190,13 @@ public class PetModelImpl implements PetModel {
     if (healthLevel == 0 && !gameOver) {
       gameOver = true;
       timer.stop(); // Stop the timer when the game ends
+
+      PetDeathEvent event = new PetDeathEvent();
+      if (event.shouldCommit()) {
+        event.petId = petId;
+        event.survivalTime = timer.getSurvivalTime();
+        event.commit();
+      }
     }
   }
 
@@ -121,15 +209,45 @@ public class PetModelImpl implements PetModel {
    */
 
   private void determineMoodByHealth() {
-    if (healthLevel > 70) {
+    Mood previousMood = moodType;
+    if (healthLevel > HAPPY_HEALTH) {
       moodType = Mood.HAPPY;
-      setBehavior(new PlayfulBehaviorImpl()); // Happy behavior
-    } else if (healthLevel > 30) {
+    } else if (healthLevel > GRUMPY_HEALTH) {
       moodType = Mood.GRUMPY;
-      setBehavior(new GrumpyBehaviorImpl()); // Grumpy behavior
     } else {
       moodType = Mood.DEPRESSIVE;
-      setBehavior(new DepressiveBehaviorImpl()); // Depressive behavior
+    }
+    if (previousMood != null && previousMood != moodType) {
+      MoodTransitionEvent event = new MoodTransitionEvent();
+      if (event.shouldCommit()) {
+        event.petId = petId;
+        event.oldMood = previousMood.name();
+        event.newMood = moodType.name();
+        event.health = healthLevel;
+        event.commit();
+      }
+    }
+    // Only switch behavior on a mood transition, not on every tick
+    if (moodType != behaviorMood) {
+      setBehavior(behaviorFor(moodType));
+      behaviorMood = moodType;
+    }
+  }
+
+  /**
+   * Creates the behavior a pet adopts in the given mood.
+   *
+   * @param mood The mood.
+   * @return Playful behavior when happy, grumpy behavior when grumpy and depressive
+   *         behavior when depressive.
+   */
+  static PetBehavior behaviorFor(Mood mood) {
+    if (mood == Mood.HAPPY) {
+      return new PlayfulBehaviorImpl(); // Happy behavior
+    } else if (mood == Mood.GRUMPY) {
+      return new GrumpyBehaviorImpl(); // Grumpy behavior
+    } else {
+      return new DepressiveBehaviorImpl(); // Depressive behavior
     }
   }
 
@@ -140,17 +258,52 @@ public class PetModelImpl implements PetModel {
    * @throws IllegalStateException if the game is over or no behavior is set.
    */
   @Override
-  public void performAction(PetActions action) {
+  public synchronized void performAction(PetActions action) {
+    PetModelListener observer = listener;
     if (gameOver) {
+      if (observer != null) {
+        observer.onActionRejected(petId, action, true);
+      }
       throw new IllegalStateException("The game is over. Reset to play again.");
     }
 
     if (behavior == null) {
+      if (observer != null) {
+        observer.onActionRejected(petId, action, false);
+      }
       throw new IllegalStateException("No behavior is set. Unable to perform action.");
     }
 
+    PetActionEvent event = new PetActionEvent();
+    if (event.isEnabled()) {
+      event.begin();
+      event.mood = String.valueOf(moodType);
+      event.hungerBefore = hungerLevel;
+      event.hygieneBefore = hygieneLevel;
+      event.socialBefore = socialLevel;
+      event.sleepyBefore = sleepyLevel;
+      event.healthBefore = healthLevel;
+    }
+
     // Delegate the action to the behavior implementation
     behavior.performActionBasedOnBehavior(this, action);
+
+    if (event.isEnabled()) {
+      event.end();
+      if (event.shouldCommit()) {
+        event.petId = petId;
+        event.action = action.name();
+        event.hungerAfter = hungerLevel;
+        event.hygieneAfter = hygieneLevel;
+        event.socialAfter = socialLevel;
+        event.sleepyAfter = sleepyLevel;
+        event.healthAfter = healthLevel;
+        event.commit();
+      }
+    }
+    if (observer != null) {
+      observer.onActionPerformed(petId, action);
+    }
   }
 
   /**
@@ -169,8 +322,12 @@ public class PetModelImpl implements PetModel {
    * @param level The new hunger level, ranging from 0 to 100.
    */
   @Override
-  public void setHungerLevel(int level) {
-    this.hungerLevel = Math.max(0, Math.min(100, level));
+  public synchronized void setHungerLevel(int level) {
+    int clamped = Math.max(0, Math.min(100, level));
+    if (clamped != hungerLevel) {
+      this.hungerLevel = clamped;
+      publish();
+    }
   }
 
   /**
@@ -189,8 +346,12 @@ public class PetModelImpl implements PetModel {
    * @param level The new hygiene level, ranging from 0 to 100.
    */
   @Override
-  public void setHygieneLevel(int level) {
-    this.hygieneLevel = Math.max(0, Math.min(100, level));
+  public synchronized void setHygieneLevel(int level) {
+    int clamped = Math.max(0, Math.min(100, level));
+    if (clamped != hygieneLevel) {
+      this.hygieneLevel = clamped;
+      publish();
+    }
   }
 
   /**
@@ -209,8 +370,27 @@ public class PetModelImpl implements PetModel {
    * @param level The new social level, ranging from 0 to 100.
    */
   @Override
-  public void setSocialLevel(int level) {
-    this.socialLevel = Math.max(0, Math.min(100, level));
+  public synchronized void setSocialLevel(int level) {
+    int clamped = Math.max(0, Math.min(100, level));
+    if (clamped != socialLevel) {
+      this.socialLevel = clamped;
+      publish();
+    }
+  }
+
+  /**
+   * Changes the pet's social level by the given amount unless the game is over.
+   *
+   * @param delta The amount to add to the social level, negative to remove.
+   * @return {@code true} if the level was changed, {@code false} if the game is over.
+   */
+  @Override
+  public synchronized boolean adjustSocialLevel(int delta) {
+    if (gameOver) {
+      return false;
+    }
+    setSocialLevel(socialLevel + delta);
+    return true;
   }
 
   /**
@@ -229,8 +409,12 @@ public class PetModelImpl implements PetModel {
    * @param level The new sleepy level, ranging from 0 to 100.
    */
   @Override
-  public void setSleepyLevel(int level) {
-    this.sleepyLevel = Math.max(0, Math.min(100, level));
+  public synchronized void setSleepyLevel(int level) {
+    int clamped = Math.max(0, Math.min(100, level));
+    if (clamped != sleepyLevel) {
+      this.sleepyLevel = clamped;
+      publish();
+    }
   }
 
   /**
@@ -249,8 +433,12 @@ public class PetModelImpl implements PetModel {
    * @param level The new health level, ranging from 0 to 100.
    */
   @Override
-  public void setHealthLevel(int level) {
-    this.healthLevel = Math.max(0, Math.min(100, level));
+  public synchronized void setHealthLevel(int level) {
+    int clamped = Math.max(0, Math.min(100, level));
+    if (clamped != healthLevel) {
+      this.healthLevel = clamped;
+      publish();
+    }
   }
 
   /**
@@ -278,8 +466,20 @@ public class PetModelImpl implements PetModel {
    * @param behavior The {@link PetBehavior} to associate with the pet.
    */
   @Override
-  public void setBehavior(PetBehavior behavior) {
+  public synchronized void setBehavior(PetBehavior behavior) {
     this.behavior = behavior;
+    this.behaviorMood = null; // Recompute the behavior on the next mood update
+  }
+
+  /**
+   * Makes the pet's levels deplete randomly instead of by 1 per tick. The stream may be
+   * shared with other pets, as long as all of them are ticked by the same thread.
+   *
+   * @param depletion The stream of depletion amounts, or {@code null} for fixed rates.
+   */
+  public synchronized void setDepletion(StochasticDepletion depletion) {
+    this.depletion = depletion;
+    this.depletionAmounts = depletion == null ? null : new int[4];
   }
 
   /**
@@ -298,8 +498,11 @@ public class PetModelImpl implements PetModel {
    * @param moodType The new {@link Mood} to set for the pet.
    */
   @Override
-  public void setMood(Mood moodType) {
-    this.moodType = moodType;
+  public synchronized void setMood(Mood moodType) {
+    if (moodType != this.moodType) {
+      this.moodType = moodType;
+      publish();
+    }
   }
 
   /**
@@ -317,7 +520,7 @@ public class PetModelImpl implements PetModel {
    * Restarts the survival timer and determines the initial mood and behavior of the pet.
    */
   @Override
-  public void resetGame() {
+  public synchronized void resetGame() {
     this.hungerLevel = 100;
     this.hygieneLevel = 100;
     this.socialLevel = 100;
@@ -329,5 +532,48 @@ public class PetModelImpl implements PetModel {
     timer.start();  // Start counting survival time
 
     determineMoodByHealth(); // Automatically sets mood and behavior
+
+    publish();
+  }
+
+  /**
+   * Retrieves the most recently published snapshot of the pet's state.
+   * Never blocks and does not allocate.
+   *
+   * @return The latest {@link PetSnapshot}.
+   */
+  @Override
+  public PetSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Publishes a new immutable snapshot of the current state. Must be called with
+   * the model's lock held, at the end of every mutation.
+   */
+  private void publish() {
+    PetSnapshot previous = snapshot;
+    PetSnapshot current = new PetSnapshot(petId, hungerLevel, hygieneLevel, socialLevel,
+        sleepyLevel, healthLevel, moodType, gameOver, timer.getSurvivalTime(), ++version);
+    snapshot = current;
+    PetModelListener observer = listener;
+    if (observer != null) {
+      observer.onStateChanged(previous, current);
+    }
+  }
+
+  /**
+   * Sets the listener notified after every published snapshot.
+   *
+   * @param listener The listener, or {@code null} to remove it.
+   */
+  @Override
+  public void setListener(PetModelListener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public PetModelListener getListener() {
+    return listener;
   }
 }
@@ -0,0 +1,42 @@
+package tamagochi;
+
+/**
+ * Listener notified of changes to a {@link PetModel}.
+ * Callbacks run synchronously on the thread mutating the pet, while the pet's lock is
+ * held, so implementations must be fast and must not call back into the pet's
+ * mutators. All methods have empty default implementations.
+ */
+public interface PetModelListener {
+
+  /**
+   * Called after the pet published a new {@link PetSnapshot}, i.e. after every tick,
+   * action, reset or setter call changing a value.
+   *
+   * @param previous The snapshot before the mutation, or {@code null} when a
+   *                 {@link PetPopulation} announces a newly spawned pet.
+   * @param current  The snapshot after the mutation.
+   */
+  default void onStateChanged(PetSnapshot previous, PetSnapshot current) {
+  }
+
+  /**
+   * Called after an action was performed on the pet, once its effects were published.
+   *
+   * @param petId  The id of the pet.
+   * @param action The action performed.
+   */
+  default void onActionPerformed(int petId, PetActions action) {
+  }
+
+  /**
+   * Called when an action was rejected, just before
+   * {@link PetModel#performAction(PetActions)} throws.
+   *
+   * @param petId    The id of the pet.
+   * @param action   The action rejected.
+   * @param gameOver {@code true} if the game was over, {@code false} if the pet had no
+   *                 behavior.
+   */
+  default void onActionRejected(int petId, PetActions action, boolean gameOver) {
+  }
+}
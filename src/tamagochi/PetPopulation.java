@@ -0,0 +1,302 @@
+package tamagochi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+/**
+ * A growable collection of pets addressed by dense integer ids.
+ * Besides the {@link PetModel} instances, the population maintains a shared state
+ * table holding one {@link PackedPetState} per pet. The table is republished after
+ * every {@link #updateAll()}, so views can read thousands of pets without calling
+ * the getters of each model.
+ *
+ * <p>Listeners added with {@link #addListener(PetModelListener)} receive the changes
+ * of every pet, present and future.
+ *
+ * <p>Levels deplete by 1 per tick unless {@link #setDepletion(StochasticDepletion)}
+ * is called. Stochastic depletion is drawn per shard of {@value #SHARD_SIZE}
+ * consecutive pets, each shard with its own stream split from the given one, so that
+ * the levels of every pet only depend on the seed. After {@link #setParallel(boolean)},
+ * the shards are ticked in parallel on the common fork-join pool, each shard by one
+ * thread in id order, so the levels are the same as when ticking sequentially.
+ *
+ * <p>Pets may be spawned from any thread; {@link #updateAll()} is expected to be
+ * called from a single simulation thread.
+ */
+public class PetPopulation {
+  static final int SHARD_SIZE = 1024;
+
+  private volatile PetModel[] pets;
+  private volatile int size;
+  private volatile long[] states;
+  private long[] backStates;
+  private volatile long version;
+  private final List<PetModelListener> listeners;
+  private final PetModelListener dispatcher;
+  private final Clock clock;
+  private StochasticDepletion depletion;
+  private volatile boolean parallel;
+  private final List<StochasticDepletion> shardDepletions;
+
+  /**
+   * Constructs a new, empty population following real time.
+   */
+  public PetPopulation() {
+    this(Clock.system());
+  }
+
+  /**
+   * Constructs a new, empty population whose pets measure survival time with the
+   * given clock.
+   *
+   * @param clock The clock shared by all pets.
+   */
+  public PetPopulation(Clock clock) {
+    this.clock = clock;
+    this.pets = new PetModel[16];
+    this.states = new long[16];
+    this.backStates = new long[16];
+    this.listeners = new CopyOnWriteArrayList<>();
+    this.shardDepletions = new ArrayList<>();
+    this.dispatcher = new PetModelListener() {
+      @Override
+      public void onStateChanged(PetSnapshot previous, PetSnapshot current) {
+        for (PetModelListener listener : listeners) {
+          listener.onStateChanged(previous, current);
+        }
+      }
+
+      @Override
+      public void onActionPerformed(int petId, PetActions action) {
+        for (PetModelListener listener : listeners) {
+          listener.onActionPerformed(petId, action);
+        }
+      }
+
+      @Override
+      public void onActionRejected(int petId, PetActions action, boolean gameOver) {
+        for (PetModelListener listener : listeners) {
+          listener.onActionRejected(petId, action, gameOver);
+        }
+      }
+    };
+  }
+
+  /**
+   * Adds a listener notified of changes to any pet of the population.
+   *
+   * @param listener The listener to add.
+   */
+  public void addListener(PetModelListener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Adds a listener and announces the present pets to it as new ones, with no spawn in
+   * between, so that the listener hears about every pet exactly once.
+   *
+   * @param listener The listener to add.
+   */
+  public synchronized void addListenerAndAnnounce(PetModelListener listener) {
+    listeners.add(listener);
+    for (int i = 0; i < size; i++) {
+      listener.onStateChanged(null, pets[i].getSnapshot());
+    }
+  }
+
+  /**
+   * Removes a listener added with {@link #addListener(PetModelListener)}.
+   *
+   * @param listener The listener to remove.
+   */
+  public void removeListener(PetModelListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Creates a new pet and adds it to the population.
+   *
+   * @return The id of the new pet.
+   */
+  public synchronized int spawn() {
+    int id = size;
+    if (id == pets.length) {
+      pets = Arrays.copyOf(pets, id * 2);
+    }
+    PetModelImpl pet = new PetModelImpl(id, clock);
+    pet.setListener(dispatcher);
+    if (depletion != null) {
+      pet.setDepletion(shardDepletion(id / SHARD_SIZE));
+    }
+    pets[id] = pet;
+    long[] published = states;
+    if (id >= published.length) {
+      published = Arrays.copyOf(published, pets.length);
+    }
+    published[id] = PackedPetState.of(pet);
+    states = published;
+    size = id + 1;
+    dispatcher.onStateChanged(null, pet.getSnapshot()); // Announce the new pet
+    return id;
+  }
+
+  /**
+   * Makes all present and future pets deplete randomly. Must not be called while the
+   * population is being ticked.
+   *
+   * @param depletion The stream from which the shard streams are split, or
+   *                  {@code null} to go back to fixed rates.
+   */
+  public synchronized void setDepletion(StochasticDepletion depletion) {
+    this.depletion = depletion;
+    shardDepletions.clear();
+    for (int i = 0; i < size; i++) {
+      ((PetModelImpl) pets[i]).setDepletion(
+          depletion == null ? null : shardDepletion(i / SHARD_SIZE));
+    }
+  }
+
+  /**
+   * Makes {@link #updateAll()} tick the shards in parallel. Listeners are then called
+   * from the pool's threads, concurrently for pets of different shards, and must be
+   * thread-safe.
+   *
+   * @param parallel Whether to tick shards in parallel.
+   */
+  public void setParallel(boolean parallel) {
+    this.parallel = parallel;
+  }
+
+  /**
+   * Retrieves the depletion stream of a shard, splitting streams in shard order.
+   */
+  private StochasticDepletion shardDepletion(int shard) {
+    while (shardDepletions.size() <= shard) {
+      shardDepletions.add(depletion.split());
+    }
+    return shardDepletions.get(shard);
+  }
+
+  /**
+   * Retrieves the pet with the given id.
+   *
+   * @param id The id returned by {@link #spawn()}.
+   * @return The pet.
+   * @throws IndexOutOfBoundsException if no pet has the given id.
+   */
+  public PetModel get(int id) {
+    if (id < 0 || id >= size) {
+      throw new IndexOutOfBoundsException("Unknown pet: " + id);
+    }
+    return pets[id];
+  }
+
+  /**
+   * Retrieves the number of pets in the population.
+   *
+   * @return The population size.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Advances every pet by one tick and republishes the shared state table.
+   * The whole tick is reported as a {@link PetTickEvent} when Flight Recorder has
+   * the event enabled.
+   */
+  public void updateAll() {
+    PetTickEvent event = new PetTickEvent();
+    event.begin();
+    int count = size;
+    PetModel[] current = pets;
+    if (parallel && count > SHARD_SIZE) {
+      IntStream.range(0, (count + SHARD_SIZE - 1) / SHARD_SIZE).parallel()
+          .forEach(shard -> updateShard(current, shard, count));
+    } else {
+      for (int i = 0; i < count; i++) {
+        current[i].updateState();
+      }
+    }
+    publishStates();
+    event.end();
+    if (event.shouldCommit()) {
+      event.petId = -1;
+      event.petsProcessed = count;
+      event.commit();
+    }
+  }
+
+  /**
+   * Ticks the pets of one shard in id order.
+   */
+  private static void updateShard(PetModel[] pets, int shard, int count) {
+    int end = Math.min(count, (shard + 1) * SHARD_SIZE);
+    for (int i = shard * SHARD_SIZE; i < end; i++) {
+      pets[i].updateState();
+    }
+  }
+
+  /**
+   * Rebuilds the state table into the back buffer and swaps it in.
+   */
+  private synchronized void publishStates() {
+    int count = size;
+    long[] next = backStates.length >= pets.length ? backStates : new long[pets.length];
+    PetModel[] current = pets;
+    for (int i = 0; i < count; i++) {
+      next[i] = PackedPetState.of(current[i]);
+    }
+    backStates = states;
+    states = next;
+    version++;
+  }
+
+  /**
+   * Returns the most recently published state table, indexed by pet id.
+   * Only the first {@link #size()} entries are meaningful. The array is owned by
+   * the population and must not be modified; it is reused two publications later, so
+   * readers other than the simulation thread should use
+   * {@link #copyStates(int, long[], int)} instead.
+   *
+   * @return The packed states of all pets.
+   */
+  public long[] states() {
+    return states;
+  }
+
+  /**
+   * Copies a range of the most recently published state table. The copy is retried
+   * if the table is republished meanwhile, so it never mixes two publications and can
+   * be made from any thread.
+   *
+   * @param from  The id of the first pet copied.
+   * @param into  The array receiving the states from index 0.
+   * @param count The largest number of states copied.
+   * @return The number of states copied, fewer than {@code count} past the last pet.
+   */
+  public int copyStates(int from, long[] into, int count) {
+    while (true) {
+      long before = version;
+      long[] published = states;
+      int copied = Math.max(0, Math.min(count, Math.min(size, published.length) - from));
+      System.arraycopy(published, from, into, 0, copied);
+      if (version == before) {
+        return copied;
+      }
+    }
+  }
+
+  /**
+   * Returns a counter incremented every time the state table is republished,
+   * letting readers skip work when nothing changed.
+   *
+   * @return The current table version.
+   */
+  public long version() {
+    return version;
+  }
+}
@@ -0,0 +1,444 @@
+package tamagochi;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Multi-tenant pet service backing the network front ends.
+ * Owns a {@link PetPopulation} ticked once per second by a {@link SimulationScheduler}
+ * and records which tenant created each pet; a tenant can only see and act on its
+ * own pets. All methods are thread-safe: reads return the pet's latest
+ * {@link PetSnapshot} without locking, and actions lock only the targeted pet.
+ *
+ * <p>High-rate front ends can instead submit fire-and-forget actions through
+ * {@link #submitAction(int, PetActions)}, which go through an {@link ActionQueue}
+ * drained by the simulation thread. Front ends check requests against the service's
+ * {@link AdmissionController} first, so that overload is rejected early instead of
+ * delaying the simulation.
+ *
+ * <p>The population's shards are ticked in parallel, so listeners added to
+ * {@link #getPopulation()} must be thread-safe.
+ */
+public class PetService {
+  private final PetPopulation population;
+  private final SimulationScheduler scheduler;
+  private final ActionQueue actions;
+  private final AdmissionController admission;
+  private final SimulationMetrics metrics;
+  private final SurvivalLeaderboard leaderboard;
+  private volatile String[] owners;
+  private volatile AutoCaretakerTable autopilot;
+  private volatile SocialGraph socialGraph;
+  private volatile PetAlertEngine alertEngine;
+  private volatile LevelHistoryStore history;
+  private PetBitmapIndex index;
+
+  /**
+   * Constructs a new service with an empty population ticking once per second.
+   */
+  public PetService() {
+    this(1000);
+  }
+
+  /**
+   * Constructs a new service with an empty population following real time.
+   *
+   * @param tickMillis The simulation tick period in milliseconds.
+   */
+  public PetService(long tickMillis) {
+    this(tickMillis, Clock.system());
+  }
+
+  /**
+   * Constructs a new service with an empty population.
+   *
+   * @param tickMillis The simulation tick period in simulated milliseconds.
+   * @param clock      The clock defining simulated time.
+   */
+  public PetService(long tickMillis, Clock clock) {
+    this(tickMillis, clock, AdmissionController::new);
+  }
+
+  /**
+   * Constructs a new service with an empty population and custom admission limits.
+   *
+   * @param tickMillis The simulation tick period in simulated milliseconds.
+   * @param clock      The clock defining simulated time.
+   * @param admission  Creates the admission controller over the service's action queue.
+   */
+  PetService(long tickMillis, Clock clock,
+             Function<ActionQueue, AdmissionController> admission) {
+    this.population = new PetPopulation(clock);
+    population.setParallel(true); // The service's listeners are all thread-safe
+    this.scheduler = new SimulationScheduler(tickMillis, population::updateAll, clock);
+    this.actions = new ActionQueue(1 << 16);
+    scheduler.attachActionQueue(actions, this::applyQueuedAction);
+    this.admission = admission.apply(actions);
+    this.metrics = new SimulationMetrics(scheduler);
+    metrics.watch(population);
+    this.leaderboard = new SurvivalLeaderboard(clock);
+    leaderboard.watch(population);
+    this.owners = new String[16];
+    scheduler.addTickListener(this::runAutopilot);
+    scheduler.addTickListener(this::propagateSocializing);
+    scheduler.addTickListener(this::raiseAlerts);
+    scheduler.addTickListener(this::recordHistory);
+    StochasticDepletion depletion = StochasticDepletion.configured();
+    if (depletion != null) {
+      population.setDepletion(depletion);
+    }
+  }
+
+  /**
+   * Starts ticking the population.
+   */
+  public void start() {
+    scheduler.start();
+  }
+
+  /**
+   * Stops ticking the population and terminates the simulation thread.
+   */
+  public void stop() {
+    scheduler.shutdown();
+  }
+
+  /**
+   * Creates a new pet owned by the given tenant.
+   *
+   * @param tenant The tenant creating the pet.
+   * @return The snapshot of the new pet, holding its id.
+   */
+  public synchronized PetSnapshot createPet(String tenant) {
+    int id = population.spawn();
+    String[] current = owners;
+    if (id >= current.length) {
+      current = Arrays.copyOf(current, Math.max(id + 1, current.length * 2));
+    }
+    current[id] = tenant;
+    owners = current;
+    leaderboard.setGroup(id, tenant);
+    return population.get(id).getSnapshot();
+  }
+
+  /**
+   * Retrieves the latest state of a pet.
+   *
+   * @param tenant The tenant asking for the pet.
+   * @param petId  The id of the pet.
+   * @return The pet's latest snapshot, or {@code null} if the tenant owns no such pet.
+   */
+  public PetSnapshot getPet(String tenant, int petId) {
+    PetModel pet = find(tenant, petId);
+    return pet == null ? null : pet.getSnapshot();
+  }
+
+  /**
+   * Performs an action on a pet.
+   *
+   * @param tenant The tenant acting on the pet.
+   * @param petId  The id of the pet.
+   * @param action The action to perform.
+   * @return The pet's snapshot after the action, or {@code null} if the tenant owns
+   *         no such pet.
+   * @throws IllegalStateException if the pet's game is over.
+   */
+  public PetSnapshot performAction(String tenant, int petId, PetActions action) {
+    PetModel pet = find(tenant, petId);
+    if (pet == null) {
+      return null;
+    }
+    pet.performAction(action);
+    return pet.getSnapshot();
+  }
+
+  /**
+   * Resets a pet to its initial state.
+   *
+   * @param tenant The tenant resetting the pet.
+   * @param petId  The id of the pet.
+   * @return The pet's snapshot after the reset, or {@code null} if the tenant owns
+   *         no such pet.
+   */
+  public PetSnapshot resetPet(String tenant, int petId) {
+    PetModel pet = find(tenant, petId);
+    if (pet == null) {
+      return null;
+    }
+    pet.resetGame();
+    return pet.getSnapshot();
+  }
+
+  /**
+   * Queues an action for the simulation thread without waiting for its result.
+   * Does not allocate; actions on pets whose game is over are ignored when applied.
+   * The pet's tenant is not checked: front ends must first check it with
+   * {@link #owns(String, int)}.
+   *
+   * @param petId  The id of the pet.
+   * @param action The action to perform.
+   * @return {@code true} if the action was queued, {@code false} if the queue was full.
+   */
+  public boolean submitAction(int petId, PetActions action) {
+    return actions.offer(petId, action);
+  }
+
+  /**
+   * Wakes the simulation thread to apply actions queued by
+   * {@link #submitAction(int, PetActions)}. Callers submitting batches should signal
+   * once per batch.
+   */
+  public void flushActions() {
+    scheduler.signalActions();
+  }
+
+  /**
+   * Checks whether a pet with the given id exists, regardless of its tenant.
+   *
+   * @param petId The id of the pet.
+   * @return {@code true} if the pet exists.
+   */
+  public boolean exists(int petId) {
+    return petId >= 0 && petId < population.size();
+  }
+
+  /**
+   * Applies a queued action on the simulation thread.
+   */
+  private void applyQueuedAction(int petId, PetActions action) {
+    if (!exists(petId)) {
+      return;
+    }
+    try {
+      population.get(petId).performAction(action);
+    } catch (IllegalStateException e) {
+      // Game over: the action arrived too late
+    }
+  }
+
+  /**
+   * Lets an autopilot care for all pets after every tick, or stops it.
+   *
+   * @param table The autopilot, or {@code null} to leave pets to their owners.
+   */
+  public void setAutopilot(AutoCaretakerTable table) {
+    this.autopilot = table;
+  }
+
+  /**
+   * Runs the autopilot, if any, on the simulation thread after a tick.
+   */
+  private void runAutopilot() {
+    AutoCaretakerTable table = autopilot;
+    if (table != null) {
+      table.apply(population);
+    }
+  }
+
+  /**
+   * Connects the pets through a social graph, spreading socializing to friends after
+   * every tick, or disconnects them.
+   *
+   * @param graph The graph, or {@code null} to stop propagation.
+   */
+  public synchronized void setSocialGraph(SocialGraph graph) {
+    SocialGraph previous = socialGraph;
+    if (previous != null) {
+      previous.detach(population);
+    }
+    if (graph != null) {
+      graph.attach(population);
+    }
+    this.socialGraph = graph;
+  }
+
+  /**
+   * Propagates socializing through the social graph, if any, on the simulation thread
+   * after a tick.
+   */
+  private void propagateSocializing() {
+    SocialGraph graph = socialGraph;
+    if (graph != null) {
+      graph.propagate(population);
+    }
+  }
+
+  /**
+   * Raises alerts about the pets of all tenants about to be hurt after every tick, or
+   * stops raising them.
+   *
+   * @param engine The engine, delivering its alerts on the simulation thread, or
+   *               {@code null} to stop alerting.
+   */
+  public synchronized void setAlertEngine(PetAlertEngine engine) {
+    PetAlertEngine previous = alertEngine;
+    if (previous != null) {
+      previous.detach(population);
+    }
+    if (engine != null) {
+      engine.attach(population);
+    }
+    this.alertEngine = engine;
+  }
+
+  /**
+   * Advances the alert engine, if any, on the simulation thread after a tick.
+   */
+  private void raiseAlerts() {
+    PetAlertEngine engine = alertEngine;
+    if (engine != null) {
+      engine.advance();
+    }
+  }
+
+  /**
+   * Records the levels of all tenants' pets into a history after every tick, or stops
+   * recording them.
+   *
+   * @param store The history, or {@code null} to stop recording.
+   */
+  public void setHistory(LevelHistoryStore store) {
+    this.history = store;
+  }
+
+  /**
+   * Retrieves the history the pets' levels are recorded into.
+   *
+   * @return The history, or {@code null} if none is recorded.
+   */
+  public LevelHistoryStore getHistory() {
+    return history;
+  }
+
+  /**
+   * Records the latest levels into the history, if any, on the simulation thread after
+   * a tick.
+   */
+  private void recordHistory() {
+    LevelHistoryStore store = history;
+    if (store != null) {
+      store.record(population);
+    }
+  }
+
+  /**
+   * Exports the pets of all tenants for analytics while the simulation keeps ticking.
+   *
+   * @param out The stream to write the export to, which is not closed.
+   * @return The number of pets exported.
+   * @throws IOException if the stream cannot be written.
+   * @see PopulationExporter
+   */
+  public int exportPets(OutputStream out) throws IOException {
+    try (PopulationExporter exporter = new PopulationExporter()) {
+      return exporter.export(population, out);
+    }
+  }
+
+  /**
+   * Retrieves the queue of fire-and-forget actions.
+   *
+   * @return The action queue.
+   */
+  public ActionQueue getActionQueue() {
+    return actions;
+  }
+
+  /**
+   * Retrieves the admission controller guarding this service.
+   *
+   * @return The admission controller.
+   */
+  public AdmissionController getAdmissionController() {
+    return admission;
+  }
+
+  /**
+   * Retrieves the runtime metrics of this service's simulation.
+   *
+   * @return The metrics, not yet registered with JMX.
+   */
+  public SimulationMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Retrieves the leaderboard of the longest-living pets of all tenants, for operators.
+   * Tenants must go through {@link #getLeaderboard(String, int)} instead.
+   *
+   * @return The leaderboard.
+   */
+  public SurvivalLeaderboard getLeaderboard() {
+    return leaderboard;
+  }
+
+  /**
+   * Retrieves the longest-living pets of a tenant, living or dead.
+   *
+   * @param tenant The tenant asking for its pets.
+   * @param limit  The maximum number of pets to return.
+   * @return The tenant's best pets, longest first.
+   */
+  public List<SurvivalLeaderboard.Entry> getLeaderboard(String tenant, int limit) {
+    return leaderboard.top(limit, tenant);
+  }
+
+  /**
+   * Retrieves the secondary indexes of all tenants' pets, building them on first use so
+   * that services nobody queries do not maintain them.
+   *
+   * @return The indexes.
+   */
+  public synchronized PetBitmapIndex getIndex() {
+    if (index == null) {
+      index = new PetBitmapIndex(population);
+      index.attach();
+    }
+    return index;
+  }
+
+  /**
+   * Retrieves the population served by this service.
+   *
+   * @return The population.
+   */
+  public PetPopulation getPopulation() {
+    return population;
+  }
+
+  /**
+   * Retrieves the scheduler ticking the population.
+   *
+   * @return The scheduler.
+   */
+  public SimulationScheduler getScheduler() {
+    return scheduler;
+  }
+
+  /**
+   * Looks up a pet owned by the given tenant.
+   *
+   * @return The pet, or {@code null} if it does not exist or belongs to another tenant.
+   */
+  private PetModel find(String tenant, int petId) {
+    if (petId >= population.size() || !owns(tenant, petId)) {
+      return null;
+    }
+    return population.get(petId);
+  }
+
+  /**
+   * Checks whether a tenant created the pet with the given id.
+   *
+   * @param tenant The tenant.
+   * @param petId  The id of the pet.
+   * @return {@code true} if the pet exists and belongs to the tenant.
+   */
+  public boolean owns(String tenant, int petId) {
+    String[] current = owners;
+    return petId >= 0 && petId < current.length && tenant.equals(current[petId]);
+  }
+}
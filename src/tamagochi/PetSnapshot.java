@@ -0,0 +1,142 @@
+package tamagochi;
+
+/**
+ * Immutable, consistent view of a pet's state at one point in time.
+ * A {@link PetModel} publishes a new snapshot after every mutation, so any number
+ * of readers (the view, metrics, network clients) can observe levels, mood and
+ * game-over status together without locking and without racing the simulation.
+ */
+public final class PetSnapshot {
+  /**
+   * The levels of a pet, in the order of their getters.
+   */
+  public enum Level {
+    HUNGER, HYGIENE, SOCIAL, SLEEPY, HEALTH;
+
+    /**
+     * Reads this level from a snapshot.
+     *
+     * @param state The snapshot.
+     * @return The level, from 0 to 100.
+     */
+    public int of(PetSnapshot state) {
+      switch (this) {
+        case HUNGER:
+          return state.getHungerLevel();
+        case HYGIENE:
+          return state.getHygieneLevel();
+        case SOCIAL:
+          return state.getSocialLevel();
+        case SLEEPY:
+          return state.getSleepyLevel();
+        default:
+          return state.getHealthLevel();
+      }
+    }
+  }
+
+  private final int petId;
+  private final int hungerLevel;
+  private final int hygieneLevel;
+  private final int socialLevel;
+  private final int sleepyLevel;
+  private final int healthLevel;
+  private final Mood mood;
+  private final boolean gameOver;
+  private final long survivalTime;
+  private final long version;
+
+  /**
+   * Constructs a new snapshot with the given values.
+   *
+   * @param petId        The id of the pet within its population.
+   * @param hungerLevel  The hunger level, ranging from 0 to 100.
+   * @param hygieneLevel The hygiene level, ranging from 0 to 100.
+   * @param socialLevel  The social level, ranging from 0 to 100.
+   * @param sleepyLevel  The sleepy level, ranging from 0 to 100.
+   * @param healthLevel  The health level, ranging from 0 to 100.
+   * @param mood         The mood of the pet.
+   * @param gameOver     Whether the game is over.
+   * @param survivalTime The survival time in seconds when the snapshot was taken.
+   * @param version      A counter incremented with every snapshot published by the pet.
+   */
+  public PetSnapshot(int petId, int hungerLevel, int hygieneLevel, int socialLevel,
+                     int sleepyLevel, int healthLevel, Mood mood, boolean gameOver,
+                     long survivalTime, long version) {
+    this.petId = petId;
+    this.hungerLevel = hungerLevel;
+    this.hygieneLevel = hygieneLevel;
+    this.socialLevel = socialLevel;
+    this.sleepyLevel = sleepyLevel;
+    this.healthLevel = healthLevel;
+    this.mood = mood;
+    this.gameOver = gameOver;
+    this.survivalTime = survivalTime;
+    this.version = version;
+  }
+
+  public int getPetId() {
+    return petId;
+  }
+
+  public int getHungerLevel() {
+    return hungerLevel;
+  }
+
+  public int getHygieneLevel() {
+    return hygieneLevel;
+  }
+
+  public int getSocialLevel() {
+    return socialLevel;
+  }
+
+  public int getSleepyLevel() {
+    return sleepyLevel;
+  }
+
+  public int getHealthLevel() {
+    return healthLevel;
+  }
+
+  public Mood getMood() {
+    return mood;
+  }
+
+  public boolean isGameOver() {
+    return gameOver;
+  }
+
+  /**
+   * Retrieves the survival time at the moment the snapshot was published.
+   *
+   * @return The survival time in seconds.
+   */
+  public long getSurvivalTime() {
+    return survivalTime;
+  }
+
+  /**
+   * Retrieves the publication counter of this snapshot. Later snapshots of the
+   * same pet always have a greater version.
+   *
+   * @return The snapshot version.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  @Override
+  public String toString() {
+    return "PetSnapshot{petId=" + petId
+        + ", hunger=" + hungerLevel
+        + ", hygiene=" + hygieneLevel
+        + ", social=" + socialLevel
+        + ", sleepy=" + sleepyLevel
+        + ", health=" + healthLevel
+        + ", mood=" + mood
+        + ", gameOver=" + gameOver
+        + ", survivalTime=" + survivalTime
+        + ", version=" + version + "}";
+  }
+}
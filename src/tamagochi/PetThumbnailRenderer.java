@@ -0,0 +1,82 @@
+package tamagochi;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Renders pet status thumbnails in bulk for notifications, web previews and dashboards.
+ * Each pet is drawn through a {@link HeadlessPetViewImpl} and encoded to PNG, reusing
+ * the same image, graphics context, encoder and output buffer for every pet.
+ *
+ * <p>Intended to run with {@code -Djava.awt.headless=true}. Instances are not
+ * thread-safe; create one renderer per worker thread to render in parallel.
+ */
+public class PetThumbnailRenderer {
+  private final HeadlessPetViewImpl view;
+  private final PngEncoder encoder;
+
+  /**
+   * Receives the PNG bytes of each rendered thumbnail.
+   */
+  @FunctionalInterface
+  public interface ThumbnailSink {
+    /**
+     * Accepts a rendered thumbnail. The buffer is reused for the next pet and must
+     * be copied if it needs to outlive this call.
+     *
+     * @param index  The index of the pet in the rendered batch.
+     * @param png    The buffer holding the PNG bytes.
+     * @param length The number of valid bytes in {@code png}.
+     */
+    void accept(int index, byte[] png, int length);
+  }
+
+  /**
+   * Constructs a new renderer producing thumbnails of the given size.
+   *
+   * @param width  The width of each thumbnail in pixels.
+   * @param height The height of each thumbnail in pixels.
+   */
+  public PetThumbnailRenderer(int width, int height) {
+    this.view = new HeadlessPetViewImpl(width, height);
+    this.encoder = new PngEncoder();
+  }
+
+  /**
+   * Renders a single pet to a freshly allocated PNG byte array.
+   *
+   * @param pet The pet to render.
+   * @return The PNG-encoded thumbnail.
+   */
+  public byte[] render(PetModel pet) {
+    renderToEncoder(pet);
+    return Arrays.copyOf(encoder.buffer(), encoder.length());
+  }
+
+  /**
+   * Renders every pet in the list, handing each PNG to the sink without copying.
+   *
+   * @param pets The pets to render.
+   * @param sink The consumer of the encoded thumbnails.
+   */
+  public void renderAll(List<? extends PetModel> pets, ThumbnailSink sink) {
+    for (int i = 0; i < pets.size(); i++) {
+      renderToEncoder(pets.get(i));
+      sink.accept(i, encoder.buffer(), encoder.length());
+    }
+  }
+
+  /**
+   * Copies the pet's latest snapshot into the headless view, draws it and encodes the result.
+   */
+  private void renderToEncoder(PetModel pet) {
+    PetSnapshot state = pet.getSnapshot();
+    view.updateBars(state.getHungerLevel(), state.getHygieneLevel(), state.getSocialLevel(),
+        state.getSleepyLevel(), state.getHealthLevel());
+    view.updateMood(state.getMood());
+    view.updateGameOver(state.isGameOver());
+    view.updateSurvivalTime(PetControllerImpl.formatSurvivalTime(state.getSurvivalTime()));
+    view.setPetImage(PetControllerImpl.imagePathFor(state.getMood(), state.getHealthLevel()));
+    encoder.encode(view.render());
+  }
+}
@@ -0,0 +1,29 @@
+package tamagochi;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event spanning one simulation tick: a single pet's
+ * {@link PetModel#updateState()}, or a whole {@link PetPopulation#updateAll()}.
+ * Disabled by default; enable it in a recording's settings, ideally with a threshold
+ * so that only slow ticks are kept.
+ */
+@Name("tamagochi.PetTick")
+@Label("Pet Tick")
+@Category("Tamagochi")
+@Description("Simulation tick of one pet or a whole population")
+@Enabled(false)
+@StackTrace(false)
+class PetTickEvent extends jdk.jfr.Event {
+  @Label("Pet Id")
+  @Description("The ticked pet, or -1 for a population tick")
+  int petId;
+
+  @Label("Pets Processed")
+  int petsProcessed;
+}
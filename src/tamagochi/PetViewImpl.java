@@ -24,6 +24,20 @@ import javax.swing.border.Border;
  * This class provides the graphical user interface for interacting with the pet.
  */
 public class PetViewImpl extends JFrame implements PetView {
+  private static final Color BAR_GOOD = new Color(50, 200, 50);
+  private static final Color BAR_GOOD_TRACK = new Color(200, 255, 200);
+  private static final Color BAR_LOW = new Color(255, 200, 50);
+  private static final Color BAR_LOW_TRACK = new Color(255, 250, 200);
+  private static final Color BAR_CRITICAL = new Color(200, 50, 50);
+  private static final Color BAR_CRITICAL_TRACK = new Color(255, 200, 200);
+  private static final Color MOOD_HAPPY = new Color(34, 139, 34);
+  private static final Color MOOD_GRUMPY = new Color(255, 165, 0);
+  private static final Color MOOD_DEPRESSIVE = new Color(70, 70, 70);
+  private static final Font MOOD_FONT_DEFAULT = new Font("Arial", Font.PLAIN, 18);
+  private static final Font MOOD_FONT_HAPPY = new Font("Comic Sans MS", Font.BOLD, 18);
+  private static final Font MOOD_FONT_GRUMPY = new Font("Impact", Font.BOLD, 18);
+  private static final Font MOOD_FONT_DEPRESSIVE = new Font("Serif", Font.ITALIC, 18);
+
   private JLabel petImageLabel;
 
   private JLabel moodLabel;
@@ -188,16 +202,8 @@ public class PetViewImpl extends JFrame implements PetView {
     // Gradient colors
     bar.addChangeListener(e -> {
       int value = bar.getValue();
-      if (value >= 50) {
-        bar.setForeground(new Color(50, 200, 50));
-        bar.setBackground(new Color(200, 255, 200));
-      } else if (value >= 20) {
-        bar.setForeground(new Color(255, 200, 50));
-        bar.setBackground(new Color(255, 250, 200));
-      } else {
-        bar.setForeground(new Color(200, 50, 50));
-        bar.setBackground(new Color(255, 200, 200));
-      }
+      bar.setForeground(barForeground(value));
+      bar.setBackground(barBackground(value));
     });
 
     // Tooltip
@@ -288,30 +294,106 @@ public class PetViewImpl extends JFrame implements PetView {
    */
   @Override
   public void updateMood(Mood mood) {
+    moodLabel.setText(moodText(mood));
+    moodLabel.setForeground(moodColor(mood));
+    moodLabel.setFont(moodFont(mood));
+  }
+
+  /**
+   * Returns the mood message shown for the given mood.
+   *
+   * @param mood The current mood of the pet.
+   * @return The text displayed in the mood label.
+   */
+  static String moodText(Mood mood) {
+    if (mood == null) {
+      return "Mood: UNKNOWN - I can't figure out my feelings...";
+    }
     switch (mood) {
       case HAPPY:
-        moodLabel.setText("Mood: HAPPY - I'm on cloud nine, life is amazing!");
-        moodLabel.setForeground(new Color(34, 139, 34)); // Fun green color
-        moodLabel.setFont(new Font("Comic Sans MS", Font.BOLD, 18));
-        break;
-
+        return "Mood: HAPPY - I'm on cloud nine, life is amazing!";
       case GRUMPY:
-        moodLabel.setText("Mood: GRUMPY - Everything is annoying today. GRRR!");
-        moodLabel.setForeground(new Color(255, 165, 0)); // Orange color
-        moodLabel.setFont(new Font("Impact", Font.BOLD, 18));
-        break;
+        return "Mood: GRUMPY - Everything is annoying today. GRRR!";
+      case DEPRESSIVE:
+        return "Mood: DEPRESSIVE - Feeling blue... Can I get a hug?";
+      default:
+        return "Mood: UNKNOWN - I can't figure out my feelings...";
+    }
+  }
 
+  /**
+   * Returns the color used for the mood message of the given mood.
+   *
+   * @param mood The current mood of the pet.
+   * @return The foreground color of the mood label.
+   */
+  static Color moodColor(Mood mood) {
+    if (mood == null) {
+      return Color.BLACK;
+    }
+    switch (mood) {
+      case HAPPY:
+        return MOOD_HAPPY; // Fun green color
+      case GRUMPY:
+        return MOOD_GRUMPY; // Orange color
       case DEPRESSIVE:
-        moodLabel.setText("Mood: DEPRESSIVE - Feeling blue... Can I get a hug?");
-        moodLabel.setForeground(new Color(70, 70, 70)); // Gray color
-        moodLabel.setFont(new Font("Serif", Font.ITALIC, 18));
-        break;
+        return MOOD_DEPRESSIVE; // Gray color
+      default:
+        return Color.BLACK; // Default black color
+    }
+  }
 
+  /**
+   * Returns the font used for the mood message of the given mood.
+   *
+   * @param mood The current mood of the pet.
+   * @return The font of the mood label.
+   */
+  static Font moodFont(Mood mood) {
+    if (mood == null) {
+      return MOOD_FONT_DEFAULT;
+    }
+    switch (mood) {
+      case HAPPY:
+        return MOOD_FONT_HAPPY;
+      case GRUMPY:
+        return MOOD_FONT_GRUMPY;
+      case DEPRESSIVE:
+        return MOOD_FONT_DEPRESSIVE;
       default:
-        moodLabel.setText("Mood: UNKNOWN - I can't figure out my feelings...");
-        moodLabel.setForeground(Color.BLACK); // Default black color
-        moodLabel.setFont(new Font("Arial", Font.PLAIN, 18));
-        break;
+        return MOOD_FONT_DEFAULT;
+    }
+  }
+
+  /**
+   * Returns the fill color of a status bar holding the given value.
+   *
+   * @param value The value of the bar, ranging from 0 to 100.
+   * @return The foreground color of the bar.
+   */
+  static Color barForeground(int value) {
+    if (value >= 50) {
+      return BAR_GOOD;
+    } else if (value >= 20) {
+      return BAR_LOW;
+    } else {
+      return BAR_CRITICAL;
+    }
+  }
+
+  /**
+   * Returns the track color of a status bar holding the given value.
+   *
+   * @param value The value of the bar, ranging from 0 to 100.
+   * @return The background color of the bar.
+   */
+  static Color barBackground(int value) {
+    if (value >= 50) {
+      return BAR_GOOD_TRACK;
+    } else if (value >= 20) {
+      return BAR_LOW_TRACK;
+    } else {
+      return BAR_CRITICAL_TRACK;
     }
   }
 
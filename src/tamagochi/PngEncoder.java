@@ -0,0 +1,154 @@
+package tamagochi;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Minimal PNG encoder for {@link BufferedImage#TYPE_INT_RGB} images.
+ * Keeps its {@link Deflater}, checksum and byte buffers between calls so that
+ * encoding a stream of same-sized images does not allocate per image.
+ *
+ * <p>Instances are not thread-safe.
+ */
+class PngEncoder {
+  private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+  private static final byte[] IHDR = {'I', 'H', 'D', 'R'};
+  private static final byte[] IDAT = {'I', 'D', 'A', 'T'};
+  private static final byte[] IEND = {'I', 'E', 'N', 'D'};
+
+  private final Deflater deflater;
+  private final CRC32 crc;
+  private byte[] raw;
+  private byte[] compressed;
+  private byte[] out;
+  private int length;
+
+  /**
+   * Constructs a new encoder favouring speed over compression ratio.
+   */
+  PngEncoder() {
+    this.deflater = new Deflater(Deflater.BEST_SPEED);
+    this.crc = new CRC32();
+    this.raw = new byte[0];
+    this.compressed = new byte[0];
+    this.out = new byte[0];
+  }
+
+  /**
+   * Encodes the given image. The result is available through {@link #buffer()}
+   * and {@link #length()} until the next call.
+   *
+   * @param image The image to encode, which must be of type {@code TYPE_INT_RGB}.
+   * @throws IllegalArgumentException if the image is of another type.
+   */
+  void encode(BufferedImage image) {
+    if (image.getType() != BufferedImage.TYPE_INT_RGB) {
+      throw new IllegalArgumentException("Unsupported image type: " + image.getType());
+    }
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+    // Filtered scanlines: one filter byte (0 = none) followed by RGB triples
+    int rawLength = height * (1 + width * 3);
+    if (raw.length < rawLength) {
+      raw = new byte[rawLength];
+    }
+    int pos = 0;
+    int index = 0;
+    for (int y = 0; y < height; y++) {
+      raw[pos++] = 0;
+      for (int x = 0; x < width; x++) {
+        int rgb = pixels[index++];
+        raw[pos++] = (byte) (rgb >>> 16);
+        raw[pos++] = (byte) (rgb >>> 8);
+        raw[pos++] = (byte) rgb;
+      }
+    }
+
+    deflater.reset();
+    deflater.setInput(raw, 0, rawLength);
+    deflater.finish();
+    int compressedLength = 0;
+    while (!deflater.finished()) {
+      if (compressedLength == compressed.length) {
+        compressed = Arrays.copyOf(compressed, Math.max(4096, compressed.length * 2));
+      }
+      compressedLength += deflater.deflate(compressed, compressedLength,
+          compressed.length - compressedLength);
+    }
+
+    int total = SIGNATURE.length + (12 + 13) + (12 + compressedLength) + 12;
+    if (out.length < total) {
+      out = new byte[total];
+    }
+    System.arraycopy(SIGNATURE, 0, out, 0, SIGNATURE.length);
+    length = SIGNATURE.length;
+
+    int header = beginChunk(IHDR, 13);
+    writeInt(width);
+    writeInt(height);
+    out[length++] = 8; // Bit depth
+    out[length++] = 2; // Color type: truecolor
+    out[length++] = 0; // Compression method
+    out[length++] = 0; // Filter method
+    out[length++] = 0; // No interlace
+    endChunk(header);
+
+    int data = beginChunk(IDAT, compressedLength);
+    System.arraycopy(compressed, 0, out, length, compressedLength);
+    length += compressedLength;
+    endChunk(data);
+
+    endChunk(beginChunk(IEND, 0));
+  }
+
+  /**
+   * Returns the buffer holding the last encoded image.
+   * Only the first {@link #length()} bytes are valid.
+   *
+   * @return The internal output buffer.
+   */
+  byte[] buffer() {
+    return out;
+  }
+
+  /**
+   * Returns the length of the last encoded image.
+   *
+   * @return The number of valid bytes in {@link #buffer()}.
+   */
+  int length() {
+    return length;
+  }
+
+  /**
+   * Writes a chunk length and type, returning the offset where the checksum starts.
+   */
+  private int beginChunk(byte[] type, int dataLength) {
+    writeInt(dataLength);
+    int start = length;
+    System.arraycopy(type, 0, out, length, type.length);
+    length += type.length;
+    return start;
+  }
+
+  /**
+   * Appends the CRC of the chunk type and data written since {@code start}.
+   */
+  private void endChunk(int start) {
+    crc.reset();
+    crc.update(out, start, length - start);
+    writeInt((int) crc.getValue());
+  }
+
+  private void writeInt(int value) {
+    out[length++] = (byte) (value >>> 24);
+    out[length++] = (byte) (value >>> 16);
+    out[length++] = (byte) (value >>> 8);
+    out[length++] = (byte) value;
+  }
+}
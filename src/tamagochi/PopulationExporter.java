@@ -0,0 +1,449 @@
+package tamagochi;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Streaming export of the pets of a {@link PetPopulation} into a compressed,
+ * column-oriented format for analytics: per pet, its five levels, mood, behavior class,
+ * survival time and game-over flag.
+ *
+ * <p>Pets are exported in chunks of consecutive ids, each read from the pets' latest
+ * {@link PetSnapshot}s while the population keeps ticking, so a chunk is consistent
+ * per pet but not across pets. The behavior class is the one a pet adopts in the
+ * snapshot's mood, so that it describes the same moment as the levels. Only one chunk
+ * is held in memory at a time, whatever the size of the population.
+ *
+ * <p>The stream, written big-endian, starts with the magic number {@value #MAGIC} and
+ * the chunk size, followed by the chunks, and ends with an empty chunk. A chunk holds
+ * its row count and first pet id, followed by one block per {@link Column}, in order:
+ * <ol>
+ *   <li>an encoding byte: {@link #BIT_PACKED}, {@link #DICTIONARY} or
+ *       {@link #DELTA_VARINT};</li>
+ *   <li>for a dictionary, its size as one byte and its entries as modified UTF-8
+ *       strings (the mood or behavior class name, or an empty string for none);</li>
+ *   <li>for a bit-packed or dictionary column, the bits per value as one byte;</li>
+ *   <li>the length of the encoded values, and of their deflated form, as ints;</li>
+ *   <li>the deflated values.</li>
+ * </ol>
+ * Bit-packed values are written from the lowest bit of each byte up; levels take 7
+ * bits and the game-over flag 1. Dictionary indices are bit-packed the same way, taking
+ * no space at all when every pet of a chunk shares a value. Survival times, which are
+ * close for pets spawned together, are written as zig-zag LEB128 varints of the
+ * difference to the previous pet.
+ *
+ * <p>Instances reuse their buffers and {@link Deflater} between exports and are not
+ * thread-safe. The deflater holds native memory until the exporter is closed.
+ */
+public class PopulationExporter implements AutoCloseable {
+  /** The magic number opening an export, {@code "TPC1"} in ASCII. */
+  public static final int MAGIC = 0x54504331;
+  /** The encoding of columns of values packed on a fixed number of bits. */
+  public static final int BIT_PACKED = 0;
+  /** The encoding of columns of names, as bit-packed indices into a dictionary. */
+  public static final int DICTIONARY = 1;
+  /** The encoding of columns of longs, as varints of the differences between rows. */
+  public static final int DELTA_VARINT = 2;
+
+  static final int DEFAULT_CHUNK_ROWS = 1 << 16;
+  private static final int LEVEL_BITS = 7;
+  private static final int MAX_DICTIONARY = 256;
+  private static final Class<?>[] BEHAVIOR_TYPES = new Class<?>[Mood.values().length];
+
+  static {
+    for (Mood mood : Mood.values()) {
+      BEHAVIOR_TYPES[mood.ordinal()] = PetModelImpl.behaviorFor(mood).getClass();
+    }
+  }
+
+  /**
+   * The columns of an export, in the order of their blocks in a chunk.
+   */
+  public enum Column {
+    HUNGER, HYGIENE, SOCIAL, SLEEPY, HEALTH, MOOD, BEHAVIOR, SURVIVAL_TIME, GAME_OVER
+  }
+
+  /**
+   * Receiver of the rows of an export, called by
+   * {@link PopulationExporter#read(InputStream, RowHandler)}.
+   */
+  public interface RowHandler {
+    /**
+     * Called for every exported pet, in id order.
+     *
+     * @param state    The pet's state. Its version is not exported and is 0.
+     * @param behavior The simple class name of the pet's behavior, or an empty string.
+     */
+    void row(PetSnapshot state, String behavior);
+  }
+
+  private static final Mood[] MOODS = Mood.values();
+
+  private final int chunkRows;
+  private final Deflater deflater;
+  private final byte[][] levels;
+  private final byte[] moods;
+  private final byte[] behaviors;
+  private final byte[] gameOver;
+  private final long[] survivalTimes;
+  private final Map<Class<?>, Integer> behaviorIndexes = new HashMap<>();
+  private String[] behaviorNames = new String[0];
+  private byte[] raw = new byte[0];
+  private byte[] compressed = new byte[0];
+  private boolean closed;
+
+  /**
+   * Constructs an exporter with chunks of {@value #DEFAULT_CHUNK_ROWS} pets, favouring
+   * speed over compression ratio.
+   */
+  public PopulationExporter() {
+    this(DEFAULT_CHUNK_ROWS, Deflater.BEST_SPEED);
+  }
+
+  /**
+   * Constructs an exporter.
+   *
+   * @param chunkRows The number of pets per chunk, bounding the memory used.
+   * @param level     The {@link Deflater} compression level.
+   * @throws IllegalArgumentException if the chunk size is not positive.
+   */
+  public PopulationExporter(int chunkRows, int level) {
+    if (chunkRows <= 0) {
+      throw new IllegalArgumentException("Invalid chunk size: " + chunkRows);
+    }
+    this.chunkRows = chunkRows;
+    this.deflater = new Deflater(level);
+    this.levels = new byte[5][chunkRows];
+    this.moods = new byte[chunkRows];
+    this.behaviors = new byte[chunkRows];
+    this.gameOver = new byte[chunkRows];
+    this.survivalTimes = new long[chunkRows];
+  }
+
+  /**
+   * Exports the pets present when called. The stream is not closed.
+   *
+   * @param population The population to export, which may keep ticking.
+   * @param out        The stream to write to.
+   * @return The number of pets exported.
+   * @throws IOException           if the stream cannot be written.
+   * @throws IllegalStateException if the exporter is closed.
+   */
+  public int export(PetPopulation population, OutputStream out) throws IOException {
+    if (closed) {
+      throw new IllegalStateException("Exporter closed");
+    }
+    DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+    data.writeInt(MAGIC);
+    data.writeInt(chunkRows);
+    int size = population.size();
+    for (int first = 0; first < size; first += chunkRows) {
+      int rows = Math.min(chunkRows, size - first);
+      fill(population, first, rows);
+      data.writeInt(rows);
+      data.writeInt(first);
+      writeChunk(data, rows);
+    }
+    data.writeInt(0);
+    data.flush();
+    return size;
+  }
+
+  /**
+   * Releases the deflater's native memory. The exporter cannot be used afterwards.
+   */
+  @Override
+  public void close() {
+    if (!closed) {
+      closed = true;
+      deflater.end();
+    }
+  }
+
+  /**
+   * Reads a chunk of pets into the column buffers.
+   */
+  private void fill(PetPopulation population, int first, int rows) {
+    behaviorIndexes.clear();
+    int names = 0;
+    for (int row = 0; row < rows; row++) {
+      PetSnapshot state = population.get(first + row).getSnapshot();
+      levels[0][row] = (byte) state.getHungerLevel();
+      levels[1][row] = (byte) state.getHygieneLevel();
+      levels[2][row] = (byte) state.getSocialLevel();
+      levels[3][row] = (byte) state.getSleepyLevel();
+      levels[4][row] = (byte) state.getHealthLevel();
+      Mood mood = state.getMood();
+      moods[row] = (byte) (mood == null ? 0 : mood.ordinal() + 1);
+      gameOver[row] = (byte) (state.isGameOver() ? 1 : 0);
+      survivalTimes[row] = state.getSurvivalTime();
+
+      Class<?> type = mood == null ? null : BEHAVIOR_TYPES[mood.ordinal()];
+      Integer index = behaviorIndexes.get(type);
+      if (index == null) {
+        if (names == MAX_DICTIONARY) {
+          throw new IllegalStateException("More than " + MAX_DICTIONARY
+              + " behavior classes in one chunk");
+        }
+        index = names++;
+        behaviorIndexes.put(type, index);
+        if (behaviorNames.length < names) {
+          behaviorNames = Arrays.copyOf(behaviorNames, Math.max(4, names * 2));
+        }
+        behaviorNames[index] = type == null ? "" : type.getSimpleName();
+      }
+      behaviors[row] = (byte) (int) index;
+    }
+  }
+
+  /**
+   * Writes the columns of the buffered chunk.
+   */
+  private void writeChunk(DataOutputStream data, int rows) throws IOException {
+    for (byte[] level : levels) {
+      data.writeByte(BIT_PACKED);
+      data.writeByte(LEVEL_BITS);
+      writeBlock(data, packBits(level, rows, LEVEL_BITS));
+    }
+
+    // Only the moods present enter the dictionary, so a happy chunk costs nothing
+    boolean[] present = new boolean[MOODS.length + 1];
+    for (int row = 0; row < rows; row++) {
+      present[moods[row]] = true;
+    }
+    byte[] remap = new byte[present.length];
+    String[] moodNames = new String[present.length];
+    int moodCount = 0;
+    for (int code = 0; code < present.length; code++) {
+      if (present[code]) {
+        remap[code] = (byte) moodCount;
+        moodNames[moodCount++] = code == 0 ? "" : MOODS[code - 1].name();
+      }
+    }
+    for (int row = 0; row < rows; row++) {
+      moods[row] = remap[moods[row]];
+    }
+    writeDictionary(data, moodNames, moodCount, moods, rows);
+    writeDictionary(data, behaviorNames, behaviorIndexes.size(), behaviors, rows);
+
+    data.writeByte(DELTA_VARINT);
+    int length = 0;
+    ensureRaw(rows * 10);
+    long previous = 0;
+    for (int row = 0; row < rows; row++) {
+      long delta = survivalTimes[row] - previous;
+      previous = survivalTimes[row];
+      long value = (delta << 1) ^ (delta >> 63);
+      while ((value & ~0x7FL) != 0) {
+        raw[length++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      raw[length++] = (byte) value;
+    }
+    writeBlock(data, length);
+
+    data.writeByte(BIT_PACKED);
+    data.writeByte(1);
+    writeBlock(data, packBits(gameOver, rows, 1));
+  }
+
+  /**
+   * Writes a dictionary-encoded column.
+   */
+  private void writeDictionary(DataOutputStream data, String[] names, int count,
+                               byte[] indexes, int rows) throws IOException {
+    data.writeByte(DICTIONARY);
+    data.writeByte(count - 1);
+    for (int i = 0; i < count; i++) {
+      data.writeUTF(names[i]);
+    }
+    int bits = 32 - Integer.numberOfLeadingZeros(count - 1);
+    data.writeByte(bits);
+    writeBlock(data, packBits(indexes, rows, bits));
+  }
+
+  /**
+   * Packs the low bits of each value into the raw buffer.
+   *
+   * @return The number of bytes written.
+   */
+  private int packBits(byte[] values, int rows, int bits) {
+    int length = (int) (((long) rows * bits + 7) / 8);
+    ensureRaw(length);
+    long buffer = 0;
+    int buffered = 0;
+    int position = 0;
+    int mask = (1 << bits) - 1;
+    for (int row = 0; row < rows; row++) {
+      buffer |= (long) (values[row] & mask) << buffered;
+      buffered += bits;
+      if (buffered >= 32) {
+        raw[position++] = (byte) buffer;
+        raw[position++] = (byte) (buffer >>> 8);
+        raw[position++] = (byte) (buffer >>> 16);
+        raw[position++] = (byte) (buffer >>> 24);
+        buffer >>>= 32;
+        buffered -= 32;
+      }
+    }
+    while (buffered > 0) {
+      raw[position++] = (byte) buffer;
+      buffer >>>= 8;
+      buffered -= 8;
+    }
+    return length;
+  }
+
+  /**
+   * Deflates the first bytes of the raw buffer and writes them as a block.
+   */
+  private void writeBlock(DataOutputStream data, int length) throws IOException {
+    deflater.reset();
+    deflater.setInput(raw, 0, length);
+    deflater.finish();
+    int compressedLength = 0;
+    if (compressed.length < 64) {
+      compressed = new byte[Math.max(64, length / 2)];
+    }
+    while (!deflater.finished()) {
+      if (compressedLength == compressed.length) {
+        compressed = Arrays.copyOf(compressed, compressed.length * 2);
+      }
+      compressedLength += deflater.deflate(compressed, compressedLength,
+          compressed.length - compressedLength);
+    }
+    data.writeInt(length);
+    data.writeInt(compressedLength);
+    data.write(compressed, 0, compressedLength);
+  }
+
+  private void ensureRaw(int length) {
+    if (raw.length < length) {
+      raw = new byte[length];
+    }
+  }
+
+  /**
+   * Reads an export back, one chunk at a time.
+   *
+   * @param in      The stream to read, which is not closed.
+   * @param handler The receiver of the rows.
+   * @return The number of rows read.
+   * @throws IOException if the stream cannot be read or is not a valid export.
+   */
+  public static long read(InputStream in, RowHandler handler) throws IOException {
+    DataInputStream data = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+    if (data.readInt() != MAGIC) {
+      throw new IOException("Not a population export");
+    }
+    int chunkRows = data.readInt();
+    if (chunkRows <= 0) {
+      throw new IOException("Invalid chunk size: " + chunkRows);
+    }
+    Inflater inflater = new Inflater();
+    int[][] columns = new int[Column.values().length][chunkRows];
+    long[] survivalTimes = new long[chunkRows];
+    String[][] dictionaries = new String[Column.values().length][];
+    long total = 0;
+    try {
+      int rows;
+      while ((rows = data.readInt()) != 0) {
+        if (rows < 0 || rows > chunkRows) {
+          throw new IOException("Invalid chunk of " + rows + " rows");
+        }
+        int first = data.readInt();
+        for (Column column : Column.values()) {
+          readColumn(data, inflater, rows, column, columns[column.ordinal()],
+              survivalTimes, dictionaries);
+        }
+        String[] moodNames = dictionaries[Column.MOOD.ordinal()];
+        String[] behaviorNames = dictionaries[Column.BEHAVIOR.ordinal()];
+        for (int row = 0; row < rows; row++) {
+          String mood = moodNames[columns[Column.MOOD.ordinal()][row]];
+          handler.row(new PetSnapshot(first + row, columns[0][row], columns[1][row],
+              columns[2][row], columns[3][row], columns[4][row],
+              mood.isEmpty() ? null : Mood.valueOf(mood),
+              columns[Column.GAME_OVER.ordinal()][row] != 0, survivalTimes[row], 0),
+              behaviorNames[columns[Column.BEHAVIOR.ordinal()][row]]);
+        }
+        total += rows;
+      }
+    } finally {
+      inflater.end();
+    }
+    return total;
+  }
+
+  /**
+   * Reads and decodes one column block.
+   */
+  private static void readColumn(DataInputStream data, Inflater inflater, int rows,
+                                 Column column, int[] values, long[] survivalTimes,
+                                 String[][] dictionaries) throws IOException {
+    int encoding = data.readUnsignedByte();
+    if (encoding == DICTIONARY) {
+      String[] names = new String[data.readUnsignedByte() + 1];
+      for (int i = 0; i < names.length; i++) {
+        names[i] = data.readUTF();
+      }
+      dictionaries[column.ordinal()] = names;
+    }
+    int bits = encoding == DELTA_VARINT ? 0 : data.readUnsignedByte();
+    if (bits > 8) {
+      throw new IOException("Invalid width of column " + column + ": " + bits);
+    }
+    byte[] block = new byte[data.readInt()];
+    byte[] deflated = new byte[data.readInt()];
+    data.readFully(deflated);
+    inflater.reset();
+    inflater.setInput(deflated);
+    try {
+      int length = 0;
+      while (length < block.length && !inflater.finished()) {
+        length += inflater.inflate(block, length, block.length - length);
+      }
+      if (length != block.length) {
+        throw new IOException("Truncated column " + column);
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt column " + column, e);
+    }
+
+    if (encoding == DELTA_VARINT) {
+      int position = 0;
+      long previous = 0;
+      for (int row = 0; row < rows; row++) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+          b = block[position++];
+          value |= (long) (b & 0x7F) << shift;
+          shift += 7;
+        } while (b < 0);
+        previous += (value >>> 1) ^ -(value & 1);
+        survivalTimes[row] = previous;
+      }
+      return;
+    }
+    int mask = (1 << bits) - 1;
+    long bit = 0;
+    for (int row = 0; row < rows; row++, bit += bits) {
+      int index = (int) (bit >>> 3);
+      int word = (block.length > index ? block[index] & 0xFF : 0)
+          | (block.length > index + 1 ? (block[index + 1] & 0xFF) << 8 : 0);
+      values[row] = (word >>> (bit & 7)) & mask;
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package tamagochi;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * The `RunAlertEngine` class ticks a population with some pets cared for, or reset, at
+ * random, and reports how long a {@link PetAlertEngine} takes per tick next to
+ * predicting the crossings of every pet.
+ */
+public class RunAlertEngine {
+  /**
+   * The main method to run the alert engine benchmark.
+   *
+   * @param args Optional number of pets (default 1000000), ticks (default 150), lead
+   *             in ticks (default 5) and percentage of pets acted on per tick
+   *             (default 1).
+   */
+  public static void main(String[] args) {
+    int pets = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 150;
+    int lead = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+    int percent = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+
+    SplittableRandom random = new SplittableRandom(42);
+    PetPopulation population = new PetPopulation(new ManualClock());
+    for (int i = 0; i < pets; i++) {
+      // Spread the levels, so that pets do not all cross their thresholds at once
+      PetModel pet = population.get(population.spawn());
+      pet.setHungerLevel(20 + random.nextInt(81));
+      pet.setHygieneLevel(20 + random.nextInt(81));
+      pet.setSocialLevel(20 + random.nextInt(81));
+      pet.setSleepyLevel(20 + random.nextInt(81));
+    }
+    population.updateAll();
+    long[] kinds = new long[PetAlertEngine.Kind.values().length];
+    PetAlertEngine engine = new PetAlertEngine(lead, 1, batch -> {
+      for (PetAlertEngine.Alert alert : batch) {
+        kinds[alert.getKind().ordinal()]++;
+      }
+    });
+    engine.attach(population);
+    engine.advance();
+
+    PetActions[] actions = PetActions.values();
+    LatencyHistogram advanceTimes = new LatencyHistogram();
+    LatencyHistogram scanTimes = new LatencyHistogram();
+    long imminent = 0;
+    for (int t = 0; t < ticks; t++) {
+      population.updateAll();
+      for (int i = 0; i < pets / 100 * percent; i++) {
+        PetModel pet = population.get(random.nextInt(pets));
+        if (pet.isGameOver()) {
+          pet.resetGame();
+        } else {
+          pet.performAction(actions[random.nextInt(actions.length)]);
+        }
+      }
+      engine.advance();
+      advanceTimes.record(engine.getLastAdvanceNanos());
+
+      // What checking every pet on every tick costs
+      long start = System.nanoTime();
+      int[] ticksLeft = new int[PetAlertEngine.Kind.values().length];
+      for (int i = 0; i < pets; i++) {
+        PetSnapshot state = population.get(i).getSnapshot();
+        if (!state.isGameOver()) {
+          engine.predict(state, ticksLeft);
+          for (int kind = 0; kind < ticksLeft.length; kind++) {
+            if (ticksLeft[kind] == lead) {
+              imminent++;
+            }
+          }
+        }
+      }
+      scanTimes.record(System.nanoTime() - start);
+    }
+    System.out.printf(Locale.ROOT, "%d ticks over %d pets, %d%% acted on per tick: "
+        + "%d alerts (%d found by checks), %d wake-ups%n", ticks, pets, percent,
+        engine.getAlertCount(), imminent, engine.getWakeUpCount());
+    for (PetAlertEngine.Kind kind : PetAlertEngine.Kind.values()) {
+      System.out.printf(Locale.ROOT, "  %-10s %d%n", kind, kinds[kind.ordinal()]);
+    }
+    System.out.println("Advance: " + advanceTimes.summary(1e6, "ms"));
+    System.out.println("Check:   " + scanTimes.summary(1e6, "ms"));
+  }
+}
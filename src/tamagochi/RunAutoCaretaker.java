@@ -0,0 +1,54 @@
+package tamagochi;
+
+import java.util.Locale;
+
+/**
+ * The `RunAutoCaretaker` class builds an {@link AutoCaretakerTable}, evaluates how long
+ * it keeps pets alive and measures its cost per pet on a population ticked as fast as
+ * possible.
+ */
+public class RunAutoCaretaker {
+  /**
+   * The main method to run the autopilot benchmark.
+   *
+   * @param args Optional comfort level (default 50), number of pets (default 100000)
+   *             and number of ticks (default 1000).
+   * @throws InterruptedException if interrupted while evaluating survival.
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int comfort = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+    int pets = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+    int ticks = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+    long start = System.nanoTime();
+    AutoCaretakerTable autopilot = AutoCaretakerTable.build(comfort);
+    System.out.printf(Locale.ROOT, "Built a %d byte table in %.1f ms%n",
+        autopilot.sizeInBytes(), (System.nanoTime() - start) / 1e6);
+
+    SurvivalEvaluator.Result result = new SurvivalEvaluator(autopilot, 86_400)
+        .evaluate(1000, Runtime.getRuntime().availableProcessors(), 42);
+    System.out.printf("Survival over one simulated day: %d of %d alive, deaths: %s%n",
+        result.getCensoredCount(), result.getLives(),
+        result.getSurvivalTimes().summary(1.0, "s"));
+
+    PetPopulation population = new PetPopulation(new ManualClock());
+    for (int i = 0; i < pets; i++) {
+      population.spawn();
+    }
+    long tickNanos = 0;
+    for (int t = 0; t < ticks; t++) {
+      long tickStart = System.nanoTime();
+      population.updateAll();
+      tickNanos += System.nanoTime() - tickStart;
+      autopilot.apply(population);
+    }
+    int alive = 0;
+    for (int i = 0; i < pets; i++) {
+      alive += population.get(i).isGameOver() ? 0 : 1;
+    }
+    System.out.printf(Locale.ROOT, "%d ticks of %d pets: %d alive, %d actions, "
+            + "autopilot %.1f ns/pet, tick %.1f ns/pet%n",
+        ticks, pets, alive, autopilot.getActionsPerformed(), autopilot.getNanosPerPet(),
+        (double) tickNanos / ((long) ticks * pets));
+  }
+}
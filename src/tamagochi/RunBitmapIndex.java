@@ -0,0 +1,82 @@
+package tamagochi;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * The `RunBitmapIndex` class ticks a population with random depletion and random care,
+ * then compares a conjunctive query on a {@link PetBitmapIndex} with a scan of the
+ * population's state table.
+ */
+public class RunBitmapIndex {
+  /**
+   * The main method to run the bitmap index benchmark.
+   *
+   * @param args Optional number of pets (default 1000000), ticks (default 60), query
+   *             repetitions (default 1000) and level threshold (default 20).
+   */
+  public static void main(String[] args) {
+    int pets = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+    int queries = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+    int threshold = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+
+    PetPopulation population = new PetPopulation(new ManualClock());
+    population.setDepletion(StochasticDepletion.parse("uniform:0:3", 42));
+    for (int i = 0; i < pets; i++) {
+      population.spawn();
+    }
+    long start = System.nanoTime();
+    PetBitmapIndex index = new PetBitmapIndex(population);
+    index.attach();
+    System.out.printf(Locale.ROOT, "Indexed %d pets in %.0f ms%n", pets,
+        (System.nanoTime() - start) / 1e6);
+
+    SplittableRandom random = new SplittableRandom(42);
+    PetActions[] actions = PetActions.values();
+    long tickNanos = 0;
+    for (int t = 0; t < ticks; t++) {
+      start = System.nanoTime();
+      population.updateAll();
+      tickNanos += System.nanoTime() - start;
+      for (int i = 0; i < pets / 4; i++) {
+        PetModel pet = population.get(random.nextInt(pets));
+        if (!pet.isGameOver()) {
+          pet.performAction(actions[random.nextInt(actions.length)]);
+        }
+      }
+    }
+    System.out.printf(Locale.ROOT, "%d ticks: %.1f ns/pet, %d index updates, %d KB%n",
+        ticks, (double) tickNanos / ((long) ticks * pets), index.getUpdateCount(),
+        index.sizeInBytes() / 1024);
+
+    population.updateAll(); // Publish the state table after the last actions
+    LatencyHistogram indexTimes = new LatencyHistogram();
+    LatencyHistogram scanTimes = new LatencyHistogram();
+    int found = 0;
+    int scanned = 0;
+    for (int q = 0; q < queries; q++) {
+      start = System.nanoTime();
+      found = index.query().mood(Mood.GRUMPY).below(PetSnapshot.Level.HUNGER, threshold)
+          .below(PetSnapshot.Level.HYGIENE, threshold).count();
+      indexTimes.record(System.nanoTime() - start);
+
+      start = System.nanoTime();
+      long[] states = population.states();
+      scanned = 0;
+      for (int i = 0; i < pets; i++) {
+        long state = states[i];
+        if (PackedPetState.mood(state) == Mood.GRUMPY
+            && PackedPetState.hunger(state) < threshold
+            && PackedPetState.hygiene(state) < threshold) {
+          scanned++;
+        }
+      }
+      scanTimes.record(System.nanoTime() - start);
+    }
+    System.out.printf("Grumpy with hunger and hygiene below %d: %d (scan: %d)%n",
+        threshold, found, scanned);
+    System.out.println("Index: " + indexTimes.summary(1e3, "us"));
+    System.out.println("Scan: " + scanTimes.summary(1e3, "us"));
+  }
+}
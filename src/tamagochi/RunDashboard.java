@@ -0,0 +1,40 @@
+package tamagochi;
+
+import javax.swing.JFrame;
+import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
+
+/**
+ * The `RunDashboard` class opens a grid view of a large, live pet population.
+ * Pets are ticked once per second on a background thread while the dashboard
+ * repaints only the visible cells.
+ */
+public class RunDashboard {
+  /**
+   * The main method to start the multi-pet dashboard.
+   *
+   * @param args Optional population size (defaults to 100000).
+   */
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+    // Create the population; -Dtamagochi.timeScale=N runs N times faster
+    Clock clock = Clock.configured();
+    PetPopulation population = new PetPopulation(clock);
+    for (int i = 0; i < count; i++) {
+      population.spawn();
+    }
+
+    // Tick every pet once per second, away from the EDT
+    SimulationScheduler scheduler = new SimulationScheduler(1000, population::updateAll, clock);
+    scheduler.start();
+
+    SwingUtilities.invokeLater(() -> {
+      JFrame frame = new JFrame("Tamagochi Dashboard - " + count + " pets");
+      frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+      frame.add(new JScrollPane(PetDashboard.create(population)));
+      frame.setSize(1000, 700);
+      frame.setVisible(true);
+    });
+  }
+}
@@ -0,0 +1,113 @@
+package tamagochi;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The `RunDeltaCodec` class compares the {@link PetDeltaCodec} with the full-state
+ * JSON sent by {@link PetHttpServer}. It records the state changes of a simulated
+ * population, then reports the encoded size per change and the encoding throughput of
+ * both formats.
+ */
+public class RunDeltaCodec {
+  private static final int ROUNDS = 20;
+
+  /**
+   * The main method to run the delta codec benchmark.
+   *
+   * @param args Optional number of pets (default 1000) and ticks to simulate (default 200).
+   */
+  public static void main(String[] args) {
+    int pets = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+    List<PetSnapshot> bases = new ArrayList<>();
+    List<PetSnapshot> changes = new ArrayList<>();
+    PetPopulation population = new PetPopulation();
+    population.addListener(new PetModelListener() {
+      @Override
+      public void onStateChanged(PetSnapshot previous, PetSnapshot current) {
+        if (previous != null) {
+          bases.add(previous);
+          changes.add(current);
+        }
+      }
+    });
+    for (int i = 0; i < pets; i++) {
+      population.spawn();
+    }
+    Random random = new Random(42);
+    PetActions[] actions = PetActions.values();
+    for (int t = 0; t < ticks; t++) {
+      population.updateAll();
+      for (int i = 0; i < pets / 10; i++) {
+        try {
+          population.get(random.nextInt(pets)).performAction(
+              actions[random.nextInt(actions.length)]);
+        } catch (IllegalStateException e) {
+          // Game over
+        }
+      }
+    }
+    int count = changes.size();
+    PetSnapshot[] base = bases.toArray(new PetSnapshot[0]);
+    PetSnapshot[] current = changes.toArray(new PetSnapshot[0]);
+    System.out.println("Recorded " + count + " state changes of " + pets + " pets");
+
+    long jsonBytes = 0;
+    long deltaBytes = 0;
+    ByteBuffer buffer = ByteBuffer.allocate(PetDeltaCodec.MAX_FRAME_BYTES);
+    PetDeltaCodec.State state = new PetDeltaCodec.State();
+    for (int i = 0; i < count; i++) {
+      jsonBytes += PetHttpServer.toJson(current[i]).getBytes(StandardCharsets.UTF_8).length;
+      buffer.clear();
+      deltaBytes += PetDeltaCodec.encode(base[i], current[i], buffer);
+      buffer.flip();
+      state.set(base[i]);
+      PetDeltaCodec.decode(buffer, state);
+      if (state.getVersion() != current[i].getVersion()
+          || state.getHealthLevel() != current[i].getHealthLevel()) {
+        throw new IllegalStateException("Round trip failed for " + current[i]);
+      }
+    }
+    System.out.printf("Size: JSON %.1f bytes/change, delta %.1f bytes/change (%.1fx smaller)%n",
+        jsonBytes / (double) count, deltaBytes / (double) count,
+        jsonBytes / (double) deltaBytes);
+
+    long sink = 0;
+    long jsonNanos = Long.MAX_VALUE;
+    long encodeNanos = Long.MAX_VALUE;
+    long decodeNanos = Long.MAX_VALUE;
+    ByteBuffer frames = ByteBuffer.allocate(count * PetDeltaCodec.MAX_FRAME_BYTES);
+    for (int round = 0; round < ROUNDS; round++) {
+      long start = System.nanoTime();
+      for (int i = 0; i < count; i++) {
+        sink += PetHttpServer.toJson(current[i]).getBytes(StandardCharsets.UTF_8).length;
+      }
+      jsonNanos = Math.min(jsonNanos, System.nanoTime() - start);
+
+      frames.clear();
+      start = System.nanoTime();
+      for (int i = 0; i < count; i++) {
+        PetDeltaCodec.encode(base[i], current[i], frames);
+      }
+      encodeNanos = Math.min(encodeNanos, System.nanoTime() - start);
+
+      frames.flip();
+      start = System.nanoTime();
+      for (int i = 0; i < count; i++) {
+        state.set(base[i]);
+        PetDeltaCodec.decode(frames, state);
+        sink += state.getVersion();
+      }
+      decodeNanos = Math.min(decodeNanos, System.nanoTime() - start);
+    }
+    System.out.printf("JSON encode:  %6.1f ns/change%n", jsonNanos / (double) count);
+    System.out.printf("Delta encode: %6.1f ns/change%n", encodeNanos / (double) count);
+    System.out.printf("Delta decode: %6.1f ns/change (checksum %d)%n",
+        decodeNanos / (double) count, sink);
+  }
+}
@@ -0,0 +1,63 @@
+package tamagochi;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The `RunLeaderboard` class ticks a population with random depletion, in which owners
+ * reset dead pets at random, and reports the cost of {@link SurvivalLeaderboard} reads.
+ */
+public class RunLeaderboard {
+  /**
+   * The main method to run the leaderboard benchmark.
+   *
+   * @param args Optional number of pets (default 100000), ticks (default 500) and reads
+   *             per tick (default 100).
+   */
+  public static void main(String[] args) {
+    int pets = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+    int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+    int reads = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+
+    ManualClock clock = new ManualClock();
+    PetPopulation population = new PetPopulation(clock);
+    population.setDepletion(StochasticDepletion.parse("poisson:1", 42));
+    SurvivalLeaderboard leaderboard = new SurvivalLeaderboard(clock);
+    leaderboard.watch(population);
+    SplittableRandom random = new SplittableRandom(42);
+    LatencyHistogram tickTimes = new LatencyHistogram();
+    LatencyHistogram topTimes = new LatencyHistogram();
+    LatencyHistogram rankTimes = new LatencyHistogram();
+    for (int i = 0; i < pets; i++) {
+      population.spawn();
+    }
+    for (int t = 0; t < ticks; t++) {
+      clock.advance(1, TimeUnit.SECONDS);
+      long start = System.nanoTime();
+      population.updateAll();
+      tickTimes.record(System.nanoTime() - start);
+      for (int i = 0; i < pets / 100; i++) {
+        PetModel pet = population.get(random.nextInt(pets));
+        if (pet.isGameOver()) {
+          pet.resetGame();
+        }
+      }
+      for (int r = 0; r < reads; r++) {
+        start = System.nanoTime();
+        leaderboard.top(100);
+        topTimes.record(System.nanoTime() - start);
+        start = System.nanoTime();
+        leaderboard.rankOf(random.nextInt(pets));
+        rankTimes.record(System.nanoTime() - start);
+      }
+    }
+    SurvivalLeaderboard.Entry best = leaderboard.top(1).get(0);
+    System.out.printf(Locale.ROOT, "%d pets, %d ticks: best pet %d survived %d s (%s)%n",
+        pets, ticks, best.getPetId(), best.getSurvivalTime(),
+        best.isGameOver() ? "dead" : "alive");
+    System.out.println("Tick: " + tickTimes.summary(1e6, "ms"));
+    System.out.println("Top 100: " + topTimes.summary(1e3, "us"));
+    System.out.println("Rank: " + rankTimes.summary(1e3, "us"));
+  }
+}
@@ -0,0 +1,66 @@
+package tamagochi;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * The `RunLevelHistory` class records a population for a while, with pets cared for at
+ * random and dead pets reset, in a {@link LevelHistoryStore}, and reports the size of
+ * the histories and the speed of recording and queries.
+ */
+public class RunLevelHistory {
+  /**
+   * The main method to run the level history benchmark.
+   *
+   * @param args Optional number of pets (default 100000), simulated minutes at one tick
+   *             per second (default 60) and mean minutes between two actions on a pet
+   *             (default 5).
+   */
+  public static void main(String[] args) {
+    int pets = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+    int minutes = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+    double careMinutes = args.length > 2 ? Double.parseDouble(args[2]) : 5;
+
+    PetPopulation population = new PetPopulation(new ManualClock());
+    for (int i = 0; i < pets; i++) {
+      population.spawn();
+    }
+    LevelHistoryStore store = new LevelHistoryStore();
+    SplittableRandom random = new SplittableRandom(42);
+    PetActions[] actions = PetActions.values();
+    int ticks = minutes * 60;
+    int actionsPerTick = (int) Math.round(pets / (careMinutes * 60));
+    LatencyHistogram recordTimes = new LatencyHistogram();
+    for (int t = 0; t < ticks; t++) {
+      population.updateAll();
+      long start = System.nanoTime();
+      store.record(population);
+      recordTimes.record(System.nanoTime() - start);
+      for (int i = 0; i < actionsPerTick; i++) {
+        PetModel pet = population.get(random.nextInt(pets));
+        if (pet.isGameOver()) {
+          pet.resetGame();
+        } else {
+          pet.performAction(actions[random.nextInt(actions.length)]);
+        }
+      }
+    }
+    LatencyHistogram queryTimes = new LatencyHistogram();
+    long checksum = 0;
+    for (int i = 0; i < 1000; i++) {
+      long start = System.nanoTime();
+      long[] states = store.range(random.nextInt(pets), 0, ticks - 1);
+      queryTimes.record(System.nanoTime() - start);
+      checksum += states[states.length - 1];
+    }
+
+    long bytes = store.sizeInBytes();
+    System.out.printf(Locale.ROOT, "%d pets over %d minutes, one action per pet every "
+        + "%.1f minutes: %d records, %d bytes (%.2f bytes per pet and minute, %d bytes of "
+        + "raw states)%n", pets, minutes, careMinutes, store.getRecordCount(), bytes,
+        (double) bytes / pets / minutes, 5L * pets * ticks);
+    System.out.println("Record: " + recordTimes.summary(1e6, "ms"));
+    System.out.println("Hour range: " + queryTimes.summary(1e3, "us") + " (" + checksum
+        + ")");
+  }
+}
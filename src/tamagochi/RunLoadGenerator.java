@@ -0,0 +1,46 @@
+package tamagochi;
+
+import java.util.Locale;
+
+/**
+ * The `RunLoadGenerator` class drives a {@link LoadGenerator} at a fixed action rate
+ * with a mix of player profiles, against a service or directly against the pets.
+ */
+public class RunLoadGenerator {
+  /**
+   * The main method to run the load generator.
+   *
+   * @param args Optional target actions per second (default 5000), duration in seconds
+   *             (default 30), players of each profile as
+   *             {@code attentive:neglectful:bursty} (default {@code 400:400:200}),
+   *             time scale (default 10), worker threads (default 4) and target, either
+   *             {@code service} (default) or {@code model}.
+   * @throws InterruptedException if interrupted while waiting for the workers.
+   */
+  public static void main(String[] args) throws InterruptedException {
+    double rate = args.length > 0 ? Double.parseDouble(args[0]) : 5000;
+    int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+    String[] mix = (args.length > 2 ? args[2] : "400:400:200").split(":");
+    double timeScale = args.length > 3 ? Double.parseDouble(args[3]) : 10;
+    int threads = args.length > 4 ? Integer.parseInt(args[4]) : 4;
+    String target = args.length > 5 ? args[5] : "service";
+    LoadGenerator.Profile[] profiles = LoadGenerator.Profile.values();
+    if (mix.length != profiles.length || !(rate > 0) || seconds <= 0 || threads <= 0
+        || !(target.equals("service") || target.equals("model"))) {
+      System.err.println("Usage: RunLoadGenerator [actionsPerSecond] [seconds] "
+          + "[attentive:neglectful:bursty] [timeScale] [threads] [service|model]");
+      return;
+    }
+    int[] players = new int[profiles.length];
+    for (int i = 0; i < profiles.length; i++) {
+      players[i] = Integer.parseInt(mix[i]);
+    }
+
+    LoadGenerator generator = new LoadGenerator(players, target.equals("service"),
+        Clock.scaled(timeScale));
+    System.out.printf(Locale.ROOT, "Running %.0f actions/s for %ds against %s with "
+            + "players %s at %.0fx time...%n",
+        rate, seconds, target, String.join(":", mix), timeScale);
+    generator.run(rate, seconds, threads);
+  }
+}
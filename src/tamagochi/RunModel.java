@@ -3,6 +3,7 @@ package tamagochi;
 /**
  * The `RunModel` class is the entry point for running the Tamagochi game model.
  * It simulates a series of predefined actions on the pet model and displays the pet's state.
+ * For capacity planning under realistic player behavior, use {@link RunLoadGenerator}.
  */
 public class RunModel {
   /**
@@ -66,23 +67,24 @@ public class RunModel {
   /**
    * Helper method to display all fields of the pet model along with the action performed.
    * Prints the pet's hunger, hygiene, social, sleepy, health levels, mood, behavior,
-   * game-over status, and survival time.
+   * game-over status, and survival time, all read from a single consistent snapshot.
    *
    * @param pet    The {@link PetModelImpl} instance representing the pet.
    * @param action The action that was just performed.
    */
   private static void displayAllFields(PetModelImpl pet, String action) {
+    PetSnapshot state = pet.getSnapshot();
     System.out.println("\n--- Pet State After Action: " + action + " ---");
-    System.out.println("Hunger Level: " + pet.getHungerLevel());
-    System.out.println("Hygiene Level: " + pet.getHygieneLevel());
-    System.out.println("Social Level: " + pet.getSocialLevel());
-    System.out.println("Sleepy Level: " + pet.getSleepyLevel());
-    System.out.println("Health Level: " + pet.getHealthLevel());
-    System.out.println("Mood: " + pet.getMood());
+    System.out.println("Hunger Level: " + state.getHungerLevel());
+    System.out.println("Hygiene Level: " + state.getHygieneLevel());
+    System.out.println("Social Level: " + state.getSocialLevel());
+    System.out.println("Sleepy Level: " + state.getSleepyLevel());
+    System.out.println("Health Level: " + state.getHealthLevel());
+    System.out.println("Mood: " + state.getMood());
     System.out.println("Behavior: "
         + (pet.getBehavior() != null ? pet.getBehavior().getClass().getSimpleName() : "None"));
-    System.out.println("Game Over: " + pet.isGameOver());
-    System.out.println("Survival Time: " + pet.getSurvivalTime() + " seconds");
+    System.out.println("Game Over: " + state.isGameOver());
+    System.out.println("Survival Time: " + state.getSurvivalTime() + " seconds");
     System.out.println("------------------");
   }
 }
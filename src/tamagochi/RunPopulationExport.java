@@ -0,0 +1,78 @@
+package tamagochi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The `RunPopulationExport` class exports a ticked population, with pets cared for at
+ * random, to a file with a {@link PopulationExporter}, reads it back, and reports sizes
+ * and speeds.
+ */
+public class RunPopulationExport {
+  /**
+   * The main method to run the population export benchmark.
+   *
+   * @param args Optional number of pets (default 1000000), ticks before the export
+   *             (default 60) and output file (default a temporary file, deleted).
+   * @throws IOException if the file cannot be written or read.
+   */
+  public static void main(String[] args) throws IOException {
+    int pets = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+    Path file = args.length > 2 ? Paths.get(args[2])
+        : Files.createTempFile("population", ".tpc");
+
+    ManualClock clock = new ManualClock();
+    PetPopulation population = new PetPopulation(clock);
+    SplittableRandom random = new SplittableRandom(42);
+    PetActions[] actions = PetActions.values();
+    for (int t = 0; t < ticks; t++) {
+      for (int i = 0; i < pets / ticks; i++) {
+        population.spawn();
+      }
+      clock.advance(1, TimeUnit.SECONDS);
+      population.updateAll();
+      for (int i = 0; i < population.size() / 20; i++) {
+        PetModel pet = population.get(random.nextInt(population.size()));
+        if (!pet.isGameOver()) {
+          pet.performAction(actions[random.nextInt(actions.length)]);
+        }
+      }
+    }
+
+    LatencyHistogram exportTimes = new LatencyHistogram();
+    try (PopulationExporter exporter = new PopulationExporter()) {
+      for (int run = 0; run < 5; run++) {
+        long start = System.nanoTime();
+        try (OutputStream out = Files.newOutputStream(file)) {
+          exporter.export(population, out);
+        }
+        exportTimes.record(System.nanoTime() - start);
+      }
+    }
+    long size = Files.size(file);
+    long start = System.nanoTime();
+    long[] checksum = new long[1];
+    long rows;
+    try (InputStream in = Files.newInputStream(file)) {
+      rows = PopulationExporter.read(in,
+          (state, behavior) -> checksum[0] += state.getHealthLevel());
+    }
+    long readNanos = System.nanoTime() - start;
+    System.out.printf(Locale.ROOT, "Exported %d pets to %d bytes (%.2f bytes per pet) "
+        + "in %s%n", population.size(), size, (double) size / population.size(), file);
+    System.out.println("Export: " + exportTimes.summary(1e6, "ms"));
+    System.out.printf(Locale.ROOT, "Read back %d rows in %.0f ms (health sum %d)%n", rows,
+        readNanos / 1e6, checksum[0]);
+    if (args.length <= 2) {
+      Files.delete(file);
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package tamagochi;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * The `RunSocialGraph` class builds a random {@link SocialGraph} over a population,
+ * makes some pets socialize on every tick and reports how long propagation takes.
+ */
+public class RunSocialGraph {
+  /**
+   * The main method to run the social graph benchmark.
+   *
+   * @param args Optional number of pets (default 1000000), friendships (default
+   *             5000000, i.e. 10 million directed edges), passes (default 20) and
+   *             contagion period (default 10, 0 for none).
+   */
+  public static void main(String[] args) {
+    int pets = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    int friendships = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+    int passes = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+    int contagionPeriod = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+    SplittableRandom random = new SplittableRandom(42);
+    int[] from = new int[friendships];
+    int[] to = new int[friendships];
+    for (int i = 0; i < friendships; i++) {
+      from[i] = random.nextInt(pets);
+      to[i] = random.nextInt(pets - 1);
+      if (to[i] >= from[i]) {
+        to[i]++; // Skip the pet itself, leaving no self-loop
+      }
+    }
+    long start = System.nanoTime();
+    SocialGraph graph = new SocialGraph(pets, from, to, 2, 5, contagionPeriod);
+    System.out.printf(Locale.ROOT, "Built %d friendships over %d pets in %.0f ms%n",
+        graph.getEdgeCount(), pets, (System.nanoTime() - start) / 1e6);
+
+    PetPopulation population = new PetPopulation(new ManualClock());
+    for (int i = 0; i < pets; i++) {
+      population.spawn();
+    }
+    graph.attach(population);
+    LatencyHistogram passTimes = new LatencyHistogram();
+    long changed = 0;
+    for (int pass = 0; pass < passes; pass++) {
+      population.updateAll();
+      for (int i = 0; i < pets / 100; i++) {
+        population.get(random.nextInt(pets)).performAction(PetActions.SOCIALIZE);
+      }
+      changed += graph.propagate(population);
+      passTimes.record(graph.getLastPassNanos());
+    }
+    System.out.printf(Locale.ROOT, "%d passes with 1%% of pets socializing, contagion "
+        + "period %d: %d level changes%n", passes, contagionPeriod, changed);
+    System.out.println("Pass: " + passTimes.summary(1e6, "ms"));
+  }
+}
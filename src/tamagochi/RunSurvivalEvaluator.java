@@ -0,0 +1,50 @@
+package tamagochi;
+
+import java.util.Locale;
+
+/**
+ * The `RunSurvivalEvaluator` class evaluates a care policy with a
+ * {@link SurvivalEvaluator} and prints the survival time distribution.
+ */
+public class RunSurvivalEvaluator {
+  /**
+   * The main method to run the survival evaluator.
+   *
+   * @param args Optional policy (default {@code every:40:FEED}), number of lives
+   *             (default 1000000), tick limit (default 86400, one simulated day),
+   *             worker threads (default one per processor), seed (default 42) and
+   *             depletion distributions as accepted by
+   *             {@link StochasticDepletion#parse(String, long)} (default fixed).
+   * @throws InterruptedException if interrupted while waiting for the workers.
+   */
+  public static void main(String[] args) throws InterruptedException {
+    CarePolicy policy;
+    try {
+      policy = SurvivalEvaluator.parsePolicy(args.length > 0 ? args[0] : "every:40:FEED");
+    } catch (IllegalArgumentException e) {
+      System.err.println("Error: " + e.getMessage());
+      System.err.println("Policies: neglect, every:<ticks>:<action>, "
+          + "lowest:<threshold>:<attention>");
+      return;
+    }
+    long lives = args.length > 1 ? Long.parseLong(args[1]) : 1_000_000;
+    long maxTicks = args.length > 2 ? Long.parseLong(args[2]) : 86_400;
+    int workers = args.length > 3 ? Integer.parseInt(args[3])
+        : Runtime.getRuntime().availableProcessors();
+    long seed = args.length > 4 ? Long.parseLong(args[4]) : 42;
+    SurvivalEvaluator evaluator = new SurvivalEvaluator(policy, maxTicks);
+    if (args.length > 5) {
+      evaluator.setDepletion(StochasticDepletion.parse(args[5], seed));
+    }
+
+    long start = System.nanoTime();
+    SurvivalEvaluator.Result result = evaluator.evaluate(lives, workers, seed);
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    System.out.printf(Locale.ROOT, "%d lives in %.2fs (%.0f lives/s) on %d workers%n",
+        result.getLives(), seconds, result.getLives() / seconds, workers);
+    System.out.println("Survival: " + result.getSurvivalTimes().summary(1.0, "s"));
+    System.out.printf(Locale.ROOT, "Still alive after %d ticks: %d (%.2f%%)%n", maxTicks,
+        result.getCensoredCount(), 100.0 * result.getCensoredCount() / result.getLives());
+  }
+}
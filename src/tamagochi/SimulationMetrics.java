@@ -0,0 +1,388 @@
+package tamagochi;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Runtime metrics of a simulation, published as an MXBean under
+ * {@code tamagochi:type=SimulationMetrics}.
+ *
+ * <p>The metrics listen to pets through {@link PetModelListener} and count with striped
+ * {@link LongAdder}s, so recording is a handful of uncontended increments per action
+ * or mood transition. Population aggregates (living pets per mood, dead pets, the
+ * health sum and a histogram of each level over living pets) are maintained on
+ * transitions only, never by scanning the population: a snapshot only touches the
+ * counters of values that changed, such as a level moving to another bucket of
+ * {@value #HISTOGRAM_WIDTH}. As the adders spread concurrent updates over per-core
+ * cells and merge them on read, any aggregate is read in O(cores), whatever the
+ * population size. Tick durations come from the scheduler's lock-free
+ * {@link LatencyHistogram}. Rates are folded into moving averages once per tick on the
+ * simulation thread, and percentiles are only computed when a JMX client reads them.
+ */
+public class SimulationMetrics implements PetModelListener, SimulationMetricsMXBean {
+  private static final PetActions[] ACTIONS = PetActions.values();
+  private static final Mood[] MOODS = Mood.values();
+  private static final PetSnapshot.Level[] LEVELS = PetSnapshot.Level.values();
+  private static final double RATE_WINDOW_SECONDS = 60;
+  static final int HISTOGRAM_WIDTH = 10;
+  // Buckets of 10 levels, the last one holding 90 to 100
+  private static final int HISTOGRAM_BUCKETS = 100 / HISTOGRAM_WIDTH;
+
+  private final SimulationScheduler scheduler;
+  private final LongAdder[] actionCounts;
+  private final LongAdder[] livePets;
+  private final LongAdder deadPets;
+  private final LongAdder healthSum;
+  private final LongAdder[][] levelHistograms;
+  private final LongAdder rejectedGameOver;
+  private final LongAdder rejectedNoBehavior;
+  private final LongAdder gameOvers;
+  private final LatencyHistogram survivalTimes;
+
+  // Moving averages, updated on the simulation thread
+  private final long[] lastActionCounts;
+  private long lastGameOvers;
+  private long lastSampleNanos;
+  private volatile double[] actionRates;
+  private volatile double gameOverRate;
+
+  /**
+   * Constructs new metrics for the simulation run by the given scheduler. Pets are
+   * observed once attached with {@link #watch(PetPopulation)} or {@link #watch(PetModel)}.
+   *
+   * @param scheduler The scheduler ticking the simulation.
+   */
+  public SimulationMetrics(SimulationScheduler scheduler) {
+    this.scheduler = scheduler;
+    this.actionCounts = new LongAdder[ACTIONS.length];
+    for (int i = 0; i < ACTIONS.length; i++) {
+      actionCounts[i] = new LongAdder();
+    }
+    // The last counter holds the living pets without a mood
+    this.livePets = new LongAdder[MOODS.length + 1];
+    for (int i = 0; i < livePets.length; i++) {
+      livePets[i] = new LongAdder();
+    }
+    this.deadPets = new LongAdder();
+    this.healthSum = new LongAdder();
+    this.levelHistograms = new LongAdder[LEVELS.length][HISTOGRAM_BUCKETS];
+    for (LongAdder[] histogram : levelHistograms) {
+      for (int b = 0; b < HISTOGRAM_BUCKETS; b++) {
+        histogram[b] = new LongAdder();
+      }
+    }
+    this.rejectedGameOver = new LongAdder();
+    this.rejectedNoBehavior = new LongAdder();
+    this.gameOvers = new LongAdder();
+    this.survivalTimes = new LatencyHistogram();
+    this.lastActionCounts = new long[ACTIONS.length];
+    this.lastSampleNanos = System.nanoTime();
+    this.actionRates = new double[ACTIONS.length];
+    scheduler.addTickListener(this::sample);
+  }
+
+  /**
+   * Observes all present and future pets of a population. Should be called before
+   * the simulation starts, so that no mood transition is missed.
+   *
+   * @param population The population to observe.
+   */
+  public void watch(PetPopulation population) {
+    population.addListenerAndAnnounce(this);
+  }
+
+  /**
+   * Observes a single pet, which must not have a listener yet.
+   *
+   * @param model The pet to observe.
+   * @throws IllegalStateException if the pet already has a listener.
+   */
+  public void watch(PetModel model) {
+    if (model.getListener() != null) {
+      throw new IllegalStateException("The pet already has a listener");
+    }
+    model.setListener(this);
+    onStateChanged(null, model.getSnapshot());
+  }
+
+  /**
+   * Registers these metrics with the platform MBean server.
+   *
+   * @param name A name distinguishing this simulation from others in the same JVM.
+   * @return The name the metrics were registered under.
+   * @throws IllegalStateException if registration fails, e.g. because the name is taken.
+   */
+  public ObjectName register(String name) {
+    try {
+      ObjectName objectName = new ObjectName("tamagochi:type=SimulationMetrics,name="
+          + ObjectName.quote(name));
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+      return objectName;
+    } catch (JMException e) {
+      throw new IllegalStateException("Cannot register simulation metrics: " + e, e);
+    }
+  }
+
+  /**
+   * Tracks the population aggregates, game overs and survival times.
+   *
+   * @param previous The snapshot before the mutation, or {@code null} for a new pet.
+   * @param current  The snapshot after the mutation.
+   */
+  @Override
+  public void onStateChanged(PetSnapshot previous, PetSnapshot current) {
+    if (current == null) {
+      return;
+    }
+    boolean wasLive = previous != null && !previous.isGameOver();
+    boolean live = !current.isGameOver();
+    boolean moodChanged = previous == null || previous.getMood() != current.getMood();
+    if (wasLive && (!live || moodChanged)) {
+      livePets[moodIndex(previous.getMood())].decrement();
+    }
+    if (live && (!wasLive || moodChanged)) {
+      livePets[moodIndex(current.getMood())].increment();
+    }
+    if (wasLive && live) {
+      int health = current.getHealthLevel() - previous.getHealthLevel();
+      if (health != 0) {
+        healthSum.add(health);
+      }
+      for (PetSnapshot.Level level : LEVELS) {
+        int from = histogramBucketOf(level.of(previous));
+        int to = histogramBucketOf(level.of(current));
+        if (from != to) {
+          levelHistograms[level.ordinal()][from].decrement();
+          levelHistograms[level.ordinal()][to].increment();
+        }
+      }
+    } else {
+      if (wasLive) {
+        count(previous, -1);
+      }
+      if (live) {
+        count(current, 1);
+      }
+    }
+    if (wasLive && !live) {
+      gameOvers.increment();
+      survivalTimes.record(current.getSurvivalTime());
+    }
+    boolean wasDead = previous != null && previous.isGameOver();
+    if (wasDead != current.isGameOver()) {
+      deadPets.add(wasDead ? -1 : 1);
+    }
+  }
+
+  /**
+   * Adds or removes the health and levels of a living pet.
+   */
+  private void count(PetSnapshot state, int sign) {
+    healthSum.add(sign * state.getHealthLevel());
+    for (PetSnapshot.Level level : LEVELS) {
+      levelHistograms[level.ordinal()][histogramBucketOf(level.of(state))].add(sign);
+    }
+  }
+
+  private static int moodIndex(Mood mood) {
+    return mood == null ? MOODS.length : mood.ordinal();
+  }
+
+  private static int histogramBucketOf(int level) {
+    return Math.min(level / HISTOGRAM_WIDTH, HISTOGRAM_BUCKETS - 1);
+  }
+
+  /**
+   * Counts a performed action.
+   *
+   * @param petId  The id of the pet.
+   * @param action The action performed.
+   */
+  @Override
+  public void onActionPerformed(int petId, PetActions action) {
+    actionCounts[action.ordinal()].increment();
+  }
+
+  /**
+   * Counts a rejected action.
+   *
+   * @param petId    The id of the pet.
+   * @param action   The action rejected.
+   * @param gameOver Whether the game was over.
+   */
+  @Override
+  public void onActionRejected(int petId, PetActions action, boolean gameOver) {
+    (gameOver ? rejectedGameOver : rejectedNoBehavior).increment();
+  }
+
+  /**
+   * Folds the counts since the previous sample into the moving averages.
+   * Runs on the simulation thread after every tick, at most once per second.
+   */
+  private void sample() {
+    long now = System.nanoTime();
+    double seconds = (now - lastSampleNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+    if (seconds < 1) {
+      return;
+    }
+    double alpha = 1 - Math.exp(-seconds / RATE_WINDOW_SECONDS);
+    double[] rates = actionRates.clone();
+    for (int i = 0; i < ACTIONS.length; i++) {
+      long count = actionCounts[i].sum();
+      rates[i] += alpha * ((count - lastActionCounts[i]) / seconds - rates[i]);
+      lastActionCounts[i] = count;
+    }
+    actionRates = rates;
+    long deaths = gameOvers.sum();
+    gameOverRate += alpha * ((deaths - lastGameOvers) * 60 / seconds - gameOverRate);
+    lastGameOvers = deaths;
+    lastSampleNanos = now;
+  }
+
+  @Override
+  public long getTickCount() {
+    return scheduler.getTickCount();
+  }
+
+  @Override
+  public long getSkippedTicks() {
+    return scheduler.getSkippedTicks();
+  }
+
+  @Override
+  public long getFailureCount() {
+    return scheduler.getFailureCount();
+  }
+
+  @Override
+  public double getTickLatencyP50Micros() {
+    return scheduler.getTickLatency().getValueAtPercentile(50) / 1000.0;
+  }
+
+  @Override
+  public double getTickLatencyP99Micros() {
+    return scheduler.getTickLatency().getValueAtPercentile(99) / 1000.0;
+  }
+
+  @Override
+  public double getTickLatencyP999Micros() {
+    return scheduler.getTickLatency().getValueAtPercentile(99.9) / 1000.0;
+  }
+
+  @Override
+  public double getTickLatencyMaxMicros() {
+    return scheduler.getTickLatency().getMax() / 1000.0;
+  }
+
+  @Override
+  public Map<String, Double> getActionsPerSecond() {
+    double[] rates = actionRates;
+    Map<String, Double> result = new LinkedHashMap<>();
+    for (PetActions action : ACTIONS) {
+      result.put(action.name(), rates[action.ordinal()]);
+    }
+    return result;
+  }
+
+  @Override
+  public Map<String, Long> getActionCounts() {
+    Map<String, Long> result = new LinkedHashMap<>();
+    for (PetActions action : ACTIONS) {
+      result.put(action.name(), actionCounts[action.ordinal()].sum());
+    }
+    return result;
+  }
+
+  @Override
+  public long getRejectedGameOverCount() {
+    return rejectedGameOver.sum();
+  }
+
+  @Override
+  public long getRejectedNoBehaviorCount() {
+    return rejectedNoBehavior.sum();
+  }
+
+  @Override
+  public Map<String, Long> getLivePetsByMood() {
+    Map<String, Long> result = new LinkedHashMap<>();
+    for (Mood mood : MOODS) {
+      result.put(mood.name(), livePets[mood.ordinal()].sum());
+    }
+    return result;
+  }
+
+  @Override
+  public long getLivePetCount() {
+    long count = 0;
+    for (LongAdder pets : livePets) {
+      count += pets.sum();
+    }
+    return count;
+  }
+
+  @Override
+  public long getDeadPetCount() {
+    return deadPets.sum();
+  }
+
+  @Override
+  public double getAverageHealth() {
+    long live = getLivePetCount();
+    return live == 0 ? 0 : (double) healthSum.sum() / live;
+  }
+
+  @Override
+  public Map<String, long[]> getLevelHistograms() {
+    Map<String, long[]> result = new LinkedHashMap<>();
+    for (PetSnapshot.Level level : LEVELS) {
+      long[] counts = new long[HISTOGRAM_BUCKETS];
+      for (int b = 0; b < HISTOGRAM_BUCKETS; b++) {
+        counts[b] = levelHistograms[level.ordinal()][b].sum();
+      }
+      result.put(level.name(), counts);
+    }
+    return result;
+  }
+
+  @Override
+  public long getGameOverCount() {
+    return gameOvers.sum();
+  }
+
+  @Override
+  public double getGameOversPerMinute() {
+    return gameOverRate;
+  }
+
+  @Override
+  public long getSurvivalTimeP50Seconds() {
+    return survivalTimes.getValueAtPercentile(50);
+  }
+
+  @Override
+  public long getSurvivalTimeP90Seconds() {
+    return survivalTimes.getValueAtPercentile(90);
+  }
+
+  @Override
+  public long getSurvivalTimeP99Seconds() {
+    return survivalTimes.getValueAtPercentile(99);
+  }
+
+  @Override
+  public long getSurvivalTimeMaxSeconds() {
+    return survivalTimes.getMax();
+  }
+
+  @Override
+  public void resetHistograms() {
+    scheduler.getTickLatency().reset();
+    survivalTimes.reset();
+  }
+}
@@ -0,0 +1,171 @@
+package tamagochi;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link SimulationMetrics}, exposed over JMX.
+ * Rates are exponentially weighted moving averages over about one minute.
+ */
+public interface SimulationMetricsMXBean {
+
+  /**
+   * Retrieves the number of ticks run so far.
+   *
+   * @return The tick count.
+   */
+  long getTickCount();
+
+  /**
+   * Retrieves the number of ticks skipped because the simulation fell too far behind.
+   *
+   * @return The skipped tick count.
+   */
+  long getSkippedTicks();
+
+  /**
+   * Retrieves the number of ticks, tick listeners and action batches that failed with
+   * an exception.
+   *
+   * @return The failure count.
+   */
+  long getFailureCount();
+
+  /**
+   * Retrieves the median tick duration.
+   *
+   * @return The 50th percentile in microseconds.
+   */
+  double getTickLatencyP50Micros();
+
+  /**
+   * Retrieves the 99th percentile tick duration.
+   *
+   * @return The 99th percentile in microseconds.
+   */
+  double getTickLatencyP99Micros();
+
+  /**
+   * Retrieves the 99.9th percentile tick duration.
+   *
+   * @return The 99.9th percentile in microseconds.
+   */
+  double getTickLatencyP999Micros();
+
+  /**
+   * Retrieves the longest tick duration.
+   *
+   * @return The maximum in microseconds.
+   */
+  double getTickLatencyMaxMicros();
+
+  /**
+   * Retrieves the rate of performed actions, per {@link PetActions} value.
+   *
+   * @return The actions per second, keyed by action name.
+   */
+  Map<String, Double> getActionsPerSecond();
+
+  /**
+   * Retrieves the number of performed actions, per {@link PetActions} value.
+   *
+   * @return The action counts, keyed by action name.
+   */
+  Map<String, Long> getActionCounts();
+
+  /**
+   * Retrieves the number of actions rejected because the game was over.
+   *
+   * @return The rejected action count.
+   */
+  long getRejectedGameOverCount();
+
+  /**
+   * Retrieves the number of actions rejected because the pet had no behavior.
+   *
+   * @return The rejected action count.
+   */
+  long getRejectedNoBehaviorCount();
+
+  /**
+   * Retrieves the number of living pets in each mood.
+   *
+   * @return The pet counts, keyed by mood name.
+   */
+  Map<String, Long> getLivePetsByMood();
+
+  /**
+   * Retrieves the number of living pets.
+   *
+   * @return The pet count.
+   */
+  long getLivePetCount();
+
+  /**
+   * Retrieves the number of pets whose game is currently over.
+   *
+   * @return The pet count.
+   */
+  long getDeadPetCount();
+
+  /**
+   * Retrieves the average health of the living pets.
+   *
+   * @return The average health level, or 0 if no pet is alive.
+   */
+  double getAverageHealth();
+
+  /**
+   * Retrieves the distribution of each level over the living pets, in buckets of 10
+   * levels, the last one holding levels 90 to 100.
+   *
+   * @return The pet count per bucket, keyed by level name.
+   */
+  Map<String, long[]> getLevelHistograms();
+
+  /**
+   * Retrieves the number of games that ended.
+   *
+   * @return The game-over count.
+   */
+  long getGameOverCount();
+
+  /**
+   * Retrieves the rate at which games end.
+   *
+   * @return The game overs per minute.
+   */
+  double getGameOversPerMinute();
+
+  /**
+   * Retrieves the median survival time of ended games.
+   *
+   * @return The 50th percentile in seconds.
+   */
+  long getSurvivalTimeP50Seconds();
+
+  /**
+   * Retrieves the 90th percentile survival time of ended games.
+   *
+   * @return The 90th percentile in seconds.
+   */
+  long getSurvivalTimeP90Seconds();
+
+  /**
+   * Retrieves the 99th percentile survival time of ended games.
+   *
+   * @return The 99th percentile in seconds.
+   */
+  long getSurvivalTimeP99Seconds();
+
+  /**
+   * Retrieves the longest survival time of ended games.
+   *
+   * @return The maximum in seconds.
+   */
+  long getSurvivalTimeMaxSeconds();
+
+  /**
+   * Clears the tick latency and survival time histograms.
+   */
+  void resetHistograms();
+}
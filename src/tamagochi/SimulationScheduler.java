@@ -0,0 +1,334 @@
+package tamagochi;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Runs the simulation on its own thread, independently of the Swing EDT.
+ * Ticks are scheduled against absolute deadlines ({@code start + n * period}) so
+ * that the rate does not drift when a tick runs long; missed deadlines are caught
+ * up back-to-back, up to {@link #MAX_CATCH_UP} ticks, after which the schedule is
+ * rebased on the current time. Deadlines are measured on a {@link Clock}, so the
+ * simulation can run faster than real time.
+ *
+ * <p>Work that mutates the simulated state should run on the simulation thread
+ * between ticks. User actions go through an attached {@link ActionQueue}, which is
+ * drained in batches before every tick and whenever producers signal new actions;
+ * other work can be handed to {@link #execute(Runnable)}. A drain applies at most
+ * {@link #MAX_DRAIN_BATCH} actions before yielding the thread, so a flood of actions
+ * delays a due tick by at most one batch.
+ *
+ * <p>A tick, tick listener or action failing with a {@link RuntimeException} does not
+ * stop the simulation: the failure is counted and passed to the error handler, if any.
+ */
+public class SimulationScheduler {
+  /**
+   * Maximum number of overdue ticks run back-to-back before the schedule is rebased.
+   */
+  static final int MAX_CATCH_UP = 5;
+
+  /**
+   * Maximum number of queued actions applied in one go on the simulation thread.
+   */
+  static final int MAX_DRAIN_BATCH = 4096;
+
+  private static final long MANUAL_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final ScheduledExecutorService executor;
+  private final long periodNanos;
+  private final Clock clock;
+  private final Runnable tick;
+  private final List<Runnable> tickListeners;
+  private final AtomicBoolean drainScheduled;
+  private final LatencyHistogram tickLatency;
+  private ActionQueue actionQueue;
+  private ActionQueue.ActionHandler actionHandler;
+
+  private ScheduledFuture<?> pending;
+  private long baseNanos;
+  private long scheduledTicks;
+  private volatile long tickCount;
+  private volatile long skippedTicks;
+  private volatile long failureCount;
+  private volatile Consumer<RuntimeException> errorHandler;
+  private volatile boolean running;
+
+  /**
+   * Constructs a new scheduler running the given tick at a fixed rate in real time.
+   *
+   * @param periodMillis The tick period in milliseconds.
+   * @param tick         The work performed on every tick.
+   * @throws IllegalArgumentException if the period is not positive.
+   */
+  public SimulationScheduler(long periodMillis, Runnable tick) {
+    this(periodMillis, tick, Clock.system());
+  }
+
+  /**
+   * Constructs a new scheduler running the given tick at a fixed rate of simulated
+   * time. With a {@linkplain Clock#scaled(double) scaled} clock, ticks run
+   * correspondingly more often in real time.
+   *
+   * @param periodMillis The tick period in simulated milliseconds.
+   * @param tick         The work performed on every tick.
+   * @param clock        The clock defining simulated time.
+   * @throws IllegalArgumentException if the period is not positive.
+   */
+  public SimulationScheduler(long periodMillis, Runnable tick, Clock clock) {
+    if (periodMillis <= 0) {
+      throw new IllegalArgumentException("Period must be positive: " + periodMillis);
+    }
+    this.periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMillis);
+    this.tick = tick;
+    this.clock = clock;
+    this.tickListeners = new CopyOnWriteArrayList<>();
+    this.drainScheduled = new AtomicBoolean();
+    this.tickLatency = new LatencyHistogram();
+    this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "pet-simulation");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Adds a listener invoked on the simulation thread after every tick.
+   *
+   * @param listener The listener to add.
+   */
+  public void addTickListener(Runnable listener) {
+    tickListeners.add(listener);
+  }
+
+  /**
+   * Attaches the queue of user actions consumed by this scheduler's thread.
+   * Must be called before {@link #start()}.
+   *
+   * @param queue   The queue to drain.
+   * @param handler Applies each drained action to the simulated state.
+   */
+  public void attachActionQueue(ActionQueue queue, ActionQueue.ActionHandler handler) {
+    this.actionQueue = queue;
+    this.actionHandler = handler;
+  }
+
+  /**
+   * Tells the simulation thread that new actions were queued, so they are applied
+   * without waiting for the next tick. Signals are coalesced: at most one drain is
+   * pending at any time, and it drains everything queued by then.
+   */
+  public void signalActions() {
+    if (drainScheduled.compareAndSet(false, true)) {
+      executor.execute(this::drainActions);
+    }
+  }
+
+  /**
+   * Applies one batch of queued actions. Runs on the simulation thread; if more actions
+   * remain, another drain is queued behind any tick that is already due.
+   */
+  private void drainActions() {
+    drainScheduled.set(false);
+    if (actionQueue != null) {
+      int drained = 0;
+      try {
+        drained = actionQueue.drain(actionHandler, MAX_DRAIN_BATCH);
+      } catch (RuntimeException e) {
+        failed(e);
+      }
+      if (drained == MAX_DRAIN_BATCH && !executor.isShutdown()) {
+        signalActions();
+      }
+    }
+  }
+
+  /**
+   * Starts ticking, with the first tick one period from now.
+   * Has no effect if the scheduler is already running.
+   */
+  public void start() {
+    executor.execute(() -> {
+      if (!running) {
+        running = true;
+        baseNanos = clock.nanoTime();
+        scheduledTicks = 0;
+        scheduleNext();
+      }
+    });
+  }
+
+  /**
+   * Stops ticking. Pending work submitted through {@link #execute(Runnable)} still runs.
+   */
+  public void stop() {
+    executor.execute(() -> {
+      running = false;
+      if (pending != null) {
+        pending.cancel(false);
+        pending = null;
+      }
+    });
+  }
+
+  /**
+   * Stops ticking and terminates the simulation thread.
+   */
+  public void shutdown() {
+    stop();
+    executor.shutdown();
+  }
+
+  /**
+   * Runs the given task on the simulation thread, between ticks.
+   *
+   * @param task The task to run.
+   */
+  public void execute(Runnable task) {
+    executor.execute(task);
+  }
+
+  /**
+   * Retrieves the number of ticks run since construction.
+   *
+   * @return The tick count.
+   */
+  public long getTickCount() {
+    return tickCount;
+  }
+
+  /**
+   * Retrieves the number of ticks dropped because the simulation fell too far behind.
+   *
+   * @return The skipped tick count.
+   */
+  public long getSkippedTicks() {
+    return skippedTicks;
+  }
+
+  /**
+   * Retrieves the number of ticks, tick listeners and action batches that failed with
+   * an exception.
+   *
+   * @return The failure count.
+   */
+  public long getFailureCount() {
+    return failureCount;
+  }
+
+  /**
+   * Sets the handler receiving the exceptions of failed ticks, tick listeners and
+   * actions on the simulation thread.
+   *
+   * @param handler The handler, which must not throw, or {@code null} to only count
+   *                failures.
+   */
+  public void setErrorHandler(Consumer<RuntimeException> handler) {
+    this.errorHandler = handler;
+  }
+
+  /**
+   * Counts a failure and reports it to the error handler. Runs on the simulation thread.
+   */
+  private void failed(RuntimeException e) {
+    failureCount++;
+    Consumer<RuntimeException> handler = errorHandler;
+    if (handler != null) {
+      handler.accept(e);
+    }
+  }
+
+  /**
+   * Checks whether the scheduler is currently ticking.
+   *
+   * @return {@code true} if running, {@code false} otherwise.
+   */
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * Retrieves the histogram of tick durations, excluding actions and tick listeners.
+   *
+   * @return The tick latency histogram, in nanoseconds.
+   */
+  public LatencyHistogram getTickLatency() {
+    return tickLatency;
+  }
+
+  /**
+   * Schedules the next tick against its absolute deadline.
+   */
+  private void scheduleNext() {
+    long deadline = baseNanos + (scheduledTicks + 1) * periodNanos;
+    pending = executor.schedule(this::runTick, realDelay(deadline - clock.nanoTime()),
+        TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Runs one tick (and any overdue ones), then schedules the next.
+   */
+  private void runTick() {
+    if (!running) {
+      return;
+    }
+    if (!overdue()) {
+      scheduleNext(); // Woke before the deadline, e.g. polling a manual clock
+      return;
+    }
+    int caughtUp = 0;
+    do {
+      scheduledTicks++;
+      drainActions();
+      try {
+        long start = System.nanoTime();
+        tick.run();
+        tickLatency.record(System.nanoTime() - start);
+        tickCount++;
+        for (Runnable listener : tickListeners) {
+          listener.run();
+        }
+      } catch (RuntimeException e) {
+        // Keep the simulation alive; a failing tick must not cancel the schedule
+        failed(e);
+      }
+      caughtUp++;
+    } while (running && overdue() && caughtUp < MAX_CATCH_UP);
+
+    if (overdue()) {
+      // Too far behind: drop the backlog instead of spinning to catch up
+      long now = clock.nanoTime();
+      long behind = (now - baseNanos) / periodNanos - scheduledTicks;
+      skippedTicks += behind;
+      baseNanos = now;
+      scheduledTicks = 0;
+    }
+    if (running) {
+      scheduleNext();
+    }
+  }
+
+  /**
+   * Converts a delay in simulated time into the real time to wait for it. A clock that
+   * does not advance by itself is polled every millisecond.
+   */
+  private long realDelay(long simulatedNanos) {
+    double rate = clock.rate();
+    if (rate <= 0) {
+      return Math.min(simulatedNanos, MANUAL_POLL_NANOS);
+    }
+    return (long) (simulatedNanos / rate);
+  }
+
+  /**
+   * Checks whether the deadline of the next tick has already passed.
+   */
+  private boolean overdue() {
+    return clock.nanoTime() - (baseNanos + (scheduledTicks + 1) * periodNanos) >= 0;
+  }
+}
@@ -0,0 +1,278 @@
+package tamagochi;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * Friendships between the pets of a {@link PetPopulation}, through which socializing
+ * spreads: after each tick, every pet gains {@code boost} social points per friend that
+ * performed {@link PetActions#SOCIALIZE} since the previous tick. With mood contagion,
+ * every {@code contagionPeriod} ticks a pet also gains a point per happy friend and
+ * loses one per depressive friend. The total change per pet and tick is bounded by
+ * {@code maxBoost} either way.
+ *
+ * <p>Contagion applies the friends' current moods, not their changes, so it is felt by
+ * nearly every pet with friends each time it applies. Applied on every tick, a single
+ * happy friend would cancel the social depletion of 1 per tick; with a period above
+ * {@code maxBoost}, contagion only slows or speeds up depletion.
+ *
+ * <p>The graph is undirected and stored in compressed sparse row form: the friends of
+ * pet {@code p} are {@code neighbours[offsets[p]] .. neighbours[offsets[p + 1] - 1]}.
+ * Socializing pets are collected in a bit set by the population listener.
+ *
+ * <p>A pass touches edges only where something happened: the boosts of the few pets
+ * that socialized are pushed to their friends' counters, and each friend's mood
+ * balance (happy minus depressive friends) is adjusted only when a pet's mood changed
+ * since the previous pass, so a 10-million-edge graph is only traversed in full on the
+ * first pass. The new levels are then computed double-buffered: the social levels and
+ * moods are frozen into front arrays from the population's state table, and ranges
+ * of pets are processed in parallel, each pet writing only its own entry of the back
+ * buffer, without locks or races. Only pets whose level changed are written back to
+ * their models, on the calling thread.
+ */
+public class SocialGraph implements PetModelListener {
+  private static final int CHUNK_PETS = 1 << 14;
+  private static final byte DEAD = 0;
+  private static final byte HAPPY = 1;
+  private static final byte DEPRESSIVE = 2;
+  private static final byte OTHER = 3;
+
+  private final int pets;
+  private final int[] offsets;
+  private final int[] neighbours;
+  private final int boost;
+  private final int maxBoost;
+  private final int contagionPeriod;
+  private final AtomicLongArray socializing;
+
+  // Pass state, owned by the propagating thread
+  private final byte[] moods;
+  private final byte[] previousMoods;
+  private final int[] moodBalance;
+  private final int[] friendsSocializing;
+  private final byte[] front;
+  private final byte[] back;
+  private long passes;
+  private long lastPassNanos;
+
+  /**
+   * Builds a graph from a list of friendships.
+   *
+   * @param pets            The number of pets covered, with ids from 0.
+   * @param from            One end of each friendship.
+   * @param to              The other end of each friendship.
+   * @param boost           The social points gained per socializing friend.
+   * @param maxBoost        The largest change of a pet's social level per tick.
+   * @param contagionPeriod The number of ticks between two applications of friends'
+   *                        moods to social levels, or 0 for no mood contagion.
+   * @throws IllegalArgumentException if the edge arrays differ in length, an id is out
+   *                                  of range or a bound or the period is negative.
+   */
+  public SocialGraph(int pets, int[] from, int[] to, int boost, int maxBoost,
+                     int contagionPeriod) {
+    if (from.length != to.length || pets < 0 || boost < 0 || maxBoost < 0
+        || contagionPeriod < 0) {
+      throw new IllegalArgumentException("Invalid social graph parameters");
+    }
+    this.pets = pets;
+    this.boost = boost;
+    this.maxBoost = maxBoost;
+    this.contagionPeriod = contagionPeriod;
+
+    // Counting sort of both directions of every edge into rows
+    this.offsets = new int[pets + 1];
+    for (int i = 0; i < from.length; i++) {
+      if (from[i] < 0 || from[i] >= pets || to[i] < 0 || to[i] >= pets) {
+        throw new IllegalArgumentException("Unknown pet in edge " + from[i] + "-" + to[i]);
+      }
+      offsets[from[i] + 1]++;
+      offsets[to[i] + 1]++;
+    }
+    for (int p = 0; p < pets; p++) {
+      offsets[p + 1] += offsets[p];
+    }
+    this.neighbours = new int[offsets[pets]];
+    int[] fill = Arrays.copyOf(offsets, pets);
+    for (int i = 0; i < from.length; i++) {
+      neighbours[fill[from[i]]++] = to[i];
+      neighbours[fill[to[i]]++] = from[i];
+    }
+
+    this.socializing = new AtomicLongArray((pets + 63) >>> 6);
+    this.moods = new byte[pets];
+    this.previousMoods = new byte[pets];
+    this.moodBalance = new int[pets];
+    this.friendsSocializing = new int[pets];
+    this.front = new byte[pets];
+    this.back = new byte[pets];
+  }
+
+  /**
+   * Starts collecting the socializing pets of a population.
+   *
+   * @param population The population whose pets the graph connects.
+   */
+  public void attach(PetPopulation population) {
+    population.addListener(this);
+  }
+
+  /**
+   * Stops collecting the socializing pets of a population.
+   *
+   * @param population The population passed to {@link #attach(PetPopulation)}.
+   */
+  public void detach(PetPopulation population) {
+    population.removeListener(this);
+  }
+
+  /**
+   * Marks a pet that socialized, to spread its boost on the next pass.
+   *
+   * @param petId  The id of the pet.
+   * @param action The action performed.
+   */
+  @Override
+  public void onActionPerformed(int petId, PetActions action) {
+    if (action == PetActions.SOCIALIZE && petId < pets) {
+      long bit = 1L << petId;
+      int word = petId >>> 6;
+      if ((socializing.get(word) & bit) == 0) {
+        socializing.getAndAccumulate(word, bit, (current, mask) -> current | mask);
+      }
+    }
+  }
+
+  /**
+   * Spreads the socializing since the previous pass to friends. Meant to run on the
+   * simulation thread right after a tick, as it reads the population's latest state
+   * table; the computation itself runs on the common fork-join pool.
+   *
+   * @param population The population, as passed to {@link #attach(PetPopulation)}.
+   * @return The number of pets whose social level changed.
+   */
+  public int propagate(PetPopulation population) {
+    long start = System.nanoTime();
+    long[] states = population.states();
+    int count = Math.min(pets, Math.min(population.size(), states.length));
+    int chunks = (count + CHUNK_PETS - 1) / CHUNK_PETS;
+    IntStream.range(0, chunks).parallel()
+        .forEach(c -> freeze(states, c * CHUNK_PETS, Math.min(count, (c + 1) * CHUNK_PETS)));
+
+    // Mood balances are kept up to date on every pass, but only applied periodically
+    boolean contagious = contagionPeriod > 0 && ++passes % contagionPeriod == 0;
+    if (contagionPeriod > 0) {
+      for (int p = 0; p < count; p++) {
+        int change = weightOf(moods[p]) - weightOf(previousMoods[p]);
+        previousMoods[p] = moods[p];
+        if (change != 0) {
+          for (int e = offsets[p], end = offsets[p + 1]; e < end; e++) {
+            moodBalance[neighbours[e]] += change;
+          }
+        }
+      }
+    }
+
+    boolean any = false;
+    for (int word = 0; word < socializing.length(); word++) {
+      long bits = socializing.get(word) == 0 ? 0 : socializing.getAndSet(word, 0);
+      for (; bits != 0; bits &= bits - 1) {
+        int p = word << 6 | Long.numberOfTrailingZeros(bits);
+        if (p < count && moods[p] != DEAD) {
+          any = true;
+          for (int e = offsets[p], end = offsets[p + 1]; e < end; e++) {
+            friendsSocializing[neighbours[e]]++;
+          }
+        }
+      }
+    }
+    if (!any && !contagious) {
+      lastPassNanos = System.nanoTime() - start;
+      return 0;
+    }
+
+    IntStream.range(0, chunks).parallel().forEach(c ->
+        update(c * CHUNK_PETS, Math.min(count, (c + 1) * CHUNK_PETS), contagious));
+
+    int changed = 0;
+    for (int p = 0; p < count; p++) {
+      int delta = back[p] - front[p];
+      if (delta != 0 && population.get(p).adjustSocialLevel(delta)) {
+        changed++;
+      }
+    }
+    lastPassNanos = System.nanoTime() - start;
+    return changed;
+  }
+
+  /**
+   * Copies the social levels and moods of a range of pets into the front arrays.
+   */
+  private void freeze(long[] states, int fromPet, int toPet) {
+    for (int p = fromPet; p < toPet; p++) {
+      long state = states[p];
+      front[p] = (byte) PackedPetState.social(state);
+      moods[p] = PackedPetState.isGameOver(state) ? DEAD
+          : moodCode(PackedPetState.mood(state));
+    }
+  }
+
+  /**
+   * Computes the new social levels of a range of pets into the back buffer, and clears
+   * their socializing counters for the next pass.
+   */
+  private void update(int fromPet, int toPet, boolean contagious) {
+    for (int p = fromPet; p < toPet; p++) {
+      int level = front[p];
+      int socialized = friendsSocializing[p];
+      friendsSocializing[p] = 0;
+      if (moods[p] == DEAD) {
+        back[p] = (byte) level;
+        continue;
+      }
+      int delta = (int) Math.min(maxBoost, (long) boost * socialized)
+          + (contagious ? moodBalance[p] : 0);
+      delta = Math.max(-maxBoost, Math.min(maxBoost, delta));
+      back[p] = (byte) Math.max(0, Math.min(100, level + delta));
+    }
+  }
+
+  /**
+   * Computes how much a friend in the given mood adds to a pet's mood balance.
+   */
+  private static int weightOf(byte moodCode) {
+    return moodCode == HAPPY ? 1 : moodCode == DEPRESSIVE ? -1 : 0;
+  }
+
+  private static byte moodCode(Mood mood) {
+    return mood == Mood.HAPPY ? HAPPY : mood == Mood.DEPRESSIVE ? DEPRESSIVE : OTHER;
+  }
+
+  /**
+   * Retrieves the number of friends of a pet.
+   *
+   * @param petId The id of the pet.
+   * @return The number of friends.
+   */
+  public int degreeOf(int petId) {
+    return offsets[petId + 1] - offsets[petId];
+  }
+
+  /**
+   * Retrieves the number of friendships, counting each once.
+   *
+   * @return The edge count.
+   */
+  public int getEdgeCount() {
+    return neighbours.length / 2;
+  }
+
+  /**
+   * Retrieves the duration of the latest {@link #propagate(PetPopulation)} pass.
+   *
+   * @return The duration in nanoseconds.
+   */
+  public long getLastPassNanos() {
+    return lastPassNanos;
+  }
+}
@@ -0,0 +1,67 @@
+package tamagochi;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.imageio.ImageIO;
+
+/**
+ * Shared cache of decoded and scaled sprite frames.
+ * Animated sprites are reduced to their first frame, which is what off-screen and
+ * per-cell renderers draw; each (path, size) triple is decoded and scaled once.
+ * Sprites that cannot be read are cached as missing too, and drawn by nobody.
+ */
+final class SpriteCache {
+  private static final Map<String, BufferedImage> FRAMES = new ConcurrentHashMap<>();
+  private static final BufferedImage MISSING =
+      new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+
+  private SpriteCache() {
+  }
+
+  /**
+   * Returns the first frame of the sprite at the given resource path, scaled to the
+   * largest size fitting the given box while keeping its aspect ratio.
+   *
+   * @param imagePath The resource path of the sprite, e.g. {@code /img/happy.gif}.
+   * @param maxWidth  The width of the box in pixels.
+   * @param maxHeight The height of the box in pixels.
+   * @return The scaled frame, or {@code null} if the resource could not be read.
+   */
+  static BufferedImage firstFrame(String imagePath, int maxWidth, int maxHeight) {
+    BufferedImage frame = FRAMES.computeIfAbsent(imagePath + "@" + maxWidth + "x" + maxHeight,
+        key -> load(imagePath, maxWidth, maxHeight));
+    return frame == MISSING ? null : frame;
+  }
+
+  /**
+   * Decodes and scales a sprite, returning {@link #MISSING} on failure so the
+   * failure is cached as well.
+   */
+  private static BufferedImage load(String imagePath, int maxWidth, int maxHeight) {
+    try (InputStream in = SpriteCache.class.getResourceAsStream(imagePath)) {
+      if (in == null) {
+        return MISSING;
+      }
+      BufferedImage frame = ImageIO.read(in);
+      if (frame == null) {
+        return MISSING;
+      }
+      double scale = Math.min((double) maxWidth / frame.getWidth(),
+          (double) maxHeight / frame.getHeight());
+      int width = Math.max(1, (int) (frame.getWidth() * scale));
+      int height = Math.max(1, (int) (frame.getHeight() * scale));
+      BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+      Graphics2D g = scaled.createGraphics();
+      g.drawImage(frame.getScaledInstance(width, height, Image.SCALE_SMOOTH), 0, 0, null);
+      g.dispose();
+      return scaled;
+    } catch (IOException e) {
+      return MISSING;
+    }
+  }
+}
@@ -0,0 +1,334 @@
+package tamagochi;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Random depletion of a pet's levels per tick, replacing the fixed decrease of 1 of
+ * {@link PetModelImpl} when set with {@link PetModelImpl#setDepletion}. The hunger,
+ * hygiene, social and sleepy levels each follow their own {@link Distribution}.
+ *
+ * <p>An instance is a stream of draws from one {@link SplittableRandom} and is not
+ * thread-safe: it is meant to be shared by the pets of one shard, ticked in a fixed
+ * order by one thread at a time. Further shards get independent streams from
+ * {@link #split()}, so that a run is reproducible from a single seed however the shards
+ * are spread over threads. Amounts are drawn ahead in blocks of {@value #BLOCK} ticks,
+ * one level at a time, which keeps the sampling loop tight; the built-in distributions
+ * draw in constant time from an alias table.
+ */
+public class StochasticDepletion {
+  /**
+   * System property holding the distributions used by {@link #configured()}, as
+   * accepted by {@link #parse(String, long)}.
+   */
+  public static final String DEPLETION_PROPERTY = "tamagochi.depletion";
+
+  /**
+   * System property holding the seed used by {@link #configured()}.
+   */
+  public static final String SEED_PROPERTY = "tamagochi.seed";
+
+  static final int BLOCK = 256;
+  private static final int LEVELS = 4;
+
+  private final Distribution[] distributions;
+  private final SplittableRandom random;
+  private final int[] block;
+  private int next;
+
+  /**
+   * Distribution of the amount a level decreases by in one tick.
+   */
+  @FunctionalInterface
+  public interface Distribution {
+
+    /**
+     * Draws an amount.
+     *
+     * @param random The random source.
+     * @return The non-negative amount.
+     */
+    int sample(SplittableRandom random);
+
+    /**
+     * Draws amounts into every {@code stride}-th element of an array.
+     *
+     * @param block  The array to fill.
+     * @param from   The index of the first element to fill.
+     * @param stride The distance between filled elements.
+     * @param random The random source.
+     */
+    default void fill(int[] block, int from, int stride, SplittableRandom random) {
+      for (int i = from; i < block.length; i += stride) {
+        block[i] = sample(random);
+      }
+    }
+
+    /**
+     * Returns a distribution always yielding the same amount.
+     *
+     * @param amount The amount.
+     * @return The constant distribution.
+     * @throws IllegalArgumentException if the amount is negative.
+     */
+    static Distribution constant(int amount) {
+      if (amount < 0) {
+        throw new IllegalArgumentException("Depletion cannot be negative: " + amount);
+      }
+      return random -> amount;
+    }
+
+    /**
+     * Returns a distribution yielding every amount of a range with equal probability.
+     *
+     * @param min The smallest amount.
+     * @param max The largest amount, inclusive.
+     * @return The uniform distribution.
+     * @throws IllegalArgumentException if the range is empty or negative.
+     */
+    static Distribution uniform(int min, int max) {
+      if (min < 0 || max < min) {
+        throw new IllegalArgumentException("Invalid range: " + min + ".." + max);
+      }
+      double[] weights = new double[max + 1];
+      Arrays.fill(weights, min, max + 1, 1);
+      return new AliasTable(weights);
+    }
+
+    /**
+     * Returns a distribution yielding 1 with the given probability and 0 otherwise.
+     *
+     * @param probability The probability of a decrease.
+     * @return The Bernoulli distribution.
+     * @throws IllegalArgumentException if the probability is not within 0..1.
+     */
+    static Distribution bernoulli(double probability) {
+      if (!(probability >= 0 && probability <= 1)) {
+        throw new IllegalArgumentException("Invalid probability: " + probability);
+      }
+      return new AliasTable(new double[] {1 - probability, probability});
+    }
+
+    /**
+     * Returns a Poisson distribution, truncated where the remaining probability becomes
+     * negligible.
+     *
+     * @param mean The mean amount.
+     * @return The Poisson distribution.
+     * @throws IllegalArgumentException if the mean is negative or above 30.
+     */
+    static Distribution poisson(double mean) {
+      if (!(mean >= 0 && mean <= 30)) {
+        throw new IllegalArgumentException("Poisson mean must be within 0..30: " + mean);
+      }
+      double[] weights = new double[128];
+      double probability = Math.exp(-mean);
+      double remaining = 1;
+      int count = 0;
+      while (count < weights.length && remaining > 1e-12) {
+        weights[count] = probability;
+        remaining -= probability;
+        count++;
+        probability *= mean / count;
+      }
+      return new AliasTable(Arrays.copyOf(weights, count));
+    }
+  }
+
+  /**
+   * Discrete distribution over 0..n-1 sampled with Walker's alias method: one random
+   * {@code long} and one table lookup per draw, whatever the shape of the distribution.
+   * The upper 32 bits pick a column, the lower 32 bits decide between the column's own
+   * amount and its alias.
+   */
+  private static final class AliasTable implements Distribution {
+    private final long[] thresholds;
+    private final int[] aliases;
+
+    /**
+     * Builds the table with Vose's algorithm.
+     *
+     * @param weights The relative probability of each amount.
+     */
+    private AliasTable(double[] weights) {
+      int n = weights.length;
+      double total = 0;
+      for (double weight : weights) {
+        total += weight;
+      }
+      double[] scaled = new double[n];
+      int[] small = new int[n];
+      int[] large = new int[n];
+      int smallCount = 0;
+      int largeCount = 0;
+      for (int i = 0; i < n; i++) {
+        scaled[i] = weights[i] * n / total;
+        if (scaled[i] < 1) {
+          small[smallCount++] = i;
+        } else {
+          large[largeCount++] = i;
+        }
+      }
+      this.thresholds = new long[n];
+      this.aliases = new int[n];
+      while (smallCount > 0 && largeCount > 0) {
+        int less = small[--smallCount];
+        int more = large[--largeCount];
+        thresholds[less] = (long) (scaled[less] * (1L << 32));
+        aliases[less] = more;
+        scaled[more] += scaled[less] - 1;
+        if (scaled[more] < 1) {
+          small[smallCount++] = more;
+        } else {
+          large[largeCount++] = more;
+        }
+      }
+      while (largeCount > 0) {
+        thresholds[large[--largeCount]] = 1L << 32;
+      }
+      while (smallCount > 0) {
+        thresholds[small[--smallCount]] = 1L << 32; // Rounding leftovers
+      }
+    }
+
+    @Override
+    public int sample(SplittableRandom random) {
+      long bits = random.nextLong();
+      return pick(bits, (int) ((bits >>> 32) * thresholds.length >>> 32));
+    }
+
+    /**
+     * Chooses between a column and its alias without branching, as the outcome is
+     * random and would defeat branch prediction.
+     */
+    private int pick(long bits, int column) {
+      int own = (int) (((bits & 0xFFFFFFFFL) - thresholds[column]) >>> 63);
+      int alias = aliases[column];
+      return alias + ((column - alias) & -own);
+    }
+
+    @Override
+    public void fill(int[] block, int from, int stride, SplittableRandom random) {
+      long n = thresholds.length;
+      for (int i = from; i < block.length; i += stride) {
+        long bits = random.nextLong();
+        block[i] = pick(bits, (int) ((bits >>> 32) * n >>> 32));
+      }
+    }
+  }
+
+  /**
+   * Constructs a new stream.
+   *
+   * @param distributions The distributions of the hunger, hygiene, social and sleepy
+   *                      depletion, in that order.
+   * @param seed          The seed of the stream.
+   * @throws IllegalArgumentException if there are not four distributions.
+   */
+  public StochasticDepletion(Distribution[] distributions, long seed) {
+    this(distributions, new SplittableRandom(seed));
+  }
+
+  private StochasticDepletion(Distribution[] distributions, SplittableRandom random) {
+    if (distributions.length != LEVELS) {
+      throw new IllegalArgumentException("Expected " + LEVELS + " distributions, got "
+          + distributions.length);
+    }
+    this.distributions = distributions.clone();
+    this.random = random;
+    this.block = new int[BLOCK * LEVELS];
+    this.next = block.length;
+  }
+
+  /**
+   * Creates an independent stream with the same distributions, e.g. for another shard.
+   * Successive splits of a stream always yield the same sequence of streams.
+   *
+   * @return The new stream.
+   */
+  public StochasticDepletion split() {
+    return new StochasticDepletion(distributions, random.split());
+  }
+
+  /**
+   * Draws the depletion of one pet for one tick.
+   *
+   * @param amounts Receives the hunger, hygiene, social and sleepy depletion.
+   */
+  void next(int[] amounts) {
+    if (next == block.length) {
+      refill();
+    }
+    System.arraycopy(block, next, amounts, 0, LEVELS);
+    next += LEVELS;
+  }
+
+  /**
+   * Draws the next block, one level at a time.
+   */
+  private void refill() {
+    for (int level = 0; level < LEVELS; level++) {
+      distributions[level].fill(block, level, LEVELS, random);
+    }
+    next = 0;
+  }
+
+  /**
+   * Parses a comma-separated list of four distributions, for the hunger, hygiene, social
+   * and sleepy levels: {@code <amount>}, {@code uniform:<min>:<max>},
+   * {@code bernoulli:<probability>} or {@code poisson:<mean>}. A single distribution
+   * applies to all levels.
+   *
+   * @param spec The distributions.
+   * @param seed The seed of the stream.
+   * @return The stream.
+   * @throws IllegalArgumentException if the description is malformed.
+   */
+  public static StochasticDepletion parse(String spec, long seed) {
+    String[] parts = spec.split(",");
+    if (parts.length != 1 && parts.length != LEVELS) {
+      throw new IllegalArgumentException("Expected 1 or " + LEVELS + " distributions: "
+          + spec);
+    }
+    Distribution[] distributions = new Distribution[LEVELS];
+    for (int i = 0; i < parts.length; i++) {
+      distributions[i] = parseDistribution(parts[i].trim());
+    }
+    if (parts.length == 1) {
+      Arrays.fill(distributions, distributions[0]);
+    }
+    return new StochasticDepletion(distributions, seed);
+  }
+
+  private static Distribution parseDistribution(String spec) {
+    String[] parts = spec.toLowerCase(Locale.ROOT).split(":");
+    try {
+      if (parts.length == 1) {
+        return Distribution.constant(Integer.parseInt(parts[0]));
+      } else if (parts.length == 3 && parts[0].equals("uniform")) {
+        return Distribution.uniform(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+      } else if (parts.length == 2 && parts[0].equals("bernoulli")) {
+        return Distribution.bernoulli(Double.parseDouble(parts[1]));
+      } else if (parts.length == 2 && parts[0].equals("poisson")) {
+        return Distribution.poisson(Double.parseDouble(parts[1]));
+      }
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid distribution: " + spec, e);
+    }
+    throw new IllegalArgumentException("Unknown distribution: " + spec);
+  }
+
+  /**
+   * Returns the stream selected by the {@value #DEPLETION_PROPERTY} and
+   * {@value #SEED_PROPERTY} (default 42) system properties.
+   *
+   * @return The stream, or {@code null} if no depletion is configured.
+   * @throws IllegalArgumentException if a property is malformed.
+   */
+  public static StochasticDepletion configured() {
+    String spec = System.getProperty(DEPLETION_PROPERTY);
+    return spec == null ? null
+        : parse(spec, Long.parseLong(System.getProperty(SEED_PROPERTY, "42")));
+  }
+}
@@ -0,0 +1,190 @@
+package tamagochi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless Monte Carlo evaluation of a {@link CarePolicy}: runs many independent pet
+ * lives under the policy and collects the distribution of their survival times.
+ *
+ * <p>Every life is played by a real {@link PetModelImpl} on a {@link ManualClock}
+ * advanced by one second per tick, so the rules are exactly those of the game,
+ * including the mood-dependent behaviors. Each worker thread reuses one pet, resetting
+ * it between lives, draws from its own {@link SplittableRandom} split from the seed
+ * and records into its own {@link LatencyHistogram}; the histograms are merged at the
+ * end. For a given seed and worker count the results are reproducible. Lives still
+ * going after the tick limit are counted as censored rather than recorded.
+ */
+public class SurvivalEvaluator {
+  private final CarePolicy policy;
+  private final long maxTicks;
+  private StochasticDepletion depletion;
+
+  /**
+   * Outcome of an evaluation.
+   */
+  public static final class Result {
+    private final LatencyHistogram survivalTimes;
+    private long lives;
+    private long censored;
+
+    private Result() {
+      this.survivalTimes = new LatencyHistogram();
+    }
+
+    private void merge(Result other) {
+      survivalTimes.merge(other.survivalTimes);
+      lives += other.lives;
+      censored += other.censored;
+    }
+
+    /**
+     * Retrieves the number of lives played.
+     *
+     * @return The life count.
+     */
+    public long getLives() {
+      return lives;
+    }
+
+    /**
+     * Retrieves the survival times of the lives that ended within the tick limit.
+     *
+     * @return The histogram, in seconds.
+     */
+    public LatencyHistogram getSurvivalTimes() {
+      return survivalTimes;
+    }
+
+    /**
+     * Retrieves the number of lives still going when the tick limit was reached.
+     *
+     * @return The censored life count.
+     */
+    public long getCensoredCount() {
+      return censored;
+    }
+  }
+
+  /**
+   * Constructs a new evaluator.
+   *
+   * @param policy   The policy caring for the pets.
+   * @param maxTicks The number of ticks after which a life is stopped as censored.
+   * @throws IllegalArgumentException if the tick limit is not positive.
+   */
+  public SurvivalEvaluator(CarePolicy policy, long maxTicks) {
+    if (maxTicks <= 0) {
+      throw new IllegalArgumentException("Tick limit must be positive: " + maxTicks);
+    }
+    this.policy = policy;
+    this.maxTicks = maxTicks;
+  }
+
+  /**
+   * Makes the pets deplete randomly. Each worker draws from its own stream, split from
+   * the given one in worker order, so results stay reproducible.
+   *
+   * @param depletion The stream to split, or {@code null} for fixed rates.
+   */
+  public void setDepletion(StochasticDepletion depletion) {
+    this.depletion = depletion;
+  }
+
+  /**
+   * Plays the given number of lives in parallel.
+   *
+   * @param lives   The number of lives.
+   * @param workers The number of worker threads.
+   * @param seed    The seed of the random sources.
+   * @return The merged result.
+   * @throws InterruptedException if interrupted while waiting for the workers.
+   */
+  public Result evaluate(long lives, int workers, long seed) throws InterruptedException {
+    SplittableRandom root = new SplittableRandom(seed);
+    ExecutorService pool = Executors.newFixedThreadPool(workers);
+    List<Future<Result>> parts = new ArrayList<>();
+    for (int w = 0; w < workers; w++) {
+      long share = lives / workers + (w < lives % workers ? 1 : 0);
+      SplittableRandom random = root.split();
+      StochasticDepletion stream = depletion == null ? null : depletion.split();
+      parts.add(pool.submit(() -> play(share, random, stream)));
+    }
+    pool.shutdown();
+    Result result = new Result();
+    try {
+      for (Future<Result> part : parts) {
+        result.merge(part.get());
+      }
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Evaluation failed: " + e.getCause(), e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+    return result;
+  }
+
+  /**
+   * Plays lives one after the other on the calling thread.
+   *
+   * @param lives  The number of lives.
+   * @param random The random source of this thread.
+   * @param stream The depletion stream of this thread, or {@code null} for fixed rates.
+   * @return The result of these lives.
+   */
+  Result play(long lives, SplittableRandom random, StochasticDepletion stream) {
+    Result result = new Result();
+    ManualClock clock = new ManualClock();
+    PetModelImpl pet = new PetModelImpl(0, clock);
+    pet.setDepletion(stream);
+    for (long life = 0; life < lives; life++) {
+      pet.resetGame();
+      boolean ended = false;
+      for (long tick = 0; tick < maxTicks && !ended; tick++) {
+        PetActions action = policy.choose(pet.getSnapshot(), tick, random);
+        if (action != null) {
+          pet.performAction(action);
+        }
+        clock.advance(1, TimeUnit.SECONDS);
+        pet.updateState();
+        ended = pet.isGameOver();
+      }
+      if (ended) {
+        result.survivalTimes.record(pet.getSurvivalTime());
+      } else {
+        result.censored++;
+      }
+      result.lives++;
+    }
+    return result;
+  }
+
+  /**
+   * Parses a policy description: {@code neglect}, {@code every:<ticks>:<action>} or
+   * {@code lowest:<threshold>:<attention>}.
+   *
+   * @param spec The description.
+   * @return The policy.
+   * @throws IllegalArgumentException if the description is malformed.
+   */
+  static CarePolicy parsePolicy(String spec) {
+    String[] parts = spec.split(":");
+    if (parts.length == 1 && parts[0].equals("neglect")) {
+      return CarePolicy.neglect();
+    } else if (parts.length == 3 && parts[0].equals("every")) {
+      return CarePolicy.every(Integer.parseInt(parts[1]),
+          PetActions.valueOf(parts[2].toUpperCase(Locale.ROOT)));
+    } else if (parts.length == 3 && parts[0].equals("lowest")) {
+      return CarePolicy.lowestBelow(Integer.parseInt(parts[1]),
+          Double.parseDouble(parts[2]));
+    }
+    throw new IllegalArgumentException("Unknown policy: " + spec);
+  }
+}
@@ -0,0 +1,484 @@
+package tamagochi;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leaderboard of the longest-living pets of a {@link PetPopulation}, answering both the
+ * top k pets and the rank of any pet. It is maintained incrementally from the
+ * population's listener callbacks instead of by sorting.
+ *
+ * <p>Living and dead pets are kept in two order-statistics trees, treaps whose nodes
+ * count the entries below them, both ordered best first: living pets by the time their
+ * game started, which does not change while they live, and dead pets by their final
+ * survival time. A pet therefore only moves when it is spawned, dies or is reset, in
+ * O(log n), and the many ticks in between cost a lock-free comparison of two
+ * snapshots. The k best pets are read in O(k + log n) by merging in-order walks of both
+ * trees, and the rank of a pet in O(log n) by counting the better entries of each tree.
+ *
+ * <p>Pets may also be assigned to a group, such as their tenant, with
+ * {@link #setGroup(int, String)}. Each group keeps its own pair of trees, so that the
+ * best pets of a group are read as fast as the overall best, whatever the size of the
+ * other groups.
+ *
+ * <p>Updates and reads are synchronized, so pets may be ticked and acted upon from
+ * several threads. Survival times have the one-second resolution of
+ * {@link SurvivalTimer}; a living pet ties with a dead one of the same survival time
+ * until it outlives it.
+ */
+public class SurvivalLeaderboard implements PetModelListener {
+  private static final long NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final byte UNKNOWN = 0;
+  private static final byte ALIVE = 1;
+  private static final byte DEAD = 2;
+
+  private final Clock clock;
+  private final Ranking all;
+  private final Map<String, Ranking> rankings;
+  // Per pet: tree membership and key, i.e. start time if alive, -survival time if dead
+  private byte[] status;
+  private long[] keys;
+  private String[] groups;
+
+  /**
+   * One pet on the leaderboard.
+   */
+  public static final class Entry {
+    private final int petId;
+    private final long survivalTime;
+    private final boolean gameOver;
+
+    private Entry(int petId, long survivalTime, boolean gameOver) {
+      this.petId = petId;
+      this.survivalTime = survivalTime;
+      this.gameOver = gameOver;
+    }
+
+    /**
+     * Retrieves the id of the pet.
+     *
+     * @return The pet id.
+     */
+    public int getPetId() {
+      return petId;
+    }
+
+    /**
+     * Retrieves how long the pet has lived so far, or lived if its game is over.
+     *
+     * @return The survival time in seconds.
+     */
+    public long getSurvivalTime() {
+      return survivalTime;
+    }
+
+    /**
+     * Checks whether the pet's game is over.
+     *
+     * @return {@code true} if the pet died.
+     */
+    public boolean isGameOver() {
+      return gameOver;
+    }
+  }
+
+  /**
+   * Constructs a new, empty leaderboard.
+   *
+   * @param clock The clock of the pets to rank, as they report survival times from it.
+   */
+  public SurvivalLeaderboard(Clock clock) {
+    this.clock = clock;
+    this.all = new Ranking();
+    this.rankings = new HashMap<>();
+    this.status = new byte[16];
+    this.keys = new long[16];
+    this.groups = new String[16];
+  }
+
+  /**
+   * Ranks the present and future pets of a population.
+   *
+   * @param population The population to follow.
+   */
+  public void watch(PetPopulation population) {
+    population.addListener(this);
+    for (int i = 0, size = population.size(); i < size; i++) {
+      PetModel pet = population.get(i);
+      synchronized (this) {
+        if (i >= status.length || status[i] == UNKNOWN) {
+          place(pet.getSnapshot());
+        }
+      }
+    }
+  }
+
+  /**
+   * Stops following a population. Its pets stay on the leaderboard as they were.
+   *
+   * @param population The population passed to {@link #watch(PetPopulation)}.
+   */
+  public void unwatch(PetPopulation population) {
+    population.removeListener(this);
+  }
+
+  /**
+   * Moves a pet on the leaderboard when it was spawned, died or was reset. A reset is
+   * recognized by a survival time going down or back to 0; snapshots published within
+   * a pet's first second are thus all placed again, which is harmless.
+   *
+   * @param previous The snapshot before the change, or {@code null} for a new pet.
+   * @param current  The snapshot after the change.
+   */
+  @Override
+  public void onStateChanged(PetSnapshot previous, PetSnapshot current) {
+    if (previous != null && previous.isGameOver() == current.isGameOver()
+        && (current.isGameOver() || current.getSurvivalTime() > 0
+            && current.getSurvivalTime() >= previous.getSurvivalTime())) {
+      return; // Neither died nor restarted: the pet keeps its place
+    }
+    synchronized (this) {
+      place(current);
+    }
+  }
+
+  /**
+   * Moves a pet to the place given by its snapshot. Must be called with the lock held.
+   */
+  private void place(PetSnapshot state) {
+    int petId = state.getPetId();
+    ensureCapacity(petId);
+    remove(petId);
+    if (state.isGameOver()) {
+      keys[petId] = -state.getSurvivalTime();
+      status[petId] = DEAD;
+    } else {
+      keys[petId] = clock.nanoTime() - state.getSurvivalTime() * NANOS;
+      status[petId] = ALIVE;
+    }
+    add(petId);
+  }
+
+  /**
+   * Assigns a pet to a group, so that it is also ranked among the pets of that group.
+   * The pet may be assigned before or after it is placed on the leaderboard.
+   *
+   * @param petId The id of the pet.
+   * @param group The group, or {@code null} to only rank the pet overall.
+   */
+  public synchronized void setGroup(int petId, String group) {
+    if (petId < 0) {
+      throw new IllegalArgumentException("Invalid pet id: " + petId);
+    }
+    ensureCapacity(petId);
+    remove(petId);
+    groups[petId] = group;
+    add(petId);
+  }
+
+  private void ensureCapacity(int petId) {
+    if (petId >= status.length) {
+      int capacity = Math.max(petId + 1, status.length * 2);
+      status = Arrays.copyOf(status, capacity);
+      keys = Arrays.copyOf(keys, capacity);
+      groups = Arrays.copyOf(groups, capacity);
+    }
+  }
+
+  /**
+   * Adds a pet to the trees of its status, overall and in its group.
+   */
+  private void add(int petId) {
+    if (status[petId] != UNKNOWN) {
+      all.add(status[petId], keys[petId], petId);
+      if (groups[petId] != null) {
+        rankings.computeIfAbsent(groups[petId], group -> new Ranking())
+            .add(status[petId], keys[petId], petId);
+      }
+    }
+  }
+
+  /**
+   * Removes a pet from the trees it was added to.
+   */
+  private void remove(int petId) {
+    if (status[petId] != UNKNOWN) {
+      all.remove(status[petId], keys[petId], petId);
+      if (groups[petId] != null) {
+        rankings.get(groups[petId]).remove(status[petId], keys[petId], petId);
+      }
+    }
+  }
+
+  /**
+   * Retrieves the longest-living pets, living or dead, longest first.
+   *
+   * @param k The maximum number of pets to return.
+   * @return The best pets.
+   */
+  public synchronized List<Entry> top(int k) {
+    return all.top(k, clock.nanoTime());
+  }
+
+  /**
+   * Retrieves the longest-living pets of a group, living or dead, longest first.
+   *
+   * @param k     The maximum number of pets to return.
+   * @param group The group assigned with {@link #setGroup(int, String)}.
+   * @return The best pets of the group.
+   */
+  public synchronized List<Entry> top(int k, String group) {
+    Ranking ranking = rankings.get(group);
+    return ranking == null ? new ArrayList<>() : ranking.top(k, clock.nanoTime());
+  }
+
+  /**
+   * Retrieves the rank of a pet, consistent with the order of {@link #top(int)}.
+   *
+   * @param petId The id of the pet.
+   * @return The rank, 1 for the longest-living pet, or -1 if the pet is unknown.
+   */
+  public synchronized int rankOf(int petId) {
+    if (petId < 0 || petId >= status.length || status[petId] == UNKNOWN) {
+      return -1;
+    }
+    long now = clock.nanoTime();
+    long key = keys[petId];
+    if (status[petId] == ALIVE) {
+      // Dead pets of at least the living pet's age, rounded up, come first
+      long seconds = (now - key + NANOS - 1) / NANOS;
+      return 1 + all.alive.countBefore(key, petId) + all.dead.countBelow(1 - seconds);
+    }
+    // Living pets that started more than the dead pet's survival time ago come first
+    return 1 + all.dead.countBefore(key, petId) + all.alive.countBelow(now + key * NANOS);
+  }
+
+  /**
+   * Retrieves the number of pets on the leaderboard.
+   *
+   * @return The number of living and dead pets.
+   */
+  public synchronized int size() {
+    return all.alive.size() + all.dead.size();
+  }
+
+  /**
+   * The living and dead pets of the whole leaderboard or of one group.
+   */
+  private static final class Ranking {
+    private final RankTree alive = new RankTree(1);
+    private final RankTree dead = new RankTree(2);
+
+    private void add(byte status, long key, int petId) {
+      (status == ALIVE ? alive : dead).insert(key, petId);
+    }
+
+    private void remove(byte status, long key, int petId) {
+      (status == ALIVE ? alive : dead).remove(key, petId);
+    }
+
+    /**
+     * Merges the best entries of both trees, walking each in order.
+     */
+    private List<Entry> top(int k, long now) {
+      List<Entry> result = new ArrayList<>(Math.max(0, Math.min(k, alive.size() + dead.size())));
+      RankTree.Cursor living = new RankTree.Cursor(alive.root);
+      RankTree.Cursor ended = new RankTree.Cursor(dead.root);
+      while (result.size() < k && (living.peek() != null || ended.peek() != null)) {
+        RankTree.Node a = living.peek();
+        RankTree.Node d = ended.peek();
+        if (d == null || a != null && now - a.key > -d.key * NANOS) {
+          result.add(new Entry(a.petId, (now - a.key) / NANOS, false));
+          living.next();
+        } else {
+          result.add(new Entry(d.petId, -d.key, true));
+          ended.next();
+        }
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Treap of (key, pet id) pairs in ascending order, each node counting the nodes of its
+   * subtree so that entries can be selected and counted by position in O(log n).
+   */
+  private static final class RankTree {
+    private final SplittableRandom random;
+    private Node root;
+
+    private static final class Node {
+      private final long key;
+      private final int petId;
+      private final int priority;
+      private int size;
+      private Node left;
+      private Node right;
+
+      private Node(long key, int petId, int priority) {
+        this.key = key;
+        this.petId = petId;
+        this.priority = priority;
+        this.size = 1;
+      }
+    }
+
+    private RankTree(long seed) {
+      this.random = new SplittableRandom(seed);
+    }
+
+    private int size() {
+      return sizeOf(root);
+    }
+
+    private void insert(long key, int petId) {
+      root = insert(root, new Node(key, petId, random.nextInt()));
+    }
+
+    private void remove(long key, int petId) {
+      root = remove(root, key, petId);
+    }
+
+    /**
+     * In-order walk of a tree, holding the path to the current entry.
+     */
+    private static final class Cursor {
+      private final ArrayDeque<Node> path = new ArrayDeque<>();
+
+      private Cursor(Node root) {
+        descend(root);
+      }
+
+      /**
+       * Retrieves the current entry.
+       *
+       * @return The node, or {@code null} past the end.
+       */
+      private Node peek() {
+        return path.peek();
+      }
+
+      private void next() {
+        descend(path.pop().right);
+      }
+
+      private void descend(Node node) {
+        for (; node != null; node = node.left) {
+          path.push(node);
+        }
+      }
+    }
+
+    /**
+     * Counts the entries with a key below the given one.
+     */
+    private int countBelow(long key) {
+      int count = 0;
+      for (Node node = root; node != null; ) {
+        if (node.key < key) {
+          count += sizeOf(node.left) + 1;
+          node = node.right;
+        } else {
+          node = node.left;
+        }
+      }
+      return count;
+    }
+
+    /**
+     * Counts the entries ordered before the given pair.
+     */
+    private int countBefore(long key, int petId) {
+      int count = 0;
+      for (Node node = root; node != null; ) {
+        if (compare(node.key, node.petId, key, petId) < 0) {
+          count += sizeOf(node.left) + 1;
+          node = node.right;
+        } else {
+          node = node.left;
+        }
+      }
+      return count;
+    }
+
+    private static Node insert(Node node, Node added) {
+      if (node == null) {
+        return added;
+      }
+      if (compare(added.key, added.petId, node.key, node.petId) < 0) {
+        node.left = insert(node.left, added);
+        if (node.left.priority > node.priority) {
+          node = rotateRight(node);
+        }
+      } else {
+        node.right = insert(node.right, added);
+        if (node.right.priority > node.priority) {
+          node = rotateLeft(node);
+        }
+      }
+      resize(node);
+      return node;
+    }
+
+    private static Node remove(Node node, long key, int petId) {
+      if (node == null) {
+        return null;
+      }
+      int order = compare(key, petId, node.key, node.petId);
+      if (order < 0) {
+        node.left = remove(node.left, key, petId);
+      } else if (order > 0) {
+        node.right = remove(node.right, key, petId);
+      } else if (node.left == null) {
+        return node.right;
+      } else if (node.right == null) {
+        return node.left;
+      } else if (node.left.priority > node.right.priority) {
+        node = rotateRight(node);
+        node.right = remove(node.right, key, petId);
+      } else {
+        node = rotateLeft(node);
+        node.left = remove(node.left, key, petId);
+      }
+      resize(node);
+      return node;
+    }
+
+    private static Node rotateRight(Node node) {
+      Node top = node.left;
+      node.left = top.right;
+      top.right = node;
+      resize(node);
+      resize(top);
+      return top;
+    }
+
+    private static Node rotateLeft(Node node) {
+      Node top = node.right;
+      node.right = top.left;
+      top.left = node;
+      resize(node);
+      resize(top);
+      return top;
+    }
+
+    private static void resize(Node node) {
+      node.size = sizeOf(node.left) + sizeOf(node.right) + 1;
+    }
+
+    private static int sizeOf(Node node) {
+      return node == null ? 0 : node.size;
+    }
+
+    private static int compare(long key, int petId, long otherKey, int otherPetId) {
+      int order = Long.compare(key, otherKey);
+      return order != 0 ? order : Integer.compare(petId, otherPetId);
+    }
+  }
+}
@@ -3,18 +3,31 @@ package tamagochi;
 /**
  * A utility class that tracks the survival time of the virtual pet.
  * The timer can be started, stopped, and reset to track the pet's
- * survival duration during the game.
+ * survival duration during the game. Time is read from a monotonic {@link Clock},
+ * so survival times are not affected by wall-clock adjustments.
  */
 public class SurvivalTimer {
+  private final Clock clock;
   private long startTime;
   private long endTime;
   private boolean isRunning;
 
   /**
-   * Constructs a new {@code SurvivalTimer} with initial values.
+   * Constructs a new {@code SurvivalTimer} with initial values, following real time.
    * The timer is not running when initialized.
    */
   public SurvivalTimer() {
+    this(Clock.system());
+  }
+
+  /**
+   * Constructs a new {@code SurvivalTimer} with initial values, reading time from the
+   * given clock. The timer is not running when initialized.
+   *
+   * @param clock The clock measuring survival time.
+   */
+  public SurvivalTimer(Clock clock) {
+    this.clock = clock;
     this.startTime = 0;
     this.endTime = 0;
     this.isRunning = false;
@@ -26,7 +39,7 @@ public class SurvivalTimer {
    */
   public void start() {
     if (!isRunning) {
-      this.startTime = System.currentTimeMillis();
+      this.startTime = clock.nanoTime();
       this.isRunning = true;
     }
   }
@@ -37,7 +50,7 @@ public class SurvivalTimer {
    */
   public void stop() {
     if (isRunning) {
-      this.endTime = System.currentTimeMillis();
+      this.endTime = clock.nanoTime();
       this.isRunning = false;
     }
   }
@@ -51,8 +64,8 @@ public class SurvivalTimer {
    * @return The survival time in seconds.
    */
   public long getSurvivalTime() {
-    long currentTime = isRunning ? System.currentTimeMillis() : endTime;
-    return (currentTime - startTime) / 1000; // Convert milliseconds to seconds
+    long currentTime = isRunning ? clock.nanoTime() : endTime;
+    return (currentTime - startTime) / 1_000_000_000L; // Convert nanoseconds to seconds
   }
 
   /**
@@ -0,0 +1,279 @@
+package tamagochi;
+
+import java.awt.event.ActionEvent;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.JComponent;
+import javax.swing.RepaintManager;
+import javax.swing.SwingUtilities;
+
+/**
+ * Measures how long the GUI takes to reflect user input, from the button's
+ * {@link ActionEvent} to the paint that shows the resulting sprite and bars.
+ *
+ * <p>A click goes through these stages, each recorded in its own
+ * {@link LatencyHistogram}, measured from the moment the click was handled:
+ * <ul>
+ *   <li>{@link Stage#INPUT_DISPATCH}: from the OS event to the listener (millisecond
+ *       precision, as the event only carries a wall-clock timestamp);</li>
+ *   <li>{@link Stage#ACTION_APPLIED}: until the simulation thread applied the action;</li>
+ *   <li>{@link Stage#TRANSITION}: until the action animation ended and the view was
+ *       updated with the new state;</li>
+ *   <li>{@link Stage#CLICK_TO_PAINT}: until that update was painted.</li>
+ * </ul>
+ * Regular tick updates are recorded as {@link Stage#TICK_TO_PAINT}. A probe thread
+ * posts a task to the EDT every {@value #PROBE_MILLIS} ms and records how late it
+ * runs as {@link Stage#EDT_LATENCY}; only one probe is outstanding at a time, so a
+ * stall shows up as one long sample. Paint completion is observed through a
+ * {@link RepaintManager} installed by {@link #install()}, which also counts frames,
+ * leaving out the paint passes that only repaint components excluded with
+ * {@link #ignoreRepaints(JComponent)}.
+ */
+public class UiLatencyTracker {
+  static final long PROBE_MILLIS = 20;
+  static final long STALL_MILLIS = 50;
+
+  /**
+   * A measured stage of the input-to-render path.
+   */
+  public enum Stage {
+    INPUT_DISPATCH,
+    ACTION_APPLIED,
+    TRANSITION,
+    CLICK_TO_PAINT,
+    TICK_TO_PAINT,
+    EDT_LATENCY
+  }
+
+  private final LatencyHistogram[] histograms;
+  private final AtomicBoolean probePending;
+  private ScheduledExecutorService probe;
+  private volatile JComponent ignored;
+  private volatile boolean contentDirty;
+
+  // Click in flight, written on the EDT and read by the simulation thread
+  private volatile long clickNanos;
+  private volatile boolean applied;
+
+  // Paint tracking, EDT only
+  private long paintArmedNanos;
+  private Stage paintStage;
+  private long frames;
+  private long stallNanos;
+
+  /**
+   * Constructs a new tracker. Nothing is measured before {@link #install()}, except
+   * stages reported by the controller.
+   */
+  public UiLatencyTracker() {
+    this.histograms = new LatencyHistogram[Stage.values().length];
+    for (int i = 0; i < histograms.length; i++) {
+      histograms[i] = new LatencyHistogram();
+    }
+    this.probePending = new AtomicBoolean();
+  }
+
+  /**
+   * Installs the paint hook and starts probing the EDT.
+   */
+  public void install() {
+    SwingUtilities.invokeLater(() -> RepaintManager.setCurrentManager(new RepaintManager() {
+      @Override
+      public void addDirtyRegion(JComponent c, int x, int y, int w, int h) {
+        if (c != ignored) {
+          contentDirty = true;
+        }
+        super.addDirtyRegion(c, x, y, w, h);
+      }
+
+      @Override
+      public void paintDirtyRegions() {
+        boolean content = contentDirty;
+        contentDirty = false;
+        super.paintDirtyRegions();
+        painted(content);
+      }
+    }));
+    probe = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "edt-probe");
+      thread.setDaemon(true);
+      return thread;
+    });
+    probe.scheduleAtFixedRate(this::postProbe, PROBE_MILLIS, PROBE_MILLIS,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops probing the EDT.
+   */
+  public void uninstall() {
+    if (probe != null) {
+      probe.shutdownNow();
+    }
+  }
+
+  /**
+   * Posts one probe to the EDT unless the previous one has not run yet.
+   */
+  private void postProbe() {
+    if (probePending.compareAndSet(false, true)) {
+      long posted = System.nanoTime();
+      SwingUtilities.invokeLater(() -> {
+        long late = System.nanoTime() - posted;
+        probePending.set(false);
+        histograms[Stage.EDT_LATENCY.ordinal()].record(late);
+        if (late > TimeUnit.MILLISECONDS.toNanos(STALL_MILLIS)) {
+          stallNanos += late;
+        }
+      });
+    }
+  }
+
+  /**
+   * Starts tracking a click. Must be called on the EDT at the start of the listener.
+   *
+   * @param event The button's action event.
+   */
+  public void clicked(ActionEvent event) {
+    long delayMillis = System.currentTimeMillis() - event.getWhen();
+    histograms[Stage.INPUT_DISPATCH.ordinal()].record(
+        TimeUnit.MILLISECONDS.toNanos(delayMillis));
+    applied = false;
+    clickNanos = System.nanoTime();
+  }
+
+  /**
+   * Reports that the simulation thread applied the clicked action.
+   */
+  public void actionApplied() {
+    long click = clickNanos;
+    if (click != 0 && !applied) {
+      applied = true;
+      histograms[Stage.ACTION_APPLIED.ordinal()].record(System.nanoTime() - click);
+    }
+  }
+
+  /**
+   * Reports that the view was updated once the action animation ended. Must be
+   * called on the EDT.
+   */
+  public void transitionEnded() {
+    long click = clickNanos;
+    if (click != 0) {
+      clickNanos = 0;
+      histograms[Stage.TRANSITION.ordinal()].record(System.nanoTime() - click);
+      armPaint(click, Stage.CLICK_TO_PAINT);
+    }
+  }
+
+  /**
+   * Reports that the view was updated after a tick. Must be called on the EDT.
+   *
+   * @param tickNanos When the tick requested the update, from {@link System#nanoTime()}.
+   */
+  public void tickShown(long tickNanos) {
+    if (paintStage == null) {
+      armPaint(tickNanos, Stage.TICK_TO_PAINT);
+    }
+  }
+
+  private void armPaint(long sinceNanos, Stage stage) {
+    paintArmedNanos = sinceNanos;
+    paintStage = stage;
+  }
+
+  /**
+   * Excludes the repaints of a component, such as an overlay showing the frame rate,
+   * from the frame count.
+   *
+   * @param component The component whose repaints are not frames.
+   */
+  public void ignoreRepaints(JComponent component) {
+    ignored = component;
+  }
+
+  /**
+   * Called on the EDT after every paint pass.
+   *
+   * @param content Whether the pass repainted more than the ignored component.
+   */
+  void painted(boolean content) {
+    if (content) {
+      frames++;
+    }
+    if (paintStage != null) {
+      histograms[paintStage.ordinal()].record(System.nanoTime() - paintArmedNanos);
+      paintStage = null;
+    }
+  }
+
+  /**
+   * Retrieves the histogram of a stage.
+   *
+   * @param stage The stage.
+   * @return The histogram, in nanoseconds.
+   */
+  public LatencyHistogram getHistogram(Stage stage) {
+    return histograms[stage.ordinal()];
+  }
+
+  /**
+   * Retrieves the number of paint passes so far, except those only repainting the
+   * ignored component. Must be called on the EDT.
+   *
+   * @return The frame count.
+   */
+  public long getFrameCount() {
+    return frames;
+  }
+
+  /**
+   * Retrieves the total time the EDT was stalled for more than {@value #STALL_MILLIS} ms
+   * at once. Must be called on the EDT.
+   *
+   * @return The stall time in nanoseconds.
+   */
+  public long getStallNanos() {
+    return stallNanos;
+  }
+
+  /**
+   * Writes one CSV row per stage with its count and latency statistics in milliseconds.
+   *
+   * @param out The writer receiving the CSV; not closed.
+   */
+  public void exportCsv(Writer out) {
+    PrintWriter csv = new PrintWriter(out);
+    csv.println("stage,count,mean_ms,p50_ms,p90_ms,p99_ms,p999_ms,max_ms");
+    for (Stage stage : Stage.values()) {
+      LatencyHistogram histogram = histograms[stage.ordinal()];
+      csv.printf(Locale.ROOT, "%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f%n", stage,
+          histogram.getCount(), histogram.getMean() / 1e6,
+          histogram.getValueAtPercentile(50) / 1e6, histogram.getValueAtPercentile(90) / 1e6,
+          histogram.getValueAtPercentile(99) / 1e6, histogram.getValueAtPercentile(99.9) / 1e6,
+          histogram.getMax() / 1e6);
+    }
+    csv.flush();
+  }
+
+  /**
+   * Writes the CSV export to a file.
+   *
+   * @param file The file to write.
+   * @throws IOException if the file cannot be written.
+   */
+  public void exportCsv(Path file) throws IOException {
+    try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      exportCsv(out);
+    }
+  }
+}
@@ -0,0 +1,202 @@
+package tamagochi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link ActionQueue} class. These tests validate that concurrent
+ * producers lose, duplicate and reorder no action, that the ring wraps around, the
+ * behavior of each {@link ActionQueue.OverflowPolicy} when full, and the wait times.
+ */
+public class ActionQueueTest {
+  private static final PetActions[] ACTIONS = PetActions.values();
+
+  /**
+   * Tests that every action of several producers is drained exactly once, in the order
+   * each producer offered them.
+   */
+  @Test
+  public void testConcurrentProducers() throws InterruptedException {
+    int producers = 4;
+    int perProducer = 50_000;
+    ActionQueue queue = new ActionQueue(64, ActionQueue.OverflowPolicy.BLOCK,
+        TimeUnit.MINUTES.toMillis(1));
+    List<Thread> threads = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      int producer = p;
+      Thread thread = new Thread(() -> {
+        for (int i = 0; i < perProducer; i++) {
+          if (!queue.offer(producer * perProducer + i, ACTIONS[i % ACTIONS.length])) {
+            throw new IllegalStateException("Offer timed out");
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+
+    int[] next = new int[producers];
+    int total = producers * perProducer;
+    int drained = 0;
+    long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+    while (drained < total && System.nanoTime() < deadline) {
+      drained += queue.drain((petId, action) -> {
+        int producer = petId / perProducer;
+        int sequence = petId % perProducer;
+        assertEquals("Producer " + producer + " order", next[producer], sequence);
+        assertEquals("Action of " + petId, ACTIONS[sequence % ACTIONS.length], action);
+        next[producer]++;
+      }, 32);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals("Every action should be drained", total, drained);
+    assertEquals("Nothing should be left", 0, queue.drain((petId, action) -> {
+      throw new IllegalStateException("Duplicate action for pet " + petId);
+    }, Integer.MAX_VALUE));
+    for (int p = 0; p < producers; p++) {
+      assertEquals("Actions of producer " + p, perProducer, next[p]);
+    }
+    assertEquals("Offered", total, queue.getOfferedCount());
+    assertEquals("Dropped", 0, queue.getDroppedCount());
+    assertEquals("Drained", total, queue.getDrainedCount());
+  }
+
+  /**
+   * Tests that slots are reused in FIFO order once the ring wraps around.
+   */
+  @Test
+  public void testWrapAround() {
+    ActionQueue queue = new ActionQueue(3);
+    assertEquals("Capacity should be rounded up", 4, queue.capacity());
+    List<Integer> drained = new ArrayList<>();
+    int offered = 0;
+    for (int round = 0; round < 10; round++) {
+      for (int i = 0; i < 3; i++) {
+        assertTrue("Offer " + offered, queue.offer(offered++, PetActions.FEED));
+      }
+      assertEquals("Depth", 3, queue.depth());
+      queue.drain((petId, action) -> drained.add(petId), 2);
+      queue.drain((petId, action) -> drained.add(petId), 2);
+      assertEquals("Depth after draining", 0, queue.depth());
+    }
+    assertEquals("Drained", offered, drained.size());
+    for (int i = 0; i < offered; i++) {
+      assertEquals("FIFO order", i, (int) drained.get(i));
+    }
+  }
+
+  /**
+   * Tests that a full dropping queue rejects offers until a slot is drained.
+   */
+  @Test
+  public void testDropWhenFull() {
+    ActionQueue queue = new ActionQueue(4);
+    for (int i = 0; i < 4; i++) {
+      assertTrue("Offer " + i, queue.offer(i, PetActions.SHOWER));
+    }
+    assertFalse("A full queue should drop", queue.offer(4, PetActions.SHOWER));
+    assertEquals("Dropped", 1, queue.getDroppedCount());
+    assertEquals("Offered", 5, queue.getOfferedCount());
+
+    List<Integer> drained = new ArrayList<>();
+    assertEquals("Drained", 1, queue.drain((petId, action) -> drained.add(petId), 1));
+    assertTrue("A freed slot should be reused", queue.offer(5, PetActions.SHOWER));
+    queue.drain((petId, action) -> drained.add(petId), 10);
+    assertEquals("The dropped action should be lost", List.of(0, 1, 2, 3, 5), drained);
+  }
+
+  /**
+   * Tests that a full blocking queue gives up after its timeout.
+   */
+  @Test
+  public void testBlockTimesOut() {
+    ActionQueue queue = new ActionQueue(2, ActionQueue.OverflowPolicy.BLOCK, 50);
+    assertTrue(queue.offer(0, PetActions.SLEEP));
+    assertTrue(queue.offer(1, PetActions.SLEEP));
+    long start = System.nanoTime();
+    assertFalse("A full queue should time out", queue.offer(2, PetActions.SLEEP));
+    assertTrue("The producer should wait for the timeout",
+        System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    assertEquals("Dropped", 1, queue.getDroppedCount());
+  }
+
+  /**
+   * Tests that a full blocking queue accepts the offer once the consumer frees a slot.
+   */
+  @Test
+  public void testBlockWaitsForConsumer() throws InterruptedException {
+    ActionQueue queue = new ActionQueue(2, ActionQueue.OverflowPolicy.BLOCK,
+        TimeUnit.MINUTES.toMillis(1));
+    assertTrue(queue.offer(0, PetActions.SOCIALIZE));
+    assertTrue(queue.offer(1, PetActions.SOCIALIZE));
+    Thread consumer = new Thread(() -> {
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      queue.drain((petId, action) -> { }, 1);
+    });
+    consumer.start();
+    assertTrue("The offer should wait for space", queue.offer(2, PetActions.SOCIALIZE));
+    consumer.join();
+    assertEquals("Dropped", 0, queue.getDroppedCount());
+    assertEquals("Depth", 2, queue.depth());
+  }
+
+  /**
+   * Tests the wait time of the head action of an empty, a stalled and a drained queue.
+   */
+  @Test
+  public void testHeadWait() throws InterruptedException {
+    ActionQueue queue = new ActionQueue(8);
+    assertEquals("An empty queue has no wait", 0, queue.getHeadWaitNanos());
+    queue.offer(0, PetActions.FEED);
+    Thread.sleep(30);
+    queue.offer(1, PetActions.FEED);
+    long wait = queue.getHeadWaitNanos();
+    assertTrue("The head should have waited: " + wait,
+        wait >= TimeUnit.MILLISECONDS.toNanos(30));
+
+    queue.drain((petId, action) -> { }, 1);
+    assertTrue("The next action is younger",
+        queue.getHeadWaitNanos() < wait);
+    queue.drain((petId, action) -> { }, 1);
+    assertEquals("A drained queue has no wait", 0, queue.getHeadWaitNanos());
+    assertTrue("The longest wait should be recorded",
+        queue.getMaxWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(30));
+  }
+
+  /**
+   * Tests that an action published while a batch is being drained, and drained in the
+   * same batch, does not get a negative wait.
+   */
+  @Test
+  public void testWaitOfActionPublishedMidBatch() {
+    ActionQueue queue = new ActionQueue(8);
+    queue.offer(0, PetActions.FEED);
+    int drained = queue.drain((petId, action) -> {
+      if (petId == 0) {
+        try {
+          Thread.sleep(30);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        queue.offer(1, PetActions.SLEEP);
+      }
+    }, 8);
+    assertEquals("Drained in one batch", 2, drained);
+    assertTrue("Average wait: " + queue.getAverageWaitNanos(),
+        queue.getAverageWaitNanos() >= 0);
+    assertTrue("Max wait: " + queue.getMaxWaitNanos(),
+        queue.getMaxWaitNanos() < TimeUnit.MILLISECONDS.toNanos(30));
+  }
+}
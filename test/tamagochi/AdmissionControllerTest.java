@@ -0,0 +1,178 @@
+package tamagochi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link AdmissionController} class, driven by a {@link ManualClock}
+ * and timed service calls so that rates and congestion are deterministic. These
+ * tests validate the tenant token buckets, the in-flight limit and the CoDel state
+ * machine.
+ */
+public class AdmissionControllerTest {
+  private static final long TARGET_MILLIS = 5;
+  private static final long INTERVAL_MILLIS = 100;
+
+  private ManualClock clock;
+  private AdmissionController admission;
+
+  /**
+   * Sets up a controller allowing 10 requests per second in bursts of 3 per tenant, and
+   * 4 requests in flight, over an empty queue.
+   */
+  @Before
+  public void setUp() {
+    clock = new ManualClock(TimeUnit.DAYS.toNanos(1));
+    admission = new AdmissionController(new ActionQueue(16), 10, 3, 4, TARGET_MILLIS,
+        INTERVAL_MILLIS, clock);
+  }
+
+  /**
+   * Tests that a tenant's burst is admitted, then only the refilled tokens, and that
+   * tenants are limited independently.
+   */
+  @Test
+  public void testTokenBucket() {
+    for (int i = 0; i < 3; i++) {
+      assertEquals("Burst " + i, AdmissionController.Decision.ADMITTED, admit("a", false));
+    }
+    assertEquals("Beyond the burst", AdmissionController.Decision.RATE_LIMITED,
+        admit("a", false));
+    assertEquals("Other tenant", AdmissionController.Decision.ADMITTED, admit("b", false));
+    assertEquals("Retry hint", 1,
+        admission.retryAfterSeconds("a", AdmissionController.Decision.RATE_LIMITED));
+
+    clock.advance(100, TimeUnit.MILLISECONDS);
+    assertEquals("Refilled token", AdmissionController.Decision.ADMITTED, admit("a", false));
+    assertEquals("Token spent", AdmissionController.Decision.RATE_LIMITED,
+        admit("a", false));
+    clock.advance(1, TimeUnit.MINUTES);
+    for (int i = 0; i < 3; i++) {
+      assertEquals("Refilled burst " + i, AdmissionController.Decision.ADMITTED,
+          admit("a", false));
+    }
+    assertEquals("Burst cap", AdmissionController.Decision.RATE_LIMITED, admit("a", false));
+    assertEquals("Rate limited", 3, admission.getRateLimitedCount());
+  }
+
+  /**
+   * Tests that the number of tenant buckets is bounded, and that buckets are evicted
+   * once full again.
+   */
+  @Test
+  public void testTenantEviction() {
+    for (int i = 0; i < AdmissionController.MAX_TENANTS; i++) {
+      assertEquals("Tenant " + i, AdmissionController.Decision.ADMITTED,
+          admit("tenant" + i, false));
+    }
+    clock.advance(100, TimeUnit.MILLISECONDS);
+    assertEquals("Known tenant", AdmissionController.Decision.ADMITTED,
+        admit("tenant0", false));
+    assertEquals("Too many tenants", AdmissionController.Decision.RATE_LIMITED,
+        admit("new", false));
+    assertEquals("Retry hint", 1,
+        admission.retryAfterSeconds("new", AdmissionController.Decision.RATE_LIMITED));
+    assertEquals("Tenants", AdmissionController.MAX_TENANTS, admission.getTenantCount());
+
+    // Buckets are full again after 0.3 s, and the map is scanned at most that often
+    clock.advance(100, TimeUnit.MILLISECONDS);
+    assertEquals("Known tenant", AdmissionController.Decision.ADMITTED,
+        admit("tenant0", false));
+    assertEquals("Not scanned again yet", AdmissionController.Decision.RATE_LIMITED,
+        admit("new", false));
+    clock.advance(200, TimeUnit.MILLISECONDS);
+    assertEquals("Evicted tenants", AdmissionController.Decision.ADMITTED,
+        admit("new", false));
+    assertEquals("Tenants kept", 2, admission.getTenantCount());
+  }
+
+  /**
+   * Tests that requests beyond the in-flight limit are rejected until one is released.
+   */
+  @Test
+  public void testInFlightLimit() {
+    for (int i = 0; i < 4; i++) {
+      assertEquals("Request " + i, AdmissionController.Decision.ADMITTED,
+          admission.acquire("tenant" + i, false));
+    }
+    assertEquals("Saturated", AdmissionController.Decision.OVERLOADED,
+        admission.acquire("other", false));
+    admission.release();
+    assertEquals("Released", AdmissionController.Decision.ADMITTED,
+        admission.acquire("other", false));
+    assertEquals("Saturated count", 1, admission.getSaturatedCount());
+  }
+
+  /**
+   * Tests the transitions between the normal and congested states.
+   */
+  @Test
+  public void testCongestion() {
+    // A sojourn above the target only sheds once it lasted a whole interval
+    serve(10);
+    assertFalse("Not congested yet", admission.shouldShed());
+    clock.advance(50, TimeUnit.MILLISECONDS);
+    serve(10);
+    assertFalse("Not congested yet", admission.shouldShed());
+    clock.advance(30, TimeUnit.MILLISECONDS);
+    serve(10);
+    assertTrue("Congested", admission.shouldShed());
+    assertTrue(admission.isCongested());
+
+    // A sojourn back under the target is admitted, and ends congestion an interval later
+    serve(1);
+    assertFalse("Under the target", admission.shouldShed());
+    assertTrue("Still congested", admission.isCongested());
+    clock.advance(INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    serve(6);
+    assertFalse("Above the target but no longer congested", admission.shouldShed());
+    assertFalse(admission.isCongested());
+
+    // A sojourn beyond a whole interval is always shed, until it is forgotten
+    serve(2 * INTERVAL_MILLIS);
+    assertTrue("Beyond the interval", admission.shouldShed());
+    clock.advance(INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    assertFalse("Forgotten without reports", admission.shouldShed());
+  }
+
+  /**
+   * Tests that shed mutations cost no token, while reads are still admitted.
+   */
+  @Test
+  public void testShedRequestsCostNoToken() {
+    serve(2 * INTERVAL_MILLIS);
+    for (int i = 0; i < 10; i++) {
+      assertEquals("Shed " + i, AdmissionController.Decision.OVERLOADED, admit("a", true));
+    }
+    assertEquals("Shed count", 10, admission.getShedCount());
+    for (int i = 0; i < 3; i++) {
+      assertEquals("Read " + i, AdmissionController.Decision.ADMITTED, admit("a", false));
+    }
+    assertEquals("Rate limited", 0, admission.getRateLimitedCount());
+  }
+
+  /**
+   * Times a synchronous mutation taking the given time on the clock.
+   */
+  private void serve(long millis) {
+    long started = admission.serviceStarted();
+    clock.advance(millis, TimeUnit.MILLISECONDS);
+    admission.serviceEnded(started);
+  }
+
+  /**
+   * Checks a request, releasing it immediately if admitted.
+   */
+  private AdmissionController.Decision admit(String tenant, boolean mutating) {
+    AdmissionController.Decision decision = admission.acquire(tenant, mutating);
+    if (decision == AdmissionController.Decision.ADMITTED) {
+      admission.release();
+    }
+    return decision;
+  }
+}
@@ -0,0 +1,133 @@
+package tamagochi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link AutoCaretakerTable} class. These tests validate the actions
+ * looked up for every cell of the table against the outcome of every action played
+ * through the real behavior of each mood, the size of the table, how long it keeps
+ * pets alive and the pass over a population.
+ */
+public class AutoCaretakerTableTest {
+  private static final int COMFORT = 50;
+
+  /**
+   * Tests that comfortable cells have no action, and that the action of every other
+   * cell keeps a pet in the middle of the cell alive and healthy after the next tick
+   * at least as well as any other action, or none.
+   */
+  @Test
+  public void testLookupMatchesBehaviors() {
+    AutoCaretakerTable table = AutoCaretakerTable.build(COMFORT);
+    int[] midpoints = bucketMidpoints();
+    int[] levels = new int[4];
+    int cells = 1 << 4 * 3;
+    for (Mood mood : Mood.values()) {
+      for (int cell = 0; cell < cells; cell++) {
+        int lowest = 100;
+        for (int i = 0; i < 4; i++) {
+          levels[i] = midpoints[cell >>> 3 * (3 - i) & (AutoCaretakerTable.BUCKETS - 1)];
+          lowest = Math.min(lowest, levels[i]);
+        }
+        PetActions action = table.lookup(PackedPetState.pack(levels[0], levels[1],
+            levels[2], levels[3], 100, mood, false));
+        String message = mood + " " + levels[0] + "/" + levels[1] + "/" + levels[2] + "/"
+            + levels[3];
+        if (lowest >= COMFORT) {
+          assertNull(message, action);
+          continue;
+        }
+        int chosen = outcome(mood, levels, action);
+        assertTrue(message + " without action", chosen >= outcome(mood, levels, null));
+        for (PetActions other : PetActions.values()) {
+          assertTrue(message + " " + action + " vs " + other,
+              chosen >= outcome(mood, levels, other));
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests that the table holds one byte per cell, 16 KB in all, and keeps pets alive
+   * longer than neglect does.
+   */
+  @Test
+  public void testSizeAndSurvival() throws InterruptedException {
+    AutoCaretakerTable table = AutoCaretakerTable.build(COMFORT);
+    assertEquals("Table size", 16 * 1024, table.sizeInBytes());
+
+    SurvivalEvaluator.Result cared = new SurvivalEvaluator(table, 10_000).evaluate(100, 2, 42);
+    SurvivalEvaluator.Result neglected =
+        new SurvivalEvaluator(CarePolicy.neglect(), 10_000).evaluate(100, 2, 42);
+    assertEquals("Lives saved", 100, cared.getCensoredCount());
+    assertEquals("Lives lost", 0, neglected.getCensoredCount());
+  }
+
+  /**
+   * Tests that a pass over a population only acts on the living pets whose cell has an
+   * action.
+   */
+  @Test
+  public void testApply() {
+    AutoCaretakerTable table = AutoCaretakerTable.build(COMFORT);
+    PetPopulation population = new PetPopulation(new ManualClock());
+    for (int i = 0; i < 10; i++) {
+      population.spawn();
+    }
+    population.get(3).setHygieneLevel(10);
+    PetModel dead = population.get(7);
+    dead.setHungerLevel(0);
+    dead.setHygieneLevel(0);
+    dead.setSocialLevel(0);
+    dead.setSleepyLevel(0);
+    dead.updateState();
+    population.updateAll();
+    int hygiene = population.get(3).getHygieneLevel();
+
+    assertEquals("Actions", 1, table.apply(population));
+    assertTrue("Hygiene restored", population.get(3).getHygieneLevel() > hygiene);
+    assertEquals("Pets scanned", 10, table.getPetsScanned());
+    assertEquals("Actions performed", 1, table.getActionsPerformed());
+  }
+
+  /**
+   * Finds the level in the middle of each bucket.
+   */
+  private static int[] bucketMidpoints() {
+    int[] low = new int[AutoCaretakerTable.BUCKETS];
+    int[] high = new int[AutoCaretakerTable.BUCKETS];
+    for (int level = 100; level >= 0; level--) {
+      low[AutoCaretakerTable.bucketOf(level)] = level;
+    }
+    for (int level = 0; level <= 100; level++) {
+      high[AutoCaretakerTable.bucketOf(level)] = level;
+    }
+    int[] midpoints = new int[AutoCaretakerTable.BUCKETS];
+    for (int bucket = 0; bucket < midpoints.length; bucket++) {
+      midpoints[bucket] = (low[bucket] + high[bucket]) / 2;
+    }
+    return midpoints;
+  }
+
+  /**
+   * Plays an action on a new pet behaving as in the given mood, then one tick, and
+   * ranks the outcome by survival, then health.
+   */
+  private static int outcome(Mood mood, int[] levels, PetActions action) {
+    PetModelImpl pet = new PetModelImpl(0, new ManualClock());
+    pet.setHungerLevel(levels[0]);
+    pet.setHygieneLevel(levels[1]);
+    pet.setSocialLevel(levels[2]);
+    pet.setSleepyLevel(levels[3]);
+    pet.setBehavior(PetModelImpl.behaviorFor(mood));
+    if (action != null) {
+      pet.performAction(action);
+    }
+    pet.updateState();
+    return (pet.isGameOver() ? 0 : 1000) + pet.getHealthLevel();
+  }
+}
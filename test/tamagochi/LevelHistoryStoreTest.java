@@ -0,0 +1,108 @@
+package tamagochi;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link LevelHistoryStore} class. These tests validate that the
+ * recorded history reproduces every tick of the population's state table, that
+ * steadily depleting pets cost nothing between breakpoints, and that pets cared for
+ * every few minutes take under a byte per minute.
+ */
+public class LevelHistoryStoreTest {
+
+  /**
+   * Tests that ranges reproduce the recorded states under random depletion, actions,
+   * deaths and resets, for pets spawned along the way.
+   */
+  @Test
+  public void testRangesMatchRecordedStates() {
+    PetPopulation population = new PetPopulation(new ManualClock());
+    population.setDepletion(StochasticDepletion.parse("uniform:0:3", 9));
+    LevelHistoryStore store = new LevelHistoryStore();
+    SplittableRandom random = new SplittableRandom(13);
+    PetActions[] actions = PetActions.values();
+    List<long[]> tables = new ArrayList<>();
+    for (int t = 0; t < 400; t++) {
+      if (t % 10 == 0) {
+        population.spawn();
+      }
+      population.updateAll();
+      store.record(population);
+      tables.add(population.states().clone());
+      for (int i = 0; i < 3; i++) {
+        PetModel pet = population.get(random.nextInt(population.size()));
+        if (pet.isGameOver()) {
+          pet.resetGame();
+        } else {
+          pet.performAction(actions[random.nextInt(actions.length)]);
+        }
+      }
+    }
+    for (int petId = 0; petId < population.size(); petId++) {
+      int first = 10 * petId;
+      long[] expected = new long[400 - first];
+      for (int t = first; t < 400; t++) {
+        expected[t - first] = tables.get(t)[petId];
+      }
+      assertArrayEquals("History of pet " + petId, expected, store.range(petId, first, 399));
+      int from = first + random.nextInt(400 - first);
+      assertEquals("State of pet " + petId + " at " + from, expected[from - first],
+          store.at(petId, from));
+    }
+  }
+
+  /**
+   * Tests that a pet left alone until it dies is only recorded when spawned.
+   */
+  @Test
+  public void testSteadyDepletionIsNotRecorded() {
+    PetPopulation population = new PetPopulation(new ManualClock());
+    population.spawn();
+    LevelHistoryStore store = new LevelHistoryStore();
+    for (int t = 0; t < 300; t++) {
+      population.updateAll();
+      store.record(population);
+    }
+    assertTrue("Pet should have died", population.get(0).isGameOver());
+    assertEquals("Only the first keyframe should be recorded", 1, store.getRecordCount());
+    assertEquals("Death is predicted", population.states()[0], store.at(0, 299));
+  }
+
+  /**
+   * Tests that pets cared for every few minutes, and reset when dead, take under a
+   * byte per minute, as documented.
+   */
+  @Test
+  public void testSizeOfCaredForPets() {
+    int pets = 1000;
+    int minutes = 30;
+    PetPopulation population = new PetPopulation(new ManualClock());
+    for (int i = 0; i < pets; i++) {
+      population.spawn();
+    }
+    LevelHistoryStore store = new LevelHistoryStore();
+    SplittableRandom random = new SplittableRandom(42);
+    PetActions[] actions = PetActions.values();
+    for (int t = 0; t < minutes * 60; t++) {
+      population.updateAll();
+      store.record(population);
+      for (int i = 0; i < 3; i++) {
+        PetModel pet = population.get(random.nextInt(pets));
+        if (pet.isGameOver()) {
+          pet.resetGame();
+        } else {
+          pet.performAction(actions[random.nextInt(actions.length)]);
+        }
+      }
+    }
+    double bytesPerMinute = (double) store.sizeInBytes() / pets / minutes;
+    assertTrue("Bytes per pet and minute: " + bytesPerMinute, bytesPerMinute < 1);
+  }
+}
@@ -0,0 +1,125 @@
+package tamagochi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link PetAlertEngine} class. These tests validate predicted
+ * crossings against a tick-by-tick check of the pets, and that actions reschedule
+ * alerts.
+ */
+public class PetAlertEngineTest {
+
+  /**
+   * Tests that every crossing is alerted exactly once, the lead before it happens.
+   */
+  @Test
+  public void testAlertsPrecedeCrossings() {
+    int pets = 300;
+    int lead = 4;
+    PetPopulation population = new PetPopulation(new ManualClock());
+    SplittableRandom random = new SplittableRandom(11);
+    for (int i = 0; i < pets; i++) {
+      PetModel pet = population.get(population.spawn());
+      pet.setHungerLevel(20 + random.nextInt(81));
+      pet.setHygieneLevel(20 + random.nextInt(81));
+      pet.setSocialLevel(20 + random.nextInt(81));
+      pet.setSleepyLevel(20 + random.nextInt(81));
+      pet.updateState();
+    }
+    List<PetAlertEngine.Alert> alerts = new ArrayList<>();
+    PetAlertEngine engine = new PetAlertEngine(lead, 1, alerts::addAll);
+    engine.attach(population);
+    engine.advance();
+
+    Set<String> expected = new HashSet<>();
+    PetSnapshot[] previous = new PetSnapshot[pets];
+    for (int i = 0; i < pets; i++) {
+      previous[i] = population.get(i).getSnapshot();
+    }
+    for (int tick = 2; tick < 120; tick++) {
+      population.updateAll();
+      engine.advance();
+      for (int i = 0; i < pets; i++) {
+        PetSnapshot state = population.get(i).getSnapshot();
+        for (PetAlertEngine.Kind kind : PetAlertEngine.Kind.values()) {
+          if (crossed(state, kind) && !crossed(previous[i], kind)) {
+            expected.add(i + " " + kind + " " + tick);
+          }
+        }
+        previous[i] = state;
+      }
+    }
+    Set<String> predicted = new HashSet<>();
+    for (PetAlertEngine.Alert alert : alerts) {
+      assertTrue("Alerts are raised the lead ahead, or at once when closer",
+          alert.getTicksLeft() == lead || alert.getTick() == 1 && alert.getTicksLeft() < lead);
+      predicted.add(alert.getPetId() + " " + alert.getKind() + " "
+          + (alert.getTick() + alert.getTicksLeft()));
+    }
+    assertEquals("One alert per crossing", alerts.size(), predicted.size());
+    assertEquals("Predicted crossings", expected, predicted);
+  }
+
+  /**
+   * Tests that caring for a pet before its alert postpones the alert.
+   */
+  @Test
+  public void testActionReschedulesAlert() {
+    PetPopulation population = new PetPopulation(new ManualClock());
+    PetModel pet = population.get(population.spawn());
+    List<PetAlertEngine.Alert> alerts = new ArrayList<>();
+    PetAlertEngine engine = new PetAlertEngine(2, 1, alerts::addAll);
+    engine.attach(population);
+    engine.advance();
+
+    // Health falls to 70 after 30 ticks: feeding at tick 20 raises the average
+    for (int tick = 0; tick < 20; tick++) {
+      population.updateAll();
+      engine.advance();
+    }
+    pet.performAction(PetActions.FEED);
+    int fedHunger = pet.getSnapshot().getHungerLevel();
+    assertTrue("Feeding should raise hunger", fedHunger > 80);
+    for (int tick = 0; tick < 60 && alerts.isEmpty(); tick++) {
+      population.updateAll();
+      engine.advance();
+    }
+    PetAlertEngine.Alert first = alerts.get(0);
+    assertEquals("First alert", PetAlertEngine.Kind.GRUMPY, first.getKind());
+    assertTrue("Alert should come later than without feeding", first.getTick() > 29);
+    for (int tick = 0; tick < first.getTicksLeft(); tick++) {
+      population.updateAll();
+    }
+    assertEquals("Pet turns grumpy when predicted", Mood.GRUMPY, pet.getSnapshot().getMood());
+  }
+
+  /**
+   * Checks whether a pet has crossed a threshold.
+   */
+  private static boolean crossed(PetSnapshot state, PetAlertEngine.Kind kind) {
+    switch (kind) {
+      case HUNGER:
+        return state.getHungerLevel() < PetModelImpl.PENALTY_LEVEL;
+      case HYGIENE:
+        return state.getHygieneLevel() < PetModelImpl.PENALTY_LEVEL;
+      case SOCIAL:
+        return state.getSocialLevel() < PetModelImpl.PENALTY_LEVEL;
+      case SLEEPY:
+        return state.getSleepyLevel() < PetModelImpl.PENALTY_LEVEL;
+      case GRUMPY:
+        return state.getHealthLevel() <= PetModelImpl.HAPPY_HEALTH;
+      case DEPRESSIVE:
+        return state.getHealthLevel() <= PetModelImpl.GRUMPY_HEALTH;
+      default:
+        return state.getHealthLevel() == 0;
+    }
+  }
+}
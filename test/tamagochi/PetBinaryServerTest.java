@@ -0,0 +1,215 @@
+package tamagochi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link PetBinaryServer} class, talking to a server on an ephemeral
+ * loopback port over real sockets. These tests validate the decoding of pipelined and
+ * split frames, the tenant check, the rejection of malformed pet ids and the answers
+ * to clients that write faster than they read.
+ */
+public class PetBinaryServerTest {
+  private PetService service;
+  private PetBinaryServer server;
+  private int otherPet;
+
+  /**
+   * Starts a server over 200 pets of tenant "a" and one pet of tenant "b".
+   */
+  @Before
+  public void setUp() throws IOException {
+    service = new PetService(1000, new ManualClock(0));
+    for (int i = 0; i < 200; i++) {
+      service.createPet("a");
+    }
+    otherPet = service.createPet("b").getPetId();
+    server = new PetBinaryServer(service,
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    server.start();
+  }
+
+  /**
+   * Stops the server and the service.
+   */
+  @After
+  public void tearDown() {
+    server.stop();
+    service.stop();
+  }
+
+  /**
+   * Tests that pipelined requests are answered in order, rejecting unknown actions and
+   * the pets of other tenants.
+   */
+  @Test
+  public void testPipelinedRequests() throws IOException {
+    try (Socket socket = connect()) {
+      ByteArrayOutputStream requests = new ByteArrayOutputStream();
+      requests.write(tenant("a"));
+      requests.write(request(PetActions.FEED.ordinal(), 3));
+      requests.write(request(PetActions.SLEEP.ordinal(), 150));
+      requests.write(request(PetActions.values().length, 3));
+      requests.write(request(PetActions.FEED.ordinal(), otherPet));
+      requests.write(request(PetActions.FEED.ordinal(), 100_000));
+      socket.getOutputStream().write(requests.toByteArray());
+
+      byte[] statuses = readFully(socket.getInputStream(), 5);
+      assertEquals("Own pet", PetBinaryServer.STATUS_ACCEPTED, statuses[0]);
+      assertEquals("Two-byte id", PetBinaryServer.STATUS_ACCEPTED, statuses[1]);
+      assertEquals("Unknown action", PetBinaryServer.STATUS_UNKNOWN_ACTION, statuses[2]);
+      assertEquals("Other tenant's pet", PetBinaryServer.STATUS_UNKNOWN_PET, statuses[3]);
+      assertEquals("Unknown pet", PetBinaryServer.STATUS_UNKNOWN_PET, statuses[4]);
+      assertEquals("Actions queued", 2, service.getActionQueue().getOfferedCount());
+    }
+  }
+
+  /**
+   * Tests that the tenant and requests may arrive split over several reads.
+   */
+  @Test
+  public void testSplitFrames() throws Exception {
+    try (Socket socket = connect()) {
+      ByteArrayOutputStream requests = new ByteArrayOutputStream();
+      requests.write(tenant("a"));
+      requests.write(request(PetActions.SHOWER.ordinal(), 199));
+      requests.write(request(PetActions.FEED.ordinal(), otherPet));
+      byte[] bytes = requests.toByteArray();
+      OutputStream out = socket.getOutputStream();
+      for (byte b : bytes) {
+        out.write(b);
+        out.flush();
+        TimeUnit.MILLISECONDS.sleep(5);
+      }
+      byte[] statuses = readFully(socket.getInputStream(), 2);
+      assertEquals("Split request", PetBinaryServer.STATUS_ACCEPTED, statuses[0]);
+      assertEquals("Split request", PetBinaryServer.STATUS_UNKNOWN_PET, statuses[1]);
+    }
+  }
+
+  /**
+   * Tests that the largest pet id is decoded, and that ids beyond 31 bits close the
+   * connection.
+   */
+  @Test
+  public void testMalformedPetId() throws IOException {
+    try (Socket socket = connect()) {
+      OutputStream out = socket.getOutputStream();
+      out.write(tenant("a"));
+      out.write(request(PetActions.FEED.ordinal(), Integer.MAX_VALUE));
+      assertEquals("Largest id", PetBinaryServer.STATUS_UNKNOWN_PET,
+          readFully(socket.getInputStream(), 1)[0]);
+
+      out.write(new byte[] {(byte) PetActions.FEED.ordinal(), (byte) 0x80, (byte) 0x80,
+          (byte) 0x80, (byte) 0x80, 0x08});
+      assertEquals("Closed", -1, socket.getInputStream().read());
+    }
+    assertEquals("Nothing queued", 0, service.getActionQueue().getOfferedCount());
+  }
+
+  /**
+   * Tests that a client writing many requests before reading any answer gets every
+   * answer, in order, once it reads.
+   */
+  @Test
+  public void testWriteBackpressure() throws Exception {
+    int count = 200_000;
+    try (Socket socket = connect()) {
+      Thread writer = new Thread(() -> {
+        try {
+          OutputStream out = socket.getOutputStream();
+          out.write(tenant("a"));
+          byte[] batch = new byte[2 * 1000];
+          for (int i = 0; i < batch.length; i += 2) {
+            batch[i] = (byte) PetActions.SOCIALIZE.ordinal();
+            batch[i + 1] = (byte) (i / 2 % 100);
+          }
+          for (int sent = 0; sent < count; sent += 1000) {
+            out.write(batch);
+          }
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      });
+      writer.start();
+      TimeUnit.MILLISECONDS.sleep(200); // Let the server fill its buffers
+      byte[] statuses = readFully(socket.getInputStream(), count);
+      writer.join();
+      int accepted = 0;
+      for (byte status : statuses) {
+        assertTrue("Status " + status, status == PetBinaryServer.STATUS_ACCEPTED
+            || status == PetBinaryServer.STATUS_OVERLOADED);
+        if (status == PetBinaryServer.STATUS_ACCEPTED) {
+          accepted++;
+        }
+      }
+      assertTrue("Accepted " + accepted, accepted > 0);
+      assertEquals("Queued actions", accepted,
+          service.getActionQueue().getOfferedCount() - service.getActionQueue()
+              .getDroppedCount());
+    }
+  }
+
+  /**
+   * Connects a client to the server.
+   */
+  private Socket connect() throws IOException {
+    Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+    socket.setSoTimeout(10_000);
+    return socket;
+  }
+
+  /**
+   * Encodes the frame opening a connection for the given tenant.
+   */
+  private static byte[] tenant(String tenant) {
+    byte[] id = tenant.getBytes(StandardCharsets.UTF_8);
+    byte[] frame = new byte[1 + id.length];
+    frame[0] = (byte) id.length;
+    System.arraycopy(id, 0, frame, 1, id.length);
+    return frame;
+  }
+
+  /**
+   * Encodes a request frame.
+   */
+  private static byte[] request(int ordinal, int petId) {
+    ByteArrayOutputStream frame = new ByteArrayOutputStream();
+    frame.write(ordinal);
+    while ((petId & ~0x7F) != 0) {
+      frame.write(petId & 0x7F | 0x80);
+      petId >>>= 7;
+    }
+    frame.write(petId);
+    return frame.toByteArray();
+  }
+
+  /**
+   * Reads exactly the given number of bytes.
+   */
+  private static byte[] readFully(InputStream in, int length) throws IOException {
+    byte[] bytes = new byte[length];
+    int read = 0;
+    while (read < length) {
+      int n = in.read(bytes, read, length - read);
+      if (n < 0) {
+        throw new IOException("Connection closed after " + read + " bytes");
+      }
+      read += n;
+    }
+    return bytes;
+  }
+}
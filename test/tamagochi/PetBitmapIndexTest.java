@@ -0,0 +1,111 @@
+package tamagochi;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link PetBitmapIndex} and {@link CompressedBitmap} classes. These
+ * tests validate the set operations and sizes of both chunk representations and that
+ * queries match a scan of the pets as they change.
+ */
+public class PetBitmapIndexTest {
+
+  /**
+   * Tests that set operations agree with {@link BitSet} on sparse and dense chunks.
+   */
+  @Test
+  public void testBitmapOperationsMatchBitSet() {
+    SplittableRandom random = new SplittableRandom(3);
+    CompressedBitmap first = new CompressedBitmap();
+    CompressedBitmap second = new CompressedBitmap();
+    BitSet firstBits = new BitSet();
+    BitSet secondBits = new BitSet();
+    for (int i = 0; i < 30_000; i++) {
+      int dense = random.nextInt(1 << 16); // Same chunk: switches to a bitmap
+      int sparse = random.nextInt(1 << 22);
+      first.add(dense);
+      firstBits.set(dense);
+      second.add(sparse);
+      secondBits.set(sparse);
+      if (i % 3 == 0) {
+        first.remove(sparse);
+        firstBits.clear(sparse);
+        second.remove(dense);
+        secondBits.clear(dense);
+      }
+    }
+    assertArrayEquals("Values", firstBits.stream().toArray(), first.toArray());
+    BitSet expected = (BitSet) firstBits.clone();
+    expected.and(secondBits);
+    assertArrayEquals("AND", expected.stream().toArray(), first.and(second).toArray());
+    expected = (BitSet) firstBits.clone();
+    expected.or(secondBits);
+    assertArrayEquals("OR", expected.stream().toArray(), first.or(second).toArray());
+    expected = (BitSet) firstBits.clone();
+    expected.andNot(secondBits);
+    assertArrayEquals("AND NOT", expected.stream().toArray(),
+        first.andNot(second).toArray());
+  }
+
+  /**
+   * Tests that sparse chunks take 2 bytes per value, up to twice as many while they
+   * grow, and dense chunks 1 bit per possible value.
+   */
+  @Test
+  public void testBitmapSizes() {
+    CompressedBitmap sparse = new CompressedBitmap();
+    for (int i = 0; i < 1000; i++) {
+      sparse.add(i * 37);
+    }
+    assertTrue("Growing sparse chunk", sparse.sizeInBytes() <= 2 + 4 * 1000);
+    assertEquals("Sparse chunk", 2 + 2 * 1000, sparse.copy().sizeInBytes());
+
+    CompressedBitmap dense = new CompressedBitmap();
+    for (int i = 0; i < 30_000; i++) {
+      dense.add(2 * i);
+    }
+    assertEquals("Dense chunk", 2 + (1 << 16) / 8, dense.sizeInBytes());
+  }
+
+  /**
+   * Tests that queries match a scan of the latest snapshots while pets are ticked and
+   * cared for.
+   */
+  @Test
+  public void testQueriesMatchScan() {
+    PetPopulation population = new PetPopulation(new ManualClock());
+    population.setDepletion(StochasticDepletion.parse("uniform:0:4", 5));
+    for (int i = 0; i < 500; i++) {
+      population.spawn();
+    }
+    PetBitmapIndex index = new PetBitmapIndex(population);
+    index.attach();
+    SplittableRandom random = new SplittableRandom(5);
+    PetActions[] actions = PetActions.values();
+    for (int t = 0; t < 40; t++) {
+      population.updateAll();
+      for (int i = 0; i < 200; i++) {
+        PetModel pet = population.get(random.nextInt(500));
+        if (!pet.isGameOver()) {
+          pet.performAction(actions[random.nextInt(actions.length)]);
+        }
+      }
+      int expected = 0;
+      for (int i = 0; i < 500; i++) {
+        PetSnapshot state = population.get(i).getSnapshot();
+        if (state.getMood() == Mood.GRUMPY && state.getHungerLevel() < 45
+            && state.getHygieneLevel() >= 30 && !state.isGameOver()) {
+          expected++;
+        }
+      }
+      assertEquals("Matches after tick " + t, expected, index.query().mood(Mood.GRUMPY)
+          .below(PetSnapshot.Level.HUNGER, 45)
+          .atLeast(PetSnapshot.Level.HYGIENE, 30).alive().count());
+    }
+  }
+}
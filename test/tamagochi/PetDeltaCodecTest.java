@@ -0,0 +1,150 @@
+package tamagochi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link PetDeltaCodec} class, which encodes pet state changes
+ * relative to a base state. These tests validate round trips, frame sizes and the
+ * handling of negative changes, mood transitions, missing moods and game over.
+ */
+public class PetDeltaCodecTest {
+  private final ByteBuffer buffer = ByteBuffer.allocate(PetDeltaCodec.MAX_FRAME_BYTES);
+
+  /**
+   * Encodes a change, decodes it onto the base and returns the decoded state.
+   */
+  private PetDeltaCodec.State roundTrip(PetSnapshot base, PetSnapshot current) {
+    buffer.clear();
+    PetDeltaCodec.encode(base, current, buffer);
+    buffer.flip();
+    PetDeltaCodec.State state = new PetDeltaCodec.State();
+    if (base != null) {
+      state.set(base);
+    }
+    PetDeltaCodec.decode(buffer, state);
+    assertFalse("The whole frame should be consumed", buffer.hasRemaining());
+    return state;
+  }
+
+  /**
+   * Tests that a full frame, encoded without a base, restores every field.
+   */
+  @Test
+  public void testFullStateRoundTrip() {
+    PetSnapshot current = new PetSnapshot(300, 50, 75, 10, 0, 100, Mood.GRUMPY, false, 12, 7);
+    assertEquals("Full frame should restore the state", current.toString(),
+        roundTrip(null, current).toSnapshot().toString());
+  }
+
+  /**
+   * Tests that a typical tick encodes in a few bytes and decodes to the new state,
+   * including levels that decreased.
+   */
+  @Test
+  public void testTickDeltaIsSmall() {
+    PetSnapshot base = new PetSnapshot(3, 50, 50, 50, 50, 100, Mood.HAPPY, false, 10, 20);
+    PetSnapshot current = new PetSnapshot(3, 51, 49, 49, 51, 100, Mood.HAPPY, false, 11, 21);
+    buffer.clear();
+    int size = PetDeltaCodec.encode(base, current, buffer);
+    assertEquals("Id, header, version, four levels and survival time", 8, size);
+    assertEquals("Delta should decode to the new state", current.toString(),
+        roundTrip(base, current).toSnapshot().toString());
+  }
+
+  /**
+   * Tests mood transitions and the game-over flag.
+   */
+  @Test
+  public void testMoodAndGameOver() {
+    PetSnapshot base = new PetSnapshot(1, 100, 0, 0, 100, 5, Mood.DEPRESSIVE, false, 99, 4);
+    PetSnapshot current = new PetSnapshot(1, 100, 0, 0, 100, 0, Mood.GRUMPY, true, 100, 9);
+    PetDeltaCodec.State state = roundTrip(base, current);
+    assertEquals("Mood should change", Mood.GRUMPY, state.getMood());
+    assertTrue("Game should be over", state.isGameOver());
+    assertEquals("Health should drop to 0", 0, state.getHealthLevel());
+    assertEquals("Version should skip to 9", 9, state.getVersion());
+  }
+
+  /**
+   * Tests that a pet without a mood round-trips, in full and delta frames.
+   */
+  @Test
+  public void testNullMood() {
+    PetSnapshot moodless = new PetSnapshot(2, 40, 40, 40, 40, 40, null, false, 3, 1);
+    assertEquals("Full frame without a mood", moodless.toString(),
+        roundTrip(null, moodless).toSnapshot().toString());
+    PetSnapshot grumpy = new PetSnapshot(2, 40, 40, 40, 40, 40, Mood.GRUMPY, false, 3, 2);
+    assertEquals("Mood set", Mood.GRUMPY, roundTrip(moodless, grumpy).getMood());
+    PetSnapshot cleared = new PetSnapshot(2, 40, 40, 40, 40, 40, null, false, 3, 3);
+    assertNull("Mood cleared", roundTrip(grumpy, cleared).getMood());
+  }
+
+  /**
+   * Tests that the changes of a ticking population, with owners acting on random pets,
+   * round-trip and take about 8 bytes each, far less than the JSON state.
+   */
+  @Test
+  public void testPopulationChangesAreSmall() {
+    List<PetSnapshot[]> changes = new ArrayList<>();
+    PetPopulation population = new PetPopulation(new ManualClock());
+    population.addListener(new PetModelListener() {
+      @Override
+      public void onStateChanged(PetSnapshot previous, PetSnapshot current) {
+        if (previous != null) {
+          changes.add(new PetSnapshot[] {previous, current});
+        }
+      }
+    });
+    for (int i = 0; i < 200; i++) {
+      population.spawn();
+    }
+    Random random = new Random(42);
+    PetActions[] actions = PetActions.values();
+    for (int t = 0; t < 100; t++) {
+      population.updateAll();
+      for (int i = 0; i < 20; i++) {
+        PetModel pet = population.get(random.nextInt(200));
+        if (!pet.isGameOver()) {
+          pet.performAction(actions[random.nextInt(actions.length)]);
+        }
+      }
+    }
+
+    long deltaBytes = 0;
+    long jsonBytes = 0;
+    for (PetSnapshot[] change : changes) {
+      buffer.clear();
+      deltaBytes += PetDeltaCodec.encode(change[0], change[1], buffer);
+      jsonBytes += PetHttpServer.toJson(change[1]).getBytes(StandardCharsets.UTF_8).length;
+      assertEquals("Round trip", change[1].toString(),
+          roundTrip(change[0], change[1]).toSnapshot().toString());
+    }
+    double perChange = deltaBytes / (double) changes.size();
+    assertTrue("Bytes per change: " + perChange, perChange <= 8);
+    assertTrue("JSON to delta ratio: " + jsonBytes / (double) deltaBytes,
+        jsonBytes > 10 * deltaBytes);
+  }
+
+  /**
+   * Tests that zig-zag encoding maps small values of either sign to small values.
+   */
+  @Test
+  public void testZigZag() {
+    assertEquals(0, PetDeltaCodec.zigZag(0));
+    assertEquals(1, PetDeltaCodec.zigZag(-1));
+    assertEquals(2, PetDeltaCodec.zigZag(1));
+    for (long value = -1000; value <= 1000; value++) {
+      assertEquals(value, PetDeltaCodec.unZigZag(PetDeltaCodec.zigZag(value)));
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package tamagochi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link PetEventStream} class, subscribing directly instead of over
+ * HTTP. These tests validate that every subscriber ends up with the pet's latest state
+ * when subscribers come and go between flushes or fall behind, and that topics are
+ * dropped with their last subscriber.
+ */
+public class PetEventStreamTest {
+  private PetService service;
+  private PetEventStream stream;
+  private int petId;
+  private PetModel pet;
+
+  /**
+   * Sets up a stream over a service holding one pet, on an unstarted server.
+   */
+  @Before
+  public void setUp() throws IOException {
+    service = new PetService(1000, new ManualClock());
+    PetHttpServer server = new PetHttpServer(service,
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    stream = PetEventStream.mount(service, server);
+    server.stop();
+    petId = service.createPet("tenant").getPetId();
+    pet = service.getPopulation().get(petId);
+  }
+
+  /**
+   * Tests that a resubscription receives a level going back to the value last sent to
+   * the previous subscriber.
+   */
+  @Test
+  public void testResubscription() {
+    PetEventStream.Subscriber first = new PetEventStream.Subscriber();
+    stream.subscribe(petId, first);
+    pet.setHungerLevel(50);
+    stream.flush();
+    stream.unsubscribe(petId, first);
+    pet.setHungerLevel(80);
+
+    PetEventStream.Subscriber second = new PetEventStream.Subscriber();
+    stream.subscribe(petId, second);
+    pet.setHungerLevel(50);
+    stream.flush();
+    assertEquals("Hunger", 50, hungerOf(second));
+  }
+
+  /**
+   * Tests that subscribers joining between flushes, old and new, all follow a level
+   * going back to the value of the previous flush.
+   */
+  @Test
+  public void testSubscriptionBetweenFlushes() {
+    PetEventStream.Subscriber first = new PetEventStream.Subscriber();
+    stream.subscribe(petId, first);
+    pet.setHungerLevel(50);
+    stream.flush();
+
+    pet.setHungerLevel(60);
+    PetEventStream.Subscriber second = new PetEventStream.Subscriber();
+    stream.subscribe(petId, second);
+    pet.setHungerLevel(50);
+    stream.flush();
+    assertEquals("Hunger of the first subscriber", 50, hungerOf(first));
+    assertEquals("Hunger of the second subscriber", 50, hungerOf(second));
+  }
+
+  /**
+   * Tests that a subscriber falling behind gets the latest full state, and none of the
+   * older deltas queued after its buffer overflowed.
+   */
+  @Test
+  public void testResyncDiscardsQueuedDeltas() throws InterruptedException {
+    PetEventStream.Subscriber subscriber = new PetEventStream.Subscriber();
+    stream.subscribe(petId, subscriber);
+    for (int i = 0; i < PetEventStream.SUBSCRIBER_BUFFER + 4; i++) {
+      pet.setHungerLevel(i);
+      stream.flush();
+    }
+    int last = PetEventStream.SUBSCRIBER_BUFFER + 3;
+    String frame = stream.nextFrame(subscriber, 0, TimeUnit.SECONDS);
+    assertEquals("Full state after the overflow", PetEventStream.fullFrame(pet.getSnapshot()),
+        frame);
+    assertTrue("Latest hunger", frame.contains("\"hunger\":" + last + ","));
+    assertNull("Older deltas", stream.nextFrame(subscriber, 0, TimeUnit.SECONDS));
+
+    pet.setHungerLevel(90);
+    stream.flush();
+    assertTrue("Following delta",
+        stream.nextFrame(subscriber, 0, TimeUnit.SECONDS).contains("\"hunger\":90"));
+  }
+
+  /**
+   * Tests that a topic is dropped with its last subscriber.
+   */
+  @Test
+  public void testTopicDroppedWithLastSubscriber() {
+    PetEventStream.Subscriber first = new PetEventStream.Subscriber();
+    PetEventStream.Subscriber second = new PetEventStream.Subscriber();
+    stream.subscribe(petId, first);
+    stream.subscribe(petId, second);
+    assertEquals("Topics", 1, stream.getTopicCount());
+    stream.unsubscribe(petId, first);
+    assertEquals("Topic kept for the second subscriber", 1, stream.getTopicCount());
+    stream.unsubscribe(petId, second);
+    assertEquals("Topics", 0, stream.getTopicCount());
+    assertEquals("Subscribers", 0, stream.getSubscriberCount());
+  }
+
+  /**
+   * Applies the queued frames of a subscriber, which must start with a full frame, and
+   * returns the hunger level the client ends up showing.
+   */
+  private static int hungerOf(PetEventStream.Subscriber subscriber) {
+    List<String> frames = new ArrayList<>();
+    subscriber.frames.drainTo(frames);
+    assertTrue("The first frame should be full", frames.get(0).contains("\"mood\""));
+    int hunger = -1;
+    for (String frame : frames) {
+      int start = frame.indexOf("\"hunger\":");
+      if (start >= 0) {
+        start += "\"hunger\":".length();
+        int end = start;
+        while (Character.isDigit(frame.charAt(end))) {
+          end++;
+        }
+        hunger = Integer.parseInt(frame.substring(start, end));
+      }
+    }
+    return hunger;
+  }
+}
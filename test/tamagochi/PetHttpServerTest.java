@@ -0,0 +1,174 @@
+package tamagochi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link PetHttpServer} class, sending requests to a server on an
+ * ephemeral loopback port. These tests validate the status code of every route and
+ * rejection, and that tenants only see their own pets.
+ */
+public class PetHttpServerTest {
+  private static final int BURST = 20;
+
+  private ManualClock admissionClock;
+  private AdmissionController admission;
+  private PetService service;
+  private PetHttpServer server;
+  private HttpClient client;
+
+  /**
+   * Starts a server over a service whose tenants may send bursts of 20 requests, with
+   * admission timed by a manual clock.
+   */
+  @Before
+  public void setUp() throws IOException {
+    admissionClock = new ManualClock(TimeUnit.DAYS.toNanos(1));
+    service = new PetService(1000, new ManualClock(0), queue -> {
+      admission = new AdmissionController(queue, 1, BURST, 64, 5, 100, admissionClock);
+      return admission;
+    });
+    server = new PetHttpServer(service,
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    server.start();
+    client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+  }
+
+  /**
+   * Stops the server and the service.
+   */
+  @After
+  public void tearDown() {
+    server.stop();
+    service.stop();
+  }
+
+  /**
+   * Tests that a created pet is answered with 201, then found by its tenant.
+   */
+  @Test
+  public void testCreateAndGet() throws Exception {
+    HttpResponse<String> created = send("POST", "/pets", "a");
+    assertEquals("Created", 201, created.statusCode());
+    assertTrue(created.body(), created.body().startsWith("{\"id\":0,"));
+
+    assertEquals("Found", 200, send("GET", "/pets/0", "a").statusCode());
+    assertEquals("Action", 200, send("POST", "/pets/0/actions/feed", "a").statusCode());
+    assertEquals("Reset", 200, send("POST", "/pets/0/reset", "a").statusCode());
+    HttpResponse<String> leaderboard = send("GET", "/pets/leaderboard?limit=5", "a");
+    assertEquals("Leaderboard", 200, leaderboard.statusCode());
+    assertTrue(leaderboard.body(), leaderboard.body().contains("\"id\":0,"));
+  }
+
+  /**
+   * Tests that unknown actions and invalid leaderboard limits are answered with 400.
+   */
+  @Test
+  public void testBadRequest() throws Exception {
+    send("POST", "/pets", "a");
+    assertEquals("Unknown action", 400, send("POST", "/pets/0/actions/dance", "a")
+        .statusCode());
+    assertEquals("Invalid limit", 400, send("GET", "/pets/leaderboard?limit=x", "a")
+        .statusCode());
+    assertEquals("Limit too large", 400,
+        send("GET", "/pets/leaderboard?limit=" + (PetHttpServer.MAX_LEADERBOARD + 1), "a")
+            .statusCode());
+  }
+
+  /**
+   * Tests that unknown pets, the pets of other tenants and unknown routes are answered
+   * with 404.
+   */
+  @Test
+  public void testNotFound() throws Exception {
+    send("POST", "/pets", "a");
+    assertEquals("Unknown pet", 404, send("GET", "/pets/1", "a").statusCode());
+    assertEquals("Other tenant's pet", 404, send("GET", "/pets/0", "b").statusCode());
+    assertEquals("Other tenant's action", 404, send("POST", "/pets/0/actions/feed", "b")
+        .statusCode());
+    assertEquals("Invalid id", 404, send("GET", "/pets/first", "a").statusCode());
+    assertEquals("Unknown route", 404, send("POST", "/pets/0/feed", "a").statusCode());
+  }
+
+  /**
+   * Tests that methods other than POST on the collection are answered with 405.
+   */
+  @Test
+  public void testMethodNotAllowed() throws Exception {
+    assertEquals("GET", 405, send("GET", "/pets", "a").statusCode());
+    assertEquals("DELETE", 405, send("DELETE", "/pets", "a").statusCode());
+  }
+
+  /**
+   * Tests that actions on a pet whose game is over are answered with 409.
+   */
+  @Test
+  public void testGameOver() throws Exception {
+    send("POST", "/pets", "a");
+    PetModel pet = service.getPopulation().get(0);
+    pet.setHungerLevel(0);
+    pet.setHygieneLevel(0);
+    pet.setSocialLevel(0);
+    pet.setSleepyLevel(0);
+    pet.updateState();
+    assertEquals("Game over", 409, send("POST", "/pets/0/actions/feed", "a").statusCode());
+    assertEquals("Reset", 200, send("POST", "/pets/0/reset", "a").statusCode());
+  }
+
+  /**
+   * Tests that a tenant exceeding its burst is answered with 429 and a retry hint, while
+   * other tenants are not.
+   */
+  @Test
+  public void testRateLimited() throws Exception {
+    for (int i = 0; i < BURST; i++) {
+      assertEquals("Burst " + i, 404, send("GET", "/pets/0", "a").statusCode());
+    }
+    HttpResponse<String> limited = send("GET", "/pets/0", "a");
+    assertEquals("Rate limited", 429, limited.statusCode());
+    assertEquals("Retry hint", "1", limited.headers().firstValue("Retry-After").orElse(""));
+    assertEquals("Other tenant", 201, send("POST", "/pets", "b").statusCode());
+  }
+
+  /**
+   * Tests that mutations are answered with 503 and a retry hint while the service is
+   * congested, and that reads are still served.
+   */
+  @Test
+  public void testOverloaded() throws Exception {
+    send("POST", "/pets", "a");
+    long started = admission.serviceStarted();
+    admissionClock.advance(1, TimeUnit.SECONDS);
+    admission.serviceEnded(started);
+
+    HttpResponse<String> shed = send("POST", "/pets/0/actions/feed", "a");
+    assertEquals("Shed", 503, shed.statusCode());
+    assertEquals("Retry hint", "1", shed.headers().firstValue("Retry-After").orElse(""));
+    assertEquals("Read", 200, send("GET", "/pets/0", "a").statusCode());
+  }
+
+  /**
+   * Sends a request without a body for the given tenant.
+   */
+  private HttpResponse<String> send(String method, String path, String tenant)
+      throws IOException, InterruptedException {
+    HttpRequest request = HttpRequest.newBuilder(
+            URI.create("http://127.0.0.1:" + server.getPort() + path))
+        .header(PetHttpServer.TENANT_HEADER, tenant)
+        .method(method, HttpRequest.BodyPublishers.noBody())
+        .build();
+    return client.send(request, HttpResponse.BodyHandlers.ofString());
+  }
+}
@@ -368,4 +368,63 @@ public class PetModelImplTest {
     long elapsedTime = pet.getSurvivalTime();
     assertTrue(elapsedTime > initialTime); // Time should have increased
   }
+
+  /**
+   * Tests that a new snapshot reflecting all levels is published after each mutation,
+   * and that reading the snapshot does not create a new one.
+   */
+  @Test
+  public void testSnapshotPublishedAfterMutation() {
+    PetSnapshot initial = pet.getSnapshot();
+    assertNotNull("A snapshot should be published on construction", initial);
+    assertTrue("Reading twice should return the same snapshot", initial == pet.getSnapshot());
+
+    pet.setHungerLevel(30);
+    pet.updateState();
+    PetSnapshot updated = pet.getSnapshot();
+    assertEquals(pet.getHungerLevel(), updated.getHungerLevel());
+    assertEquals(pet.getHygieneLevel(), updated.getHygieneLevel());
+    assertEquals(pet.getSocialLevel(), updated.getSocialLevel());
+    assertEquals(pet.getSleepyLevel(), updated.getSleepyLevel());
+    assertEquals(pet.getHealthLevel(), updated.getHealthLevel());
+    assertEquals(pet.getMood(), updated.getMood());
+    assertFalse(updated.isGameOver());
+    assertTrue("Versions should increase", updated.getVersion() > initial.getVersion());
+  }
+
+  /**
+   * Tests that the snapshot reports game over once health drops to zero.
+   */
+  @Test
+  public void testSnapshotReportsGameOver() {
+    pet.setHungerLevel(0);
+    pet.setHygieneLevel(0);
+    pet.setSocialLevel(0);
+    pet.setSleepyLevel(0);
+    pet.updateState();
+
+    assertTrue(pet.getSnapshot().isGameOver());
+    assertEquals(0, pet.getSnapshot().getHealthLevel());
+  }
+
+  /**
+   * Tests that the social level is adjusted within its bounds, and not once the game
+   * is over.
+   */
+  @Test
+  public void testAdjustSocialLevel() {
+    pet.setSocialLevel(40);
+    assertTrue(pet.adjustSocialLevel(5));
+    assertEquals(45, pet.getSocialLevel());
+    assertTrue(pet.adjustSocialLevel(-60));
+    assertEquals(0, pet.getSocialLevel());
+
+    pet.setHungerLevel(0);
+    pet.setHygieneLevel(0);
+    pet.setSleepyLevel(0);
+    pet.updateState();
+    assertTrue(pet.isGameOver());
+    assertFalse("Game over", pet.adjustSocialLevel(5));
+    assertEquals(0, pet.getSocialLevel());
+  }
 }
@@ -0,0 +1,81 @@
+package tamagochi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link PetPopulation} class. These tests validate that the state
+ * table can be copied from other threads while the population is being ticked, and
+ * copies of ranges ending past the last pet.
+ */
+public class PetPopulationTest {
+
+  /**
+   * Tests that copies of the state table made while another thread ticks the
+   * population never mix two publications. All pets are spawned together and never
+   * acted on, so every publication holds the same state for all of them.
+   */
+  @Test
+  public void testCopyStatesUnderConcurrentUpdates() throws InterruptedException {
+    int pets = 3 * PetPopulation.SHARD_SIZE;
+    ManualClock clock = new ManualClock();
+    PetPopulation population = new PetPopulation(clock);
+    population.setParallel(true);
+    for (int i = 0; i < pets; i++) {
+      population.spawn();
+    }
+
+    AtomicBoolean done = new AtomicBoolean();
+    Thread ticker = new Thread(() -> {
+      for (int tick = 0; tick < 2000; tick++) {
+        if (tick % 10 == 0) {
+          for (int i = 0; i < pets; i++) {
+            population.get(i).resetGame();
+          }
+        }
+        clock.advance(1, TimeUnit.SECONDS);
+        population.updateAll();
+      }
+      done.set(true);
+    });
+    ticker.start();
+
+    long[] copy = new long[pets];
+    Set<Long> seen = new HashSet<>();
+    int copies = 0;
+    while (!done.get()) {
+      assertEquals("Copied states", pets, population.copyStates(0, copy, pets));
+      for (int i = 1; i < pets; i++) {
+        if (copy[i] != copy[0]) {
+          ticker.join();
+          assertEquals("State of pet " + i + " in copy " + copies, copy[0], copy[i]);
+        }
+      }
+      seen.add(copy[0]);
+      copies++;
+    }
+    ticker.join();
+    assertTrue("Distinct states seen: " + seen.size(), seen.size() > 1);
+  }
+
+  /**
+   * Tests that copies stop at the last pet.
+   */
+  @Test
+  public void testCopyStatesPastTheEnd() {
+    PetPopulation population = new PetPopulation(new ManualClock());
+    for (int i = 0; i < 5; i++) {
+      population.spawn();
+    }
+    long[] copy = new long[4];
+    assertEquals("Partial copy", 2, population.copyStates(3, copy, 4));
+    assertEquals("Copied state", PackedPetState.of(population.get(4)), copy[1]);
+    assertEquals("Past the end", 0, population.copyStates(7, copy, 4));
+  }
+}
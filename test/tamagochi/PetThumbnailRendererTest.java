@@ -0,0 +1,160 @@
+package tamagochi;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.imageio.ImageIO;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link PetThumbnailRenderer} class, together with the
+ * {@link HeadlessPetViewImpl} and {@link PngEncoder} it draws and encodes with. These
+ * tests validate that thumbnails decode to exactly what the view rendered, and that
+ * sprites fit the area they are drawn in.
+ */
+public class PetThumbnailRendererTest {
+  private static final int WIDTH = 128;
+  private static final int HEIGHT = 128;
+
+  private List<PetModel> pets;
+
+  /**
+   * Sets up a happy, a grumpy and a dead pet.
+   */
+  @Before
+  public void setUp() {
+    PetPopulation population = new PetPopulation(new ManualClock());
+    pets = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      pets.add(population.get(population.spawn()));
+    }
+    pets.get(1).setMood(Mood.GRUMPY);
+    PetModel dead = pets.get(2);
+    dead.setHungerLevel(0);
+    dead.setHygieneLevel(0);
+    dead.setSocialLevel(0);
+    dead.setSleepyLevel(0);
+    dead.updateState();
+  }
+
+  /**
+   * Tests that each thumbnail decodes to the pixels of the pet rendered by a headless
+   * view.
+   *
+   * @throws IOException if a thumbnail cannot be decoded.
+   */
+  @Test
+  public void testRenderRoundTrip() throws IOException {
+    PetThumbnailRenderer renderer = new PetThumbnailRenderer(WIDTH, HEIGHT);
+    HeadlessPetViewImpl view = new HeadlessPetViewImpl(WIDTH, HEIGHT);
+    for (PetModel pet : pets) {
+      BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(renderer.render(pet)));
+      assertNotNull("Decoded thumbnail", decoded);
+      assertEquals("Width", WIDTH, decoded.getWidth());
+      assertEquals("Height", HEIGHT, decoded.getHeight());
+
+      BufferedImage expected = render(view, pet);
+      for (int y = 0; y < HEIGHT; y++) {
+        for (int x = 0; x < WIDTH; x++) {
+          assertEquals("Pixel " + x + "," + y, expected.getRGB(x, y), decoded.getRGB(x, y));
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests that rendering a batch hands out the same thumbnails as rendering each pet.
+   */
+  @Test
+  public void testRenderAll() {
+    PetThumbnailRenderer renderer = new PetThumbnailRenderer(WIDTH, HEIGHT);
+    List<byte[]> thumbnails = new ArrayList<>();
+    renderer.renderAll(pets, (index, png, length) -> {
+      assertEquals("Index", thumbnails.size(), index);
+      byte[] copy = new byte[length];
+      System.arraycopy(png, 0, copy, 0, length);
+      thumbnails.add(copy);
+    });
+    assertEquals("Thumbnails", pets.size(), thumbnails.size());
+    for (int i = 0; i < pets.size(); i++) {
+      assertArrayEquals("Thumbnail " + i, renderer.render(pets.get(i)), thumbnails.get(i));
+    }
+  }
+
+  /**
+   * Tests that sprites are scaled to fit both dimensions of their box.
+   */
+  @Test
+  public void testSpriteFitsBox() {
+    for (Mood mood : new Mood[] {Mood.HAPPY, Mood.GRUMPY, Mood.DEPRESSIVE, null}) {
+      for (int health : new int[] {10, 80}) {
+        String path = PetControllerImpl.imagePathFor(mood, health);
+        BufferedImage wide = SpriteCache.firstFrame(path, 116, 50);
+        assertNotNull(path, wide);
+        assertTrue(path + " height " + wide.getHeight(), wide.getHeight() <= 50);
+        assertTrue(path + " width " + wide.getWidth(), wide.getWidth() <= 116);
+        BufferedImage tall = SpriteCache.firstFrame(path, 40, 300);
+        assertTrue(path + " width " + tall.getWidth(), tall.getWidth() <= 40);
+        assertTrue(path + " height " + tall.getHeight(), tall.getHeight() <= 300);
+      }
+    }
+    assertNull("Missing sprite", SpriteCache.firstFrame("/img/missing.gif", 10, 10));
+  }
+
+  /**
+   * Tests that the sprite of a headless view only covers the pet's area, between the
+   * two lines of text and the status bars.
+   */
+  @Test
+  public void testSpriteStaysInPetArea() {
+    HeadlessPetViewImpl view = new HeadlessPetViewImpl(WIDTH, HEIGHT);
+    BufferedImage withSprite = copy(render(view, pets.get(0)));
+    view.setPetImage("/img/missing.gif");
+    BufferedImage withoutSprite = view.render();
+    int petTop = 2 * (8 + 4) + 4;
+    int barsTop = HEIGHT - 5 * (6 + 2) - 2;
+    int changed = 0;
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        if (withSprite.getRGB(x, y) != withoutSprite.getRGB(x, y)) {
+          assertTrue("Sprite pixel at row " + y, y > petTop && y < barsTop - 5);
+          changed++;
+        }
+      }
+    }
+    assertTrue("Sprite drawn", changed > 0);
+  }
+
+  /**
+   * Draws a pet the way the renderer does.
+   */
+  private static BufferedImage render(HeadlessPetViewImpl view, PetModel pet) {
+    PetSnapshot state = pet.getSnapshot();
+    view.updateBars(state.getHungerLevel(), state.getHygieneLevel(), state.getSocialLevel(),
+        state.getSleepyLevel(), state.getHealthLevel());
+    view.updateMood(state.getMood());
+    view.updateGameOver(state.isGameOver());
+    view.updateSurvivalTime(PetControllerImpl.formatSurvivalTime(state.getSurvivalTime()));
+    view.setPetImage(PetControllerImpl.imagePathFor(state.getMood(), state.getHealthLevel()));
+    return view.render();
+  }
+
+  /**
+   * Copies an image, which the view overwrites on its next render.
+   */
+  private static BufferedImage copy(BufferedImage image) {
+    BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(),
+        BufferedImage.TYPE_INT_RGB);
+    copy.setData(image.getData());
+    return copy;
+  }
+}
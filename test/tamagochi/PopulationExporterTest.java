@@ -0,0 +1,87 @@
+package tamagochi;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link PopulationExporter} class. These tests validate that an
+ * export read back matches the pets' snapshots and behaviors, and that a closed
+ * exporter cannot be used.
+ */
+public class PopulationExporterTest {
+
+  /**
+   * Tests that every pet is read back as exported, across full and partial chunks.
+   *
+   * @throws IOException never, as the export is written to memory.
+   */
+  @Test
+  public void testExportRoundTrip() throws IOException {
+    ManualClock clock = new ManualClock();
+    PetPopulation population = new PetPopulation(clock);
+    SplittableRandom random = new SplittableRandom(17);
+    PetActions[] actions = PetActions.values();
+    for (int t = 0; t < 120; t++) {
+      for (int i = 0; i < 3; i++) {
+        population.spawn();
+      }
+      clock.advance(700, TimeUnit.MILLISECONDS);
+      population.updateAll();
+      PetModel pet = population.get(random.nextInt(population.size()));
+      if (!pet.isGameOver()) {
+        pet.performAction(actions[random.nextInt(actions.length)]);
+      }
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (PopulationExporter exporter = new PopulationExporter(100, 6)) {
+      assertEquals("Pets exported", 360, exporter.export(population, out));
+    }
+
+    List<PetSnapshot> states = new ArrayList<>();
+    List<String> behaviors = new ArrayList<>();
+    long rows = PopulationExporter.read(new ByteArrayInputStream(out.toByteArray()),
+        (state, behavior) -> {
+          states.add(state);
+          behaviors.add(behavior);
+        });
+    assertEquals("Pets read back", 360, rows);
+    for (int i = 0; i < 360; i++) {
+      PetModel pet = population.get(i);
+      PetSnapshot expected = pet.getSnapshot();
+      PetSnapshot actual = states.get(i);
+      String message = "Pet " + i;
+      assertEquals(message, i, actual.getPetId());
+      assertEquals(message, expected.getHungerLevel(), actual.getHungerLevel());
+      assertEquals(message, expected.getHygieneLevel(), actual.getHygieneLevel());
+      assertEquals(message, expected.getSocialLevel(), actual.getSocialLevel());
+      assertEquals(message, expected.getSleepyLevel(), actual.getSleepyLevel());
+      assertEquals(message, expected.getHealthLevel(), actual.getHealthLevel());
+      assertEquals(message, expected.getMood(), actual.getMood());
+      assertEquals(message, expected.isGameOver(), actual.isGameOver());
+      assertEquals(message, expected.getSurvivalTime(), actual.getSurvivalTime());
+      assertEquals(message, PetModelImpl.behaviorFor(expected.getMood()).getClass()
+          .getSimpleName(), behaviors.get(i));
+    }
+  }
+
+  /**
+   * Tests that a closed exporter, whose deflater was released, refuses to export.
+   *
+   * @throws IOException never, as the export is rejected before writing.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void testExportAfterClose() throws IOException {
+    PopulationExporter exporter = new PopulationExporter();
+    exporter.close();
+    exporter.close();
+    exporter.export(new PetPopulation(new ManualClock()), new ByteArrayOutputStream());
+  }
+}
@@ -0,0 +1,148 @@
+package tamagochi;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link SimulationMetrics} class. These tests validate that the
+ * population aggregates maintained on transitions match a scan of the pets, including
+ * pets without a mood or spawned while watching starts.
+ */
+public class SimulationMetricsTest {
+
+  /**
+   * Tests that the aggregates match a scan while pets are ticked, cared for, die and
+   * are reset.
+   */
+  @Test
+  public void testAggregatesMatchScan() {
+    ManualClock clock = new ManualClock();
+    SimulationScheduler scheduler = new SimulationScheduler(1000, () -> { }, clock);
+    try {
+      PetPopulation population = new PetPopulation(clock);
+      population.setDepletion(StochasticDepletion.parse("uniform:0:5", 9));
+      for (int i = 0; i < 100; i++) {
+        population.spawn();
+      }
+      SimulationMetrics metrics = new SimulationMetrics(scheduler);
+      metrics.watch(population);
+      SplittableRandom random = new SplittableRandom(9);
+      PetActions[] actions = PetActions.values();
+      for (int t = 0; t < 50; t++) {
+        population.updateAll();
+        for (int i = 0; i < 60; i++) {
+          PetModel pet = population.get(random.nextInt(population.size()));
+          if (pet.isGameOver()) {
+            pet.resetGame();
+          } else {
+            pet.performAction(actions[random.nextInt(actions.length)]);
+          }
+        }
+        if (t % 10 == 0) {
+          population.spawn();
+        }
+        assertMatchesScan(metrics, population);
+      }
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+
+  /**
+   * Tests that a living pet without a mood is counted as living but under no mood.
+   */
+  @Test
+  public void testNullMood() {
+    SimulationScheduler scheduler = new SimulationScheduler(1000, () -> { });
+    try {
+      PetPopulation population = new PetPopulation(new ManualClock());
+      population.spawn();
+      SimulationMetrics metrics = new SimulationMetrics(scheduler);
+      metrics.watch(population);
+      PetModel pet = population.get(0);
+      pet.setMood(null);
+      assertEquals("Living pets", 1, metrics.getLivePetCount());
+      assertEquals("Happy pets", 0L, (long) metrics.getLivePetsByMood().get("HAPPY"));
+      pet.setMood(Mood.GRUMPY);
+      assertEquals("Grumpy pets", 1L, (long) metrics.getLivePetsByMood().get("GRUMPY"));
+      pet.setMood(null);
+      pet.setHungerLevel(0);
+      pet.setHygieneLevel(0);
+      pet.setSocialLevel(0);
+      pet.setSleepyLevel(0);
+      pet.updateState();
+      assertEquals("Living pets", 0, metrics.getLivePetCount());
+      assertEquals("Dead pets", 1, metrics.getDeadPetCount());
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+
+  /**
+   * Tests that pets spawned while the metrics start watching are counted once.
+   */
+  @Test
+  public void testWatchWhileSpawning() throws InterruptedException {
+    SimulationScheduler scheduler = new SimulationScheduler(1000, () -> { });
+    try {
+      PetPopulation population = new PetPopulation(new ManualClock());
+      Thread spawner = new Thread(() -> {
+        for (int i = 0; i < 20_000; i++) {
+          population.spawn();
+        }
+      });
+      spawner.start();
+      while (population.size() < 1000) {
+        Thread.yield();
+      }
+      SimulationMetrics metrics = new SimulationMetrics(scheduler);
+      metrics.watch(population);
+      spawner.join();
+      assertEquals("Living pets", population.size(), metrics.getLivePetCount());
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+
+  /**
+   * Tests that a pet whose listener is taken cannot be watched.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void testWatchRejectsListenedPet() {
+    SimulationScheduler scheduler = new SimulationScheduler(1000, () -> { });
+    try {
+      PetModel pet = new PetModelImpl();
+      pet.setListener(new PetModelListener() { });
+      new SimulationMetrics(scheduler).watch(pet);
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+
+  private static void assertMatchesScan(SimulationMetrics metrics, PetPopulation population) {
+    long live = 0;
+    long dead = 0;
+    long health = 0;
+    long[] hunger = new long[10];
+    for (int i = 0; i < population.size(); i++) {
+      PetSnapshot state = population.get(i).getSnapshot();
+      if (state.isGameOver()) {
+        dead++;
+      } else {
+        live++;
+        health += state.getHealthLevel();
+        hunger[Math.min(state.getHungerLevel() / 10, 9)]++;
+      }
+    }
+    assertEquals("Living pets", live, metrics.getLivePetCount());
+    assertEquals("Dead pets", dead, metrics.getDeadPetCount());
+    assertEquals("Average health", live == 0 ? 0 : (double) health / live,
+        metrics.getAverageHealth(), 1e-9);
+    Map<String, long[]> histograms = metrics.getLevelHistograms();
+    assertArrayEquals("Hunger histogram", hunger, histograms.get("HUNGER"));
+  }
+}
@@ -0,0 +1,157 @@
+package tamagochi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link SimulationScheduler} class, driven by a {@link ManualClock}
+ * so that deadlines are deterministic. These tests validate that ticks follow absolute
+ * deadlines, that overdue ticks are caught up or skipped, and that failures are counted
+ * without stopping the simulation.
+ */
+public class SimulationSchedulerTest {
+  private static final long PERIOD_MILLIS = 1000;
+
+  private ManualClock clock;
+  private Runnable work;
+  private SimulationScheduler scheduler;
+
+  /**
+   * Sets up a scheduler ticking once per second of a manual clock, running whatever
+   * work the test sets.
+   */
+  @Before
+  public void setUp() {
+    clock = new ManualClock();
+    work = () -> { };
+    scheduler = new SimulationScheduler(PERIOD_MILLIS, () -> work.run(), clock);
+  }
+
+  /**
+   * Terminates the simulation thread.
+   */
+  @After
+  public void tearDown() {
+    scheduler.shutdown();
+  }
+
+  /**
+   * Tests that ticks taking half a period do not delay the following deadlines.
+   */
+  @Test
+  public void testNoDrift() throws InterruptedException {
+    work = () -> clock.advance(PERIOD_MILLIS / 2, TimeUnit.MILLISECONDS);
+    start();
+    clock.advance(PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    await(() -> scheduler.getTickCount() == 1);
+    for (int i = 2; i <= 20; i++) {
+      // The tick itself used half of the period; the next deadline is half a period away
+      clock.advance(PERIOD_MILLIS / 2, TimeUnit.MILLISECONDS);
+      long ticks = i;
+      await(() -> scheduler.getTickCount() == ticks);
+    }
+    assertEquals("Skipped ticks", 0, scheduler.getSkippedTicks());
+  }
+
+  /**
+   * Tests that a few overdue ticks are run back-to-back.
+   */
+  @Test
+  public void testCatchUp() throws InterruptedException {
+    start();
+    clock.advance(SimulationScheduler.MAX_CATCH_UP * PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    await(() -> scheduler.getTickCount() == SimulationScheduler.MAX_CATCH_UP);
+    clock.advance(PERIOD_MILLIS - 1, TimeUnit.MILLISECONDS);
+    TimeUnit.MILLISECONDS.sleep(20);
+    assertEquals("Ticks before the next deadline", SimulationScheduler.MAX_CATCH_UP,
+        scheduler.getTickCount());
+    assertEquals("Skipped ticks", 0, scheduler.getSkippedTicks());
+  }
+
+  /**
+   * Tests that ticks beyond the catch-up limit are skipped and the schedule rebased on
+   * the current time.
+   */
+  @Test
+  public void testRebase() throws InterruptedException {
+    start();
+    clock.advance(12 * PERIOD_MILLIS + PERIOD_MILLIS / 2, TimeUnit.MILLISECONDS);
+    await(() -> scheduler.getSkippedTicks() > 0);
+    assertEquals("Ticks caught up", SimulationScheduler.MAX_CATCH_UP,
+        scheduler.getTickCount());
+    assertEquals("Skipped ticks", 12 - SimulationScheduler.MAX_CATCH_UP,
+        scheduler.getSkippedTicks());
+
+    // The next deadline is one period after the rebase, not on the old grid
+    clock.advance(PERIOD_MILLIS / 2, TimeUnit.MILLISECONDS);
+    TimeUnit.MILLISECONDS.sleep(20);
+    assertEquals("Old deadline", SimulationScheduler.MAX_CATCH_UP, scheduler.getTickCount());
+    clock.advance(PERIOD_MILLIS / 2, TimeUnit.MILLISECONDS);
+    await(() -> scheduler.getTickCount() == SimulationScheduler.MAX_CATCH_UP + 1);
+  }
+
+  /**
+   * Tests that failing ticks and actions are counted and reported, and that ticking
+   * goes on.
+   */
+  @Test
+  public void testFailures() throws InterruptedException {
+    List<RuntimeException> errors = new CopyOnWriteArrayList<>();
+    scheduler.setErrorHandler(errors::add);
+    IllegalStateException tickFailure = new IllegalStateException("tick");
+    AtomicInteger calls = new AtomicInteger();
+    work = () -> {
+      if (calls.incrementAndGet() == 1) {
+        throw tickFailure;
+      }
+    };
+    ActionQueue queue = new ActionQueue(4);
+    IllegalArgumentException actionFailure = new IllegalArgumentException("action");
+    scheduler.attachActionQueue(queue, (petId, action) -> {
+      throw actionFailure;
+    });
+    start();
+
+    clock.advance(PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    await(() -> errors.size() == 1);
+    queue.offer(0, PetActions.FEED);
+    scheduler.signalActions();
+    await(() -> errors.size() == 2);
+    clock.advance(PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    await(() -> scheduler.getTickCount() == 1);
+
+    assertEquals("Reported failures", 2, errors.size());
+    assertSame("Tick failure", tickFailure, errors.get(0));
+    assertSame("Action failure", actionFailure, errors.get(1));
+    assertEquals("Failure count", 2, scheduler.getFailureCount());
+  }
+
+  /**
+   * Starts the scheduler and waits until its schedule is based on the clock.
+   */
+  private void start() throws InterruptedException {
+    scheduler.start();
+    await(scheduler::isRunning);
+  }
+
+  /**
+   * Waits for a condition to hold, failing after ten seconds.
+   */
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!condition.getAsBoolean()) {
+      assertTrue("Timed out", System.nanoTime() - deadline < 0);
+      TimeUnit.MILLISECONDS.sleep(1);
+    }
+  }
+}
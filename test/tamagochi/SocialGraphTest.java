@@ -0,0 +1,152 @@
+package tamagochi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link SocialGraph} class, over a fixed graph of six pets: pet 0 is
+ * friends with pets 1, 2 and 3, pets 1 and 2 are friends, and so are pets 4 and 5.
+ * These tests validate the degrees of the compressed rows, that boosts and contagion
+ * reach only friends within the bounds, and that dead pets are left alone.
+ */
+public class SocialGraphTest {
+  private static final int[] FROM = {0, 0, 1, 3, 4};
+  private static final int[] TO = {1, 2, 2, 0, 5};
+  private static final int HAPPY = 100;
+  private static final int GRUMPY = 61;
+  private static final int DEPRESSIVE = 26;
+  private static final int DEAD = 1;
+
+  private PetPopulation population;
+
+  /**
+   * Sets up a population of six grumpy pets.
+   */
+  @Before
+  public void setUp() {
+    population = new PetPopulation(new ManualClock());
+    for (int i = 0; i < 6; i++) {
+      population.spawn();
+      setLevels(i, GRUMPY);
+    }
+  }
+
+  /**
+   * Tests the degrees and edge count of the graph.
+   */
+  @Test
+  public void testDegrees() {
+    SocialGraph graph = new SocialGraph(6, FROM, TO, 2, 5, 0);
+    int[] degrees = {3, 2, 2, 1, 1, 1};
+    for (int p = 0; p < degrees.length; p++) {
+      assertEquals("Degree of pet " + p, degrees[p], graph.degreeOf(p));
+    }
+    assertEquals("Edges", 5, graph.getEdgeCount());
+  }
+
+  /**
+   * Tests that a socializing pet only boosts its friends.
+   */
+  @Test
+  public void testBoostReachesOnlyFriends() {
+    SocialGraph graph = attach(new SocialGraph(6, FROM, TO, 2, 5, 0));
+    population.updateAll();
+    population.get(3).performAction(PetActions.SOCIALIZE);
+    int[] before = socialLevels();
+    assertEquals("Changed pets", 1, graph.propagate(population));
+    before[0] += 2;
+    assertLevels(before);
+  }
+
+  /**
+   * Tests that the boosts of several friends are capped.
+   */
+  @Test
+  public void testBoostIsCapped() {
+    SocialGraph graph = attach(new SocialGraph(6, FROM, TO, 2, 5, 0));
+    population.updateAll();
+    for (int p = 1; p <= 3; p++) {
+      population.get(p).performAction(PetActions.SOCIALIZE);
+    }
+    int[] before = socialLevels();
+    graph.propagate(population);
+    before[0] += 5; // Three friends socializing, capped
+    before[1] += 2;
+    before[2] += 2;
+    assertLevels(before);
+  }
+
+  /**
+   * Tests that contagion applies the friends' moods, capped, every period only.
+   */
+  @Test
+  public void testContagion() {
+    SocialGraph graph = attach(new SocialGraph(6, FROM, TO, 1, 2, 2));
+    for (int p = 1; p <= 3; p++) {
+      setLevels(p, DEPRESSIVE);
+    }
+    setLevels(4, HAPPY);
+    for (int pass = 1; pass <= 4; pass++) {
+      population.updateAll();
+      int[] before = socialLevels();
+      graph.propagate(population);
+      if (pass % 2 == 0) {
+        before[0] -= 2; // Three depressive friends, capped
+        before[1] -= 1; // One depressive friend and a grumpy one
+        before[2] -= 1;
+        before[5] += 1; // One happy friend
+      }
+      assertLevels(before);
+    }
+  }
+
+  /**
+   * Tests that neither boosts nor contagion change dead pets.
+   */
+  @Test
+  public void testDeadPetsUnchanged() {
+    SocialGraph graph = attach(new SocialGraph(6, FROM, TO, 2, 5, 1));
+    setLevels(4, DEAD);
+    setLevels(5, HAPPY);
+    population.updateAll();
+    assertTrue("Pet 4 should be dead", population.get(4).isGameOver());
+    population.get(5).performAction(PetActions.SOCIALIZE);
+    int social = population.get(4).getSocialLevel();
+    graph.propagate(population);
+    assertEquals("Social level of the dead pet", social, population.get(4).getSocialLevel());
+  }
+
+  private SocialGraph attach(SocialGraph graph) {
+    graph.attach(population);
+    return graph;
+  }
+
+  /**
+   * Sets the four levels of a pet, whose mood follows on the next tick.
+   */
+  private void setLevels(int petId, int level) {
+    PetModel pet = population.get(petId);
+    pet.setHungerLevel(level);
+    pet.setHygieneLevel(level);
+    pet.setSocialLevel(level);
+    pet.setSleepyLevel(level);
+  }
+
+  private int[] socialLevels() {
+    int[] levels = new int[population.size()];
+    for (int p = 0; p < levels.length; p++) {
+      levels[p] = population.get(p).getSocialLevel();
+    }
+    return levels;
+  }
+
+  private void assertLevels(int[] expected) {
+    for (int p = 0; p < expected.length; p++) {
+      assertEquals("Social level of pet " + p, expected[p],
+          population.get(p).getSocialLevel());
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package tamagochi;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.SplittableRandom;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link StochasticDepletion} class. These tests validate the range
+ * and mean of the built-in distributions, the parsing of their descriptions, and that
+ * ticking a population's shards in parallel draws the same depletion as sequentially.
+ */
+public class StochasticDepletionTest {
+  private static final int DRAWS = 200_000;
+
+  /**
+   * Tests that a uniform distribution yields every amount of its range and nothing else,
+   * whether drawn one at a time or in blocks.
+   */
+  @Test
+  public void testUniformRange() {
+    StochasticDepletion.Distribution uniform = StochasticDepletion.Distribution.uniform(2, 4);
+    SplittableRandom random = new SplittableRandom(1);
+    int[] counts = new int[5];
+    for (int i = 0; i < DRAWS; i++) {
+      int amount = uniform.sample(random);
+      assertTrue("Out of range: " + amount, amount >= 2 && amount <= 4);
+      counts[amount]++;
+    }
+    int[] block = new int[DRAWS];
+    uniform.fill(block, 0, 1, random);
+    for (int amount : block) {
+      assertTrue("Out of range: " + amount, amount >= 2 && amount <= 4);
+    }
+    for (int amount = 2; amount <= 4; amount++) {
+      assertTrue("Amount " + amount + " should be drawn", counts[amount] > 0);
+    }
+  }
+
+  /**
+   * Tests that certain Bernoulli distributions always yield the same amount.
+   */
+  @Test
+  public void testBernoulliBounds() {
+    StochasticDepletion.Distribution never = StochasticDepletion.Distribution.bernoulli(0);
+    StochasticDepletion.Distribution always = StochasticDepletion.Distribution.bernoulli(1);
+    SplittableRandom random = new SplittableRandom(2);
+    for (int i = 0; i < DRAWS; i++) {
+      assertEquals("Probability 0", 0, never.sample(random));
+      assertEquals("Probability 1", 1, always.sample(random));
+    }
+  }
+
+  /**
+   * Tests that the sample means of the distributions are close to their expected values.
+   */
+  @Test
+  public void testMeans() {
+    assertMean("uniform", StochasticDepletion.Distribution.uniform(2, 4), 3, 0.02);
+    assertMean("uniform", StochasticDepletion.Distribution.uniform(0, 9), 4.5, 0.05);
+    assertMean("bernoulli", StochasticDepletion.Distribution.bernoulli(0.3), 0.3, 0.01);
+    assertMean("poisson", StochasticDepletion.Distribution.poisson(3), 3, 0.03);
+    assertMean("poisson", StochasticDepletion.Distribution.poisson(0.5), 0.5, 0.01);
+  }
+
+  private static void assertMean(String name, StochasticDepletion.Distribution distribution,
+                                 double expected, double tolerance) {
+    SplittableRandom random = new SplittableRandom(3);
+    long sum = 0;
+    for (int i = 0; i < DRAWS; i++) {
+      sum += distribution.sample(random);
+    }
+    assertEquals("Mean of " + name, expected, (double) sum / DRAWS, tolerance);
+  }
+
+  /**
+   * Tests that parsed distributions apply to the levels in order.
+   */
+  @Test
+  public void testParse() {
+    StochasticDepletion depletion =
+        StochasticDepletion.parse("0, uniform:2:2, bernoulli:1, POISSON:0", 4);
+    int[] amounts = new int[4];
+    for (int i = 0; i < 2 * StochasticDepletion.BLOCK; i++) {
+      depletion.next(amounts);
+      assertArrayEquals("Tick " + i, new int[] {0, 2, 1, 0}, amounts);
+    }
+    StochasticDepletion.parse("uniform:1:3", 4).next(amounts);
+    for (int amount : amounts) {
+      assertTrue("Out of range: " + amount, amount >= 1 && amount <= 3);
+    }
+  }
+
+  /**
+   * Tests that malformed descriptions are rejected.
+   */
+  @Test
+  public void testParseRejectsMalformedSpecs() {
+    String[] specs = {"", "-1", "x", "uniform:4:2", "uniform:1", "uniform:-1:2",
+        "bernoulli:1.5", "bernoulli:", "poisson:-1", "poisson:31", "poisson:NaN",
+        "gamma:2", "1,2", "1,1,1,1,1"};
+    for (String spec : specs) {
+      try {
+        StochasticDepletion.parse(spec, 1);
+        fail("Should reject \"" + spec + "\"");
+      } catch (IllegalArgumentException e) {
+        // Expected
+      }
+    }
+  }
+
+  /**
+   * Tests that ticking shards in parallel yields the same states as sequentially.
+   */
+  @Test
+  public void testParallelTicksMatchSequential() {
+    int pets = 5 * PetPopulation.SHARD_SIZE + 17;
+    PetPopulation sequential = populationOf(pets);
+    PetPopulation parallel = populationOf(pets);
+    parallel.setParallel(true);
+    for (int tick = 0; tick < 30; tick++) {
+      sequential.updateAll();
+      parallel.updateAll();
+    }
+    long[] expected = new long[pets];
+    long[] actual = new long[pets];
+    sequential.copyStates(0, expected, pets);
+    parallel.copyStates(0, actual, pets);
+    assertArrayEquals("States", expected, actual);
+  }
+
+  private static PetPopulation populationOf(int pets) {
+    PetPopulation population = new PetPopulation(new ManualClock());
+    for (int i = 0; i < pets; i++) {
+      population.spawn();
+    }
+    population.setDepletion(StochasticDepletion.parse("poisson:1.5", 9));
+    return population;
+  }
+}
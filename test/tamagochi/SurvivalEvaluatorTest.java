@@ -0,0 +1,72 @@
+package tamagochi;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link SurvivalEvaluator} class. These tests validate that lives
+ * follow the game's rules, that results only depend on the seed and that lives beyond
+ * the tick limit are censored.
+ */
+public class SurvivalEvaluatorTest {
+
+  /**
+   * Tests that an unattended pet dies at the same time in every life.
+   */
+  @Test
+  public void testNeglectedPetsDieTogether() throws InterruptedException {
+    SurvivalEvaluator.Result result =
+        new SurvivalEvaluator(CarePolicy.neglect(), 10_000).evaluate(100, 3, 1);
+    assertEquals("All lives should be played", 100, result.getLives());
+    assertEquals("All lives should end", 100, result.getSurvivalTimes().getCount());
+    assertEquals("Lives should be identical", result.getSurvivalTimes().getMax(),
+        result.getSurvivalTimes().getValueAtPercentile(0));
+  }
+
+  /**
+   * Tests that a stochastic policy yields the same distribution for the same seed.
+   */
+  @Test
+  public void testSameSeedSameResult() throws InterruptedException {
+    SurvivalEvaluator evaluator =
+        new SurvivalEvaluator(CarePolicy.lowestBelow(50, 0.1), 10_000);
+    SurvivalEvaluator.Result first = evaluator.evaluate(1000, 2, 7);
+    SurvivalEvaluator.Result second = evaluator.evaluate(1000, 2, 7);
+    assertEquals("Mean should be reproducible", first.getSurvivalTimes().getMean(),
+        second.getSurvivalTimes().getMean(), 0);
+    assertEquals("Maximum should be reproducible", first.getSurvivalTimes().getMax(),
+        second.getSurvivalTimes().getMax());
+  }
+
+  /**
+   * Tests that lives outlasting the tick limit are counted as censored.
+   */
+  @Test
+  public void testLivesBeyondLimitAreCensored() throws InterruptedException {
+    SurvivalEvaluator.Result result =
+        new SurvivalEvaluator(CarePolicy.neglect(), 10).evaluate(5, 1, 1);
+    assertEquals("No life should end within 10 ticks", 0,
+        result.getSurvivalTimes().getCount());
+    assertEquals("All lives should be censored", 5, result.getCensoredCount());
+  }
+
+  /**
+   * Tests that stochastic depletion is reproducible from its seed and that a
+   * distribution never depleting keeps an unattended pet alive.
+   */
+  @Test
+  public void testStochasticDepletionIsReproducible() throws InterruptedException {
+    SurvivalEvaluator evaluator = new SurvivalEvaluator(CarePolicy.neglect(), 10_000);
+    evaluator.setDepletion(StochasticDepletion.parse("poisson:1,uniform:0:2,1,1", 3));
+    SurvivalEvaluator.Result first = evaluator.evaluate(500, 2, 5);
+    evaluator.setDepletion(StochasticDepletion.parse("poisson:1,uniform:0:2,1,1", 3));
+    SurvivalEvaluator.Result second = evaluator.evaluate(500, 2, 5);
+    assertEquals("Mean should be reproducible", first.getSurvivalTimes().getMean(),
+        second.getSurvivalTimes().getMean(), 0);
+
+    evaluator.setDepletion(StochasticDepletion.parse("bernoulli:0", 3));
+    assertEquals("Pets that never deplete should outlive the limit", 10,
+        evaluator.evaluate(10, 1, 5).getCensoredCount());
+  }
+}
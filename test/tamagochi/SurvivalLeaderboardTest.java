@@ -0,0 +1,147 @@
+package tamagochi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link SurvivalLeaderboard} class, driven by a {@link ManualClock}.
+ * These tests validate that pets are ranked as they are spawned, die and are reset,
+ * and that ranks agree with the top list.
+ */
+public class SurvivalLeaderboardTest {
+  private ManualClock clock;
+  private PetPopulation population;
+  private SurvivalLeaderboard leaderboard;
+
+  /**
+   * Sets up an empty population followed by a leaderboard before each test.
+   */
+  @Before
+  public void setUp() {
+    clock = new ManualClock();
+    population = new PetPopulation(clock);
+    leaderboard = new SurvivalLeaderboard(clock);
+    leaderboard.watch(population);
+  }
+
+  /**
+   * Tests that older pets rank first, and that a dead pet keeps its survival time.
+   */
+  @Test
+  public void testRanksBySurvivalTime() {
+    int first = population.spawn();
+    clock.advance(10, TimeUnit.SECONDS);
+    int second = population.spawn();
+    clock.advance(5, TimeUnit.SECONDS);
+    starve(population.get(first));
+    clock.advance(20, TimeUnit.SECONDS);
+
+    List<SurvivalLeaderboard.Entry> top = leaderboard.top(10);
+    assertEquals("Both pets should be listed", 2, top.size());
+    assertEquals("The living pet has outlived the dead one", second, top.get(0).getPetId());
+    assertEquals("Living pet survival", 25, top.get(0).getSurvivalTime());
+    assertTrue("First pet should be dead", top.get(1).isGameOver());
+    assertEquals("Dead pet survival", 15, top.get(1).getSurvivalTime());
+    assertEquals("Rank of the living pet", 1, leaderboard.rankOf(second));
+    assertEquals("Rank of the dead pet", 2, leaderboard.rankOf(first));
+  }
+
+  /**
+   * Empties a pet's levels and ticks it, ending its game.
+   */
+  private static void starve(PetModel pet) {
+    pet.setHungerLevel(0);
+    pet.setHygieneLevel(0);
+    pet.setSocialLevel(0);
+    pet.setSleepyLevel(0);
+    pet.updateState();
+  }
+
+  /**
+   * Tests that a reset pet starts again from the bottom.
+   */
+  @Test
+  public void testResetMovesPetDown() {
+    int first = population.spawn();
+    clock.advance(10, TimeUnit.SECONDS);
+    int second = population.spawn();
+    clock.advance(10, TimeUnit.SECONDS);
+    population.get(first).resetGame();
+    clock.advance(1, TimeUnit.SECONDS);
+
+    assertEquals("Reset pet should rank last", 2, leaderboard.rankOf(first));
+    assertEquals("Other pet should rank first", second, leaderboard.top(1).get(0).getPetId());
+    assertEquals("Unknown pets have no rank", -1, leaderboard.rankOf(42));
+  }
+
+  /**
+   * Tests that ranks match the positions in the top list of a population after many
+   * ticks with deaths and resets.
+   */
+  @Test
+  public void testRanksMatchTopList() {
+    population.setDepletion(StochasticDepletion.parse("poisson:2", 7));
+    for (int i = 0; i < 200; i++) {
+      population.spawn();
+      clock.advance(1, TimeUnit.SECONDS);
+      population.updateAll();
+      if (i % 7 == 0 && population.get(i / 2).isGameOver()) {
+        population.get(i / 2).resetGame();
+      }
+    }
+    List<SurvivalLeaderboard.Entry> top = leaderboard.top(200);
+    assertEquals("All pets should be listed", 200, top.size());
+    for (int i = 0; i < top.size(); i++) {
+      assertEquals("Rank of pet " + top.get(i).getPetId(), i + 1,
+          leaderboard.rankOf(top.get(i).getPetId()));
+      if (i > 0) {
+        assertTrue("Survival times should not increase",
+            top.get(i).getSurvivalTime() <= top.get(i - 1).getSurvivalTime());
+      }
+    }
+  }
+
+  /**
+   * Tests that the top list of a group keeps the order of the overall one, whether pets
+   * are assigned before or after being placed, and that tenants of a service only see
+   * their own pets.
+   */
+  @Test
+  public void testTopOfGroup() {
+    leaderboard.setGroup(0, "even");
+    for (int i = 0; i < 10; i++) {
+      population.spawn();
+      clock.advance(1, TimeUnit.SECONDS);
+      if (i > 0) {
+        leaderboard.setGroup(i, i % 2 == 0 ? "even" : "odd");
+      }
+    }
+    starve(population.get(4));
+    leaderboard.setGroup(9, null);
+    List<SurvivalLeaderboard.Entry> even = leaderboard.top(3, "even");
+    assertEquals("Group size", 3, even.size());
+    assertEquals("Oldest even pet", 0, even.get(0).getPetId());
+    assertEquals("Next living even pet", 2, even.get(1).getPetId());
+    assertEquals("Dead even pet", 4, even.get(2).getPetId());
+    assertTrue("Dead even pet", even.get(2).isGameOver());
+    assertEquals("Fewer pets than asked", 4, leaderboard.top(10, "odd").size());
+    assertTrue("Unknown group", leaderboard.top(10, "none").isEmpty());
+    assertEquals("Overall", 10, leaderboard.top(100).size());
+
+    PetService service = new PetService(1000, clock);
+    for (int i = 0; i < 6; i++) {
+      service.createPet(i % 3 == 0 ? "a" : "b");
+    }
+    List<SurvivalLeaderboard.Entry> top = service.getLeaderboard("a", 100);
+    assertEquals("Pets of tenant a", 2, top.size());
+    for (SurvivalLeaderboard.Entry entry : top) {
+      assertEquals("Pet " + entry.getPetId(), 0, entry.getPetId() % 3);
+    }
+    assertTrue("Unknown tenant", service.getLeaderboard("c", 100).isEmpty());
+  }
+}
@@ -0,0 +1,75 @@
+package tamagochi;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link SurvivalTimer} class, driven by a {@link ManualClock} so
+ * that elapsed time is deterministic. These tests validate starting, stopping and
+ * resetting the timer.
+ */
+public class SurvivalTimerTest {
+  private ManualClock clock;
+  private SurvivalTimer timer;
+
+  /**
+   * Sets up a fresh timer on a manual clock before each test.
+   */
+  @Before
+  public void setUp() {
+    clock = new ManualClock(TimeUnit.DAYS.toNanos(3));
+    timer = new SurvivalTimer(clock);
+  }
+
+  /**
+   * Tests that a running timer counts whole seconds of clock time.
+   */
+  @Test
+  public void testCountsElapsedSeconds() {
+    timer.start();
+    assertEquals("No time should have passed", 0, timer.getSurvivalTime());
+    clock.advance(1500, TimeUnit.MILLISECONDS);
+    assertEquals("Partial seconds should be truncated", 1, timer.getSurvivalTime());
+    clock.advance(1, TimeUnit.DAYS);
+    assertEquals("A day should be counted", 86401, timer.getSurvivalTime());
+  }
+
+  /**
+   * Tests that a stopped timer keeps its survival time while the clock moves on.
+   */
+  @Test
+  public void testStopFreezesSurvivalTime() {
+    timer.start();
+    clock.advance(42, TimeUnit.SECONDS);
+    timer.stop();
+    clock.advance(1, TimeUnit.HOURS);
+    assertEquals("Stopped timer should not advance", 42, timer.getSurvivalTime());
+  }
+
+  /**
+   * Tests that resetting and restarting the timer starts counting from zero again.
+   */
+  @Test
+  public void testResetRestartsFromZero() {
+    timer.start();
+    clock.advance(10, TimeUnit.SECONDS);
+    timer.reset();
+    assertEquals("Reset timer should read 0", 0, timer.getSurvivalTime());
+    timer.start();
+    clock.advance(3, TimeUnit.SECONDS);
+    assertEquals("Restarted timer should count from 0", 3, timer.getSurvivalTime());
+  }
+
+  /**
+   * Tests that a pet's survival time follows the clock it was created with.
+   */
+  @Test
+  public void testPetUsesClock() {
+    PetModelImpl pet = new PetModelImpl(0, clock);
+    clock.advance(90, TimeUnit.SECONDS);
+    assertEquals("Pet survival time should follow the clock", 90, pet.getSurvivalTime());
+  }
+}
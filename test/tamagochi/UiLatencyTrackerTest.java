@@ -0,0 +1,113 @@
+package tamagochi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.event.ActionEvent;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link UiLatencyTracker} class, reporting clicks, updates and
+ * paint passes directly instead of through Swing; the test thread stands in for the
+ * EDT. These tests validate which stages each click and tick is recorded in, and the
+ * frame count.
+ */
+public class UiLatencyTrackerTest {
+  private UiLatencyTracker tracker;
+
+  /**
+   * Sets up a tracker without installing its paint hook.
+   */
+  @Before
+  public void setUp() {
+    tracker = new UiLatencyTracker();
+  }
+
+  /**
+   * Tests that a click is recorded once in every stage up to the paint showing it, and
+   * that the tick shown meanwhile does not replace it.
+   */
+  @Test
+  public void testClickToPaint() throws InterruptedException {
+    tracker.clicked(click());
+    tracker.actionApplied();
+    tracker.actionApplied();
+    TimeUnit.MILLISECONDS.sleep(5);
+    tracker.transitionEnded();
+    tracker.transitionEnded();
+    tracker.tickShown(System.nanoTime());
+    tracker.painted(true);
+    tracker.painted(true);
+
+    assertEquals("Inputs", 1, count(UiLatencyTracker.Stage.INPUT_DISPATCH));
+    assertEquals("Applied actions", 1, count(UiLatencyTracker.Stage.ACTION_APPLIED));
+    assertEquals("Transitions", 1, count(UiLatencyTracker.Stage.TRANSITION));
+    assertEquals("Clicks painted", 1, count(UiLatencyTracker.Stage.CLICK_TO_PAINT));
+    assertEquals("Ticks painted", 0, count(UiLatencyTracker.Stage.TICK_TO_PAINT));
+    LatencyHistogram clickToPaint =
+        tracker.getHistogram(UiLatencyTracker.Stage.CLICK_TO_PAINT);
+    assertTrue("Click to paint " + clickToPaint.getMax(),
+        clickToPaint.getMax() >= TimeUnit.MILLISECONDS.toNanos(5));
+    assertTrue("Paint after the transition", clickToPaint.getMax()
+        >= tracker.getHistogram(UiLatencyTracker.Stage.TRANSITION).getMax());
+    assertEquals("Frames", 2, tracker.getFrameCount());
+  }
+
+  /**
+   * Tests that a tick is recorded at the next paint pass, whether or not it repainted
+   * content, and that only content passes count as frames.
+   */
+  @Test
+  public void testTickToPaint() {
+    tracker.tickShown(System.nanoTime());
+    tracker.tickShown(System.nanoTime());
+    tracker.painted(false);
+    tracker.painted(true);
+    assertEquals("Ticks painted", 1, count(UiLatencyTracker.Stage.TICK_TO_PAINT));
+    assertEquals("Frames", 1, tracker.getFrameCount());
+  }
+
+  /**
+   * Tests that updates which no click led to are not recorded as part of a click.
+   */
+  @Test
+  public void testUpdatesWithoutClick() {
+    tracker.actionApplied();
+    tracker.transitionEnded();
+    tracker.painted(true);
+    assertEquals("Applied actions", 0, count(UiLatencyTracker.Stage.ACTION_APPLIED));
+    assertEquals("Transitions", 0, count(UiLatencyTracker.Stage.TRANSITION));
+    assertEquals("Clicks painted", 0, count(UiLatencyTracker.Stage.CLICK_TO_PAINT));
+  }
+
+  /**
+   * Tests that the CSV export holds a header and one row per stage.
+   */
+  @Test
+  public void testExportCsv() {
+    tracker.clicked(click());
+    StringWriter out = new StringWriter();
+    tracker.exportCsv(out);
+    String[] lines = out.toString().split("\\R");
+    assertEquals("Lines", UiLatencyTracker.Stage.values().length + 1, lines.length);
+    assertTrue(lines[1], lines[1].startsWith("INPUT_DISPATCH,1,"));
+  }
+
+  /**
+   * Creates the event of a click happening now.
+   */
+  private static ActionEvent click() {
+    return new ActionEvent(new Object(), ActionEvent.ACTION_PERFORMED, "Feed",
+        System.currentTimeMillis(), 0);
+  }
+
+  /**
+   * Retrieves the number of samples of a stage.
+   */
+  private long count(UiLatencyTracker.Stage stage) {
+    return tracker.getHistogram(stage).getCount();
+  }
+}